@@ -0,0 +1,44 @@
+#! /bin/sh
+# aibench.sh
+# Compare the wall clock time per turn of AI debug runs using different
+# numbers of AI planning threads.
+#
+# Usage:
+#   aibench.sh <freecol-save-file> [turns [threads...]]
+#
+# Each run loads the save file with the same seed, runs the given
+# number of turns (default 20) with --debug-run, and reports the
+# mean and standard deviation of the turn times in milliseconds
+# logged by the server.  The thread counts default to "0 4".
+#
+if test $# -lt 1 ; then
+    echo "usage: $0 <freecol-save-file> [turns [threads...]]" >&2
+    exit 1
+fi
+FCBIN=${FCBIN-freecol}
+TMPDIR=${TMPDIR-/tmp}
+SEED=${SEED-1}
+if test "x$STATS" = "x" ; then
+    dpath=`dirname "$0"`
+    if test -x "${dpath}/stats.awk" ; then
+        STATS="${dpath}/stats.awk"
+    fi
+fi
+STATS=${STATS:-stats.awk} # Where is the stats awk script?
+
+save="$1" ; shift
+turns=20
+if test $# -gt 0 ; then turns="$1" ; shift ; fi
+threads="$*"
+if test "x$threads" = "x" ; then threads="0 4" ; fi
+
+for n in $threads ; do
+    log="$TMPDIR/fclog-aibench-$n"
+    rm -f "$log"
+    $FCBIN --log-file "$log" --no-intro --no-sound --splash /dev/null \
+           --seed "$SEED" --ai-threads "$n" --debug-run "$turns" \
+           --load-savegame "$save" 1> /dev/null 2>&1
+    echo -n "ai-threads=$n: "
+    sed -n -e 's/^.*Debug run turn .* took \([0-9]*\)ms.*$/\1/p' "$log" \
+        | $STATS
+done
@@ -53,6 +53,7 @@ import net.sf.freecol.common.logging.DefaultHandler;
 import net.sf.freecol.common.model.NationOptions.Advantages;
 import net.sf.freecol.common.model.Specification;
 import net.sf.freecol.common.model.StringTemplate;
+import net.sf.freecol.common.networking.Connection;
 import net.sf.freecol.common.option.OptionGroup;
 import static net.sf.freecol.common.util.CollectionUtils.*;
 import net.sf.freecol.server.FreeColServer;
@@ -149,6 +150,9 @@ public final class FreeCol {
     /** The type of advantages. */
     private static Advantages advantages = null;
 
+    /** The number of threads to use for AI planning, zero for none. */
+    private static int aiThreads = 0;
+
     /** The difficulty level id. */
     private static String difficulty = null;
 
@@ -158,6 +162,9 @@ public final class FreeCol {
     /** A font override. */
     private static String fontName = null;
 
+    /** The number of threads to handle messages with, zero for no limit. */
+    private static int messageThreads = 0;
+
     /** The levels of logging in this game. */
     private static class LogLevel {
 
@@ -197,6 +204,10 @@ public final class FreeCol {
     /** The TotalConversion / ruleset in play, defaults to "freecol". */
     private static String tc = null;
 
+    /** The format to save games in. */
+    private static FreeColSavegameFile.Format savegameFormat
+        = FreeColSavegameFile.Format.XML;
+
     /** The time out (seconds) for otherwise blocking commands. */
     private static long timeout = -1L;
 
@@ -206,6 +217,9 @@ public final class FreeCol {
      */
     private static Dimension windowSize = new Dimension(-1, -1);
 
+    /** The format the client asks to use for network messages. */
+    private static Connection.WireFormat wireFormat = Connection.WireFormat.XML;
+
     /** How much gui elements get scaled. */
     private static float guiScale = GUI_SCALE_DEFAULT;
 
@@ -485,6 +499,11 @@ public final class FreeCol {
                           .argName(Messages.message("cli.arg.advantages"))
                           .hasArg()
                           .build());
+        options.addOption(Option.builder().longOpt("ai-threads")
+                          .desc(Messages.message("cli.ai-threads"))
+                          .argName(Messages.message("cli.arg.threads"))
+                          .hasArg()
+                          .build());
         options.addOption(Option.builder().longOpt("check-savegame")
                           .desc(Messages.message("cli.check-savegame"))
                           .argName(Messages.message("cli.arg.file"))
@@ -559,6 +578,11 @@ public final class FreeCol {
                           .argName(Messages.message("cli.arg.loglevel"))
                           .hasArgs()
                           .build());
+        options.addOption(Option.builder().longOpt("message-threads")
+                          .desc(Messages.message("cli.message-threads"))
+                          .argName(Messages.message("cli.arg.threads"))
+                          .hasArg()
+                          .build());
         options.addOption(Option.builder().longOpt("name")
                           .desc(Messages.message("cli.name"))
                           .argName(Messages.message("cli.arg.name"))
@@ -582,6 +606,11 @@ public final class FreeCol {
         options.addOption(Option.builder().longOpt("private")
                           .desc(Messages.message("cli.private"))
                           .build());
+        options.addOption(Option.builder().longOpt("savegame-format")
+                          .desc(Messages.message("cli.savegame-format"))
+                          .argName(Messages.message("cli.arg.format"))
+                          .hasArg()
+                          .build());
         options.addOption(Option.builder().longOpt("seed")
                           .desc(Messages.message("cli.seed"))
                           .argName(Messages.message("cli.arg.seed"))
@@ -641,6 +670,11 @@ public final class FreeCol {
                           .argName(Messages.message("cli.arg.dimensions"))
                           .optionalArg(true)
                           .build());
+        options.addOption(Option.builder().longOpt("wire-format")
+                          .desc(Messages.message("cli.wire-format"))
+                          .argName(Messages.message("cli.arg.format"))
+                          .hasArg()
+                          .build());
 
         CommandLineParser parser = new DefaultParser();
         boolean usageError = false;
@@ -667,6 +701,14 @@ public final class FreeCol {
                 }
             }
 
+            if (line.hasOption("ai-threads")) {
+                String arg = line.getOptionValue("ai-threads");
+                if (!setAIThreads(arg)) { // Not fatal
+                    gripe(StringTemplate.template("cli.error.aiThreads")
+                        .addName("%string%", arg));
+                }
+            }
+
             if (line.hasOption("check-savegame")) {
                 String arg = line.getOptionValue("check-savegame");
                 if (!FreeColDirectories.setSavegameFile(arg)) {
@@ -778,6 +820,14 @@ public final class FreeCol {
                 }
             }
 
+            if (line.hasOption("message-threads")) {
+                String arg = line.getOptionValue("message-threads");
+                if (!setMessageThreads(arg)) { // Not fatal
+                    gripe(StringTemplate.template("cli.error.messageThreads")
+                        .addName("%string%", arg));
+                }
+            }
+
             if (line.hasOption("name")) {
                 setName(line.getOptionValue("name"));
             }
@@ -802,6 +852,15 @@ public final class FreeCol {
                 publicServer = false;
             }
 
+            if (line.hasOption("savegame-format")) {
+                String arg = line.getOptionValue("savegame-format");
+                if (!setSavegameFormat(arg)) { // Not fatal
+                    gripe(StringTemplate.template("cli.error.savegameFormat")
+                        .addName("%formats%", getValidSavegameFormats())
+                        .addName("%arg%", arg));
+                }
+            }
+
             if (line.hasOption("server")) {
                 standAloneServer = true;
             }
@@ -881,6 +940,15 @@ public final class FreeCol {
                 setWindowSize(arg); // Does not fail
             }
 
+            if (line.hasOption("wire-format")) {
+                String arg = line.getOptionValue("wire-format");
+                if (!setWireFormat(arg)) { // Not fatal
+                    gripe(StringTemplate.template("cli.error.wireFormat")
+                        .addName("%formats%", getValidWireFormats())
+                        .addName("%arg%", arg));
+                }
+            }
+
         } catch (ParseException e) {
             System.err.println("\n" + e.getMessage() + "\n");
             usageError = true;
@@ -913,13 +981,20 @@ public final class FreeCol {
                                                   Advantages advantages,
                                                   String difficulty) {
         Specification spec = null;
+        final long start = System.currentTimeMillis();
         try {
             if (tcf != null) spec = tcf.getSpecification();
         } catch (IOException ioe) {
             System.err.println("Spec read failed in " + tcf.getId()
                 + ": " + ioe.getMessage() + "\n");
         }
-        if (spec != null) spec.prepare(advantages, difficulty);
+        if (spec != null) {
+            final long read = System.currentTimeMillis();
+            spec.prepare(advantages, difficulty);
+            logger.info("Loaded specification " + tcf.getId()
+                + ": read " + (read - start) + "ms"
+                + ", prepare " + (System.currentTimeMillis() - read) + "ms");
+        }
         return spec;
     }
 
@@ -1026,6 +1101,34 @@ public final class FreeCol {
         FreeCol.difficulty = difficulty;
     }
 
+    /**
+     * Gets the number of threads to use for AI planning.
+     *
+     * @return The number of AI planning threads, zero if AI planning
+     *     is not to be done concurrently.
+     */
+    public static int getAIThreads() {
+        return aiThreads;
+    }
+
+    /**
+     * Sets the number of threads to use for AI planning.
+     *
+     * @param arg A string containing the number of threads.
+     * @return True if the number of threads was set.
+     */
+    public static boolean setAIThreads(String arg) {
+        try {
+            int n = Integer.parseInt(arg);
+            if (n >= 0) {
+                aiThreads = Math.min(n,
+                    Runtime.getRuntime().availableProcessors());
+                return true;
+            }
+        } catch (NumberFormatException nfe) {}
+        return false;
+    }
+
     /**
      * Gets the names of the valid difficulty levels.
      *
@@ -1116,6 +1219,100 @@ public final class FreeCol {
         return -1;
     }
 
+    /**
+     * Gets the format to save games in.
+     *
+     * @return The savegame {@code Format}.
+     */
+    public static FreeColSavegameFile.Format getSavegameFormat() {
+        return savegameFormat;
+    }
+
+    /**
+     * Sets the format to save games in.
+     *
+     * @param arg The name of the format.
+     * @return True if the format was recognized.
+     */
+    public static boolean setSavegameFormat(String arg) {
+        FreeColSavegameFile.Format sf = find(FreeColSavegameFile.Format.values(),
+            f -> f.toString().equalsIgnoreCase(arg));
+        if (sf == null) return false;
+        savegameFormat = sf;
+        return true;
+    }
+
+    /**
+     * Gets the names of the valid savegame formats.
+     *
+     * @return The valid savegame formats, comma separated.
+     */
+    public static String getValidSavegameFormats() {
+        return transform(FreeColSavegameFile.Format.values(), alwaysTrue(),
+                         f -> f.toString().toLowerCase(),
+                         Collectors.joining(","));
+    }
+
+    /**
+     * Gets the format the client asks to use for network messages.
+     *
+     * @return The requested {@code WireFormat}.
+     */
+    public static Connection.WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    /**
+     * Sets the format the client asks to use for network messages.
+     *
+     * @param arg The name of the format.
+     * @return True if the format was recognized.
+     */
+    public static boolean setWireFormat(String arg) {
+        Connection.WireFormat wf = find(Connection.WireFormat.values(),
+            f -> f.toString().equalsIgnoreCase(arg));
+        if (wf == null) return false;
+        wireFormat = wf;
+        return true;
+    }
+
+    /**
+     * Gets the names of the valid wire formats.
+     *
+     * @return The valid wire formats, comma separated.
+     */
+    public static String getValidWireFormats() {
+        return transform(Connection.WireFormat.values(), alwaysTrue(),
+                         f -> f.toString().toLowerCase(),
+                         Collectors.joining(","));
+    }
+
+    /**
+     * Gets the number of threads to handle network messages with.
+     *
+     * @return The number of message handler threads, zero if unlimited.
+     */
+    public static int getMessageThreads() {
+        return messageThreads;
+    }
+
+    /**
+     * Sets the number of threads to handle network messages with.
+     *
+     * @param arg A string containing the number of threads.
+     * @return True if the number of threads was set.
+     */
+    public static boolean setMessageThreads(String arg) {
+        try {
+            int n = Integer.parseInt(arg);
+            if (n >= 0) {
+                messageThreads = n;
+                return true;
+            }
+        } catch (NumberFormatException nfe) {}
+        return false;
+    }
+
     /**
      * Gets the user name.
      *
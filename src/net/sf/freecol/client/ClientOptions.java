@@ -49,6 +49,7 @@ import net.sf.freecol.common.option.ModListOption;
 import net.sf.freecol.common.option.OptionGroup;
 import net.sf.freecol.common.option.RangeOption;
 import net.sf.freecol.common.option.TextOption;
+import net.sf.freecol.common.resources.ResourceManager;
 import static net.sf.freecol.common.util.CollectionUtils.*;
 import net.sf.freecol.common.util.Utils;
 
@@ -190,6 +191,10 @@ public class ClientOptions extends OptionGroup {
     public static final String SMOOTH_MINIMAP_RENDERING
         = "model.option.smoothRendering";
 
+    /** The budget of the image cache, in megabytes. */
+    public static final String IMAGE_CACHE_SIZE
+        = "model.option.imageCacheSize";
+
     /** Whether to display end turn grey background or not. */
     public static final String DISABLE_GRAY_LAYER
         = "model.option.disableGrayLayer";
@@ -738,6 +743,11 @@ public class ClientOptions extends OptionGroup {
                 + " option", e);
         }
         // end @compat 0.11.3
+
+        // @compat 0.11.6
+        addIntegerOption(IMAGE_CACHE_SIZE,
+            "clientOptions.gui", ResourceManager.DEFAULT_IMAGE_CACHE_SIZE);
+        // end @compat 0.11.6
     }
 
     private void addBooleanOption(String id, String gr, boolean val) {
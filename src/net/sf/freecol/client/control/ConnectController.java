@@ -479,6 +479,11 @@ public final class ConnectController extends FreeColClientHolder {
             try {
                 final FreeColSavegameFile saveGame
                     = new FreeColSavegameFile(theFile);
+                saveGame.setProgressListener(p ->
+                    SwingUtilities.invokeLater(() ->
+                        getGUI().showStatusPanel(Messages.message(StringTemplate
+                                .template("status.loadingGameProgress")
+                                .addAmount("%percent%", p)))));
                 freeColServer = new FreeColServer(saveGame,
                     (Specification)null, port, name);
                 fcc.setFreeColServer(freeColServer);
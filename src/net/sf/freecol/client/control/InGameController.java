@@ -78,6 +78,7 @@ import net.sf.freecol.common.model.NationSummary;
 import net.sf.freecol.common.model.NativeTrade;
 import net.sf.freecol.common.model.NativeTradeItem;
 import net.sf.freecol.common.model.NativeTrade.NativeTradeAction;
+import net.sf.freecol.common.model.Occupation;
 import net.sf.freecol.common.model.Ownable;
 import net.sf.freecol.common.model.PathNode;
 import net.sf.freecol.common.model.Player;
@@ -101,6 +102,7 @@ import net.sf.freecol.common.model.Unit.UnitState;
 import net.sf.freecol.common.model.UnitType;
 import net.sf.freecol.common.model.UnitWas;
 import net.sf.freecol.common.model.WorkLocation;
+import net.sf.freecol.common.model.WorkerAssignment;
 import net.sf.freecol.common.option.GameOptions;
 import static net.sf.freecol.common.util.CollectionUtils.*;
 import net.sf.freecol.common.util.LogBuilder;
@@ -521,10 +523,14 @@ public final class InGameController extends FreeColClientHolder {
      * Creates at least one autosave game file of the currently played
      * game in the autosave directory.  Does nothing if there is no
      * game running.
+     *
+     * The game is serialized immediately, but the files are written
+     * in the background so that the turn can proceed.
      */
     private void autoSaveGame () {
         final Game game = getGame();
-        if (game == null) return;
+        final FreeColServer server = getFreeColServer();
+        if (game == null || server == null) return;
 
         // unconditional save per round (fixed file "last-turn")
         final ClientOptions options = getClientOptions();
@@ -538,6 +544,8 @@ public final class InGameController extends FreeColClientHolder {
         File autoSaveDir = FreeColDirectories.getAutosaveDirectory();
         File lastTurnFile = new File(autoSaveDir, lastTurnName);
         File beforeLastTurnFile = new File(autoSaveDir, beforeLastTurnName);
+        // the previous autosave must be complete before it is shifted
+        server.finishSaves();
         // if "last-turn" file exists, shift it to "before-last-turn" file
         if (lastTurnFile.exists()) {
             try {
@@ -554,14 +562,31 @@ public final class InGameController extends FreeColClientHolder {
                     + beforeLastTurnFile.getPath(), se);
             }
         }
-        saveGame(lastTurnFile);
+        List<File> files = new ArrayList<>();
+        files.add(lastTurnFile);
 
         // conditional save after user-set period
         int saveGamePeriod = options.getInteger(ClientOptions.AUTOSAVE_PERIOD);
         int turnNumber = game.getTurn().getNumber();
         if (saveGamePeriod >= 1 && turnNumber % saveGamePeriod == 0) {
             String fileName = prefix + "-" + getSaveGameString(game);
-            saveGame(new File(autoSaveDir, fileName));
+            files.add(new File(autoSaveDir, fileName));
+        }
+
+        try {
+            server.saveGameInBackground(files, options,
+                                        getGUI().getActiveUnit())
+                .whenComplete((v, ex) -> {
+                        if (ex == null) return;
+                        logger.log(Level.WARNING, "Autosave fail", ex);
+                        getGUI().invokeNowOrLater(() ->
+                            getGUI().showErrorMessage(FreeCol
+                                .badFile("error.couldNotSave", lastTurnFile)));
+                    });
+        } catch (IOException ioe) {
+            getGUI().showErrorMessage(FreeCol.badFile("error.couldNotSave",
+                                                      lastTurnFile));
+            logger.log(Level.WARNING, "Autosave fail", ioe);
         }
     }
 
@@ -4119,6 +4144,44 @@ public final class InGameController extends FreeColClientHolder {
         return displayModelMessages(false, false);
     }
 
+    /**
+     * Rearranges the units working in a colony to make the best use
+     * of their skills, keeping the same jobs.
+     *
+     * The rearrangement is not made if it would leave the colony
+     * short of food.  If the server refuses a move part way through,
+     * the units that moved are put back where they were.
+     *
+     * Called from ColonyPanel
+     *
+     * @param colony The {@code Colony} to optimize.
+     * @return True if any unit changed job.
+     */
+    public boolean optimizeColony(Colony colony) {
+        if (!requireOurTurn() || colony == null) return false;
+
+        final WorkerAssignment assignment = new WorkerAssignment(colony);
+        final java.util.Map<Unit, Occupation> changes
+            = assignment.getChanges();
+        if (changes.isEmpty()) return false;
+        if (assignment.wouldStarve(colony)) {
+            getGUI().showInformationMessage(colony,
+                "colonyPanel.optimizeStarves");
+            return false;
+        }
+
+        ColonyWas colonyWas = new ColonyWas(colony);
+        List<UnitWas> unitWases = transform(colony.getUnits(), alwaysTrue(),
+                                            UnitWas::new);
+        boolean ret = assignment.apply(colony,
+            (u, wl) -> askServer().work(u, wl),
+            (u, gt) -> askServer().changeWorkType(u, gt));
+        colonyWas.fireChanges();
+        for (UnitWas uw : unitWases) uw.fireChanges();
+        updateGUI(null);
+        return ret;
+    }
+
     /**
      * Pays the tax arrears on this type of goods.
      *
@@ -23,8 +23,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
+import javax.xml.stream.XMLStreamException;
+
 import net.sf.freecol.client.FreeColClient;
+import net.sf.freecol.common.FreeColException;
 import net.sf.freecol.common.debug.FreeColDebugger;
+import net.sf.freecol.common.io.FreeColXMLReader;
 import net.sf.freecol.common.model.Ability;
 import net.sf.freecol.common.model.Colony;
 import net.sf.freecol.common.model.DiplomaticTrade;
@@ -286,6 +290,39 @@ public final class InGameInputHandler extends ClientInputHandler {
         return reply;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Updates, including those in multiple messages, are read
+     * straight into the game.  Other messages are read into DOM.
+     */
+    @Override
+    public Element handle(Connection connection, FreeColXMLReader xr)
+        throws FreeColException, XMLStreamException {
+        Element reply;
+        final boolean flush = xr.getAttribute("flush", false);
+        switch (xr.getLocalName()) {
+        case UpdateMessage.TAG:
+            reply = update(new UpdateMessage(getGame(), xr));
+            break;
+        case MultipleMessage.TAG:
+            List<Element> replies = new ArrayList<>();
+            while (xr.moreTags()) {
+                Element e = handle(connection, xr);
+                if (e != null) replies.add(e);
+            }
+            reply = DOMMessage.collapseElements(replies);
+            break;
+        default:
+            return handle(connection, DOMMessage.readXMLElement(xr));
+        }
+
+        if (flush && currentPlayerIsMyPlayer()) {
+            invokeLater(displayModelMessagesRunnable);
+        }
+        return reply;
+    }
+
 
     // Individual message handlers
 
@@ -1107,9 +1144,17 @@ public final class InGameInputHandler extends ClientInputHandler {
      * @return Null.
      */
     private Element update(Element element) {
+        return update(new UpdateMessage(getGame(), element));
+    }
+
+    /**
+     * Handle an update once its objects have been updated.
+     *
+     * @param message The {@code UpdateMessage} to process.
+     * @return Null.
+     */
+    private Element update(UpdateMessage message) {
         final Player player = getMyPlayer();
-        final Game game = getGame();
-        final UpdateMessage message = new UpdateMessage(game, element);
         boolean visibilityChange = false;
         
         for (FreeColGameObject fcgo : message.getObjects()) {
@@ -80,7 +80,7 @@ public final class PreGameInputHandler extends ClientInputHandler {
         register(ErrorMessage.TAG,
             (Connection c, Element e) -> error(e));
         register(LoginMessage.TAG,
-            (Connection c, Element e) -> login(e));
+            (Connection c, Element e) -> login(c, e));
         register(LogoutMessage.TAG,
             (Connection c, Element e) -> logout(e));
         register(MultipleMessage.TAG,
@@ -155,11 +155,12 @@ public final class PreGameInputHandler extends ClientInputHandler {
     /**
      * Handle a "login"-request.
      *
+     * @param connection The {@code Connection} the login arrived on.
      * @param element The element (root element in a DOM-parsed XML
      *     tree) that holds all the information.
      * @return Null.
      */
-    private Element login(Element element) {
+    private Element login(Connection connection, Element element) {
         // The {@link LoginMessage} received here should have the game
         // attached.  If we are joining a running game, there is
         // little more needed to be done.  If we are restoring from
@@ -195,6 +196,9 @@ public final class PreGameInputHandler extends ClientInputHandler {
             logger.warning(Messages.message(err));
             return null;
         }
+        // Use the wire format and streaming the server agreed to.
+        connection.setWireFormat(message.getWireFormat());
+        connection.setStreaming(message.getStreaming());
         fcc.setGame(game);
         fcc.setSinglePlayer(single);
         fcc.setMyPlayer(player);
@@ -33,7 +33,6 @@ import java.awt.TexturePaint;
 import java.awt.image.BufferedImage;
 import java.awt.image.RescaleOp;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
@@ -151,8 +150,6 @@ public final class ImageLibrary {
 
     final Dimension tileSize, tileOverlaySize, tileForestSize;
 
-    private final HashMap<String,BufferedImage> stringImageCache;
-
     /**
      * The constructor to use when needing an unscaled {@code ImageLibrary}.
      */
@@ -178,7 +175,6 @@ public final class ImageLibrary {
         tileSize = scaleDimension(TILE_SIZE, scaleFactor);
         tileOverlaySize = scaleDimension(TILE_OVERLAY_SIZE, scaleFactor);
         tileForestSize = scaleDimension(TILE_FOREST_SIZE, scaleFactor);
-        stringImageCache = new HashMap<>();
     }
 
 
@@ -1195,7 +1191,7 @@ public final class ImageLibrary {
             + "." + font.getFontName().replace(' ', '-')
             + "." + Integer.toString(font.getSize())
             + "." + Integer.toHexString(color.getRGB());
-        BufferedImage img = stringImageCache.get(key);
+        BufferedImage img = ResourceManager.getImageCache().get(key);
         if (img != null) {
             return img;
         }
@@ -1274,7 +1270,7 @@ public final class ImageLibrary {
         g2.drawString(text, 2, fm.getMaxAscent());
         g2.dispose();
 
-        stringImageCache.put(key, bi);
+        ResourceManager.getImageCache().put(key, bi);
         return bi;
     }
 
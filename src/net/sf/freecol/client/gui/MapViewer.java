@@ -106,6 +106,9 @@ public final class MapViewer extends FreeColClientHolder {
 
     private final TileViewer tv;
 
+    /** The pre-composited terrain layer. */
+    private final TerrainCache terrainCache;
+
     private TerrainCursor cursor;
 
     private Tile selectedTile;
@@ -193,6 +196,7 @@ public final class MapViewer extends FreeColClientHolder {
         this.size = null;
 
         tv = new TileViewer(freeColClient);
+        terrainCache = new TerrainCache(tv);
         setImageLibraryAndUpdateData(new ImageLibrary());
 
         cursor = null;
@@ -1234,6 +1238,7 @@ public final class MapViewer extends FreeColClientHolder {
     private void setImageLibraryAndUpdateData(ImageLibrary lib) {
         this.lib = lib;
         tv.setImageLibraryAndUpdateData(lib);
+        terrainCache.setImageLibrary(lib);
         // ATTENTION: we assume that all base tiles have the same size
         Dimension tileSize = lib.tileSize;
         tileHeight = tileSize.height;
@@ -1316,22 +1321,13 @@ public final class MapViewer extends FreeColClientHolder {
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                            RenderingHints.VALUE_ANTIALIAS_ON);
 
-        // Display the base Tiles
+        // Display the base Tiles, from the terrain cache which
+        // expects the origin at the top left corner of the map
         final int x0 = firstColumn;
         final int y0 = firstRow;
-        map.forSubMap(x0, y0, lastColumn-firstColumn+1, lastRow-firstRow+1,
-            (Tile tile) -> {
-                final int x = tile.getX();
-                final int y = tile.getY();
-                final int xt = (x-x0) * tileWidth + (y&1) * halfWidth;
-                final int yt = (y-y0) * halfHeight;
-                g.translate(xt, yt);
-
-                tv.displayTileWithBeachAndBorder(g, tile);
-                tv.displayUnknownTileBorder(g, tile);
-
-                g.translate(-xt, -yt);
-            });
+        g.translate(-x0 * tileWidth, -y0 * halfHeight);
+        terrainCache.display(g, map);
+        g.setTransform(baseTransform);
 
         // Draw the grid, if needed
         if (options.getBoolean(ClientOptions.DISPLAY_GRID)) {
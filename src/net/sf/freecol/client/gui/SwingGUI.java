@@ -97,6 +97,7 @@ import net.sf.freecol.common.model.Unit;
 import net.sf.freecol.common.model.UnitType;
 import net.sf.freecol.common.model.WorkLocation;
 import net.sf.freecol.common.option.BooleanOption;
+import net.sf.freecol.common.option.IntegerOption;
 import net.sf.freecol.common.option.LanguageOption;
 import net.sf.freecol.common.option.LanguageOption.Language;
 import net.sf.freecol.common.option.Option;
@@ -394,6 +395,14 @@ public class SwingGUI extends GUI {
                 logger.info("Set " + pmoffscreen + " to: " + newValue);
             });
 
+        IntegerOption imageCacheSize
+            = (IntegerOption) opts.getOption(ClientOptions.IMAGE_CACHE_SIZE);
+        ResourceManager.getImageCache()
+            .setBudget((long)imageCacheSize.getValue() << 20);
+        imageCacheSize.addPropertyChangeListener((PropertyChangeEvent e) ->
+            ResourceManager.getImageCache()
+                .setBudget((long)imageCacheSize.getValue() << 20));
+
         this.mapViewer = new MapViewer(getFreeColClient());
         this.canvas = new Canvas(getFreeColClient(), graphicsDevice, this,
                                  desiredWindowSize, mapViewer);
@@ -0,0 +1,268 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.client.gui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+
+import net.sf.freecol.common.model.Direction;
+import net.sf.freecol.common.model.Map;
+import net.sf.freecol.common.model.Tile;
+import net.sf.freecol.common.model.TileImprovement;
+import net.sf.freecol.common.model.TileType;
+import net.sf.freecol.common.resources.ResourceManager;
+
+
+/**
+ * TerrainCache is a private helper class of MapViewer.
+ *
+ * It keeps the base terrain layer of the map (terrain, beaches,
+ * borders between terrain types and the edges of unexplored tiles)
+ * pre-composited in rectangular chunks, so that scrolling and
+ * animation do not redraw it tile by tile.  Each chunk remembers a
+ * stamp of the tile state it was drawn from, and is redrawn only
+ * when one of those tiles changes.  All the chunks are discarded
+ * when the map, the image library or the resource mappings change.
+ */
+final class TerrainCache {
+
+    /** The target size of a chunk, in pixels. */
+    private static final int CHUNK_SIZE = 512;
+
+    /** The minimum number of chunks to keep. */
+    private static final int MIN_CHUNKS = 16;
+
+    /** A chunk of the terrain layer. */
+    private static final class Chunk {
+
+        /** The composited terrain, on the black map background. */
+        public BufferedImage image;
+
+        /** The stamps of the tiles the image was drawn from. */
+        public long[] stamps;
+    }
+
+    /** Draws the terrain layer of a tile. */
+    private final BiConsumer<Graphics2D, Tile> painter;
+
+    /** The map the chunks were drawn from. */
+    private Map map = null;
+
+    /** The resource mapping version the chunks were drawn with. */
+    private int mappingVersion = ResourceManager.getMappingVersion();
+
+    /** Tile dimensions. */
+    private int tileWidth, tileHeight, halfWidth, halfHeight;
+
+    /** The size of a chunk, in tile columns and rows. */
+    private int chunkColumns, chunkRows;
+
+    /** The maximum number of chunks to keep. */
+    private int maxChunks = MIN_CHUNKS;
+
+    /** The chunks, by position, least recently used first. */
+    private final LinkedHashMap<Long, Chunk> chunks
+        = new LinkedHashMap<Long, Chunk>(32, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Entry<Long, Chunk> eldest) {
+                return size() > maxChunks;
+            }
+        };
+
+
+    /**
+     * Create a terrain cache.
+     *
+     * @param tv The {@code TileViewer} to draw tiles with.
+     */
+    TerrainCache(TileViewer tv) {
+        this((Graphics2D g, Tile tile) -> {
+                tv.displayTileWithBeachAndBorder(g, tile);
+                tv.displayUnknownTileBorder(g, tile);
+            });
+    }
+
+    /**
+     * Create a terrain cache with a given tile painter.
+     *
+     * @param painter Draws the terrain layer of a tile, with the
+     *     graphics translated to the tile position.
+     */
+    TerrainCache(BiConsumer<Graphics2D, Tile> painter) {
+        this.painter = painter;
+    }
+
+
+    /**
+     * Set the image library, discarding all the chunks drawn with
+     * the previous one.
+     *
+     * @param lib The new {@code ImageLibrary}.
+     */
+    void setImageLibrary(ImageLibrary lib) {
+        tileWidth = lib.tileSize.width;
+        tileHeight = lib.tileSize.height;
+        halfWidth = tileWidth / 2;
+        halfHeight = tileHeight / 2;
+        chunkColumns = Math.max(1, CHUNK_SIZE / tileWidth);
+        chunkRows = Math.max(2, CHUNK_SIZE / halfHeight);
+        clear();
+    }
+
+    /**
+     * Discard all the chunks.
+     */
+    void clear() {
+        chunks.clear();
+    }
+
+    /**
+     * Display the terrain layer.
+     *
+     * The graphics must be translated so that the origin is at the
+     * top left corner of the map, and the area displayed is its clip.
+     * The chunks are opaque, with the black background of the map
+     * where there are no tiles.
+     *
+     * @param g The {@code Graphics2D} to draw on.
+     * @param map The {@code Map} to draw.
+     */
+    void display(Graphics2D g, Map map) {
+        final int version = ResourceManager.getMappingVersion();
+        if (map != this.map || version != this.mappingVersion) {
+            clear();
+            this.map = map;
+            this.mappingVersion = version;
+        }
+        final Rectangle clip = g.getClipBounds();
+        final int chunkWidth = chunkColumns * tileWidth;
+        final int chunkHeight = chunkRows * halfHeight;
+        final int cx0 = Math.floorDiv(Math.max(0, clip.x), chunkWidth);
+        final int cy0 = Math.floorDiv(Math.max(0, clip.y), chunkHeight);
+        final int cx1 = Math.min((clip.x + clip.width - 1) / chunkWidth,
+            map.getWidth() / chunkColumns);
+        final int cy1 = Math.min((clip.y + clip.height - 1) / chunkHeight,
+            map.getHeight() / chunkRows);
+        maxChunks = Math.max(MIN_CHUNKS,
+            2 * (cx1 - cx0 + 1) * (cy1 - cy0 + 1));
+
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                Chunk chunk = getChunk(g, cx, cy);
+                g.drawImage(chunk.image, cx * chunkWidth, cy * chunkHeight,
+                            null);
+            }
+        }
+    }
+
+    /**
+     * Get an up to date chunk.
+     *
+     * @param g The {@code Graphics2D} the chunk will be drawn on.
+     * @param cx The chunk column.
+     * @param cy The chunk row.
+     * @return The {@code Chunk}.
+     */
+    private Chunk getChunk(Graphics2D g, int cx, int cy) {
+        final Long key = ((long)cx << 32) | cy;
+        // Tiles that intersect the chunk
+        final int tx0 = cx * chunkColumns - 1, tx1 = tx0 + chunkColumns;
+        final int ty0 = cy * chunkRows - 1, ty1 = ty0 + chunkRows;
+        // ...and the neighbours they are drawn with
+        long[] stamps = getStamps(tx0 - 1, ty0 - 2, tx1 + 1, ty1 + 2);
+
+        Chunk chunk = chunks.get(key);
+        if (chunk != null && Arrays.equals(stamps, chunk.stamps)) {
+            return chunk;
+        }
+        if (chunk == null) {
+            chunk = new Chunk();
+            chunk.image = g.getDeviceConfiguration()
+                .createCompatibleImage(chunkColumns * tileWidth,
+                                       chunkRows * halfHeight,
+                                       Transparency.OPAQUE);
+            chunks.put(key, chunk);
+        }
+        chunk.stamps = stamps;
+
+        Graphics2D cg = chunk.image.createGraphics();
+        cg.setColor(Color.BLACK);
+        cg.fillRect(0, 0, chunk.image.getWidth(), chunk.image.getHeight());
+        final int ox = cx * chunkColumns * tileWidth;
+        final int oy = cy * chunkRows * halfHeight;
+        map.forSubMap(tx0, ty0, tx1 - tx0 + 1, ty1 - ty0 + 1,
+            (Tile tile) -> {
+                final int xt = tile.getX() * tileWidth
+                    + (tile.getY() & 1) * halfWidth - ox;
+                final int yt = tile.getY() * halfHeight - oy;
+                cg.translate(xt, yt);
+                painter.accept(cg, tile);
+                cg.translate(-xt, -yt);
+            });
+        cg.dispose();
+        return chunk;
+    }
+
+    /**
+     * Get the stamps of a rectangle of tiles.
+     *
+     * @param x0 The left column.
+     * @param y0 The top row.
+     * @param x1 The right column.
+     * @param y1 The bottom row.
+     * @return The stamps, with zero for tiles off the map.
+     */
+    private long[] getStamps(int x0, int y0, int x1, int y1) {
+        final int w = x1 - x0 + 1;
+        final long[] stamps = new long[w * (y1 - y0 + 1)];
+        map.forSubMap(x0, y0, w, y1 - y0 + 1, (Tile tile) ->
+            stamps[(tile.getY() - y0) * w + tile.getX() - x0]
+                = getStamp(tile));
+        return stamps;
+    }
+
+    /**
+     * Get the stamp of a tile, which covers everything about it that
+     * the terrain layer depends on.
+     *
+     * @param tile The {@code Tile} to stamp.
+     * @return The stamp.
+     */
+    static long getStamp(Tile tile) {
+        final TileType type = tile.getType();
+        long stamp = (type == null) ? 1 : type.getIndex() + 2;
+        if (tile.isExplored()) stamp |= 1L << 10;
+        TileImprovement river = tile.getRiver();
+        if (river != null) {
+            stamp |= (long)(river.getMagnitude() & 0xf) << 11;
+            for (Direction d : Direction.values()) {
+                if (river.isConnectedTo(d)) stamp |= 1L << (15 + d.ordinal());
+            }
+        }
+        return stamp | (long)tile.getStyle() << 32;
+    }
+}
@@ -132,7 +132,8 @@ public final class ColonyPanel extends PortPanel
         FILL = 5,
         COLONY_UNITS = 6,
         SETGOODS = 7,
-        OCCUPATION = 8;
+        OCCUPATION = 8,
+        OPTIMIZE = 9;
 
     /** The height of the area in which autoscrolling should happen. */
     public static final int SCROLL_AREA_HEIGHT = 40;
@@ -156,6 +157,9 @@ public final class ColonyPanel extends PortPanel
     private JButton colonyUnitsButton
         = Utility.localizedButton("colonyPanel.colonyUnits");
 
+    private JButton optimizeButton
+        = Utility.localizedButton("colonyPanel.optimize");
+
     // Only present in debug mode
     private JButton setGoodsButton = null;
     private JButton traceWorkButton = null;
@@ -278,6 +282,15 @@ public final class ColonyPanel extends PortPanel
             JComponent.WHEN_IN_FOCUSED_WINDOW, colonyUnitsIM);
         colonyUnitsButton.setActionCommand(String.valueOf(COLONY_UNITS));
 
+        InputMap optimizeIM = new ComponentInputMap(optimizeButton);
+        optimizeIM.put(KeyStroke.getKeyStroke(KeyEvent.VK_O, 0, false),
+                       "pressed");
+        optimizeIM.put(KeyStroke.getKeyStroke(KeyEvent.VK_O, 0, true),
+                       "released");
+        SwingUtilities.replaceUIInputMap(optimizeButton,
+            JComponent.WHEN_IN_FOCUSED_WINDOW, optimizeIM);
+        optimizeButton.setActionCommand(String.valueOf(OPTIMIZE));
+
         if (setGoodsButton != null) {
             setGoodsButton.setActionCommand(String.valueOf(SETGOODS));
         }
@@ -411,6 +424,7 @@ public final class ColonyPanel extends PortPanel
         warehouseButton.addActionListener(this);
         buildQueueButton.addActionListener(this);
         colonyUnitsButton.addActionListener(this);
+        optimizeButton.addActionListener(this);
         if (setGoodsButton != null) {
             setGoodsButton.addActionListener(this);
         }
@@ -423,6 +437,7 @@ public final class ColonyPanel extends PortPanel
         warehouseButton.setEnabled(isEditable());
         buildQueueButton.setEnabled(isEditable());
         colonyUnitsButton.setEnabled(isEditable());
+        optimizeButton.setEnabled(isEditable());
         if (setGoodsButton != null) {
             setGoodsButton.setEnabled(isEditable());
         }
@@ -461,7 +476,7 @@ public final class ColonyPanel extends PortPanel
         add(cargoScroll, "grow, sg, height 60:121:");
         add(outsideColonyScroll, "grow, sg, height 60:121:");
         add(warehouseScroll, "span, height 40:60:, growx");
-        int buttonFields = 6;
+        int buttonFields = 7;
         if (setGoodsButton != null) buttonFields++;
         if (traceWorkButton != null) buttonFields++;
         add(unloadButton, "span, split " + Integer.toString(buttonFields)
@@ -470,6 +485,7 @@ public final class ColonyPanel extends PortPanel
         add(warehouseButton);
         add(buildQueueButton);
         add(colonyUnitsButton);
+        add(optimizeButton);
         if (setGoodsButton != null) add(setGoodsButton);
         if (traceWorkButton != null) add(traceWorkButton);
         add(okButton, "tag ok");
@@ -486,6 +502,7 @@ public final class ColonyPanel extends PortPanel
         warehouseButton.removeActionListener(this);
         buildQueueButton.removeActionListener(this);
         colonyUnitsButton.removeActionListener(this);
+        optimizeButton.removeActionListener(this);
         if (setGoodsButton != null) {
             setGoodsButton.removeActionListener(this);
         }
@@ -1013,6 +1030,9 @@ public final class ColonyPanel extends PortPanel
             case COLONY_UNITS:
                 generateColonyUnitsMenu();
                 break;
+            case OPTIMIZE:
+                if (igc().optimizeColony(colony)) updateProduction();
+                break;
             case SETGOODS:
                 DebugUtils.setColonyGoods(getFreeColClient(), colony);
                 updateWarehousePanel();
@@ -1111,6 +1131,7 @@ public final class ColonyPanel extends PortPanel
         warehouseButton = null;
         buildQueueButton = null;
         colonyUnitsButton = null;
+        optimizeButton = null;
         setGoodsButton = null;
         traceWorkButton = null;
         netProductionPanel = null;
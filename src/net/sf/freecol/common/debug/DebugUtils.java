@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.logging.Handler;
 import java.util.logging.Logger;
 
 import javax.swing.JMenu;
@@ -38,6 +39,7 @@ import net.sf.freecol.client.gui.GUI;
 import net.sf.freecol.client.gui.ChoiceItem;
 import net.sf.freecol.common.i18n.Messages;
 import net.sf.freecol.common.io.FreeColXMLWriter.WriteScope;
+import net.sf.freecol.common.logging.DefaultHandler;
 import net.sf.freecol.common.model.AbstractGoods;
 import net.sf.freecol.common.model.Building;
 import net.sf.freecol.common.model.BuildingType;
@@ -64,6 +66,7 @@ import net.sf.freecol.common.model.Unit;
 import net.sf.freecol.common.model.UnitType;
 import net.sf.freecol.common.option.BooleanOption;
 import net.sf.freecol.common.option.GameOptions;
+import net.sf.freecol.common.resources.ResourceManager;
 import net.sf.freecol.common.util.LogBuilder;
 import static net.sf.freecol.common.util.CollectionUtils.*;
 import net.sf.freecol.common.util.RandomChoice;
@@ -1077,6 +1080,12 @@ public class DebugUtils {
         java.util.Map<String, String> serverStats = sGame.getStatistics();
         serverStats.putAll(server.getAIMain().getAIStatistics());
         java.util.Map<String, String> clientStats = cGame.getStatistics();
+        clientStats.putAll(ResourceManager.getImageCache().getStatistics());
+        for (Handler handler : Logger.getLogger("").getHandlers()) {
+            if (handler instanceof DefaultHandler) {
+                clientStats.putAll(((DefaultHandler)handler).getStatistics());
+            }
+        }
         gui.showStatisticsPanel(serverStats, clientStats);
     }
 
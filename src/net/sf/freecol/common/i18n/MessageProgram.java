@@ -0,0 +1,205 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.i18n;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import net.sf.freecol.common.model.StringTemplate;
+
+
+/**
+ * A message bundle value, parsed once into a sequence of parts.
+ *
+ * Each part is either fixed text, or a choice format that refers to
+ * a variable and so has to be resolved against a template.  The
+ * fixed text includes the literal text and the choice formats that
+ * do not refer to variables, which are resolved when the message is
+ * compiled.  The dynamic choice formats are resolved with
+ * {@link Messages#replaceChoice}, exactly as the interpreter would.
+ *
+ * A compiled message depends on the message bundle and the
+ * grammatical number rule, so must be discarded if they change.
+ */
+class MessageProgram {
+
+    private static final Logger logger = Logger.getLogger(MessageProgram.class.getName());
+
+    /** The message bundle value this program was compiled from. */
+    private final String source;
+
+    /** The fixed text of each part, or null for a dynamic choice. */
+    private final String[] texts;
+
+    /** The start and end indexes into the source of each dynamic choice. */
+    private final int[] opens, closes;
+
+    /** Was there a mismatched bracket, truncating the message? */
+    private final boolean truncated;
+
+    /** The result of applying this program without a template. */
+    private volatile String plain = null;
+
+    /** The trimmed result of applying this program without a template. */
+    private volatile String trimmed = null;
+
+
+    /**
+     * Create a new message program.
+     *
+     * @param source The source text.
+     * @param texts The fixed text parts.
+     * @param opens The dynamic choice start indexes.
+     * @param closes The dynamic choice end indexes.
+     * @param truncated True if there were mismatched brackets.
+     */
+    private MessageProgram(String source, String[] texts, int[] opens,
+                           int[] closes, boolean truncated) {
+        this.source = source;
+        this.texts = texts;
+        this.opens = opens;
+        this.closes = closes;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Compile a message bundle value.
+     *
+     * @param input The value to compile.
+     * @return A new {@code MessageProgram}.
+     */
+    public static MessageProgram compile(String input) {
+        List<String> texts = new ArrayList<>();
+        List<Integer> bounds = new ArrayList<>();
+        boolean truncated = false;
+        int openChoice, highWaterMark = 0;
+        while ((openChoice = input.indexOf("{{", highWaterMark)) >= 0) {
+            texts.add(input.substring(highWaterMark, openChoice));
+            int closeChoice = Messages.findMatchingBracket(input,
+                                                           openChoice + 2);
+            if (closeChoice < 0) {
+                truncated = true;
+                break;
+            }
+            highWaterMark = closeChoice + 2;
+            int percent = input.indexOf('%', openChoice);
+            if (percent >= 0 && percent < closeChoice) {
+                texts.add(null);
+                bounds.add(openChoice);
+                bounds.add(closeChoice);
+            } else {
+                StringBuilder sb = new StringBuilder();
+                Messages.replaceChoice(sb, input, openChoice, closeChoice,
+                                       null);
+                texts.add(sb.toString());
+            }
+        }
+        if (!truncated) texts.add(input.substring(highWaterMark));
+
+        // Merge adjacent fixed texts.
+        List<String> merged = new ArrayList<>();
+        StringBuilder sb = null;
+        for (String text : texts) {
+            if (text == null) {
+                if (sb != null) merged.add(sb.toString());
+                sb = null;
+                merged.add(null);
+            } else if (sb == null) {
+                sb = new StringBuilder(text);
+            } else {
+                sb.append(text);
+            }
+        }
+        if (sb != null) merged.add(sb.toString());
+
+        final int n = bounds.size() / 2;
+        int[] opens = new int[n], closes = new int[n];
+        for (int i = 0; i < n; i++) {
+            opens[i] = bounds.get(2 * i);
+            closes[i] = bounds.get(2 * i + 1);
+        }
+        return new MessageProgram(input, merged.toArray(new String[0]),
+                                  opens, closes, truncated);
+    }
+
+    /**
+     * Is this message independent of any template?
+     *
+     * @return True if there are no dynamic choices.
+     */
+    public boolean isConstant() {
+        return this.opens.length == 0;
+    }
+
+    /**
+     * Apply this program, replacing the choice formats using keys and
+     * replacement values from a template.
+     *
+     * @param template The {@code StringTemplate} to use, which may be null.
+     * @return The resulting text.
+     */
+    public String apply(StringTemplate template) {
+        if (template == null || isConstant()) {
+            String result = this.plain;
+            if (result == null) this.plain = result = evaluate(null);
+            return result;
+        }
+        return evaluate(template);
+    }
+
+    /**
+     * Apply this program without a template, and trim the result.
+     *
+     * @return The resulting text.
+     */
+    public String applyTrimmed() {
+        String result = this.trimmed;
+        if (result == null) this.trimmed = result = apply(null).trim();
+        return result;
+    }
+
+    /**
+     * Evaluate this program.
+     *
+     * @param template The {@code StringTemplate} to use, which may be null.
+     * @return The resulting text.
+     */
+    private String evaluate(StringTemplate template) {
+        if (this.truncated) {
+            logger.warning("Mismatched brackets: " + this.source);
+        }
+        if (this.texts.length == 1 && this.texts[0] != null) {
+            return this.texts[0];
+        }
+        StringBuilder sb = new StringBuilder(this.source.length());
+        int choice = 0;
+        for (String text : this.texts) {
+            if (text != null) {
+                sb.append(text);
+            } else {
+                Messages.replaceChoice(sb, this.source, this.opens[choice],
+                                       this.closes[choice], template);
+                choice++;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -27,11 +27,13 @@ import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 
@@ -118,6 +120,13 @@ public class Messages {
      */
     private static final Map<String, Selector> tagMap = new HashMap<>();
 
+    /**
+     * The compiled messages, by key.  Filled on demand, and cleared
+     * whenever the message bundle or selectors change.
+     */
+    private static final Map<String, MessageProgram> programs
+        = new ConcurrentHashMap<>();
+
 
     // Message bundle initialization
 
@@ -138,6 +147,7 @@ public class Messages {
      */
     public static void setGrammaticalNumber(Number number) {
         tagMap.put("plural", number);
+        programs.clear();
     }
 
     /**
@@ -172,6 +182,7 @@ public class Messages {
      */
     public static void loadMessageBundle(Locale locale) {
         messageBundle.clear(); // Reset the message bundle.
+        programs.clear();
 
         if (!Locale.getDefault().equals(locale)) {
             Locale.setDefault(locale);
@@ -228,6 +239,7 @@ public class Messages {
             return; // We have big problems if UTF-8 is not supported.
         }
         BufferedReader in = new BufferedReader(inputReader);
+        programs.clear();
 
         String line = null;
         while((line = in.readLine()) != null) {
@@ -697,6 +709,35 @@ public class Messages {
 
     // message().  The fundamental i18n routine, and its support.
 
+    /**
+     * Get a read-only view of the message bundle.
+     *
+     * Package-private for the test suite.
+     *
+     * @return The message bundle.
+     */
+    static Map<String, String> getMessageBundle() {
+        return Collections.unmodifiableMap(messageBundle);
+    }
+
+    /**
+     * Get the compiled form of a message.
+     *
+     * @param key The message key.
+     * @return The {@code MessageProgram} for the message, or null if
+     *     the key is not in the message bundle.
+     */
+    private static MessageProgram getProgram(String key) {
+        MessageProgram program = programs.get(key);
+        if (program == null) {
+            String value = messageBundle.get(key);
+            if (value == null) return null;
+            program = MessageProgram.compile(value);
+            programs.put(key, program);
+        }
+        return program;
+    }
+
     /**
      * Get the text mapping for a particular identifier in the
      * default locale message bundle.  Returns the key as the value if
@@ -712,12 +753,11 @@ public class Messages {
         }
 
         // return key as value if there is no mapping found
-        String message = messageBundle.get(messageId);
-        if (message == null) return messageId;
+        MessageProgram program = getProgram(messageId);
+        if (program == null) return messageId;
 
         // otherwise replace variables in the text
-        message = replaceChoices(message, null);
-        return message.trim();
+        return program.applyTrimmed();
     }
 
     /**
@@ -747,21 +787,22 @@ public class Messages {
             }
             break;
         case TEMPLATE:
-            if (containsKey(template.getId())) {
-                result = messageBundle.get(template.getId());
-            } else if (template.getDefaultId() != null) {
-                result = messageBundle.get(template.getDefaultId());
+            MessageProgram program = getProgram(template.getId());
+            if (program == null && template.getDefaultId() != null) {
+                program = getProgram(template.getDefaultId());
             }
-            result = replaceChoices(result, template);
+            if (program != null) result = program.apply(template);
             for (String key : template.getKeys()) {
-                result = result.replace(key,
-                                        message(template.getReplacement(key)));
+                if (result.contains(key)) {
+                    result = result.replace(key,
+                        message(template.getReplacement(key)));
+                }
             }
             break;
         case KEY:
-            String key = messageBundle.get(template.getId());
-            result = (key == null) ? template.getId()
-                : replaceChoices(key, null);
+            program = getProgram(template.getId());
+            result = (program == null) ? template.getId()
+                : program.apply(null);
             break;
         case NAME:
         default:
@@ -784,11 +825,15 @@ public class Messages {
      * separated by an assignment character. Example:
      * "{{tag:selector|key1=val1|key2=val2}}".
      *
+     * Messages from the bundle are compiled into a
+     * {@code MessageProgram} instead, which must give the same
+     * result.  Package-private for the test suite, which checks this.
+     *
      * @param input a {@code String} value
      * @param template a {@code StringTemplate} value
      * @return a {@code String} value
      */
-    private static String replaceChoices(String input, StringTemplate template) {
+    static String replaceChoices(String input, StringTemplate template) {
         int openChoice = 0;
         int closeChoice = 0;
         int highWaterMark = 0;
@@ -802,117 +847,136 @@ public class Messages {
                 return result.toString();
             }
             highWaterMark = closeChoice + 2;
-            int colonIndex = input.indexOf(':', openChoice + 2);
-            if (colonIndex < 0 || colonIndex > closeChoice) {
-                logger.warning("No tag found: " + input);
-                continue;
-            }
-            String tag = input.substring(openChoice + 2, colonIndex);
-            int pipeIndex = input.indexOf('|', colonIndex + 1);
-            if (pipeIndex < 0 || pipeIndex > closeChoice) {
-                logger.warning("No choices found: " + input);
-                continue;
-            }
-            String selector = input.substring(colonIndex + 1, pipeIndex);
-            if (selector.isEmpty()) {
+            replaceChoice(result, input, openChoice, closeChoice, template);
+        }
+        result.append(input.substring(highWaterMark));
+        return result.toString();
+    }
+
+    /**
+     * Replace a single choice format in the given string.
+     *
+     * Package-private for {@link MessageProgram}, which uses this
+     * to resolve the choices it can not resolve in advance.
+     *
+     * @param result The {@code StringBuilder} to append the choice to.
+     * @param input The {@code String} containing the choice format.
+     * @param openChoice The index of the opening brackets.
+     * @param closeChoice The index of the matching closing brackets.
+     * @param template The {@code StringTemplate} to get keys and
+     *     replacement values from, which may be null.
+     */
+    static void replaceChoice(StringBuilder result, String input,
+                              int openChoice, int closeChoice,
+                              StringTemplate template) {
+        int colonIndex = input.indexOf(':', openChoice + 2);
+        if (colonIndex < 0 || colonIndex > closeChoice) {
+            logger.warning("No tag found: " + input);
+            return;
+        }
+        String tag = input.substring(openChoice + 2, colonIndex);
+        int pipeIndex = input.indexOf('|', colonIndex + 1);
+        if (pipeIndex < 0 || pipeIndex > closeChoice) {
+            logger.warning("No choices found: " + input);
+            return;
+        }
+        String selector = input.substring(colonIndex + 1, pipeIndex);
+        if (selector.isEmpty()) {
+            selector = "default";
+        } else if (selector.startsWith("%") && selector.endsWith("%")) {
+            if (template == null) {
                 selector = "default";
-            } else if (selector.startsWith("%") && selector.endsWith("%")) {
-                if (template == null) {
-                    selector = "default";
+            } else {
+                StringTemplate replacement = template.getReplacement(selector);
+                if (replacement == null) {
+                    logger.warning("Failed to find replacement for " + selector);
+                    return;
                 } else {
-                    StringTemplate replacement = template.getReplacement(selector);
-                    if (replacement == null) {
-                        logger.warning("Failed to find replacement for " + selector);
-                        continue;
-                    } else {
-                        selector = message(replacement);
-                        Selector taggedSelector = getSelector(tag);
-                        if (taggedSelector != null) {
-                            selector = taggedSelector.getKey(selector, input);
-                        }
+                    selector = message(replacement);
+                    Selector taggedSelector = getSelector(tag);
+                    if (taggedSelector != null) {
+                        selector = taggedSelector.getKey(selector, input);
                     }
                 }
-            } else {
-                Selector taggedSelector = getSelector(tag);
-                if (taggedSelector != null) {
-                    selector = taggedSelector.getKey(selector, input);
-                }
             }
-            int keyIndex = input.indexOf(selector, pipeIndex + 1);
-            if (keyIndex < 0 || keyIndex > closeChoice) {
-                // key not found, choice might be a key itself
-                String otherKey = input.substring(pipeIndex + 1, closeChoice);
-                if (otherKey.startsWith("%") && otherKey.endsWith("%")
-                    && template != null) {
-                    StringTemplate replacement = template.getReplacement(otherKey);
-                    if (replacement == null) {
-                        logger.warning("Failed to find replacement for " + otherKey);
-                        continue;
-                    } else if (replacement.getTemplateType() == TemplateType.KEY) {
-                        otherKey = messageBundle.get(replacement.getId());
-                        keyIndex = otherKey.indexOf("{{");
+        } else {
+            Selector taggedSelector = getSelector(tag);
+            if (taggedSelector != null) {
+                selector = taggedSelector.getKey(selector, input);
+            }
+        }
+        int keyIndex = input.indexOf(selector, pipeIndex + 1);
+        if (keyIndex < 0 || keyIndex > closeChoice) {
+            // key not found, choice might be a key itself
+            String otherKey = input.substring(pipeIndex + 1, closeChoice);
+            if (otherKey.startsWith("%") && otherKey.endsWith("%")
+                && template != null) {
+                StringTemplate replacement = template.getReplacement(otherKey);
+                if (replacement == null) {
+                    logger.warning("Failed to find replacement for " + otherKey);
+                    return;
+                } else if (replacement.getTemplateType() == TemplateType.KEY) {
+                    otherKey = messageBundle.get(replacement.getId());
+                    keyIndex = otherKey.indexOf("{{");
+                    if (keyIndex < 0) {
+                        // not a choice format
+                        result.append(otherKey);
+                    } else {
+                        keyIndex = otherKey.indexOf(selector, keyIndex);
                         if (keyIndex < 0) {
-                            // not a choice format
-                            result.append(otherKey);
+                            logger.warning("Failed to find key " + selector + " in replacement "
+                                           + replacement.getId());
+                            return;
                         } else {
-                            keyIndex = otherKey.indexOf(selector, keyIndex);
-                            if (keyIndex < 0) {
-                                logger.warning("Failed to find key " + selector + " in replacement "
-                                               + replacement.getId());
-                                continue;
-                            } else {
-                                result.append(getChoice(otherKey, selector));
-                            }
+                            result.append(getChoice(otherKey, selector));
                         }
-                    } else {
-                        logger.warning("Choice substitution attempted, but template type was "
-                                       + replacement.getTemplateType());
-                        continue;
                     }
-                } else if (containsKey(otherKey)) {
-                    otherKey = getChoice(messageBundle.get(otherKey), selector);
-                    result.append(otherKey);
                 } else {
-                    logger.warning("Unknown key or untagged choice: '" + otherKey
-                                   + "', selector was '" + selector
-                                   + "', trying 'default' instead");
-                    int defaultStart = otherKey.indexOf("default=");
-                    if (defaultStart >= 0) {
-                        defaultStart += 8;
-                        int defaultEnd = otherKey.indexOf('|', defaultStart);
-                        String defaultChoice;
-                        if (defaultEnd < 0) {
-                            defaultChoice = otherKey.substring(defaultStart);
-                        } else {
-                            defaultChoice = otherKey.substring(defaultStart, defaultEnd);
-                        }
-                        result.append(defaultChoice);
-                    } else {
-                        logger.warning("No default choice found.");
-                        continue;
-                    }
+                    logger.warning("Choice substitution attempted, but template type was "
+                                   + replacement.getTemplateType());
+                    return;
                 }
+            } else if (containsKey(otherKey)) {
+                otherKey = getChoice(messageBundle.get(otherKey), selector);
+                result.append(otherKey);
             } else {
-                int start = keyIndex + selector.length() + 1;
-                int replacementIndex = input.indexOf('|', start);
-                int nextOpenIndex = input.indexOf("{{", start);
-                if (nextOpenIndex >= 0 && nextOpenIndex < replacementIndex) {
-                    replacementIndex = input.indexOf('|',
-                        findMatchingBracket(input, nextOpenIndex + 2) + 2);
-                }
-                int end = (replacementIndex < 0
-                    || replacementIndex > closeChoice) ? closeChoice
-                    : replacementIndex;
-                String replacement = input.substring(start, end);
-                if (!replacement.contains("{{")) {
-                    result.append(replacement);
+                logger.warning("Unknown key or untagged choice: '" + otherKey
+                               + "', selector was '" + selector
+                               + "', trying 'default' instead");
+                int defaultStart = otherKey.indexOf("default=");
+                if (defaultStart >= 0) {
+                    defaultStart += 8;
+                    int defaultEnd = otherKey.indexOf('|', defaultStart);
+                    String defaultChoice;
+                    if (defaultEnd < 0) {
+                        defaultChoice = otherKey.substring(defaultStart);
+                    } else {
+                        defaultChoice = otherKey.substring(defaultStart, defaultEnd);
+                    }
+                    result.append(defaultChoice);
                 } else {
-                    result.append(replaceChoices(replacement, template));
+                    logger.warning("No default choice found.");
+                    return;
                 }
             }
+        } else {
+            int start = keyIndex + selector.length() + 1;
+            int replacementIndex = input.indexOf('|', start);
+            int nextOpenIndex = input.indexOf("{{", start);
+            if (nextOpenIndex >= 0 && nextOpenIndex < replacementIndex) {
+                replacementIndex = input.indexOf('|',
+                    findMatchingBracket(input, nextOpenIndex + 2) + 2);
+            }
+            int end = (replacementIndex < 0
+                || replacementIndex > closeChoice) ? closeChoice
+                : replacementIndex;
+            String replacement = input.substring(start, end);
+            if (!replacement.contains("{{")) {
+                result.append(replacement);
+            } else {
+                result.append(replaceChoices(replacement, template));
+            }
         }
-        result.append(input.substring(highWaterMark));
-        return result.toString();
     }
 
     /**
@@ -950,7 +1014,7 @@ public class Messages {
      * @param start an {@code int} value
      * @return an {@code int} value
      */
-    private static int findMatchingBracket(String input, int start) {
+    static int findMatchingBracket(String input, int start) {
         char last = 0;
         int level = 0;
         for (int index = start; index < input.length(); index++) {
@@ -0,0 +1,708 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import static net.sf.freecol.common.io.CompactXMLStreamWriter.*;
+
+
+/**
+ * Reads an XML document in the compact savegame format written by
+ * {@link CompactXMLStreamWriter}.
+ */
+final class CompactXMLStreamReader implements XMLStreamReader {
+
+    /** The empty namespace context of compact documents. */
+    static final NamespaceContext NO_NAMESPACES = new NamespaceContext() {
+            @Override
+            public String getNamespaceURI(String prefix) {
+                return XMLConstants.NULL_NS_URI;
+            }
+            @Override
+            public String getPrefix(String namespaceURI) {
+                return null;
+            }
+            @Override
+            public Iterator<String> getPrefixes(String namespaceURI) {
+                return Collections.emptyIterator();
+            }
+        };
+
+    /** There is no location information in a compact stream. */
+    private static final Location NO_LOCATION = new Location() {
+            @Override
+            public int getLineNumber() { return -1; }
+            @Override
+            public int getColumnNumber() { return -1; }
+            @Override
+            public int getCharacterOffset() { return -1; }
+            @Override
+            public String getPublicId() { return null; }
+            @Override
+            public String getSystemId() { return null; }
+        };
+
+    /** The size of the input buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The stream to read from. */
+    private final InputStream in;
+
+    /**
+     * The input buffer, and the positions of the next byte and the
+     * end of the bytes read into it.  The reader does its own
+     * buffering as it reads a byte at a time.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0, limit = 0;
+
+    /** The table of strings read. */
+    private final List<String> table = new ArrayList<>();
+
+    /** The names of the open elements. */
+    private final List<String> open = new ArrayList<>();
+
+    /** The current event type. */
+    private int eventType = XMLStreamConstants.START_DOCUMENT;
+
+    /** The current element name, if at an element. */
+    private String name = null;
+
+    /** The current text, if at characters or a comment. */
+    private String text = null;
+
+    /** The attribute names and values of the current start element. */
+    private String[] attributes = new String[0];
+    private int attributeCount = 0;
+
+
+    /**
+     * Create a new compact reader.
+     *
+     * @param in The {@code InputStream} to read from.
+     * @exception IOException if the stream is not in the compact format.
+     */
+    CompactXMLStreamReader(InputStream in) throws IOException {
+        this.in = in;
+        byte[] magic = new byte[MAGIC.length];
+        for (int i = 0; i < magic.length; i++) magic[i] = (byte)readByte();
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a compact savegame stream");
+        }
+    }
+
+
+    /**
+     * Read an unsigned byte.
+     *
+     * @return The byte read.
+     * @exception IOException if the stream ends.
+     */
+    private int readByte() throws IOException {
+        if (this.position >= this.limit) {
+            this.limit = this.in.read(this.buffer, 0, this.buffer.length);
+            this.position = 0;
+            if (this.limit <= 0) {
+                this.limit = 0;
+                throw new EOFException("Compact stream ended early");
+            }
+        }
+        return this.buffer[this.position++] & 0xff;
+    }
+
+
+    /**
+     * Read an unsigned variable length integer.
+     *
+     * @return The integer read.
+     * @exception IOException if the stream ends or the value is bogus.
+     */
+    private int readInt() throws IOException {
+        int n = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte();
+            n |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (n < 0) break;
+                return n;
+            }
+        }
+        throw new IOException("Bad integer in compact stream");
+    }
+
+    /**
+     * Read a string.
+     *
+     * @return The string read.
+     * @exception IOException if the stream is invalid.
+     */
+    private String readString() throws IOException {
+        final int code = readInt();
+        if (code > STRING_NEW) {
+            final int index = code - STRING_NEW - 1;
+            if (index >= this.table.size()) {
+                throw new IOException("Bad string index: " + index);
+            }
+            return this.table.get(index);
+        }
+        final int length = readInt();
+        String s;
+        if (length <= this.limit - this.position) {
+            s = new String(this.buffer, this.position, length,
+                           StandardCharsets.UTF_8);
+            this.position += length;
+        } else {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) bytes[i] = (byte)readByte();
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (code == STRING_NEW) this.table.add(s);
+        return s;
+    }
+
+    /**
+     * Read an attribute value.
+     *
+     * @return The value read.
+     * @exception IOException if the stream is invalid.
+     */
+    private String readValue() throws IOException {
+        switch (readByte()) {
+        case VALUE_STRING:
+            return readString();
+        case VALUE_INT:
+            int z = readInt();
+            return Integer.toString(((z & 1) == 0) ? z >>> 1
+                : -((z + 1) >>> 1));
+        case VALUE_ID:
+            String prefix = readString();
+            return prefix + readInt();
+        default:
+            throw new IOException("Bad value type in compact stream");
+        }
+    }
+
+    /**
+     * Read the next token.
+     *
+     * @exception IOException if the stream is invalid.
+     */
+    private void readToken() throws IOException {
+        this.text = null;
+        this.attributeCount = 0;
+        final int token = readByte();
+        switch (token) {
+        case TOKEN_START_ELEMENT:
+            this.name = readString();
+            final int n = readInt();
+            if (2 * n > this.attributes.length) {
+                this.attributes = new String[2 * n];
+            }
+            for (int i = 0; i < 2 * n; i += 2) {
+                this.attributes[i] = readString();
+                this.attributes[i + 1] = readValue();
+            }
+            this.attributeCount = n;
+            this.open.add(this.name);
+            this.eventType = XMLStreamConstants.START_ELEMENT;
+            break;
+        case TOKEN_END_ELEMENT:
+            if (this.open.isEmpty()) {
+                throw new IOException("Unbalanced end element");
+            }
+            this.name = this.open.remove(this.open.size() - 1);
+            this.eventType = XMLStreamConstants.END_ELEMENT;
+            break;
+        case TOKEN_CHARACTERS:
+            this.text = readString();
+            this.eventType = XMLStreamConstants.CHARACTERS;
+            break;
+        case TOKEN_COMMENT:
+            this.text = readString();
+            this.eventType = XMLStreamConstants.COMMENT;
+            break;
+        case TOKEN_END_DOCUMENT:
+            this.eventType = XMLStreamConstants.END_DOCUMENT;
+            break;
+        default:
+            throw new IOException("Bad token in compact stream: " + token);
+        }
+    }
+
+    /**
+     * Check the reader is at an element.
+     */
+    private void checkElement() {
+        if (!isStartElement() && !isEndElement()) {
+            throw new IllegalStateException("Not at an element");
+        }
+    }
+
+    /**
+     * Check the reader is at a start element.
+     */
+    private void checkStartElement() {
+        if (!isStartElement()) {
+            throw new IllegalStateException("Not at a start element");
+        }
+    }
+
+
+    // Implement XMLStreamReader
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getProperty(String name) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int next() throws XMLStreamException {
+        if (this.eventType == XMLStreamConstants.END_DOCUMENT) {
+            throw new IllegalStateException("No more events");
+        }
+        try {
+            readToken();
+        } catch (IOException ioe) {
+            throw new XMLStreamException(ioe);
+        }
+        return this.eventType;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void require(int type, String namespaceURI, String localName)
+        throws XMLStreamException {
+        if (type != this.eventType
+            || (localName != null && !localName.equals(getLocalName()))) {
+            throw new XMLStreamException("Expected " + type + " " + localName
+                + ", found " + this.eventType + " " + this.name);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getElementText() throws XMLStreamException {
+        require(XMLStreamConstants.START_ELEMENT, null, null);
+        StringBuilder sb = new StringBuilder();
+        for (;;) {
+            switch (next()) {
+            case XMLStreamConstants.CHARACTERS:
+                sb.append(this.text);
+                break;
+            case XMLStreamConstants.COMMENT:
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                return sb.toString();
+            default:
+                throw new XMLStreamException("Element text expected");
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int nextTag() throws XMLStreamException {
+        for (;;) {
+            switch (next()) {
+            case XMLStreamConstants.CHARACTERS:
+                if (!isWhiteSpace()) {
+                    throw new XMLStreamException("Tag expected, found: "
+                        + this.text);
+                }
+                break;
+            case XMLStreamConstants.COMMENT:
+                break;
+            case XMLStreamConstants.START_ELEMENT:
+            case XMLStreamConstants.END_ELEMENT:
+                return this.eventType;
+            default:
+                throw new XMLStreamException("Tag expected");
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        return this.eventType != XMLStreamConstants.END_DOCUMENT;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {} // The stream is closed by the owner
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNamespaceURI(String prefix) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStartElement() {
+        return this.eventType == XMLStreamConstants.START_ELEMENT;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEndElement() {
+        return this.eventType == XMLStreamConstants.END_ELEMENT;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCharacters() {
+        return this.eventType == XMLStreamConstants.CHARACTERS;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isWhiteSpace() {
+        if (!isCharacters()) return false;
+        for (int i = 0; i < this.text.length(); i++) {
+            if (!Character.isWhitespace(this.text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getAttributeValue(String namespaceURI, String localName) {
+        checkStartElement();
+        for (int i = 0; i < 2 * this.attributeCount; i += 2) {
+            if (this.attributes[i].equals(localName)) {
+                return this.attributes[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getAttributeCount() {
+        checkStartElement();
+        return this.attributeCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QName getAttributeName(int index) {
+        return new QName(getAttributeLocalName(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getAttributeNamespace(int index) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getAttributeLocalName(int index) {
+        checkStartElement();
+        return this.attributes[2 * index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getAttributePrefix(int index) {
+        return XMLConstants.DEFAULT_NS_PREFIX;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getAttributeType(int index) {
+        return "CDATA";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getAttributeValue(int index) {
+        checkStartElement();
+        return this.attributes[2 * index + 1];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAttributeSpecified(int index) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNamespaceCount() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNamespacePrefix(int index) {
+        throw new IndexOutOfBoundsException("No namespaces");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNamespaceURI(int index) {
+        throw new IndexOutOfBoundsException("No namespaces");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return NO_NAMESPACES;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEventType() {
+        return this.eventType;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getText() {
+        if (this.text == null) {
+            throw new IllegalStateException("Not at text");
+        }
+        return this.text;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public char[] getTextCharacters() {
+        return getText().toCharArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTextCharacters(int sourceStart, char[] target,
+                                 int targetStart, int length) {
+        final String s = getText();
+        final int n = Math.max(0, Math.min(length, s.length() - sourceStart));
+        s.getChars(sourceStart, sourceStart + n, target, targetStart);
+        return n;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTextStart() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTextLength() {
+        return getText().length();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getEncoding() {
+        return "UTF-8";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasText() {
+        return this.text != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Location getLocation() {
+        return NO_LOCATION;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QName getName() {
+        return new QName(getLocalName());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getLocalName() {
+        checkElement();
+        return this.name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasName() {
+        return isStartElement() || isEndElement();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNamespaceURI() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPrefix() {
+        return XMLConstants.DEFAULT_NS_PREFIX;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getVersion() {
+        return "1.0";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStandalone() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean standaloneSet() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getCharacterEncodingScheme() {
+        return "UTF-8";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPITarget() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPIData() {
+        return null;
+    }
+}
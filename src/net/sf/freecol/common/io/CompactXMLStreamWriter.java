@@ -0,0 +1,526 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.io;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+
+/**
+ * Writes an XML document in the compact savegame format.
+ *
+ * The compact format is a stream of tokens for the elements,
+ * attributes, text and comments of the document, so a compact
+ * savegame holds exactly the same document as an XML one, and is
+ * read back through {@link CompactXMLStreamReader} by the same model
+ * code.  It is smaller and quicker to read and write because:
+ *   - element names, attribute names and short values are sent once,
+ *     then referred to by their index in a string table,
+ *   - integer values are stored as variable length binary integers,
+ *   - object identifiers ("prefix:number") are stored as a string
+ *     table index for the prefix and a binary integer for the number,
+ *     so the many tile, unit and goods identifiers cost a few bytes.
+ * The stream is not compressed here, savegame archive entries are
+ * compressed when written.
+ *
+ * Namespaces, processing instructions and the like are not used in
+ * FreeCol documents, and are not supported.
+ */
+final class CompactXMLStreamWriter implements XMLStreamWriter {
+
+    /** The bytes that start a compact stream. */
+    static final byte[] MAGIC = { 'F', 'C', 'X', 1 };
+
+    /** Tokens. */
+    static final int TOKEN_END_DOCUMENT = 0, TOKEN_START_ELEMENT = 1,
+        TOKEN_END_ELEMENT = 2, TOKEN_CHARACTERS = 3, TOKEN_COMMENT = 4;
+
+    /** Attribute value types. */
+    static final int VALUE_STRING = 0, VALUE_INT = 1, VALUE_ID = 2;
+
+    /** String codes.  Higher codes are table indexes. */
+    static final int STRING_LITERAL = 0, STRING_NEW = 1;
+
+    /** Only add attribute values shorter than this to the table. */
+    static final int TABLE_VALUE_LENGTH = 32;
+
+    /** Stop adding to the table when it is this large. */
+    static final int MAXIMUM_TABLE_SIZE = 1 << 20;
+
+    /** The stream to write to. */
+    private final OutputStream out;
+
+    /** The table of strings written. */
+    private final Map<String, Integer> table = new HashMap<>();
+
+    /** The names of the open elements. */
+    private final List<String> open = new ArrayList<>();
+
+    /** The name of a started element not yet written, or null. */
+    private String pending = null;
+
+    /** Is the pending element empty? */
+    private boolean pendingEmpty = false;
+
+    /** The attribute names and values of the pending element. */
+    private final List<String> attributes = new ArrayList<>();
+
+
+    /**
+     * Create a new compact writer.
+     *
+     * @param out The {@code OutputStream} to write to.
+     * @exception IOException if the stream header can not be written.
+     */
+    CompactXMLStreamWriter(OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.out.write(MAGIC);
+    }
+
+
+    /**
+     * Write an unsigned variable length integer.
+     *
+     * @param n The integer to write.
+     * @exception IOException if the stream fails.
+     */
+    private void writeInt(int n) throws IOException {
+        while ((n & ~0x7f) != 0) {
+            this.out.write((n & 0x7f) | 0x80);
+            n >>>= 7;
+        }
+        this.out.write(n);
+    }
+
+    /**
+     * Write a string, using the table if possible.
+     *
+     * @param s The string to write.
+     * @param add If true, the string may be added to the table.
+     * @exception IOException if the stream fails.
+     */
+    private void writeString(String s, boolean add) throws IOException {
+        Integer index = this.table.get(s);
+        if (index != null) {
+            writeInt(index + STRING_NEW + 1);
+            return;
+        }
+        if (add && this.table.size() < MAXIMUM_TABLE_SIZE) {
+            this.table.put(s, this.table.size());
+            writeInt(STRING_NEW);
+        } else {
+            writeInt(STRING_LITERAL);
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        this.out.write(bytes);
+    }
+
+    /**
+     * Write an attribute value.
+     *
+     * @param value The value to write.
+     * @exception IOException if the stream fails.
+     */
+    private void writeValue(String value) throws IOException {
+        final int colon = value.lastIndexOf(':');
+        int n;
+        if (colon >= 0) {
+            if ((n = parseNumber(value, colon + 1)) >= 0) {
+                this.out.write(VALUE_ID);
+                writeString(value.substring(0, colon + 1), true);
+                writeInt(n);
+                return;
+            }
+        } else if ((n = parseNumber(value, 0)) >= 0) {
+            // Zig-zag encode so small negative numbers stay small.
+            this.out.write(VALUE_INT);
+            writeInt(2 * n);
+            return;
+        } else if (value.startsWith("-")
+            && (n = parseNumber(value, 1)) > 0) {
+            this.out.write(VALUE_INT);
+            writeInt(2 * n - 1);
+            return;
+        }
+        this.out.write(VALUE_STRING);
+        writeString(value, value.length() < TABLE_VALUE_LENGTH);
+    }
+
+    /**
+     * Parse a number that reads back exactly as written.
+     *
+     * @param s The string to parse.
+     * @param start The start of the number in the string.
+     * @return The number, or negative if the rest of the string is
+     *     not a non-negative integer without leading zeros.
+     */
+    private static int parseNumber(String s, int start) {
+        final int len = s.length() - start;
+        if (len <= 0 || len > 9
+            || (len > 1 && s.charAt(start) == '0')) return -1;
+        int n = 0;
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = 10 * n + (c - '0');
+        }
+        return n;
+    }
+
+    /**
+     * Write any pending element start.
+     *
+     * @exception XMLStreamException if the stream fails.
+     */
+    private void flushPending() throws XMLStreamException {
+        if (this.pending == null) return;
+        try {
+            this.out.write(TOKEN_START_ELEMENT);
+            writeString(this.pending, true);
+            writeInt(this.attributes.size() / 2);
+            for (int i = 0; i < this.attributes.size(); i += 2) {
+                writeString(this.attributes.get(i), true);
+                writeValue(this.attributes.get(i + 1));
+            }
+            if (this.pendingEmpty) {
+                this.out.write(TOKEN_END_ELEMENT);
+            } else {
+                this.open.add(this.pending);
+            }
+        } catch (IOException ioe) {
+            throw new XMLStreamException(ioe);
+        }
+        this.pending = null;
+        this.pendingEmpty = false;
+        this.attributes.clear();
+    }
+
+    /**
+     * Write a simple token.
+     *
+     * @param token The token to write.
+     * @param text Text to follow the token, or null.
+     * @exception XMLStreamException if the stream fails.
+     */
+    private void writeToken(int token, String text) throws XMLStreamException {
+        flushPending();
+        try {
+            this.out.write(token);
+            if (text != null) writeString(text, false);
+        } catch (IOException ioe) {
+            throw new XMLStreamException(ioe);
+        }
+    }
+
+
+    // Implement XMLStreamWriter
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeStartElement(String localName) throws XMLStreamException {
+        flushPending();
+        this.pending = localName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeStartElement(String namespaceURI, String localName)
+        throws XMLStreamException {
+        writeStartElement(localName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeStartElement(String prefix, String localName,
+                                  String namespaceURI)
+        throws XMLStreamException {
+        writeStartElement(localName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        writeStartElement(localName);
+        this.pendingEmpty = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName)
+        throws XMLStreamException {
+        writeEmptyElement(localName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeEmptyElement(String prefix, String localName,
+                                  String namespaceURI)
+        throws XMLStreamException {
+        writeEmptyElement(localName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        flushPending();
+        if (this.open.isEmpty()) {
+            throw new XMLStreamException("No element to end");
+        }
+        this.open.remove(this.open.size() - 1);
+        writeToken(TOKEN_END_ELEMENT, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        while (!this.open.isEmpty() || this.pending != null) {
+            writeEndElement();
+        }
+        writeToken(TOKEN_END_DOCUMENT, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws XMLStreamException {
+        flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() throws XMLStreamException {
+        flushPending();
+        try {
+            this.out.flush();
+        } catch (IOException ioe) {
+            throw new XMLStreamException(ioe);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeAttribute(String localName, String value)
+        throws XMLStreamException {
+        if (this.pending == null) {
+            throw new XMLStreamException("Attribute outside start element: "
+                + localName);
+        }
+        this.attributes.add(localName);
+        this.attributes.add(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeAttribute(String prefix, String namespaceURI,
+                               String localName, String value)
+        throws XMLStreamException {
+        writeAttribute(localName, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeAttribute(String namespaceURI, String localName,
+                               String value) throws XMLStreamException {
+        writeAttribute(localName, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeNamespace(String prefix, String namespaceURI)
+        throws XMLStreamException {
+        throw new XMLStreamException("Namespaces not supported");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeDefaultNamespace(String namespaceURI)
+        throws XMLStreamException {
+        throw new XMLStreamException("Namespaces not supported");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeComment(String data) throws XMLStreamException {
+        writeToken(TOKEN_COMMENT, data);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeProcessingInstruction(String target)
+        throws XMLStreamException {
+        throw new XMLStreamException("PIs not supported");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeProcessingInstruction(String target, String data)
+        throws XMLStreamException {
+        throw new XMLStreamException("PIs not supported");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeCData(String data) throws XMLStreamException {
+        writeCharacters(data);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeDTD(String dtd)
+        throws XMLStreamException {
+        throw new XMLStreamException("DTDs not supported");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeEntityRef(String name)
+        throws XMLStreamException {
+        throw new XMLStreamException("Entities not supported");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeStartDocument() {} // Header written on creation
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeStartDocument(String version) {}
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeStartDocument(String encoding, String version) {}
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeCharacters(String text) throws XMLStreamException {
+        writeToken(TOKEN_CHARACTERS, text);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeCharacters(char[] text, int start, int len)
+        throws XMLStreamException {
+        writeCharacters(new String(text, start, len));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPrefix(String uri) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setPrefix(String prefix, String uri) {}
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setDefaultNamespace(String uri) {}
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setNamespaceContext(NamespaceContext context) {}
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return CompactXMLStreamReader.NO_NAMESPACES;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getProperty(String name) {
+        throw new IllegalArgumentException("No property: " + name);
+    }
+}
@@ -22,6 +22,10 @@ package net.sf.freecol.common.io;
 import java.io.File;
 import java.io.IOException;
 import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.util.Properties;
+import java.util.function.IntConsumer;
 import java.util.stream.Stream;
 import javax.xml.stream.XMLStreamException;
 
@@ -39,9 +43,21 @@ public class FreeColSavegameFile extends FreeColDataFile {
     /** The tag for the version string in the saved game. */
     public static final String VERSION_TAG = "version";
 
+    /** The savegame formats. */
+    public static enum Format {
+        XML,     // The game as an XML document
+        COMPACT; // The game document in the compact format
+    }
+
     /** The name of the file that contains the actual savegame. */
     public static final String SAVEGAME_FILE = "savegame.xml";
 
+    /** The name of the file that contains a compact format savegame. */
+    public static final String COMPACT_SAVEGAME_FILE = "savegame.fcx";
+
+    /** The savegame property that names the savegame format. */
+    public static final String FORMAT_PROPERTY = "savegame.format";
+
     /**
      * The name of a properties file that contains information about
      * the saved game, such as the size of the map, the date and time
@@ -66,6 +82,12 @@ public class FreeColSavegameFile extends FreeColDataFile {
      */
     public static final String THUMBNAIL_FILE = "thumbnail.png";
 
+    /** Called with the percentage loaded, if not null. */
+    private IntConsumer progressListener = null;
+
+    /** The format of this saved game, found when first needed. */
+    private Format format = null;
+
 
     /**
      * Create a new save game file from a given file.
@@ -95,10 +117,44 @@ public class FreeColSavegameFile extends FreeColDataFile {
         return ret;
     }
 
+    /**
+     * Gets the format of this saved game, from the savegame properties.
+     * Saved games with no format property are XML.
+     *
+     * @return The savegame {@code Format}.
+     */
+    public synchronized Format getFormat() {
+        if (this.format == null) {
+            Properties properties = new Properties();
+            try (InputStream is = getInputStream(SAVEGAME_PROPERTIES)) {
+                properties.load(is);
+            } catch (IOException ioe) {
+                ; // No properties, so XML
+            }
+            String f = properties.getProperty(FORMAT_PROPERTY,
+                                              Format.XML.toString());
+            this.format = find(Format.values(),
+                               v -> v.toString().equalsIgnoreCase(f),
+                               Format.XML);
+        }
+        return this.format;
+    }
+
+    /**
+     * Gets the name of the file within this saved game that contains
+     * the game data.
+     *
+     * @return The game data file name.
+     */
+    private String getGameFile() {
+        return (getFormat() == Format.COMPACT) ? COMPACT_SAVEGAME_FILE
+            : SAVEGAME_FILE;
+    }
+
     /**
      * Gets the input stream to the saved game data.
      *
-     * Only still needed by the validator.
+     * Only used for XML format saved games.
      *
      * @return An {@code InputStream} to the file
      *      "savegame.xml" within this data file.
@@ -122,12 +178,47 @@ public class FreeColSavegameFile extends FreeColDataFile {
     /**
      * Get a reader for the saved game data.
      *
-     * @return A reader for the file "savegame.xml" within this file.
+     * @return A reader for the game data within this file.
      * @exception IOException if there is a problem opening the input stream.
      */
     public FreeColXMLReader getSavedGameFreeColXMLReader()
         throws IOException {
-        return new FreeColXMLReader(getInputStream(SAVEGAME_FILE));
+        final String name = getGameFile();
+        return (getFormat() == Format.COMPACT)
+            ? FreeColXMLReader.compactReader(getInputStream(name))
+            : new FreeColXMLReader(getInputStream(name));
+    }
+
+    /**
+     * Set a listener for the progress of loading this saved game.
+     *
+     * @param progressListener An {@code IntConsumer} to call with
+     *     the percentage of the saved game data read, or null.
+     */
+    public void setProgressListener(IntConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Get a reader for loading the whole of the saved game data.
+     *
+     * The data is read and inflated ahead of the parser on another
+     * thread, and progress is reported to the progress listener.
+     *
+     * @return A reader for the game data within this file.
+     * @exception IOException if there is a problem opening the input stream.
+     */
+    public FreeColXMLReader getLoadingFreeColXMLReader() throws IOException {
+        final String name = getGameFile();
+        final URLConnection connection = getURI(name).toURL()
+            .openConnection();
+        connection.setDefaultUseCaches(false);
+        final InputStream is = new ReadAheadInputStream(connection
+            .getInputStream(), connection.getContentLengthLong(),
+            this.progressListener);
+        return (getFormat() == Format.COMPACT)
+            ? FreeColXMLReader.compactReader(is)
+            : new FreeColXMLReader(is);
     }
 
 
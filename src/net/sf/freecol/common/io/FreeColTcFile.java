@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import net.sf.freecol.common.model.Specification;
 import net.sf.freecol.common.resources.ResourceMapping;
 
 
@@ -56,6 +57,17 @@ public class FreeColTcFile extends FreeColModFile {
     }
 
 
+    /**
+     * Gets the Specification, by way of the specification cache.
+     *
+     * @return The {@code Specification}, or null if none present.
+     * @exception IOException if an error occurs reading the specification.
+     */
+    @Override
+    public Specification getSpecification() throws IOException {
+        return SpecificationCache.getSpecification(this);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -41,6 +41,7 @@ import javax.xml.stream.events.XMLEvent;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.util.StreamReaderDelegate;
 
 import net.sf.freecol.common.model.FreeColObject;
@@ -151,6 +152,34 @@ public class FreeColXMLReader extends StreamReaderDelegate
         this.readScope = ReadScope.NORMAL;
     }
 
+    /**
+     * Creates a new {@code FreeColXMLReader} on a given stream reader.
+     *
+     * @param xmlStreamReader The {@code XMLStreamReader} to read from.
+     * @param inputStream The underlying {@code InputStream}.
+     */
+    private FreeColXMLReader(XMLStreamReader xmlStreamReader,
+                             InputStream inputStream) {
+        super(xmlStreamReader);
+
+        this.inputStream = inputStream;
+        this.readScope = ReadScope.NORMAL;
+    }
+
+    /**
+     * Creates a new {@code FreeColXMLReader} that reads the compact
+     * savegame format.
+     *
+     * @param inputStream The {@code InputStream} to read from.
+     * @return A new compact {@code FreeColXMLReader}.
+     * @exception IOException if the stream is not in the compact format.
+     */
+    public static FreeColXMLReader compactReader(InputStream inputStream)
+        throws IOException {
+        return new FreeColXMLReader(new CompactXMLStreamReader(inputStream),
+                                    inputStream);
+    }
+
 
     /**
      * Set the tracing state.
@@ -374,6 +403,30 @@ public class FreeColXMLReader extends StreamReaderDelegate
         expectTag(tag);
     }
             
+    /**
+     * Skip the current element and everything it contains.
+     *
+     * @exception XMLStreamException if there is an error with the stream.
+     */
+    public void skipTag() throws XMLStreamException {
+        final String tag = getLocalName();
+        for (int depth = 1; depth > 0;) {
+            switch (next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                depth++;
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                depth--;
+                break;
+            case XMLStreamConstants.END_DOCUMENT:
+                throw new XMLStreamException("Parse error, end of " + tag
+                    + " expected, not end of document");
+            default:
+                break;
+            }
+        }
+    }
+
     /**
      * Extract the current tag and its attributes from an input stream.
      * Useful for error messages.
@@ -38,6 +38,7 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -46,6 +47,8 @@ import net.sf.freecol.common.model.Location;
 import net.sf.freecol.common.model.Player;
 import net.sf.freecol.common.util.Utils;
 
+import org.w3c.dom.Node;
+
 
 /**
  * A wrapper for {@code XMLStreamWriter} and potentially an
@@ -190,6 +193,58 @@ public class FreeColXMLWriter implements Closeable, XMLStreamWriter {
         this.writeScope = (scope == null) ? WriteScope.SAVE : scope;
     }
 
+    /**
+     * Creates a new {@code FreeColXMLWriter} on a given stream writer.
+     *
+     * @param xmlStreamWriter The {@code XMLStreamWriter} to write to.
+     * @param scope The {@code WriteScope} to use for FreeCol
+     *     object writes.
+     */
+    private FreeColXMLWriter(XMLStreamWriter xmlStreamWriter,
+                             WriteScope scope) {
+        this.xmlStreamWriter = xmlStreamWriter;
+        this.writeScope = (scope == null) ? WriteScope.SAVE : scope;
+    }
+
+    /**
+     * Creates a new {@code FreeColXMLWriter} that writes the compact
+     * savegame format.
+     *
+     * @param outputStream The {@code OutputStream} to write to.
+     * @param scope The {@code WriteScope} to use for FreeCol
+     *     object writes.
+     * @return A new compact {@code FreeColXMLWriter}.
+     * @exception IOException if there is a problem while creating the
+     *     {@code FreeColXMLWriter}.
+     */
+    public static FreeColXMLWriter compactWriter(OutputStream outputStream,
+                                                 WriteScope scope)
+        throws IOException {
+        return new FreeColXMLWriter(new CompactXMLStreamWriter(outputStream),
+                                    scope);
+    }
+
+    /**
+     * Creates a new {@code FreeColXMLWriter} that appends the XML it
+     * writes to a DOM node, rather than serializing it.
+     *
+     * @param node The {@code Node} to append to.
+     * @param scope The {@code WriteScope} to use for FreeCol
+     *     object writes.
+     * @return A new DOM {@code FreeColXMLWriter}.
+     * @exception IOException if there is a problem while creating the
+     *     {@code FreeColXMLWriter}.
+     */
+    public static FreeColXMLWriter domWriter(Node node, WriteScope scope)
+        throws IOException {
+        try {
+            return new FreeColXMLWriter(XMLOutputFactory.newInstance()
+                .createXMLStreamWriter(new DOMResult(node)), scope);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
 
     /**
      * Get the {@code XMLOutputFactory} to create the output stream with.
@@ -0,0 +1,211 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.IntConsumer;
+
+
+/**
+ * An input stream that reads its source on a background thread.
+ *
+ * Reading a savegame means inflating the archive entry as well as
+ * parsing it.  With this stream the inflation runs ahead of the
+ * parser on another thread, in chunks, so the two overlap.  The
+ * parser side also reports the percentage of the stream consumed,
+ * so that a loading screen can show progress.
+ */
+final class ReadAheadInputStream extends InputStream {
+
+    /** The size of the chunks read. */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /** The number of chunks to read ahead. */
+    private static final int QUEUE_SIZE = 16;
+
+    /** The chunk marking the end of the source. */
+    private static final byte[] END = new byte[0];
+
+    /** The chunks read and not yet consumed. */
+    private final BlockingQueue<byte[]> queue
+        = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+    /** The thread reading the source. */
+    private final Thread reader;
+
+    /** A failure reading the source, reported at its end. */
+    private volatile IOException failure = null;
+
+    /** The expected length of the source, or non-positive if unknown. */
+    private final long size;
+
+    /** Called with the percentage consumed when it changes, or null. */
+    private final IntConsumer progress;
+
+    /** The current chunk, and the position within it. */
+    private byte[] chunk = null;
+    private int position = 0;
+
+    /** The number of bytes in the chunks taken so far. */
+    private long taken = 0L;
+
+    /** The last percentage reported. */
+    private int percent = -1;
+
+    /** Has the end of the source been reached? */
+    private boolean ended = false;
+
+
+    /**
+     * Create a new read ahead stream, and start reading.
+     *
+     * @param in The source {@code InputStream}, closed when fully
+     *     read or when this stream is closed.
+     * @param size The expected length of the source, or non-positive
+     *     if unknown.
+     * @param progress An {@code IntConsumer} to call with the
+     *     percentage of the source consumed, or null.
+     */
+    ReadAheadInputStream(final InputStream in, long size,
+                         IntConsumer progress) {
+        this.size = size;
+        this.progress = progress;
+        this.reader = new Thread(() -> {
+                try {
+                    for (;;) {
+                        byte[] b = new byte[CHUNK_SIZE];
+                        int n = 0, r;
+                        while (n < b.length
+                            && (r = in.read(b, n, b.length - n)) > 0) n += r;
+                        if (n <= 0) break;
+                        this.queue.put((n < b.length) ? Arrays.copyOf(b, n)
+                            : b);
+                        if (n < b.length) break;
+                    }
+                } catch (IOException ioe) {
+                    this.failure = ioe;
+                } catch (InterruptedException ie) {
+                    return; // Closed
+                } finally {
+                    try {
+                        in.close();
+                    } catch (IOException ioe) {} // Ignore
+                }
+                try {
+                    this.queue.put(END);
+                } catch (InterruptedException ie) {} // Closed
+            }, "ReadAhead");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+
+    /**
+     * Make sure there is a current chunk with something left in it.
+     *
+     * @return False if the end of the source has been reached.
+     * @exception IOException if the source could not be read.
+     */
+    private boolean fill() throws IOException {
+        while (!this.ended
+            && (this.chunk == null || this.position >= this.chunk.length)) {
+            byte[] b;
+            try {
+                b = this.queue.take();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Read ahead interrupted");
+            }
+            if (b == END) {
+                this.ended = true;
+                this.chunk = null;
+                if (this.failure != null) throw this.failure;
+                report(100);
+            } else {
+                this.chunk = b;
+                this.position = 0;
+                this.taken += b.length;
+                if (this.size > 0) {
+                    report((int)Math.min(99L, 100L * this.taken / this.size));
+                }
+            }
+        }
+        return !this.ended;
+    }
+
+    /**
+     * Report the percentage consumed if it has changed.
+     *
+     * @param p The percentage consumed.
+     */
+    private void report(int p) {
+        if (this.progress != null && p != this.percent) {
+            this.percent = p;
+            this.progress.accept(p);
+        }
+    }
+
+
+    // Override InputStream
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException {
+        return (fill()) ? this.chunk[this.position++] & 0xff : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!fill()) return -1;
+        int n = Math.min(len, this.chunk.length - this.position);
+        System.arraycopy(this.chunk, this.position, b, off, n);
+        this.position += n;
+        return n;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int available() {
+        return (this.chunk == null) ? 0 : this.chunk.length - this.position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        this.ended = true;
+        this.chunk = null;
+        this.reader.interrupt();
+    }
+}
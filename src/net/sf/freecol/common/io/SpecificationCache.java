@@ -0,0 +1,371 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLStreamException;
+
+import net.sf.freecol.FreeCol;
+import net.sf.freecol.common.io.FreeColXMLWriter.WriteScope;
+import net.sf.freecol.common.model.Specification;
+
+
+/**
+ * A cache of specifications read from rules.
+ *
+ * Reading the rules means parsing their XML, the XML of any rules
+ * they extend, and the compatibility fragments, then fixing up the
+ * result.  Here the result is kept in the compact savegame format,
+ * keyed by a digest of everything it was read from, so the next
+ * read of the same rules only has to load that back.  Each read
+ * still returns a new specification, as games change their own.
+ *
+ * The cache lives in memory, and also in the user cache directory
+ * if there is one so that it survives a restart.
+ */
+final class SpecificationCache {
+
+    private static final Logger logger = Logger.getLogger(SpecificationCache.class.getName());
+
+    /** Change this when the cached form changes incompatibly. */
+    private static final int CACHE_VERSION = 2;
+
+    /** The subdirectory of the user cache directory to use. */
+    private static final String CACHE_DIRECTORY = "specifications";
+
+    /** The suffix of the cache files. */
+    private static final String CACHE_SUFFIX = ".fcx";
+
+    /** The compatibility fragments a specification may also read. */
+    private static final String[] COMPAT_FILES = {
+        Specification.ROLES_COMPAT_FILE_NAME,
+        Specification.UNIT_CHANGE_TYPES_COMPAT_FILE_NAME
+    };
+
+    /** The code time stamp, negative until found. */
+    private static long codeStamp = -1L;
+
+    /** The cached specifications, by key. */
+    private static final Map<String, byte[]> cache = new HashMap<>();
+
+
+    private SpecificationCache() {} // Static only
+
+
+    /**
+     * Gets the specification of some rules, from the cache if possible.
+     *
+     * @param tcf The {@code FreeColTcFile} containing the rules.
+     * @return A new {@code Specification}, or null if the rules
+     *     have none.
+     * @exception IOException if the rules can not be read.
+     */
+    static Specification getSpecification(FreeColTcFile tcf)
+        throws IOException {
+        final long start = System.currentTimeMillis();
+        final String key = getKey(tcf);
+        if (key == null) return null;
+
+        byte[] data = getCached(key);
+        if (data != null) {
+            try {
+                Specification spec = read(data);
+                logger.info("Read specification " + tcf.getId()
+                    + " from cache in "
+                    + (System.currentTimeMillis() - start) + "ms");
+                return spec;
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Discarding cached specification "
+                    + tcf.getId(), e);
+                discard(key);
+            }
+        }
+
+        Specification spec;
+        try (InputStream si = tcf.getSpecificationInputStream()) {
+            if (si == null) return null;
+            spec = new Specification(si);
+        }
+        final long parsed = System.currentTimeMillis();
+        try {
+            data = write(spec);
+            try {
+                put(key, data);
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, "Failed to save specification "
+                    + tcf.getId(), ioe);
+            }
+            // Return what a later hit would, so that a game does not
+            // depend on whether the cache was warm
+            spec = read(data);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to cache specification "
+                + tcf.getId(), e);
+            discard(key);
+        }
+        logger.info("Read specification " + tcf.getId()
+            + " from rules in " + (parsed - start) + "ms"
+            + ", cached in " + (System.currentTimeMillis() - parsed) + "ms");
+        return spec;
+    }
+
+    /**
+     * Clear the in-memory cache.  The next read of each specification
+     * will come from the user cache directory or the rules.
+     */
+    static synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Get the cache key for some rules, that is, a digest of all the
+     * files a specification read from them could depend on.
+     *
+     * Rules can only extend the standard rule sets, so rather than
+     * parse the rules to find which they extend, all the standard
+     * rule sets are included.  Keeping the XML parser out of the
+     * way is what makes a cached start quick.
+     *
+     * @param tcf The {@code FreeColTcFile} containing the rules.
+     * @return The key, or null if the rules have no specification.
+     * @exception IOException if the rules can not be read.
+     */
+    private static String getKey(FreeColTcFile tcf) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IOException("No digest available", nsae);
+        }
+        md.update((CACHE_VERSION + ":" + FreeCol.getRevision()
+                + ":" + getCodeStamp()).getBytes(StandardCharsets.UTF_8));
+        if (!digestRules(md, tcf)) return null;
+        List<FreeColTcFile> ruleSets = Mods.getRuleSets();
+        ruleSets.sort(Comparator.comparing(FreeColTcFile::getId));
+        for (FreeColTcFile rules : ruleSets) digestRules(md, rules);
+        final File base = FreeColDirectories.getBaseDirectory();
+        for (String name : COMPAT_FILES) {
+            File file = new File(base, name);
+            if (file.exists()) md.update(Files.readAllBytes(file.toPath()));
+        }
+        StringBuilder sb = new StringBuilder(tcf.getId()).append('-');
+        for (byte b : md.digest()) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    /**
+     * Gets a time stamp for the code that reads specifications, so
+     * that a rebuild without a new revision still misses the cache.
+     *
+     * The specification is built by much of the model and the
+     * compact reader and writer, not just by {@code Specification},
+     * so this stamps the whole code source that it was loaded from.
+     *
+     * @return The code source time stamp, or zero if not known.
+     */
+    private static synchronized long getCodeStamp() {
+        if (codeStamp < 0) {
+            CodeSource cs = Specification.class.getProtectionDomain()
+                .getCodeSource();
+            URL url = (cs == null) ? null : cs.getLocation();
+            try {
+                codeStamp = (url == null) ? 0L
+                    : getCodeStamp(new File(url.toURI()));
+            } catch (IllegalArgumentException | URISyntaxException e) {
+                codeStamp = 0L; // Not a file
+            }
+        }
+        return codeStamp;
+    }
+
+    /**
+     * Gets a time stamp for a code source.
+     *
+     * @param source The jar or classes directory {@code File}.
+     * @return The modification time of a jar, or the latest
+     *     modification time of the classes in a directory, or zero
+     *     if not known.
+     */
+    static long getCodeStamp(File source) {
+        if (!source.isDirectory()) return source.lastModified();
+        try (Stream<Path> paths = Files.walk(source.toPath())) {
+            return paths.filter(p -> p.toString().endsWith(".class"))
+                .mapToLong(p -> p.toFile().lastModified())
+                .max().orElse(0L);
+        } catch (IOException | UncheckedIOException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Add the specification of some rules to a digest.
+     *
+     * @param md The {@code MessageDigest} to update.
+     * @param tcf The {@code FreeColTcFile} containing the rules.
+     * @return True if the rules have a specification.
+     * @exception IOException if the rules can not be read.
+     */
+    private static boolean digestRules(MessageDigest md, FreeColTcFile tcf)
+        throws IOException {
+        try (InputStream si = tcf.getSpecificationInputStream()) {
+            if (si == null) return false;
+            md.update(tcf.getId().getBytes(StandardCharsets.UTF_8));
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = si.read(buf)) > 0) md.update(buf, 0, n);
+        }
+        return true;
+    }
+
+    /**
+     * Gets a cached specification.
+     *
+     * @param key The cache key.
+     * @return The cached specification data, or null if not present.
+     */
+    private static synchronized byte[] getCached(String key) {
+        byte[] data = cache.get(key);
+        if (data == null) {
+            File file = getCacheFile(key);
+            if (file != null && file.exists()) {
+                try {
+                    data = Files.readAllBytes(file.toPath());
+                    cache.put(key, data);
+                } catch (IOException ioe) {
+                    logger.log(Level.WARNING, "Failed to read cached"
+                        + " specification: " + file.getPath(), ioe);
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Add a specification to the cache.
+     *
+     * @param key The cache key.
+     * @param data The specification data.
+     * @exception IOException if the cache file could not be written.
+     */
+    private static synchronized void put(String key, byte[] data)
+        throws IOException {
+        cache.put(key, data);
+        File file = getCacheFile(key);
+        if (file == null) return;
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir.getPath());
+        }
+        File temp = new File(dir, file.getName() + ".tmp");
+        Files.write(temp.toPath(), data);
+        try {
+            Files.move(temp.toPath(), file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException amnse) {
+            Files.move(temp.toPath(), file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Remove a bad specification from the cache.
+     *
+     * @param key The cache key.
+     */
+    private static synchronized void discard(String key) {
+        cache.remove(key);
+        File file = getCacheFile(key);
+        if (file != null && file.exists() && !file.delete()) {
+            logger.warning("Could not delete: " + file.getPath());
+        }
+    }
+
+    /**
+     * Gets the file to cache a specification in.
+     *
+     * @param key The cache key.
+     * @return The cache {@code File}, or null if there is no user
+     *     cache directory.
+     */
+    private static File getCacheFile(String key) {
+        File dir = FreeColDirectories.getUserCacheDirectory();
+        return (dir == null) ? null
+            : new File(new File(dir, CACHE_DIRECTORY), key + CACHE_SUFFIX);
+    }
+
+    /**
+     * Serialize a specification.
+     *
+     * @param spec The {@code Specification} to write.
+     * @return The specification data.
+     * @exception IOException if the specification could not be written.
+     */
+    private static byte[] write(Specification spec) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FreeColXMLWriter xw = FreeColXMLWriter.compactWriter(out,
+                WriteScope.toSave())) {
+            spec.toXML(xw);
+        } catch (XMLStreamException xse) {
+            throw new IOException("Failed to write specification", xse);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Read a specification.
+     *
+     * @param data The specification data.
+     * @return A new {@code Specification}.
+     * @exception IOException if the data could not be read.
+     */
+    private static Specification read(byte[] data) throws IOException {
+        try (FreeColXMLReader xr = FreeColXMLReader.compactReader(new
+                ByteArrayInputStream(data))) {
+            xr.nextTag();
+            return new Specification(xr);
+        } catch (XMLStreamException xse) {
+            throw new IOException("Failed to read specification", xse);
+        }
+    }
+}
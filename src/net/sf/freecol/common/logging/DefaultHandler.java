@@ -22,6 +22,8 @@ package net.sf.freecol.common.logging;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -37,15 +39,83 @@ import net.sf.freecol.common.util.Utils;
 /**
  * The default handler for FreeCol's log records. It currently only
  * logs to a file in the format offered by TextFormatter.
+ *
+ * Records are formatted by the logging thread, then put in a ring
+ * buffer to be written by a separate writer thread.  The writer is
+ * woken when a batch of records is waiting, and otherwise writes and
+ * flushes whatever has arrived once a second.  If the buffer is
+ * full, records below WARNING are dropped and counted.  Warnings,
+ * severe records and records with an exception wait for space, and
+ * are written and flushed before {@link #publish} returns, so they
+ * are in the file before a crash ends a debug run.  When the file
+ * grows too large it is moved aside and a new one started.
  */
 public final class DefaultHandler extends Handler {
 
-    /** A writer to write log records with. */
-    private final Writer writer;
+    /** The default number of records that can wait to be written. */
+    private static final int BUFFER_SIZE = 4096;
+
+    /** The number of waiting records that wakes the writer thread. */
+    private static final int BATCH_SIZE = 64;
+
+    /** The default size in characters at which to start a new log file. */
+    private static final long ROTATE_SIZE = 32L << 20;
+
+    /** The longest time in milliseconds a record may wait to be flushed. */
+    private static final long FLUSH_INTERVAL = 1000L;
+
+    /** The longest time in milliseconds to wait for space or a flush. */
+    private static final long FLUSH_TIMEOUT = 5000L;
+
+    /** Suffix for the previous log file. */
+    private static final String ROTATE_SUFFIX = ".1";
+
+    /** The file to log to. */
+    private final File file;
+
+    /** A writer to write log records with, only used by the writer thread. */
+    private Writer writer;
 
     /** Flag to enable console logging. */
     private final boolean consoleLogging;
 
+    /** The size in characters at which to start a new log file. */
+    private final long rotateSize;
+
+    /**
+     * The ring buffer of formatted records waiting for the writer
+     * thread, which also serves as the lock for the following fields.
+     */
+    private final String[] buffer;
+
+    /** The index of the first waiting record in the buffer. */
+    private int head = 0;
+
+    /** The number of records waiting in the buffer. */
+    private int count = 0;
+
+    /** The number of records accepted into the buffer. */
+    private long accepted = 0L;
+
+    /** The number of accepted records written and flushed. */
+    private long flushed = 0L;
+
+    /** Is a flush requested? */
+    private boolean flushRequested = false;
+
+    /** Has this handler been closed? */
+    private boolean closed = false;
+
+    /** Statistics. */
+    private long records = 0L, dropped = 0L, flushes = 0L, rotations = 0L;
+    private int maxDepth = 0;
+
+    /** The thread writing the records. */
+    private final Thread writerThread;
+
+    /** The number of characters written to the current file. */
+    private long size = 0L;
+
 
     /**
      * The constructor to use.
@@ -57,9 +127,29 @@ public final class DefaultHandler extends Handler {
      */
     public DefaultHandler(boolean consoleLogging, String fileName)
         throws FreeColException {
+        this(consoleLogging, fileName, BUFFER_SIZE, ROTATE_SIZE);
+    }
+
+    /**
+     * Create a new handler with a given buffer and file size.
+     *
+     * Package-private for the test suite.
+     *
+     * @param consoleLogging The flag to log to the console as well.
+     * @param fileName The name of a file to log to.
+     * @param bufferSize The number of records that can wait to be written.
+     * @param rotateSize The size in characters at which to start a
+     *     new log file.
+     * @exception FreeColException In case the log file could not be
+     *     created/written to.
+     */
+    DefaultHandler(boolean consoleLogging, String fileName, int bufferSize,
+                   long rotateSize) throws FreeColException {
         this.consoleLogging = consoleLogging;
+        this.rotateSize = rotateSize;
+        this.buffer = new String[bufferSize];
 
-        File file = new File(fileName);
+        this.file = new File(fileName);
         if (file.exists()) {
             if (file.isDirectory()) {
                 throw new FreeColException("Log file \"" + fileName
@@ -89,52 +179,94 @@ public final class DefaultHandler extends Handler {
         // or maybe a self-made HTMLFormatter.
         setFormatter(new TextFormatter());
 
+        write(getHeader());
+
+        this.writerThread = new Thread(() -> run(), "FreeColLogWriter");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+
+    /**
+     * Get the header to start each log file with.
+     *
+     * @return The header text.
+     */
+    private static String getHeader() {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("FreeCol game version: ")
+            .append(FreeCol.getRevision())
+            .append("\nFreeCol protocol version: ")
+            .append(DOMMessage.getFreeColProtocolVersion())
+            .append("\n\nJava vendor: ")
+            .append(System.getProperty("java.vendor"))
+            .append("\nJava version: ")
+            .append(System.getProperty("java.version"))
+            .append("\nJava WM name: ")
+            .append(System.getProperty("java.vm.name"))
+            .append("\nJava WM vendor: ")
+            .append(System.getProperty("java.vm.vendor"))
+            .append("\nJava WM version: ")
+            .append(System.getProperty("java.vm.version"))
+            .append("\n\nOS name: ")
+            .append(OSUtils.getOperatingSystem())
+            .append("\nOS architecture: ")
+            .append(System.getProperty("os.arch"))
+            .append("\nOS version: ")
+            .append(System.getProperty("os.version"))
+            .append("\n\n");
+        return sb.toString();
+    }
+
+    /**
+     * Write some text to the log file, starting a new file if the
+     * current one is too large.
+     *
+     * Only called from the constructor and the writer thread.
+     *
+     * @param str The text to write.
+     */
+    private void write(String str) {
+        if (this.writer == null) return;
         try {
-            StringBuilder sb = new StringBuilder(512);
-            sb.append("FreeCol game version: ")
-                .append(FreeCol.getRevision())
-                .append("\nFreeCol protocol version: ")
-                .append(DOMMessage.getFreeColProtocolVersion())
-                .append("\n\nJava vendor: ")
-                .append(System.getProperty("java.vendor"))
-                .append("\nJava version: ")
-                .append(System.getProperty("java.version"))
-                .append("\nJava WM name: ")
-                .append(System.getProperty("java.vm.name"))
-                .append("\nJava WM vendor: ")
-                .append(System.getProperty("java.vm.vendor"))
-                .append("\nJava WM version: ")
-                .append(System.getProperty("java.vm.version"))
-                .append("\n\nOS name: ")
-                .append(OSUtils.getOperatingSystem())
-                .append("\nOS architecture: ")
-                .append(System.getProperty("os.arch"))
-                .append("\nOS version: ")
-                .append(System.getProperty("os.version"))
-                .append("\n\n");
-            this.writer.write(sb.toString());
+            this.writer.write(str, 0, str.length());
         } catch (IOException ioe) {
+            System.err.println("Failed to write log record: " + str);
             ioe.printStackTrace(System.err);
         }
+        this.size += str.length();
+        if (this.size >= this.rotateSize) rotate();
     }
 
     /**
-     * Closes this handler so that it will stop handling log records.
+     * Move the current log file aside and start a new one.
      */
-    @Override
-    public void close() {
+    private void rotate() {
         try {
             this.writer.close();
         } catch (IOException ioe) {
             ioe.printStackTrace(System.err);
         }
+        File old = new File(this.file.getPath() + ROTATE_SUFFIX);
+        if (old.exists()) old.delete();
+        if (!this.file.renameTo(old)) {
+            System.err.println("Failed to rename log file: " + this.file);
+        }
+        this.writer = Utils.getFileUTF8Writer(this.file);
+        this.size = 0L;
+        synchronized (this.buffer) {
+            this.rotations++;
+        }
+        write(getHeader());
     }
 
     /**
-     * Flushes the data that this handler has logged.
+     * Flush the log file.
+     *
+     * Only called from the writer thread.
      */
-    @Override
-    public void flush() {
+    private void flushWriter() {
+        if (this.writer == null) return;
         try {
             this.writer.flush();
         } catch (IOException ioe) {
@@ -142,6 +274,158 @@ public final class DefaultHandler extends Handler {
         }
     }
 
+    /**
+     * The body of the writer thread.  Take the waiting records in
+     * batches and write them, flushing when asked to, when the
+     * writer was not woken by a full batch, or when the last flush
+     * was too long ago.
+     */
+    private void run() {
+        String[] batch = new String[this.buffer.length];
+        long lastFlush = System.currentTimeMillis();
+        boolean dirty = false; // Is there unflushed output?
+        for (;;) {
+            int n;
+            long taken;
+            boolean flush, stop;
+            synchronized (this.buffer) {
+                if (this.count < BATCH_SIZE && !this.flushRequested
+                    && !this.closed) {
+                    try {
+                        this.buffer.wait(FLUSH_INTERVAL);
+                    } catch (InterruptedException ie) {} // Just flush
+                }
+                n = this.count;
+                for (int i = 0; i < n; i++) {
+                    int index = (this.head + i) % this.buffer.length;
+                    batch[i] = this.buffer[index];
+                    this.buffer[index] = null;
+                }
+                this.head = (this.head + n) % this.buffer.length;
+                this.count = 0;
+                taken = this.accepted;
+                flush = this.flushRequested || (n > 0 && n < BATCH_SIZE);
+                this.flushRequested = false;
+                stop = this.closed;
+                this.buffer.notifyAll(); // There is space again
+            }
+
+            for (int i = 0; i < n; i++) {
+                write(batch[i]);
+                batch[i] = null;
+                dirty = true;
+            }
+            if (stop) {
+                long d;
+                synchronized (this.buffer) {
+                    d = this.dropped;
+                }
+                if (d > 0) write("Dropped " + d + " log records.\n");
+                dirty = true;
+            }
+            final long now = System.currentTimeMillis();
+            flush |= stop || now - lastFlush >= FLUSH_INTERVAL;
+            if (flush && dirty) {
+                flushWriter();
+                dirty = false;
+                lastFlush = now;
+            }
+            synchronized (this.buffer) {
+                if (flush) {
+                    this.flushed = taken;
+                    this.flushes++;
+                }
+                this.buffer.notifyAll(); // Wake flush waiters
+            }
+            if (stop) break;
+        }
+        if (this.writer != null) {
+            try {
+                this.writer.close();
+            } catch (IOException ioe) {
+                ioe.printStackTrace(System.err);
+            }
+            this.writer = null;
+        }
+    }
+
+    /**
+     * Wait until the records accepted so far have been flushed.
+     *
+     * Must be called holding the buffer lock.
+     *
+     * @param target The number of accepted records to wait for.
+     */
+    private void awaitFlushed(long target) {
+        long end = System.currentTimeMillis() + FLUSH_TIMEOUT;
+        while (this.flushed < target && this.writerThread.isAlive()) {
+            long wait = end - System.currentTimeMillis();
+            if (wait <= 0) break;
+            try {
+                this.buffer.wait(wait);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gets statistics about the records logged.
+     *
+     * @return A map of statistics key,value pairs.
+     */
+    public Map<String, String> getStatistics() {
+        Map<String, String> stats = new LinkedHashMap<>();
+        synchronized (this.buffer) {
+            stats.put("logRecords", Long.toString(this.records));
+            stats.put("logDropped", Long.toString(this.dropped));
+            stats.put("logQueueDepth", Integer.toString(this.count));
+            stats.put("logMaxQueueDepth", Integer.toString(this.maxDepth));
+            stats.put("logFlushes", Long.toString(this.flushes));
+            stats.put("logRotations", Long.toString(this.rotations));
+        }
+        return stats;
+    }
+
+
+    // Override Handler
+
+    /**
+     * Closes this handler so that it will stop handling log records,
+     * after writing those already waiting.
+     */
+    @Override
+    public void close() {
+        synchronized (this.buffer) {
+            if (this.closed) return;
+            this.closed = true;
+            this.buffer.notifyAll();
+        }
+        if (Thread.currentThread() != this.writerThread) {
+            try {
+                this.writerThread.join(FLUSH_TIMEOUT);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Flushes the data that this handler has logged, waiting until
+     * all records accepted so far are written.
+     */
+    @Override
+    public void flush() {
+        if (Thread.currentThread() == this.writerThread) return;
+        synchronized (this.buffer) {
+            if (this.closed) return;
+            this.flushRequested = true;
+            this.buffer.notifyAll();
+            awaitFlushed(this.accepted);
+        }
+    }
+
     /**
      * Publishes the given LogRecord by writing its data to a file using a
      * TextFormatter.
@@ -156,21 +440,50 @@ public final class DefaultHandler extends Handler {
         }
 
         String str = getFormatter().format(record);
+        // Important records must not be lost, and are written
+        // before continuing.  The writer thread itself can not wait.
+        final boolean important = (record.getThrown() != null
+            || record.getLevel().intValue() >= Level.WARNING.intValue())
+            && Thread.currentThread() != this.writerThread;
         if (consoleLogging
             && record.getLevel().intValue() >= Level.WARNING.intValue()) {
             System.err.println(str);
         }
 
-        try {
-            this.writer.write(str, 0, str.length());
-        } catch (IOException ioe) {
-            System.err.println("Failed to write log record: " + str);
-            ioe.printStackTrace(System.err);
+        synchronized (this.buffer) {
+            if (this.closed) return;
+            this.records++;
+            if (important) {
+                long end = System.currentTimeMillis() + FLUSH_TIMEOUT;
+                while (this.count == this.buffer.length && !this.closed) {
+                    long wait = end - System.currentTimeMillis();
+                    if (wait <= 0) break;
+                    try {
+                        this.buffer.wait(wait);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            if (this.count == this.buffer.length || this.closed) {
+                this.dropped++;
+            } else {
+                this.buffer[(this.head + this.count) % this.buffer.length]
+                    = str;
+                this.count++;
+                this.accepted++;
+                if (this.count > this.maxDepth) this.maxDepth = this.count;
+                if (important) {
+                    this.flushRequested = true;
+                    this.buffer.notifyAll();
+                    awaitFlushed(this.accepted);
+                } else if (this.count == BATCH_SIZE) {
+                    this.buffer.notifyAll();
+                }
+            }
         }
 
-        // Because FreeCol is still in a very early stage.
-        flush();
-
         // Do this last, as it shuts down debug runs
         if (record.getThrown() != null) {
             FreeColDebugger.handleCrash();
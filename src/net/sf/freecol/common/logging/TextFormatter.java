@@ -49,7 +49,7 @@ final class TextFormatter extends Formatter {
         result.append(record.getSourceClassName())
             .append(' ').append(record.getSourceMethodName())
             .append("\n\t").append(record.getLevel().getName())
-            .append(": ").append(record.getMessage().replaceAll("\n", "\n\t"))
+            .append(": ").append(record.getMessage().replace("\n", "\n\t"))
             .append("\n\t").append(new Date(record.getMillis()))
             .append("\n\tThread: ").append(record.getThreadID())
             .append('\n');
@@ -22,6 +22,7 @@ package net.sf.freecol.common.model;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.ToIntFunction;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
@@ -239,12 +240,42 @@ public class Building extends WorkLocation
      * @param outputs The output goods already available in the colony,
      *     necessary in order to avoid excess production.
      * @return The production information.
-     * @see ProductionCache#update
+     * @see ProductionSnapshot
      */
     public ProductionInfo getAdjustedProductionInfo(List<AbstractGoods> inputs,
                                                     List<AbstractGoods> outputs) {
+        final Colony colony = getColony();
+        return getAdjustedProductionInfo(inputs, outputs, getProductionType(),
+            gt -> sum(getUnits(), u -> getUnitProduction(u, gt)),
+            count(getUnits(), matchKey(getExpertUnitType(), Unit::getType)),
+            gt -> colony.getGoodsCount(gt));
+    }
+
+    /**
+     * Gets the production information for this building with a given
+     * production type and units present, taking account of the
+     * available input and output goods.
+     *
+     * @param inputs The input goods available.
+     * @param outputs The output goods already available in the colony,
+     *     necessary in order to avoid excess production.
+     * @param productionType The {@code ProductionType} to use.
+     * @param unitProduction A function to get the total production of
+     *     a goods type by the units present.
+     * @param experts The number of experts present.
+     * @param stored A function to get the amount of a goods type
+     *     stored in the colony.
+     * @return The production information.
+     * @see ProductionSnapshot
+     */
+    ProductionInfo getAdjustedProductionInfo(List<AbstractGoods> inputs,
+        List<AbstractGoods> outputs, ProductionType productionType,
+        ToIntFunction<GoodsType> unitProduction, int experts,
+        ToIntFunction<GoodsType> stored) {
         ProductionInfo result = new ProductionInfo();
-        if (!hasOutputs()) return result;
+        if (productionType == null || !any(productionType.getOutputs())) {
+            return result;
+        }
         final Specification spec = getSpecification();
         final Turn turn = getGame().getTurn();
         final boolean avoidOverflow
@@ -260,10 +291,10 @@ public class Building extends WorkLocation
         // First, calculate the nominal production ratios.
         if (canAutoProduce()) {
             // Autoproducers are special
-            for (AbstractGoods output : transform(getOutputs(),
+            for (AbstractGoods output : transform(productionType.getOutputs(),
                                                   AbstractGoods::isPositive)) {
                 final GoodsType goodsType = output.getType();
-                int available = getColony().getGoodsCount(goodsType);
+                int available = stored.applyAsInt(goodsType);
                 if (available >= capacity) {
                     minimumRatio = maximumRatio = 0.0;
                 } else {
@@ -281,10 +312,9 @@ public class Building extends WorkLocation
                 }
             }
         } else {
-            for (AbstractGoods output : iterable(getOutputs())) {
+            for (AbstractGoods output : iterable(productionType.getOutputs())) {
                 final GoodsType goodsType = output.getType();
-                float production = sum(getUnits(),
-                                       u -> getUnitProduction(u, goodsType));
+                float production = unitProduction.applyAsInt(goodsType);
                 // Unattended production always applies for buildings!
                 production += getBaseProduction(null, goodsType, null);
                 production = applyModifiers(production, turn,
@@ -299,7 +329,7 @@ public class Building extends WorkLocation
         }
 
         // Then reduce the minimum ratio if some input is in short supply.
-        for (AbstractGoods input : iterable(getInputs())) {
+        for (AbstractGoods input : iterable(productionType.getInputs())) {
             long required = (long)Math.floor(input.getAmount() * minimumRatio);
             long available = getAvailable(input.getType(), inputs);
             // Do not allow auto-production to go negative.
@@ -312,9 +342,7 @@ public class Building extends WorkLocation
                 && hasAbility(Ability.EXPERTS_USE_CONNECTIONS)
                 && spec.getBoolean(GameOptions.EXPERTS_HAVE_CONNECTIONS)
                 && ((minimumGoodsInput = getType()
-                        .getExpertWithConnectionsProduction()
-                        * count(getUnits(),
-                            matchKey(getExpertUnitType(), Unit::getType)))
+                        .getExpertWithConnectionsProduction() * experts)
                     > available)) {
                 available = minimumGoodsInput;
             }
@@ -328,7 +356,7 @@ public class Building extends WorkLocation
         // Check whether there is space enough to store the goods
         // produced in order to avoid excess production.
         if (avoidOverflow) {
-            for (AbstractGoods output : iterable(getOutputs())) {
+            for (AbstractGoods output : iterable(productionType.getOutputs())) {
                 double production = output.getAmount() * minimumRatio;
                 if (production <= 0) continue;
                 double headroom = (double)capacity
@@ -347,7 +375,7 @@ public class Building extends WorkLocation
         }
 
         final double epsilon = 0.0001;
-        for (AbstractGoods input : iterable(getInputs())) {
+        for (AbstractGoods input : iterable(productionType.getInputs())) {
             GoodsType type = input.getType();
             // maximize consumption
             int consumption = (int)Math.floor(input.getAmount()
@@ -359,7 +387,7 @@ public class Building extends WorkLocation
                 result.addMaximumConsumption(new AbstractGoods(type, maximumConsumption));
             }
         }
-        for (AbstractGoods output : iterable(getOutputs())) {
+        for (AbstractGoods output : iterable(productionType.getOutputs())) {
             GoodsType type = output.getType();
             // minimize production, but add a magic little something
             // to counter rounding errors
@@ -563,6 +591,16 @@ public class Building extends WorkLocation
     @Override
     public Stream<Modifier> getProductionModifiers(GoodsType goodsType,
                                                    UnitType unitType) {
+        return getProductionModifiers(goodsType, unitType,
+                                      getColony().getProductionBonus());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Stream<Modifier> getProductionModifiers(GoodsType goodsType,
+                                            UnitType unitType, int bonus) {
         final BuildingType type = getType();
         final String id = (goodsType == null) ? null : goodsType.getId();
         final Colony colony = getColony();
@@ -572,7 +610,8 @@ public class Building extends WorkLocation
         return (unitType != null)
             // With a unit, unit specific bonuses apply
             ? concat(this.getModifiers(id, unitType, turn),
-                     colony.getProductionModifiers(goodsType, unitType, this),
+                     colony.getProductionModifiers(goodsType, unitType, this,
+                                                   bonus),
                      getCompetenceModifiers(id, unitType, turn),
                      owner.getModifiers(id, unitType, turn))
             // With no unit, only the building-specific bonuses 
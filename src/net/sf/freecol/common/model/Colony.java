@@ -1236,11 +1236,13 @@ public class Colony extends Settlement implements Nameable, TradeLocation {
     }
 
     /**
-     * Update the colony's production bonus.
+     * Calculate the production bonus for given SoL and Tory memberships.
      *
-     * @return True if the bonus changed.
+     * @param sol The SoL membership percentage.
+     * @param tories The number of Tories.
+     * @return The production bonus.
      */
-    protected boolean updateProductionBonus() {
+    private int calculateGovernmentBonus(int sol, int tories) {
         final Specification spec = getSpecification();
         final int veryBadGovernment
                 = spec.getInteger("model.option.veryBadGovernmentLimit");
@@ -1250,11 +1252,35 @@ public class Colony extends Settlement implements Nameable, TradeLocation {
                 = spec.getInteger("model.option.veryGoodGovernmentLimit");
         final int goodGovernment
                 = spec.getInteger("model.option.goodGovernmentLimit");
-        int newBonus = (sonsOfLiberty >= veryGoodGovernment) ? 2
-                : (sonsOfLiberty >= goodGovernment) ? 1
+        return (sol >= veryGoodGovernment) ? 2
+                : (sol >= goodGovernment) ? 1
                 : (tories > veryBadGovernment) ? -2
                 : (tories > badGovernment) ? -1
                 : 0;
+    }
+
+    /**
+     * Calculate the production bonus the colony would have with a
+     * given number of units and amount of liberty, as
+     * {@link #updateSoL} and {@link #updateProductionBonus} would
+     * set it.
+     *
+     * @param uc The proposed number of units in the colony.
+     * @param liberty The amount of liberty.
+     * @return The production bonus.
+     */
+    int calculateProductionBonus(int uc, int liberty) {
+        int sol = calculateSoLPercentage(uc, liberty);
+        return calculateGovernmentBonus(sol, uc - calculateRebels(uc, sol));
+    }
+
+    /**
+     * Update the colony's production bonus.
+     *
+     * @return True if the bonus changed.
+     */
+    protected boolean updateProductionBonus() {
+        int newBonus = calculateGovernmentBonus(sonsOfLiberty, tories);
         if (productionBonus != newBonus) {
             invalidateCache();
             setProductionBonus(newBonus);
@@ -1937,6 +1963,23 @@ public class Colony extends Settlement implements Nameable, TradeLocation {
      */
     public Stream<Modifier> getProductionModifiers(GoodsType goodsType,
                                                    UnitType unitType, WorkLocation wl) {
+        return getProductionModifiers(goodsType, unitType, wl,
+                                      productionBonus);
+    }
+
+    /**
+     * Get the production {@code Modifier} for a given production
+     * bonus.
+     *
+     * @param goodsType The {@code GoodsType} to produce.
+     * @param unitType An optional {@code UnitType} to do the work.
+     * @param wl The {@link WorkLocation}
+     * @param productionBonus The production bonus to use.
+     * @return A stream of suitable {@code Modifier}s.
+     */
+    Stream<Modifier> getProductionModifiers(GoodsType goodsType,
+                                            UnitType unitType, WorkLocation wl,
+                                            int productionBonus) {
         if (productionBonus == 0) return Stream.<Modifier>empty();
         int bonus = (int)Math.floor(productionBonus * wl.getRebelFactor());
         Modifier mod = new Modifier(goodsType.getId(), bonus,
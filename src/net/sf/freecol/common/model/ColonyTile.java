@@ -21,6 +21,7 @@ package net.sf.freecol.common.model;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.ToIntFunction;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
@@ -154,13 +155,34 @@ public class ColonyTile extends WorkLocation {
      * - Artificial tile improvements, such as plowing, are ignored.
      *
      * @return The raw production of this colony tile.
-     * @see ProductionCache#update
+     * @see ProductionSnapshot
      */
     public ProductionInfo getBasicProductionInfo() {
-        final Colony colony = getColony();
+        return getBasicProductionInfo(getProductionType(),
+                                      getColony().getProductionBonus(),
+            gt -> sum(getUnits(), u -> getUnitProduction(u, gt)));
+    }
+
+    /**
+     * Gets the basic production information for the colony tile with
+     * a given production type, colony production bonus and production
+     * by the units present.
+     *
+     * @param productionType The {@code ProductionType} to use.
+     * @param bonus The colony production bonus to use.
+     * @param unitProduction A function to get the total production of
+     *     a goods type by the units present.
+     * @return The raw production of this colony tile.
+     * @see ProductionSnapshot
+     */
+    ProductionInfo getBasicProductionInfo(ProductionType productionType,
+        int bonus, ToIntFunction<GoodsType> unitProduction) {
+        final Stream<AbstractGoods> outputs = (productionType == null)
+            ? Stream.<AbstractGoods>empty()
+            : productionType.getOutputs();
         ProductionInfo pi = new ProductionInfo();
         if (isColonyCenterTile()) {
-            forEach(getOutputs(), output -> {
+            forEach(outputs, output -> {
                     boolean onlyNaturalImprovements = getSpecification()
                         .getBoolean(GameOptions.ONLY_NATURAL_IMPROVEMENTS)
                         && !output.getType().isFoodType();
@@ -170,15 +192,15 @@ public class ColonyTile extends WorkLocation {
                             .getTotalBonusPotential(output.getType(), null,
                                 potential, onlyNaturalImprovements);
                     }
-                    potential += Math.max(0, colony.getProductionBonus());
+                    potential += Math.max(0, bonus);
                     AbstractGoods production
                         = new AbstractGoods(output.getType(), potential);
                     pi.addProduction(production);
                 });
         } else {
-            forEach(map(getOutputs(), AbstractGoods::getType),
+            forEach(map(outputs, AbstractGoods::getType),
                 gt -> {
-                    int n = sum(getUnits(), u -> getUnitProduction(u, gt));
+                    int n = unitProduction.applyAsInt(gt);
                     if (n > 0) pi.addProduction(new AbstractGoods(gt, n));
                 });
         }
@@ -452,6 +474,16 @@ public class ColonyTile extends WorkLocation {
     @Override
     public Stream<Modifier> getProductionModifiers(GoodsType goodsType,
                                                    UnitType unitType) {
+        return getProductionModifiers(goodsType, unitType,
+                                      getColony().getProductionBonus());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Stream<Modifier> getProductionModifiers(GoodsType goodsType,
+                                            UnitType unitType, int bonus) {
         if (!canProduce(goodsType, unitType)) return Stream.<Modifier>empty();
 
         final Tile workTile = getWorkTile();
@@ -463,14 +495,16 @@ public class ColonyTile extends WorkLocation {
         return (unitType != null)
             // Unit modifiers apply
             ? concat(workTile.getProductionModifiers(goodsType, unitType),
-                     colony.getProductionModifiers(goodsType, unitType, this),
+                     colony.getProductionModifiers(goodsType, unitType, this,
+                                                   bonus),
                      unitType.getModifiers(id, type, turn),
                      ((owner == null) ? null
                          : owner.getModifiers(id, unitType, turn)))
             // Unattended only possible in center, colony modifiers apply
             : (isColonyCenterTile())
             ? concat(workTile.getProductionModifiers(goodsType, null),
-                     colony.getProductionModifiers(goodsType, null, this),
+                     colony.getProductionModifiers(goodsType, null, this,
+                                                   bonus),
                      colony.getModifiers(id, null, turn),
                      ((owner == null) ? null
                          : owner.getModifiers(id, type, turn)))
@@ -21,6 +21,7 @@ package net.sf.freecol.common.model;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -45,7 +46,8 @@ public class EuropeanNationType extends NationType {
 
     /**
      * Stores the starting units of this Nation at various
-     * difficulties.
+     * difficulties, in the order they were read so that they are
+     * written back the same way.
      */
     private final Map<String, Map<String, AbstractUnit>> startingUnitMap = new HashMap<>();
 
@@ -132,7 +134,7 @@ public class EuropeanNationType extends NationType {
         String exTag = (expert) ? Boolean.TRUE.toString() : null;
         Map<String, AbstractUnit> units = startingUnitMap.get(exTag);
         if (units == null) {
-            units = new HashMap<>();
+            units = new LinkedHashMap<>();
             startingUnitMap.put(exTag, units);
         }
         units.put(id, unit);
@@ -230,7 +232,8 @@ public class EuropeanNationType extends NationType {
                                                EuropeanNationType.class, this);
         if (parent != this) {
             forEachMapEntry(parent.startingUnitMap, e ->
-                startingUnitMap.put(e.getKey(), new HashMap<>(e.getValue())));
+                startingUnitMap.put(e.getKey(),
+                                    new LinkedHashMap<>(e.getValue())));
         }
 
         super.readChildren(xr);
@@ -21,8 +21,10 @@ package net.sf.freecol.common.model;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
@@ -55,6 +57,19 @@ public final class FeatureContainer {
     /** The modifiers in the container. */
     private Map<String, Set<Modifier>> modifiers = null;
 
+    /**
+     * Resolved modifiers, sorted for application, by identifier and
+     * type.  Protected by the modifiers lock, and discarded whenever
+     * the modifiers change.  Modifiers with a turn limit are never
+     * cached, so the turn is not part of the key.
+     */
+    private Map<String, Map<FreeColSpecObjectType, List<Modifier>>> resolved
+        = null;
+
+    /** Statistics for the resolved modifier caches. */
+    private static final AtomicLong modifierCacheHits = new AtomicLong(0L);
+    private static final AtomicLong modifierCacheMisses = new AtomicLong(0L);
+
 
     /**
      * Have the abilities map been created?
@@ -167,6 +182,23 @@ public final class FeatureContainer {
         return result.stream();
     }
 
+    /**
+     * Gets all the abilities in a container, whatever they apply to.
+     *
+     * @return A stream of all the abilities.
+     */
+    public Stream<Ability> getAllAbilities() {
+        Set<Ability> result = new HashSet<>();
+        if (abilitiesPresent()) {
+            synchronized (abilitiesLock) {
+                for (Set<Ability> aset : abilities.values()) {
+                    result.addAll(aset);
+                }
+            }
+        }
+        return result.stream();
+    }
+
     /**
      * Add the given ability to a container.
      *
@@ -219,30 +251,112 @@ public final class FeatureContainer {
 
 
     /**
-     * Gets the set of modifiers with the given identifier from this
-     * container.
+     * Gets the number of resolved modifier cache hits.
+     *
+     * @return The hit count, across all containers.
+     */
+    public static long getModifierCacheHits() {
+        return modifierCacheHits.get();
+    }
+
+    /**
+     * Gets the number of resolved modifier cache misses.
+     *
+     * @return The miss count, across all containers.
+     */
+    public static long getModifierCacheMisses() {
+        return modifierCacheMisses.get();
+    }
+
+    /**
+     * Discard the resolved modifiers.  Call with the modifiers lock held.
+     */
+    private void invalidateModifiers() {
+        resolved = null;
+    }
+
+    /**
+     * Gets the modifiers with the given identifier that apply to a
+     * type and turn, sorted for application.
      *
      * @param id The object identifier.
      * @param fcgot An optional {@code FreeColSpecObjectType} the
      *     modifier applies to.
      * @param turn An optional applicable {@code Turn}.
-     * @return A stream of {@code Modifier}s.
+     * @return A list of {@code Modifier}s, which must not be changed.
      */
-    public Stream<Modifier> getModifiers(String id,
-                                         FreeColSpecObjectType fcgot,
-                                         Turn turn) {
-        if (!modifiersPresent()) return Stream.<Modifier>empty();
+    private List<Modifier> getResolvedModifiers(String id,
+                                                FreeColSpecObjectType fcgot,
+                                                Turn turn) {
         Set<Modifier> mset = new HashSet<>();
+        boolean timed = false;
         synchronized (modifiersLock) {
+            Map<FreeColSpecObjectType, List<Modifier>> byType
+                = (resolved == null) ? null : resolved.get(id);
+            List<Modifier> result = (byType == null) ? null
+                : byType.get(fcgot);
+            if (result != null) {
+                modifierCacheHits.incrementAndGet();
+                return result;
+            }
             if (id == null) {
                 for (Set<Modifier> ms : modifiers.values()) mset.addAll(ms);
             } else {
                 Set<Modifier> ms = modifiers.get(id);
                 if (ms != null) mset.addAll(ms);
             }
+            timed = any(mset, Modifier::hasTimeLimit);
+            if (!timed) {
+                modifierCacheMisses.incrementAndGet();
+                removeInPlace(mset, m -> !m.appliesTo(fcgot, turn));
+                result = sort(mset, Modifier.ascendingModifierIndexComparator);
+                if (resolved == null) resolved = new HashMap<>();
+                byType = resolved.get(id);
+                if (byType == null) {
+                    byType = new HashMap<>();
+                    resolved.put(id, byType);
+                }
+                byType.put(fcgot, result);
+                return result;
+            }
         }
         removeInPlace(mset, m -> !m.appliesTo(fcgot, turn));
-        return (mset.isEmpty()) ? Stream.<Modifier>empty() : mset.stream();
+        return sort(mset, Modifier.ascendingModifierIndexComparator);
+    }
+
+    /**
+     * Gets the set of modifiers with the given identifier from this
+     * container.
+     *
+     * @param id The object identifier.
+     * @param fcgot An optional {@code FreeColSpecObjectType} the
+     *     modifier applies to.
+     * @param turn An optional applicable {@code Turn}.
+     * @return A stream of {@code Modifier}s.
+     */
+    public Stream<Modifier> getModifiers(String id,
+                                         FreeColSpecObjectType fcgot,
+                                         Turn turn) {
+        if (!modifiersPresent()) return Stream.<Modifier>empty();
+        List<Modifier> mods = getResolvedModifiers(id, fcgot, turn);
+        return (mods.isEmpty()) ? Stream.<Modifier>empty() : mods.stream();
+    }
+
+    /**
+     * Gets all the modifiers in a container, whatever they apply to.
+     *
+     * @return A stream of all the modifiers.
+     */
+    public Stream<Modifier> getAllModifiers() {
+        Set<Modifier> result = new HashSet<>();
+        if (modifiersPresent()) {
+            synchronized (modifiersLock) {
+                for (Set<Modifier> mset : modifiers.values()) {
+                    result.addAll(mset);
+                }
+            }
+        }
+        return result.stream();
     }
 
     /**
@@ -258,7 +372,9 @@ public final class FeatureContainer {
      */
     public final float applyModifiers(float number, Turn turn,
                                       String id, FreeColSpecObjectType fcgot) {
-        return applyModifiers(number, turn, getModifiers(id, fcgot, turn));
+        return (!modifiersPresent()) ? number
+            : applyModifiers_internal(number, turn,
+                getResolvedModifiers(id, fcgot, turn));
     }
 
     /**
@@ -328,6 +444,7 @@ public final class FeatureContainer {
                 modifierSet = new HashSet<>();
                 modifiers.put(modifier.getId(), modifierSet);
             }
+            invalidateModifiers();
             return modifierSet.add(modifier);
         }
     }
@@ -343,6 +460,7 @@ public final class FeatureContainer {
 
         synchronized (modifiersLock) {
             Set<Modifier> modifierSet = modifiers.get(modifier.getId());
+            invalidateModifiers();
             return (modifierSet == null
                 || !modifierSet.remove(modifier)) ? null
                 : modifier;
@@ -359,6 +477,7 @@ public final class FeatureContainer {
 
         synchronized (modifiersLock) {
             modifiers.remove(id);
+            invalidateModifiers();
         }
     }
 
@@ -404,6 +523,7 @@ public final class FeatureContainer {
                         }
                         modifierSet.addAll(e.getValue());
                     });
+                invalidateModifiers();
             }
         }
     }
@@ -447,6 +567,7 @@ public final class FeatureContainer {
                         if (m.getSource() == fco) modifierSet.remove(m);
                     }
                 }
+                invalidateModifiers();
             }
         }
     }
@@ -463,6 +584,7 @@ public final class FeatureContainer {
         if (modifiersPresent()) {
             synchronized (modifiersLock) {
                 modifiers.clear();
+                invalidateModifiers();
             }
         }
     }
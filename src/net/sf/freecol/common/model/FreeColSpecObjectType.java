@@ -79,6 +79,10 @@ public abstract class FreeColSpecObjectType extends FreeColSpecObject
      * is nothing but the order in which the objects of the respective
      * class were defined.  It is guaranteed to remain stable only for
      * a particular revision of a particular specification.
+     *
+     * Once the specification is cleaned the indexes of most classes
+     * run densely from zero, so they can be used to index arrays.
+     * Types that are not part of a specification have index -1.
      */
     private int index = -1;
     
@@ -256,9 +260,17 @@ public abstract class FreeColSpecObjectType extends FreeColSpecObject
     protected void writeChildren(FreeColXMLWriter xw) throws XMLStreamException {
         super.writeChildren(xw);
 
-        for (Ability ability : sort(getAbilities())) ability.toXML(xw);
+        // Write all the features, including those with scopes that
+        // do not match a null type
+        final FeatureContainer fc = getFeatureContainer();
+        for (Ability ability : sort(fc.getAllAbilities())) {
+            ability.toXML(xw);
+        }
 
-        for (Modifier modifier : getSortedModifiers()) modifier.toXML(xw);
+        for (Modifier modifier : sort(fc.getAllModifiers(),
+                Modifier.ascendingModifierIndexComparator)) {
+            modifier.toXML(xw);
+        }
 
         for (Scope scope : getScopeList()) scope.toXML(xw);
     }
@@ -19,7 +19,6 @@
 
 package net.sf.freecol.common.model;
 
-import java.lang.ref.WeakReference;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -27,7 +26,6 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.NoSuchElementException;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -58,13 +56,6 @@ public class Game extends FreeColGameObject {
 
     public static final String TAG = "game";
 
-    /** State for the FCGO iterator, out here because it has to be static. */
-    private static enum FcgoState {
-        INVALID,
-        VALID,
-        CONSUMED,
-    };
-
     /** Map of all classes with corresponding server classes. */
     private static final java.util.Map<Class<? extends FreeColObject>,
                                        Class<? extends FreeColObject>>
@@ -167,7 +158,11 @@ public class Game extends FreeColGameObject {
      * Serialization is not needed directly as these must be completely
      * within { players, unknownEnemy, map } which are directly serialized.
      */
-    protected final HashMap<String, WeakReference<FreeColGameObject>> freeColGameObjects;
+    private final GameObjectRegistry freeColGameObjects
+        = new GameObjectRegistry(id -> {
+                logger.finest("removeFCGO/expire: " + id);
+                notifyRemoveFreeColGameObject(id);
+            });
 
     /**
      * The combat model this game uses. At the moment, the only combat
@@ -179,12 +174,6 @@ public class Game extends FreeColGameObject {
      */
     protected CombatModel combatModel = null;
 
-    /** The number of removed FCGOs that should trigger a cache clean. */
-    private static final int REMOVE_GC_THRESHOLD = 64;
-
-    /** The number of FCGOs removed since last cache clean. */
-    private int removeCount = 0;
-
     /**
      * A FreeColGameObjectListener to watch the objects in the game.
      * Usually this is the AIMain instance.
@@ -208,9 +197,7 @@ public class Game extends FreeColGameObject {
         this.spanishSuccession = false;
         this.initialActiveUnitId = null;
         this.specification = null;
-        this.freeColGameObjects = new HashMap<>(10000);
         this.combatModel = new SimpleCombatModel();
-        this.removeCount = 0;
         internId("0");
         this.initialized = true;
     }
@@ -308,12 +295,9 @@ public class Game extends FreeColGameObject {
      */
     public FreeColGameObject getFreeColGameObject(String id) {
         if (id == null || id.isEmpty()) return null;
-        final WeakReference<FreeColGameObject> ro = freeColGameObjects.get(id);
-        if (ro == null) return null;
-        final FreeColGameObject o = ro.get();
-        if (o == null) {
+        final FreeColGameObject o = freeColGameObjects.get(id);
+        if (o == null && freeColGameObjects.contains(id)) {
             removeFreeColGameObject(id, "missed");
-            return null;
         }
         return o;
     }
@@ -362,9 +346,7 @@ public class Game extends FreeColGameObject {
         }
 
         //logger.finest("Added FCGO: " + id);
-        final WeakReference<FreeColGameObject> wr
-            = new WeakReference<>(fcgo);
-        freeColGameObjects.put(id, wr);
+        freeColGameObjects.put(id, fcgo);
         notifySetFreeColGameObject(id, fcgo);
     }
 
@@ -383,13 +365,28 @@ public class Game extends FreeColGameObject {
         logger.finest("removeFCGO/" + reason + ": " + id);
         freeColGameObjects.remove(id);
         notifyRemoveFreeColGameObject(id);
+    }
 
-        // Garbage collect the FCGOs if enough have been removed.
-        if (++removeCount > REMOVE_GC_THRESHOLD) {
-            for (FreeColGameObject fcgo : getFreeColGameObjects());
-            removeCount = 0;
-            System.gc(); // Probably a good opportunity.
-        }
+    /**
+     * Gets the number of registered game objects, including any that
+     * have been garbage collected but not yet purged.
+     *
+     * @return The number of registered objects.
+     */
+    public int getFreeColGameObjectCount() {
+        return freeColGameObjects.size();
+    }
+
+    /**
+     * Gets the number of game objects that were garbage collected
+     * without being removed, and have been purged.  Disposed objects
+     * are removed, so a steady rise suggests objects are being
+     * dropped without disposal.
+     *
+     * @return The number of purged objects.
+     */
+    public long getPurgedFreeColGameObjectCount() {
+        return freeColGameObjects.getPurgedCount();
     }
 
     /**
@@ -411,66 +408,18 @@ public class Game extends FreeColGameObject {
      * Gets an {@code Iterator} over every registered
      * {@code FreeColGameObject}.
      *
-     * This {@code Iterator} should be iterated once in a while
-     * since it cleans the {@code FreeColGameObject} cache.  Very
-     * few routines call this any more, so there is a thresholded call
-     * in removeFreeColGameObject to ensure the cache is still
-     * cleaned.  Reconsider this if the situation changes.
+     * Objects that have been garbage collected are skipped, and the
+     * iterator does not fail if objects are added or removed while
+     * iterating.
      *
      * @return An {@code Iterator} containing every registered
      *     {@code FreeColGameObject}.
      */
     public Iterator<FreeColGameObject> getFreeColGameObjectIterator() {
-        return new Iterator<FreeColGameObject>() {
-
-            /** An iterator over the freeColGameObjects map. */
-            private final Iterator<Entry<String,
-                                         WeakReference<FreeColGameObject>>> it
-                = freeColGameObjects.entrySet().iterator();
-
-            /** Read ahead to this next entry. */
-            private Entry<String, WeakReference<FreeColGameObject>> readAhead
-                = null;
-
-            /** State of the readahead value. */
-            private FcgoState fcgoState = FcgoState.INVALID;
-
-
-            @Override
-            public boolean hasNext() {
-                if (this.fcgoState == FcgoState.VALID) return true;
-                while (this.it.hasNext()) {
-                    this.readAhead = this.it.next();
-                    if (this.readAhead.getValue().get() != null) {
-                        this.fcgoState = FcgoState.VALID;
-                        return true;
-                    }
-                    this.fcgoState = FcgoState.CONSUMED;
-                    remove();
-                }
-                return false;
-            }
-
-            @Override
-            public FreeColGameObject next() {
-                if (!hasNext()) throw new NoSuchElementException();
-                FreeColGameObject fcgo = this.readAhead.getValue().get();
-                this.fcgoState = FcgoState.CONSUMED;
-                return fcgo;
-            }
-
-            @Override
-            public void remove() {
-                if (this.fcgoState == FcgoState.INVALID) {
-                    throw new IllegalStateException("No current entry");
-                }
-                final String key = this.readAhead.getKey();
-                this.fcgoState = FcgoState.INVALID;
-                this.it.remove();
-                logger.finest("removeFCGO/expire: " + key);
-                notifyRemoveFreeColGameObject(key);
-            }
-        };
+        return freeColGameObjects.iterator(id -> {
+                logger.finest("removeFCGO/iterator: " + id);
+                notifyRemoveFreeColGameObject(id);
+            });
     }
 
     /**
@@ -1139,6 +1088,12 @@ public class Game extends FreeColGameObject {
             if (fcgo.isDisposed()) disposed++;
         }
         stats.put("disposed", Long.toString(disposed));
+        stats.put("registered", Integer.toString(getFreeColGameObjectCount()));
+        stats.put("purged", Long.toString(getPurgedFreeColGameObjectCount()));
+        stats.put("modifierCacheHits",
+                  Long.toString(FeatureContainer.getModifierCacheHits()));
+        stats.put("modifierCacheMisses",
+                  Long.toString(FeatureContainer.getModifierCacheMisses()));
         forEachMapEntry(objStats,
                 e -> stats.put(e.getKey(), Long.toString(e.getValue())));
 
@@ -0,0 +1,303 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+
+/**
+ * The weakly referenced game objects of a game, by identifier.
+ *
+ * Lookups take no locks, so the GUI, network handlers and AI may all
+ * read concurrently.  Game object identifiers are nearly all of the
+ * form "prefix:number" with numbers that are unique across the game,
+ * so such objects are also indexed by number in an array, which is
+ * checked first.  The map by identifier is always authoritative.
+ *
+ * Objects that are garbage collected without being removed are
+ * purged from the registry as their references are queued, which is
+ * checked whenever an object is added or removed.
+ */
+final class GameObjectRegistry {
+
+    /** Do not index numbers this large. */
+    private static final int MAXIMUM_NUMBER = 1 << 22;
+
+    /** A reference to a registered object. */
+    private static final class Ref extends WeakReference<FreeColGameObject> {
+
+        /** The object identifier. */
+        final String id;
+
+        /** The identifier number, or negative if none. */
+        final int number;
+
+
+        Ref(String id, int number, FreeColGameObject fcgo,
+            ReferenceQueue<FreeColGameObject> queue) {
+            super(fcgo, queue);
+            this.id = id;
+            this.number = number;
+        }
+    }
+
+    /** The references by identifier. */
+    private final ConcurrentHashMap<String, Ref> byId
+        = new ConcurrentHashMap<>(10000);
+
+    /** The references by identifier number.  Replaced when grown. */
+    private volatile AtomicReferenceArray<Ref> byNumber
+        = new AtomicReferenceArray<>(4096);
+
+    /** Collected objects are queued here. */
+    private final ReferenceQueue<FreeColGameObject> queue
+        = new ReferenceQueue<>();
+
+    /** Called with the identifier of each purged object. */
+    private final Consumer<String> purgeListener;
+
+    /** The number of collected objects purged. */
+    private final AtomicLong purged = new AtomicLong(0);
+
+
+    /**
+     * Create a new registry.
+     *
+     * @param purgeListener A {@code Consumer} to call with the
+     *     identifier of each purged object.
+     */
+    GameObjectRegistry(Consumer<String> purgeListener) {
+        this.purgeListener = purgeListener;
+    }
+
+
+    /**
+     * Gets the number part of an identifier.
+     *
+     * @param id The object identifier.
+     * @return The number following the last colon, or negative if
+     *     there is none or it is too large to index.
+     */
+    static int getNumber(String id) {
+        final int len = id.length();
+        int i = id.lastIndexOf(':') + 1;
+        if (i <= 0 || i >= len || len - i > 7) return -1;
+        int n = 0;
+        for (; i < len; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = 10 * n + (c - '0');
+        }
+        return (n < MAXIMUM_NUMBER) ? n : -1;
+    }
+
+    /**
+     * Find the reference for an identifier.
+     *
+     * @param id The object identifier.
+     * @return The {@code Ref} found, or null if none.
+     */
+    private Ref find(String id) {
+        final int n = getNumber(id);
+        if (n >= 0) {
+            final AtomicReferenceArray<Ref> a = this.byNumber;
+            if (n < a.length()) {
+                Ref r = a.get(n);
+                if (r != null && r.id.equals(id)) return r;
+            }
+        }
+        return this.byId.get(id);
+    }
+
+    /**
+     * Is an identifier registered?  It may have been collected.
+     *
+     * @param id The object identifier.
+     * @return True if the identifier is registered.
+     */
+    boolean contains(String id) {
+        return find(id) != null;
+    }
+
+    /**
+     * Gets a registered object.
+     *
+     * @param id The object identifier.
+     * @return The object, or null if it is not registered or has
+     *     been collected.
+     */
+    FreeColGameObject get(String id) {
+        final Ref r = find(id);
+        return (r == null) ? null : r.get();
+    }
+
+    /**
+     * Register an object.
+     *
+     * @param id The object identifier.
+     * @param fcgo The {@code FreeColGameObject} to register.
+     */
+    void put(String id, FreeColGameObject fcgo) {
+        purge();
+        final int n = getNumber(id);
+        final Ref r = new Ref(id, n, fcgo, this.queue);
+        this.byId.put(id, r);
+        if (n >= 0) {
+            synchronized (this) {
+                AtomicReferenceArray<Ref> a = this.byNumber;
+                if (n >= a.length()) {
+                    int len = a.length();
+                    while (len <= n) len *= 2;
+                    AtomicReferenceArray<Ref> b
+                        = new AtomicReferenceArray<>(len);
+                    for (int i = 0; i < a.length(); i++) b.set(i, a.get(i));
+                    this.byNumber = a = b;
+                }
+                // The first object with a number keeps the slot,
+                // any others are only found through the map.
+                Ref old = a.get(n);
+                if (old == null || old.get() == null
+                    || this.byId.get(old.id) != old) a.set(n, r);
+            }
+        }
+    }
+
+    /**
+     * Remove an object.
+     *
+     * @param id The object identifier.
+     */
+    void remove(String id) {
+        final Ref r = this.byId.remove(id);
+        if (r != null) clearNumber(r);
+        purge();
+    }
+
+    /**
+     * Clear the number slot of a reference if it holds it.
+     *
+     * @param r The {@code Ref} to clear.
+     */
+    private void clearNumber(Ref r) {
+        if (r.number < 0) return;
+        synchronized (this) {
+            AtomicReferenceArray<Ref> a = this.byNumber;
+            if (r.number < a.length()) a.compareAndSet(r.number, r, null);
+        }
+    }
+
+    /**
+     * Purge the collected objects.
+     */
+    void purge() {
+        Ref r;
+        while ((r = (Ref)this.queue.poll()) != null) {
+            clearNumber(r);
+            if (this.byId.remove(r.id, r)) {
+                this.purged.incrementAndGet();
+                this.purgeListener.accept(r.id);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of registered identifiers, including any
+     * collected objects not yet purged.
+     *
+     * @return The registry size.
+     */
+    int size() {
+        return this.byId.size();
+    }
+
+    /**
+     * Gets the number of collected objects purged.
+     *
+     * @return The purge count.
+     */
+    long getPurgedCount() {
+        return this.purged.get();
+    }
+
+    /**
+     * Gets an iterator over the registered objects that have not
+     * been collected.  The iterator does not fail on concurrent
+     * modification, and its remove removes the object from the
+     * registry.
+     *
+     * @param removeListener A {@code Consumer} to call with the
+     *     identifier of objects removed with the iterator.
+     * @return An {@code Iterator} over the objects.
+     */
+    Iterator<FreeColGameObject> iterator(Consumer<String> removeListener) {
+        return new Iterator<FreeColGameObject>() {
+
+            private final Iterator<Ref> it = byId.values().iterator();
+
+            /** The next object to return, or null if not yet found. */
+            private FreeColGameObject next = null;
+
+            /** The reference to the next object. */
+            private Ref nextRef = null;
+
+            /** The reference to the last object returned. */
+            private Ref current = null;
+
+
+            @Override
+            public boolean hasNext() {
+                while (this.next == null && this.it.hasNext()) {
+                    this.nextRef = this.it.next();
+                    this.next = this.nextRef.get();
+                }
+                return this.next != null;
+            }
+
+            @Override
+            public FreeColGameObject next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                FreeColGameObject fcgo = this.next;
+                this.next = null;
+                this.current = this.nextRef;
+                return fcgo;
+            }
+
+            @Override
+            public void remove() {
+                if (this.current == null) {
+                    throw new IllegalStateException("No current entry");
+                }
+                final Ref r = this.current;
+                this.current = null;
+                if (byId.remove(r.id, r)) {
+                    clearNumber(r);
+                    removeListener.accept(r.id);
+                }
+            }
+        };
+    }
+}
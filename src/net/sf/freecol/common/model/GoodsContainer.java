@@ -20,11 +20,7 @@
 package net.sf.freecol.common.model;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.function.Predicate;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLStreamException;
@@ -62,7 +58,7 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
      *
      * Always accessed synchronized (except I/O).
      */
-    private final Map<GoodsType, Integer> storedGoods = new HashMap<>();
+    private final TypeCountMap<GoodsType> storedGoods = new TypeCountMap<>();
 
     /** 
      * The previous list of Goods stored in this
@@ -72,7 +68,8 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
      * This is only touched rarely so the extra lock is tolerable.
      * (Not synchronized during I/O)
      */
-    private final Map<GoodsType, Integer> oldStoredGoods = new HashMap<>();
+    private final TypeCountMap<GoodsType> oldStoredGoods
+        = new TypeCountMap<>();
 
     /** The location for this {@code GoodsContainer}. */
     private Location parent = null;
@@ -134,9 +131,7 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
      */
     public int getGoodsCount(GoodsType type) {
         synchronized (this.storedGoods) {
-            return (this.storedGoods.containsKey(type)) 
-                ? this.storedGoods.get(type)
-                : 0;
+            return this.storedGoods.getCount(type);
         }
     }
 
@@ -149,9 +144,7 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
      */
     public int getOldGoodsCount(GoodsType type) {
         synchronized (this.oldStoredGoods) {
-            return (this.oldStoredGoods.containsKey(type))
-                ? this.oldStoredGoods.get(type)
-                : 0;
+            return this.oldStoredGoods.getCount(type);
         }
     }
 
@@ -189,7 +182,7 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
             }
         } else {
             synchronized (this.storedGoods) {
-                this.storedGoods.put(type, newAmount);
+                this.storedGoods.setCount(type, newAmount);
             }
         }
         return true;
@@ -233,7 +226,7 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
         if (newAmount > 0) {
             removedGoods = new Goods(getGame(), null, type, amount);
             synchronized (this.storedGoods) {
-                this.storedGoods.put(type, newAmount);
+                this.storedGoods.setCount(type, newAmount);
             }
         } else {
             removedGoods = new Goods(getGame(), null, type, oldAmount);
@@ -257,7 +250,7 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
             }
         } else {
             synchronized (this.storedGoods) {
-                this.storedGoods.put(goodsType, newAmount);
+                this.storedGoods.setCount(goodsType, newAmount);
             }
         }
     }
@@ -295,13 +288,12 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
                 this.storedGoods.clear();
                 return;
             }
-            final Predicate<Entry<GoodsType, Integer>> hiPred = e -> {
-                final GoodsType gt = e.getKey();
-                return gt.isStorable() && !gt.limitIgnored()
-                    && e.getValue() > newAmount;
-            };
-            forEachMapEntry(this.storedGoods, hiPred,
-                            e -> this.storedGoods.put(e.getKey(), newAmount));
+            for (GoodsType gt : this.storedGoods.keySet()) {
+                if (gt.isStorable() && !gt.limitIgnored()
+                    && this.storedGoods.getCount(gt) > newAmount) {
+                    this.storedGoods.setCount(gt, newAmount);
+                }
+            }
         }
     }
 
@@ -314,10 +306,9 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
      */
     public boolean hasReachedCapacity(int amount) {
         synchronized (this.storedGoods) {
-            return any(this.storedGoods.entrySet(), e ->
-                       e.getKey().isStorable()
-                           && !e.getKey().limitIgnored()
-                           && e.getValue() > amount);
+            return any(this.storedGoods.keySet(), gt ->
+                       gt.isStorable() && !gt.limitIgnored()
+                           && this.storedGoods.getCount(gt) > amount);
         }
     }
 
@@ -346,14 +337,14 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
         final Game game = getGame();
         List<Goods> result = new ArrayList<>();
         synchronized (this.storedGoods) {
-            forEachMapEntry(this.storedGoods, e -> {
-                    int amount = e.getValue();
-                    while (amount > 0) {
-                        result.add(new Goods(game, parent, e.getKey(),
-                                ((amount >= CARGO_SIZE) ? CARGO_SIZE : amount)));
-                        amount -= CARGO_SIZE;
-                    }
-                });
+            for (GoodsType gt : this.storedGoods.keySet()) {
+                int amount = this.storedGoods.getCount(gt);
+                while (amount > 0) {
+                    result.add(new Goods(game, parent, gt,
+                            ((amount >= CARGO_SIZE) ? CARGO_SIZE : amount)));
+                    amount -= CARGO_SIZE;
+                }
+            }
         }
         return result;
     }
@@ -368,9 +359,10 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
     public List<Goods> getCompactGoods() {
         final Game game = getGame();
         synchronized (this.storedGoods) {
-            return transform(this.storedGoods.entrySet(),
-                             e -> e.getValue() > 0,
-                             e -> new Goods(game, parent, e.getKey(), e.getValue()));
+            return transform(this.storedGoods.keySet(),
+                             gt -> this.storedGoods.getCount(gt) > 0,
+                             gt -> new Goods(game, parent, gt,
+                                             this.storedGoods.getCount(gt)));
         }
     }
 
@@ -519,7 +511,7 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
      *     the stream.
      */
     private void writeStorage(FreeColXMLWriter xw, String tag,
-                              Map<GoodsType, Integer> storage) throws XMLStreamException {
+                              TypeCountMap<GoodsType> storage) throws XMLStreamException {
         if (storage.isEmpty()) return;
 
         xw.writeStartElement(tag);
@@ -530,7 +522,7 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
 
             xw.writeAttribute(TYPE_TAG, goodsType);
 
-            xw.writeAttribute(AMOUNT_TAG, storage.get(goodsType));
+            xw.writeAttribute(AMOUNT_TAG, storage.getCount(goodsType));
 
             xw.writeEndElement();
         }
@@ -580,7 +572,7 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
      *     the stream.
      */
     private void readStorage(FreeColXMLReader xr,
-        Map<GoodsType, Integer> storage) throws XMLStreamException {
+        TypeCountMap<GoodsType> storage) throws XMLStreamException {
         final Specification spec = getGame().getSpecification();
 
         while (xr.moreTags()) {
@@ -592,7 +584,7 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
 
                 int amount = xr.getAttribute(AMOUNT_TAG, 0);
 
-                storage.put(goodsType, amount);
+                storage.setCount(goodsType, amount);
 
             } else {
                 throw new XMLStreamException("Bogus GoodsContainer tag: "
@@ -619,11 +611,11 @@ public class GoodsContainer extends FreeColGameObject implements Ownable {
         StringBuilder sb = new StringBuilder(128);
         sb.append('[').append(getId()).append(" [");
         // Do not bother to synchronize containers for display
-        forEachMapEntry(storedGoods, e ->
+        forEachMapEntry(storedGoods.getValues(), e ->
             sb.append(e.getKey()).append('=').append(e.getValue()).append(sep));
         sb.setLength(sb.length() - sep.length());
         sb.append("][");
-        forEachMapEntry(oldStoredGoods, e ->
+        forEachMapEntry(oldStoredGoods.getValues(), e ->
             sb.append(e.getKey()).append('=').append(e.getValue()).append(sep));
         sb.setLength(sb.length() - sep.length());
         sb.append("]]");
@@ -75,12 +75,10 @@ public class LandMap {
     public LandMap(Game game) {
         this(game.getMap().getWidth(), game.getMap().getHeight());
 
-        final Map gmap = game.getMap();
+        final TileArrays ta = game.getMap().getTileArrays();
         for (int y = 0; y < this.height; y++) {
             for (int x = 0; x < this.width; x++) {
-                this.map[x][y] = (gmap.isValid(x, y))
-                    ? gmap.getTile(x, y).isLand()
-                    : false;
+                this.map[x][y] = ta.isLand(ta.index(x, y));
                 if (this.map[x][y]) this.numberOfLandTiles++;
             }
         }
@@ -20,6 +20,7 @@
 package net.sf.freecol.common.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -48,6 +49,8 @@ import net.sf.freecol.common.model.pathfinding.CostDecider;
 import net.sf.freecol.common.model.pathfinding.CostDeciders;
 import net.sf.freecol.common.model.pathfinding.GoalDecider;
 import net.sf.freecol.common.model.pathfinding.GoalDeciders;
+import net.sf.freecol.common.model.pathfinding.PathCache;
+import net.sf.freecol.common.model.pathfinding.SearchQueue;
 import net.sf.freecol.common.util.LogBuilder;
 import static net.sf.freecol.common.util.CollectionUtils.*;
 import static net.sf.freecol.common.util.RandomUtils.*;
@@ -249,6 +252,9 @@ public class Map extends FreeColGameObject implements Location {
     /** The tiles that this map contains. */
     private Tile[][] tiles;
 
+    /** Flat copies of tile properties for fast scans.  Do not serialize. */
+    private TileArrays tileArrays;
+
     /** The highest map layer included. */
     private Layer layer;
 
@@ -275,6 +281,15 @@ public class Map extends FreeColGameObject implements Location {
     /** The search tracing status.  Do not serialize. */
     private boolean traceSearch = false;
 
+    /** Use the indexed search node sets.  Do not serialize. */
+    private boolean indexedSearch = true;
+
+    /** A cached indexed search node set, null if in use. */
+    private IndexedSearchNodes idleSearchNodes = null;
+
+    /** The cache of recent paths.  Do not serialize. */
+    private final PathCache pathCache = new PathCache();
+
 
     /**
      * Create a new {@code Map} from a collection of tiles.
@@ -287,6 +302,7 @@ public class Map extends FreeColGameObject implements Location {
         super(game);
 
         this.tiles = new Tile[width][height];
+        this.tileArrays = new TileArrays(this, width, height);
         setLayer(Layer.RESOURCES);
         calculateLatitudePerRow();
     }
@@ -385,6 +401,16 @@ public class Map extends FreeColGameObject implements Location {
      */
     public void setTile(Tile tile, int x, int y) {
         this.tiles[x][y] = tile;
+        if (tile != null) tile.setTileArrays(this.tileArrays);
+    }
+
+    /**
+     * Gets the flat copies of the tile properties.
+     *
+     * @return The {@code TileArrays} for this map.
+     */
+    public TileArrays getTileArrays() {
+        return this.tileArrays;
     }
 
     /**
@@ -948,7 +974,35 @@ public class Map extends FreeColGameObject implements Location {
      */
     public PathNode findPath(final Unit unit,
         final Location start, final Location end,
-        final Unit carrier, CostDecider costDecider,
+        final Unit carrier, final CostDecider costDecider,
+        LogBuilder lb) {
+        final PathCache.Key key;
+        if (lb == null && !traceSearch && getGame() != null
+            && getGame().getTurn() != null
+            && (key = PathCache.getKey(unit, start, end, carrier,
+                    costDecider)) != null) {
+            return pathCache.get(key, getGame().getTurn().getNumber(),
+                () -> findPathUncached(unit, start, end, carrier,
+                    costDecider, null));
+        }
+        return findPathUncached(unit, start, end, carrier, costDecider, lb);
+    }
+
+    /**
+     * Find the quickest path for a unit without consulting the path cache.
+     *
+     * @param unit The {@code Unit} to find the path for.
+     * @param start The {@code Location} in which the path starts from.
+     * @param end The {@code Location} at the end of the path.
+     * @param carrier An optional naval carrier {@code Unit} to use.
+     * @param costDecider An optional {@code CostDecider}.
+     * @param lb An optional {@code LogBuilder} to log to.
+     * @return A path starting at the start location and ending at the
+     *     end location, or null if none found.
+     */
+    private PathNode findPathUncached(final Unit unit,
+        final Location start, final Location end,
+        final Unit carrier, final CostDecider costDecider,
         LogBuilder lb) {
         if (traceSearch) lb = new LogBuilder(1024);
 
@@ -1171,6 +1225,46 @@ public class Map extends FreeColGameObject implements Location {
         return ret;
     }
 
+    /**
+     * Gets the path cache, for statistics.
+     *
+     * @return The {@code PathCache}.
+     */
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
+    /**
+     * Invalidate the path cache.  Called when something changes
+     * on the map that might alter the paths found.
+     */
+    public void invalidatePathCache() {
+        pathCache.invalidate();
+    }
+
+    /**
+     * Gets the indexed search status.
+     *
+     * @return True if searches use the indexed node sets.
+     */
+    public boolean getIndexedSearch() {
+        return indexedSearch;
+    }
+
+    /**
+     * Sets the indexed search status.  Turning it off falls back to
+     * the original identifier-keyed node sets, which is only useful
+     * to check the two produce the same paths.
+     *
+     * @param indexed The new indexed search status.
+     * @return The original indexed search status.
+     */
+    public boolean setIndexedSearch(boolean indexed) {
+        boolean ret = indexedSearch;
+        indexedSearch = indexed;
+        return ret;
+    }
+
     /**
      * Was a carrier used previously on a path?
      *
@@ -1189,24 +1283,272 @@ public class Map extends FreeColGameObject implements Location {
         return false;
     }
 
+    /**
+     * The open and closed node sets of a search.
+     */
+    private interface SearchNodes {
+
+        /**
+         * Is the open set empty?
+         *
+         * @return True if there are no open nodes.
+         */
+        boolean isEmpty();
+
+        /**
+         * Remove and return the open node with the lowest f-score.
+         *
+         * @return The best open node.
+         */
+        PathNode poll();
+
+        /**
+         * Get the open node at a tile.
+         *
+         * @param tile The {@code Tile} to check.
+         * @return The open node at the tile, or null if none.
+         */
+        PathNode getOpen(Tile tile);
+
+        /**
+         * Get the closed node at a tile.
+         *
+         * @param tile The {@code Tile} to check.
+         * @return The closed node at the tile, or null if none.
+         */
+        PathNode getClosed(Tile tile);
+
+        /**
+         * Open a node, replacing any open or closed node at its tile.
+         *
+         * @param tile The {@code Tile} to open.
+         * @param path The new {@code PathNode} for the tile.
+         * @param f The f-score (cost plus heuristic) of the node.
+         */
+        void open(Tile tile, PathNode path, int f);
+
+        /**
+         * Close a node.
+         *
+         * @param tile The {@code Tile} to close.
+         * @param path The {@code PathNode} for the tile.
+         */
+        void close(Tile tile, PathNode path);
+    }
+
+    /**
+     * The original search node sets, keyed by location identifier.
+     * Retained as a reference implementation for the indexed search.
+     */
+    private static final class HashSearchNodes implements SearchNodes {
+
+        private final HashMap<String, PathNode> openMap = new HashMap<>();
+        private final HashMap<String, PathNode> closedMap = new HashMap<>();
+        private final HashMap<String, Integer> f = new HashMap<>();
+        private final PriorityQueue<PathNode> openMapQueue
+            = new PriorityQueue<>(1024,
+                Comparator.comparingInt(p -> f.get(p.getLocation().getId())));
+
+        public boolean isEmpty() {
+            return openMap.isEmpty();
+        }
+
+        public PathNode poll() {
+            PathNode node = openMapQueue.poll();
+            openMap.remove(node.getLocation().getId());
+            return node;
+        }
+
+        public PathNode getOpen(Tile tile) {
+            return openMap.get(tile.getId());
+        }
+
+        public PathNode getClosed(Tile tile) {
+            return closedMap.get(tile.getId());
+        }
+
+        public void open(Tile tile, PathNode path, int fcost) {
+            final String id = tile.getId();
+            closedMap.remove(id);
+            PathNode best = openMap.remove(id);
+            if (best != null) openMapQueue.remove(best);
+            f.put(id, fcost);
+            openMap.put(id, path);
+            openMapQueue.offer(path);
+        }
+
+        public void close(Tile tile, PathNode path) {
+            closedMap.put(tile.getId(), path);
+        }
+    }
+
+    /**
+     * Search node sets keyed by tile index (y * width + x), using
+     * primitive arrays that are reused from search to search.
+     *
+     * Rather than clearing the arrays, each search takes a new
+     * generation number, and entries from older generations are
+     * treated as unvisited.
+     */
+    private static final class IndexedSearchNodes implements SearchNodes {
+
+        private static final byte OPEN = 1, CLOSED = 2;
+
+        /** The map width, to compute tile indexes. */
+        private final int width;
+
+        /** The current search generation. */
+        private int generation = 0;
+
+        /** The generation each tile was last visited in. */
+        private final int[] visited;
+
+        /** The open/closed status of each visited tile. */
+        private final byte[] status;
+
+        /** The current node at each visited tile. */
+        private final PathNode[] nodes;
+
+        /** The open list, ordered by f-score. */
+        private final SearchQueue queue;
+
+
+        public IndexedSearchNodes(int width, int height) {
+            this.width = width;
+            this.visited = new int[width * height];
+            this.status = new byte[width * height];
+            this.nodes = new PathNode[width * height];
+            this.queue = new SearchQueue(width * height);
+        }
+
+        /**
+         * Does this node set fit a map of the given size?
+         *
+         * @param width The map width.
+         * @param height The map height.
+         * @return True if this node set can be used.
+         */
+        public boolean fits(int width, int height) {
+            return this.width == width
+                && this.visited.length == width * height;
+        }
+
+        /**
+         * Prepare for a new search.
+         *
+         * @return This node set.
+         */
+        public IndexedSearchNodes reset() {
+            this.queue.clear();
+            if (++this.generation == 0) { // Wrapped, really clear
+                Arrays.fill(this.visited, 0);
+                this.generation = 1;
+            }
+            return this;
+        }
+
+        private int index(Tile tile) {
+            return tile.getY() * this.width + tile.getX();
+        }
+
+        private PathNode get(Tile tile, byte want) {
+            final int i = index(tile);
+            return (this.visited[i] == this.generation
+                && this.status[i] == want) ? this.nodes[i] : null;
+        }
+
+        public boolean isEmpty() {
+            return this.queue.isEmpty();
+        }
+
+        public PathNode poll() {
+            final int i = this.queue.poll();
+            this.status[i] = 0;
+            return this.nodes[i];
+        }
+
+        public PathNode getOpen(Tile tile) {
+            return get(tile, OPEN);
+        }
+
+        public PathNode getClosed(Tile tile) {
+            return get(tile, CLOSED);
+        }
+
+        public void open(Tile tile, PathNode path, int fcost) {
+            final int i = index(tile);
+            this.visited[i] = this.generation;
+            this.status[i] = OPEN;
+            this.nodes[i] = path;
+            this.queue.update(i, fcost);
+        }
+
+        public void close(Tile tile, PathNode path) {
+            final int i = index(tile);
+            this.visited[i] = this.generation;
+            this.status[i] = CLOSED;
+            this.nodes[i] = path;
+        }
+    }
+
+    /**
+     * Get a node set for a new search.
+     *
+     * Searches may nest (goal deciders can search) and may run on
+     * several threads, so the cached indexed node set is handed out
+     * to one search at a time and a fresh one made if it is busy.
+     *
+     * @return A new {@code SearchNodes} ready for use.
+     */
+    private SearchNodes acquireSearchNodes() {
+        if (!indexedSearch) return new HashSearchNodes();
+        final int width = getWidth(), height = getHeight();
+        IndexedSearchNodes nodes;
+        synchronized (this) {
+            nodes = idleSearchNodes;
+            idleSearchNodes = null;
+        }
+        if (nodes == null || !nodes.fits(width, height)) {
+            nodes = new IndexedSearchNodes(width, height);
+        }
+        return nodes.reset();
+    }
+
+    /**
+     * Return a node set when a search is complete.
+     *
+     * @param nodes The {@code SearchNodes} to release.
+     */
+    private void releaseSearchNodes(SearchNodes nodes) {
+        if (!(nodes instanceof IndexedSearchNodes)) return;
+        final IndexedSearchNodes isn = (IndexedSearchNodes)nodes;
+        isn.queue.clear();
+        synchronized (this) {
+            if (idleSearchNodes == null) idleSearchNodes = isn;
+        }
+    }
+
     /**
      * Internal class for evaluating a candidate move.
+     *
+     * A single instance is reused for every move considered by a
+     * search, so the fields are reset by {@link #evaluate}.
      */
     private static class MoveCandidate {
 
         private Unit unit;
-        private final PathNode current;
-        private final Location dst;
+        private PathNode current;
+        private Location dst;
         private int movesLeft;
         private int turns;
-        private final boolean onCarrier;
-        private final CostDecider decider;
+        private boolean onCarrier;
+        private CostDecider decider;
         private int cost;
         private PathNode path;
 
 
         /**
-         * Creates a new move candidate where a cost decider will be used
+         * Evaluates a new move candidate where a cost decider will be used
          * to work out the new moves and turns left.
          *
          * @param unit The {@code Unit} to move.
@@ -1216,9 +1558,10 @@ public class Map extends FreeColGameObject implements Location {
          * @param turns The initial number of turns.
          * @param onCarrier Will the new move be on a carrier.
          * @param decider The {@code CostDecider} to use.
+         * @return This move candidate.
          */
-        public MoveCandidate(Unit unit, PathNode current, Location dst,
-            int movesLeft, int turns, boolean onCarrier,
+        public MoveCandidate evaluate(Unit unit, PathNode current,
+            Location dst, int movesLeft, int turns, boolean onCarrier,
             CostDecider decider) {
             this.unit = unit;
             this.current = current;
@@ -1235,6 +1578,7 @@ public class Map extends FreeColGameObject implements Location {
                 this.cost = PathNode.getCost(this.turns, this.movesLeft);
             }
             this.path = null;
+            return this;
         }
 
         /**
@@ -1317,27 +1661,15 @@ public class Map extends FreeColGameObject implements Location {
         /**
          * Replace a given path with that of this candidate move.
          *
-         * @param openMap The list of available nodes.
-         * @param openMapQueue The queue of available nodes.
-         * @param f The heuristic values for A*.
+         * @param nodes The {@code SearchNodes} of the current search.
          * @param sh An optional {@code SearchHeuristic} to apply.
          */
-        public void improve(HashMap<String, PathNode> openMap,
-            PriorityQueue<PathNode> openMapQueue,
-            HashMap<String, Integer> f,
-            SearchHeuristic sh) {
-            PathNode best = openMap.get(dst.getId());
-            if (best != null) {
-                openMap.remove(dst.getId());
-                openMapQueue.remove(best);
-            }
+        public void improve(SearchNodes nodes, SearchHeuristic sh) {
             int fcost = cost;
             if (sh != null && dst.getTile() != null) {
                 fcost += sh.getValue(dst.getTile());
             }
-            f.put(dst.getId(), fcost);
-            openMap.put(dst.getId(), path);
-            openMapQueue.offer(path);
+            nodes.open(dst.getTile(), path, fcost);
         }
 
 
@@ -1365,21 +1697,16 @@ public class Map extends FreeColGameObject implements Location {
      * Searches for a path to a goal determined by the given
      * {@code GoalDecider}.
      *
-     * Using A* with a List (closedMap) for marking the visited nodes
-     * and using a PriorityQueue (openMapQueue) for getting the next
-     * edge with the least cost.  This implementation could be
-     * improved by having the visited attribute stored on each Tile in
-     * order to avoid both of the HashMaps currently being used to
-     * serve this purpose.
+     * Using A* with the open and closed nodes held in a
+     * {@code SearchNodes}, normally indexed by tile position so that
+     * membership tests are array lookups, and the open list is an
+     * indexed heap ordered by minimal f (cost+heuristics).  This
+     * gives O(1) on membership tests and O(log N) for remove-best,
+     * insertions and replacement of an open node.
      *
      * If the SearchHeuristic is not supplied, then the algorithm
      * degrades gracefully to Dijkstra's algorithm.
      *
-     * The data structure for the open list is a combined structure: using a
-     * HashMap for membership tests and a PriorityQueue for getting the node
-     * with the minimal f (cost+heuristics). This gives O(1) on membership
-     * test and O(log N) for remove-best and insertions.
-     *
      * @param unit The {@code Unit} to find a path for.
      * @param start The {@code Tile} to start the search from.
      * @param goalDecider The object responsible for determining whether a
@@ -1401,11 +1728,41 @@ public class Map extends FreeColGameObject implements Location {
         final int maxTurns, final Unit carrier,
         final SearchHeuristic searchHeuristic,
         final LogBuilder lb) {
-        final HashMap<String, PathNode> openMap = new HashMap<>();
-        final HashMap<String, PathNode> closedMap = new HashMap<>();
-        final HashMap<String, Integer> f = new HashMap<>();
-        final PriorityQueue<PathNode> openMapQueue = new PriorityQueue<>(1024,
-            Comparator.comparingInt(p -> f.get(p.getLocation().getId())));
+        final SearchNodes nodes = acquireSearchNodes();
+        try {
+            return searchMap(nodes, unit, start, goalDecider, costDecider,
+                maxTurns, carrier, searchHeuristic, lb);
+        } finally {
+            releaseSearchNodes(nodes);
+        }
+    }
+
+    /**
+     * Searches for a path to a goal using a given set of search nodes.
+     *
+     * @param nodes The {@code SearchNodes} to use.
+     * @param unit The {@code Unit} to find a path for.
+     * @param start The {@code Tile} to start the search from.
+     * @param goalDecider The object responsible for determining whether a
+     *     given {@code PathNode} is a goal or not.
+     * @param costDecider An optional {@code CostDecider}
+     *     responsible for determining the path cost.
+     * @param maxTurns The maximum number of turns the given
+     *     {@code Unit} is allowed to move.
+     * @param carrier An optional naval carrier {@code Unit} to use.
+     * @param searchHeuristic An optional {@code SearchHeuristic}.
+     * @param lb An optional {@code LogBuilder} to log to.
+     * @return A path to a goal determined by the given
+     *     {@code GoalDecider}.
+     */
+    private PathNode searchMap(final SearchNodes nodes,
+        final Unit unit, final Tile start,
+        final GoalDecider goalDecider,
+        final CostDecider costDecider,
+        final int maxTurns, final Unit carrier,
+        final SearchHeuristic searchHeuristic,
+        final LogBuilder lb) {
+        final MoveCandidate candidate = new MoveCandidate();
         final Unit offMapUnit = (carrier != null) ? carrier : unit;
         Unit currentUnit = (start.isLand())
             ? ((start.hasSettlement()
@@ -1422,18 +1779,14 @@ public class Map extends FreeColGameObject implements Location {
         final PathNode firstNode = new PathNode(start,
             ((currentUnit != null) ? currentUnit.getMovesLeft() : -1),
             0, carrier != null && currentUnit == carrier, null, null);
-        f.put(start.getId(), (searchHeuristic == null) ? 0
+        nodes.open(start, firstNode, (searchHeuristic == null) ? 0
             : searchHeuristic.getValue(start));
-        openMap.put(start.getId(), firstNode);
-        openMapQueue.offer(firstNode);
 
         PathNode best = null;
         int bestScore = INFINITY;
-        while (!openMap.isEmpty()) {
+        while (!nodes.isEmpty()) {
             // Choose the node with the lowest f.
-            final PathNode currentNode = openMapQueue.poll();
-            final Location currentLocation = currentNode.getLocation();
-            openMap.remove(currentLocation.getId());
+            final PathNode currentNode = nodes.poll();
             if (lb != null) lb.add("\n  ", currentNode);
 
             // Reset current unit to that of this node.
@@ -1451,7 +1804,7 @@ public class Map extends FreeColGameObject implements Location {
 
             // Skip nodes that can not beat the current best path.
             if (bestScore < currentNode.getCost()) {
-                closedMap.put(currentLocation.getId(), currentNode);
+                nodes.close(currentNode.getTile(), currentNode);
                 if (lb != null) lb.add(" ...goal cost wins(",
                     bestScore, " < ", currentNode.getCost(), ")...");
                 continue;
@@ -1464,7 +1817,8 @@ public class Map extends FreeColGameObject implements Location {
             }
 
             // Valid candidate for the closed list.
-            closedMap.put(currentLocation.getId(), currentNode);
+            final Tile currentTile = currentNode.getTile();
+            if (currentTile != null) nodes.close(currentTile, currentNode);
             if (lb != null) lb.add("...close");
 
             // Collect the parameters for the current node.
@@ -1472,7 +1826,6 @@ public class Map extends FreeColGameObject implements Location {
             final int currentTurns = currentNode.getTurns();
             final boolean currentOnCarrier = currentNode.isOnCarrier();
 
-            final Tile currentTile = currentNode.getTile();
             if (currentTile == null) { // Must be in Europe.
                 // FIXME: Do not consider tiles "adjacent" to Europe, yet.
                 // There may indeed be cases where going to Europe and
@@ -1494,7 +1847,7 @@ public class Map extends FreeColGameObject implements Location {
 
                 // Skip neighbouring tiles already too expensive.
                 int cc;
-                if ((closed = closedMap.get(moveTile.getId())) != null
+                if ((closed = nodes.getClosed(moveTile)) != null
                     && (cc = closed.getCost()) <= currentNode.getCost()) {
                     if (lb != null) lb.add(" ", cc);
                     continue;
@@ -1600,26 +1953,26 @@ public class Map extends FreeColGameObject implements Location {
                 MoveCandidate move;
                 switch (step) {
                 case BYLAND:
-                    move = new MoveCandidate(unit, currentNode, moveTile, 
+                    move = candidate.evaluate(unit, currentNode, moveTile, 
                         currentMovesLeft, currentTurns, false,
                         ((costDecider != null) ? costDecider
                             : CostDeciders.defaultCostDeciderFor(unit)));
                     break;
                 case BYWATER:
-                    move = new MoveCandidate(offMapUnit, currentNode, moveTile,
+                    move = candidate.evaluate(offMapUnit, currentNode, moveTile,
                         currentMovesLeft, currentTurns, currentOnCarrier,
                         ((costDecider != null) ? costDecider
                             : CostDeciders.defaultCostDeciderFor(offMapUnit)));
                     break;
                 case EMBARK:
-                    move = new MoveCandidate(unit, currentNode, moveTile,
+                    move = candidate.evaluate(unit, currentNode, moveTile,
                         currentMovesLeft, currentTurns, true,
                         ((costDecider != null) ? costDecider
                             : CostDeciders.defaultCostDeciderFor(unit)));
                     move.embarkUnit(carrier);
                     break;
                 case DISEMBARK:
-                    move = new MoveCandidate(unit, currentNode, moveTile,
+                    move = candidate.evaluate(unit, currentNode, moveTile,
                         0, currentTurns, false,
                         ((costDecider != null) ? costDecider
                             : CostDeciders.defaultCostDeciderFor(unit)));
@@ -1637,16 +1990,13 @@ public class Map extends FreeColGameObject implements Location {
                     // Tighten the bounds on a previously seen case if possible
                     if (closed != null) {
                         if (move.canImprove(closed)) {
-                            closedMap.remove(moveTile.getId());
-                            move.improve(openMap, openMapQueue, f,
-                                searchHeuristic);
+                            move.improve(nodes, searchHeuristic);
                             stepLog = "^" + Integer.toString(move.getCost());
                         } else {
                             stepLog = ".";
                         }
-                    } else if (move.canImprove(openMap.get(moveTile.getId()))){
-                        move.improve(openMap, openMapQueue, f,
-                            searchHeuristic);
+                    } else if (move.canImprove(nodes.getOpen(moveTile))) {
+                        move.improve(nodes, searchHeuristic);
                         stepLog = "+" + Integer.toString(move.getCost());
                     } else {
                         stepLog = "-";
@@ -2076,14 +2426,12 @@ public class Map extends FreeColGameObject implements Location {
         // Create the water map.  It is an error for any tile not to
         // have a region at this point.
         final int xmax = getWidth(), ymax = getHeight();
+        final TileArrays ta = this.tileArrays;
         boolean[][] waterMap = new boolean[xmax][ymax];
         for (int y = 0; y < ymax; y++) {
             for (int x = 0; x < xmax; x++) {
-                if (isValid(x, y)) {
-                    waterMap[x][y] = !getTile(x,y).isLand();
-                    Tile tile = getTile(x, y);
-                    tile.setContiguity(-1);
-                }
+                waterMap[x][y] = !ta.isLand(ta.index(x, y));
+                this.tiles[x][y].setContiguity(-1);
             }
         }
 
@@ -2590,6 +2938,7 @@ public class Map extends FreeColGameObject implements Location {
             }
 
             this.tiles = new Tile[width][height];
+            this.tileArrays = new TileArrays(this, width, height);
         }
 
         minimumLatitude = xr.getAttribute(MINIMUM_LATITUDE_TAG, -90);
@@ -351,6 +351,22 @@ public class PathNode {
                                   p, null);
         }
     }
+
+    /**
+     * Make a copy of the whole path this node is part of.
+     *
+     * @return The first node of the copied path.
+     */
+    public PathNode copy() {
+        PathNode first = null, last = null;
+        for (PathNode p = getFirstNode(); p != null; p = p.next) {
+            PathNode n = new PathNode(p.location, p.movesLeft, p.turns,
+                                      p.onCarrier, last, null);
+            if (last == null) first = n; else last.next = n;
+            last = n;
+        }
+        return first;
+    }
            
 
     // Override Object
@@ -403,8 +403,8 @@ public class Player extends FreeColGameObject implements Nameable {
     /** The settlements this player owns. */
     protected final List<Settlement> settlements = new ArrayList<>();
 
-    /** The tiles the player can see. */
-    private boolean[][] canSeeTiles = null;
+    /** The tiles the player can see, null if there is no fog of war. */
+    private VisibilityMap canSeeTiles = null;
     /** Are the canSeeTiles valid or do they need to be recalculated? */
     private boolean canSeeValid = false;
     /** Do not access canSeeTiles without taking canSeeLock. */
@@ -2744,14 +2744,17 @@ public class Player extends FreeColGameObject implements Nameable {
     public boolean canSee(Tile tile) {
         if (tile == null) return false;
 
-        do {
+        for (;;) {
             synchronized (canSeeLock) {
                 if (canSeeValid) {
-                    return canSeeTiles[tile.getX()][tile.getY()];
+                    if (canSeeTiles != null) return canSeeTiles.canSee(tile);
+                    break;
                 }
             }
-        } while (resetCanSeeTiles());
-        return false;
+            if (!resetCanSeeTiles()) return false;
+        }
+        // Without fog of war a tile is visible once it is explored.
+        return hasExplored(tile);
     }
 
     /**
@@ -2762,7 +2765,7 @@ public class Player extends FreeColGameObject implements Nameable {
      * The method {@link #resetCanSeeTiles} will be called whenever it
      * is needed.
      *
-     * So what is "significant"?  Looking at the makeCanSeeTiles routine
+     * So what is "significant"?  Looking at the getSights routine
      * suggests the following:
      *
      * - Unit added to map
@@ -2783,10 +2786,11 @@ public class Player extends FreeColGameObject implements Nameable {
      *
      * Ideally then when any of these events occurs we should call
      * invalidateCanSeeTiles().  However while iCST is quick and
-     * cheap, as soon as we then call canSee() the big expensive
-     * makeCanSeeTiles will be run.  Often the situation in the server
-     * is that several routines with visibility implications will be
-     * called in succession.  Usually there, the best solution is to
+     * cheap, as soon as we then call canSee() all the lines of sight
+     * are collected again, and those that changed are recounted.
+     * Often the situation in the server is that several routines
+     * with visibility implications will be called in succession.
+     * Usually there, the best solution is to
      * make all the changes and issue the iCST at the end.  So, to
      * make this a bit more visible, routines that change visibility
      * are annotated with a "-vis" comment at both definition and call
@@ -2802,23 +2806,38 @@ public class Player extends FreeColGameObject implements Nameable {
     }
 
     /**
-     * Resets this player's "can see"-tiles.  This is done by setting
-     * all the tiles within each {@link Unit} and {@link Settlement}s
-     * line of sight visible.  The other tiles are made invisible.
+     * Resets this player's "can see"-tiles.  This is done by
+     * collecting the line of sight of each {@link Unit} and
+     * {@link Settlement}, and updating the tiles covered by those
+     * that have changed since the last reset.
      *
      * Use {@link #invalidateCanSeeTiles} whenever possible.
      *
      * @return True if successful.
      */
     private boolean resetCanSeeTiles() {
-        Map map = getGame().getMap();
+        final Map map = getGame().getMap();
         if (map == null) return false;
 
-        boolean[][] cST = makeCanSeeTiles(map);
+        if (!getSpecification().getBoolean(GameOptions.FOG_OF_WAR)) {
+            synchronized (canSeeLock) {
+                canSeeTiles = null;
+                canSeeValid = true;
+            }
+            return true;
+        }
+
+        final HashMap<FreeColGameObject, VisibilityMap.Sight> sights
+            = getSights();
+        List<Tile> seen;
         synchronized (canSeeLock) {
-            canSeeTiles = cST;
+            if (canSeeTiles == null || !canSeeTiles.fits(map)) {
+                canSeeTiles = new VisibilityMap(map);
+            }
+            seen = canSeeTiles.update(sights);
             canSeeValid = true;
         }
+        for (Tile t : seen) t.seeTile(this);
         return true;
     }
 
@@ -2833,74 +2852,42 @@ public class Player extends FreeColGameObject implements Nameable {
     }
 
     /**
-     * Builds a canSeeTiles array.
-     *
-     * Note that tiles must be tested for null as they may be both
-     * valid tiles but yet null during a save game load.
+     * Gets the lines of sight of everything that lets this player see
+     * parts of the map under fog of war.
      *
-     * Note the use of copies of the unit and settlement lists to
-     * avoid nasty surprises due to asynchronous disappearance of
-     * members of either.  FIXME: see if this can be relaxed.
+     * That is the units directly on the map (not those on a carrier
+     * or in Europe), the settlements, (optionally) the missions,
+     * and the other colonies if the player can see all colonies.
      *
-     * @param map The {@code Map} to use.
-     * @return A canSeeTiles array.
+     * @return The sights, keyed by the object that sees.
      */
-    private boolean[][] makeCanSeeTiles(Map map) {
+    private HashMap<FreeColGameObject, VisibilityMap.Sight> getSights() {
         final Specification spec = getSpecification();
-        // Simple case when there is no fog of war: a tile is
-        // visible once it is explored.
-        if (!spec.getBoolean(GameOptions.FOG_OF_WAR)) {
-            boolean[][] cST = (canSeeTiles != null) ? canSeeTiles
-                : new boolean[map.getWidth()][map.getHeight()];
-            getGame().getMap().forEachTile(t -> {
-                    cST[t.getX()][t.getY()] = hasExplored(t);
-                });
-            return cST;
-        }
-
-        // When there is fog, have to trace all locations where the
-        // player has units, settlements, (optionally) missions, and
-        // extra visibility.
-        // Set the PET for visible tiles to the tile itself.
-        boolean[][] cST = new boolean[map.getWidth()][map.getHeight()];
-
-        // Only consider units directly on the map, not those on a
-        // carrier or in Europe.
-        for (Unit unit : transform(getUnits(),
-                                   u -> u.getLocation() instanceof Tile)) {
-            // All the units.
-            for (Tile t : unit.getVisibleTiles()) {
-                cST[t.getX()][t.getY()] = true;
-                t.seeTile(this);
-            }
-        }
-        // All the settlements.
-        for (Settlement settlement : getSettlementList()) {
-            for (Tile t : settlement.getVisibleTiles()) {
-                cST[t.getX()][t.getY()] = true;
-                t.seeTile(this);
+        HashMap<FreeColGameObject, VisibilityMap.Sight> sights
+            = new HashMap<>();
+        for (Unit unit : getUnitList()) {
+            if (unit.getLocation() instanceof Tile) {
+                sights.put(unit, new VisibilityMap.Sight((Tile)unit
+                        .getLocation(), unit.getLineOfSight()));
             }
         }
-        // All missions if using enhanced missionaries.
+        List<Settlement> settlements = getSettlementList();
         if (isEuropean()
-                && spec.getBoolean(GameOptions.ENHANCED_MISSIONARIES)) {
+            && spec.getBoolean(GameOptions.ENHANCED_MISSIONARIES)) {
             for (Player other : getGame().getLiveNativePlayerList(this)) {
-                for (Tile t : iterable(flatten(getIndianSettlementsWithMissionary(this),
-                                               is -> is.getVisibleTiles().stream()))) {
-                    cST[t.getX()][t.getY()] = true;
-                    t.seeTile(this);
-                }
+                settlements.addAll(other.getIndianSettlementsWithMissionaryList(this));
             }
         }
-        // All other European settlements if can see all colonies.
         if (isEuropean() && hasAbility(Ability.SEE_ALL_COLONIES)) {
-            for (Tile t : iterable(flatten(getGame().getAllColonies(this),
-                                           c -> c.getVisibleTiles().stream()))) {
-                cST[t.getX()][t.getY()] = true;
-                t.seeTile(this);
+            settlements.addAll(getGame().getAllColoniesList(this));
+        }
+        for (Settlement settlement : settlements) {
+            if (settlement.getTile() != null) {
+                sights.put(settlement, new VisibilityMap.Sight(settlement
+                        .getTile(), settlement.getLineOfSight()));
             }
         }
-        return cST;
+        return sights;
     }
 
 
@@ -3015,6 +3002,9 @@ public class Player extends FreeColGameObject implements Nameable {
             valid = false;
         }
         stance.put(player.getId(), newStance);
+        // Stance alters which moves are possible
+        final Map map = getGame().getMap();
+        if (map != null) map.invalidatePathCache();
         return valid;
     }
 
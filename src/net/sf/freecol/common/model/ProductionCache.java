@@ -19,17 +19,6 @@
 
 package net.sf.freecol.common.model;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
-
-import net.sf.freecol.common.option.GameOptions;
-import static net.sf.freecol.common.util.CollectionUtils.*;
-
 
 /**
  * The {@code ProductionCache} is contains all relevant
@@ -38,6 +27,8 @@ import static net.sf.freecol.common.util.CollectionUtils.*;
  * buildings, as well as the consumption of all units, buildings and
  * build queues.
  *
+ * The information is held in a {@link ProductionSnapshot} of the
+ * colony, which is taken again when the cache is invalidated.
  */
 public class ProductionCache {
 
@@ -48,22 +39,11 @@ public class ProductionCache {
      */
     private final Colony colony;
 
-    /** A map of net production by goods type. */
-    private final TypeCountMap<GoodsType> netProduction
-        = new TypeCountMap<>();
-
-    /** A map of production info for various producers and consumers. */
-    private final Map<Object, ProductionInfo> productionAndConsumption
-        = new HashMap<>();
-
-    /** A set of the goods used by the colony. */
-    private final Set<GoodsType> goodsUsed = new HashSet<>();
-
     /**
-     * Flag to indicate whether the cache is up to date, or not and
-     * needs {@link #update} to be called.
+     * The evaluated snapshot of the colony, or null if it is out of
+     * date and {@link #update} needs to take it again.
      */
-    private boolean upToDate = false;
+    private ProductionSnapshot snapshot = null;
 
 
     /**
@@ -77,118 +57,16 @@ public class ProductionCache {
 
 
     /**
-     * Updates all data structures.  The method has no side effects.
+     * Updates the snapshot of the colony if it is out of date.
+     * The method has no side effects on the colony.
      *
-     * For now, there is a hard assumption that ColonyTiles do not
-     * consume but Buildings do.  One day we may want to generalize
-     * this, which will require processing the goods types in an order
-     * sorted by the requirement dependencies.  But not yet.  This
-     * assumption is made explicit by getting the ProductionInfo from
-     * ColonyTiles with the simple getBasicProductionInfo() routine,
-     * but from Buildings with getAdjustedProductionInfo() which takes
-     * account of the input and output goods levels.
-     *
-     * FIXME: Ideally these should be unified into a
-     * WorkLocation.getProductionInfo with the Building-form
-     * arguments.
+     * @return The up to date {@code ProductionSnapshot}.
      */
-    private synchronized void update() {
-        if (upToDate) return; // nothing to do
-        final Specification spec = colony.getSpecification();
-        final GoodsType bells = spec.getGoodsType("model.goods.bells");
-
-        productionAndConsumption.clear();
-        netProduction.clear();
-        goodsUsed.clear();
-        ProductionMap production = new ProductionMap();
-
-        for (ColonyTile colonyTile : colony.getColonyTiles()) {
-            ProductionInfo info = colonyTile.getBasicProductionInfo();
-            production.add(info.getProduction());
-            productionAndConsumption.put(colonyTile, info);
-            for (AbstractGoods goods : info.getProduction()) {
-                goodsUsed.add(goods.getType());
-                netProduction.incrementCount(goods.getType().getStoredAs(),
-                                             goods.getAmount());
-            }
+    private synchronized ProductionSnapshot update() {
+        if (snapshot == null) {
+            snapshot = new ProductionSnapshot(colony).evaluate();
         }
-
-        // Add bell production to compensate for the units-that-use-no-bells
-        // as this is not handled by the unit conumption.
-        int unitsThatUseNoBells
-            = spec.getInteger(GameOptions.UNITS_THAT_USE_NO_BELLS);
-        int amount = Math.min(unitsThatUseNoBells, colony.getUnitCount());
-        ProductionInfo bellsInfo = new ProductionInfo();
-        bellsInfo.addProduction(new AbstractGoods(bells, amount));
-        productionAndConsumption.put(this, bellsInfo);
-        netProduction.incrementCount(bells, amount);
-
-        List<AbstractGoods> goods = new ArrayList<>();
-        for (Consumer consumer : colony.getConsumers()) {
-            List<Modifier> modifiers = toList(consumer
-                .getModifiers(Modifier.CONSUME_ONLY_SURPLUS_PRODUCTION));
-            goods.clear();
-            for (AbstractGoods g : consumer.getConsumedGoods()) {
-                goodsUsed.add(g.getType());
-                AbstractGoods surplus
-                    = new AbstractGoods(production.get(g.getType()));
-                if (modifiers.isEmpty()) {
-                    surplus.setAmount(surplus.getAmount()
-                        + getGoodsCount(g.getType()));
-                } else {
-                    surplus.setAmount((int)FeatureContainer
-                        .applyModifiers(surplus.getAmount(), null, modifiers));
-                }
-                goods.add(surplus);
-            }
-            ProductionInfo info = null;
-            if (consumer instanceof Building) {
-                Building building = (Building)consumer;
-                final Function<AbstractGoods, AbstractGoods> mapper = ag -> {
-                    GoodsType outputType = ag.getType();
-                    AbstractGoods newOutput
-                        = new AbstractGoods(production.get(outputType));
-                    newOutput.setAmount(newOutput.getAmount()
-                        + getGoodsCount(outputType));
-                    return newOutput;
-                };
-                List<AbstractGoods> outputs = transform(building.getOutputs(),
-                                                        alwaysTrue(), mapper);
-                goodsUsed.addAll(transform(outputs, alwaysTrue(),
-                                           AbstractGoods::getType));
-                info = building.getAdjustedProductionInfo(goods, outputs);
-            } else if (consumer instanceof Unit) {
-                info = ((Unit)consumer).getProductionInfo(goods);
-            } else if (consumer instanceof BuildQueue) {
-                info = ((BuildQueue<?>)consumer).getProductionInfo(goods);
-            }
-            if (info != null) {
-                production.add(info.getProduction());
-                production.remove(info.getConsumption());
-                for (AbstractGoods g : info.getProduction()) {
-                    netProduction.incrementCount(g.getType().getStoredAs(),
-                                                 g.getAmount());
-                }
-                for (AbstractGoods g : info.getConsumption()) {
-                    netProduction.incrementCount(g.getType().getStoredAs(),
-                                                 -g.getAmount());
-                }
-                productionAndConsumption.put(consumer, info);
-            }
-        }
-        upToDate = true;
-    }
-
-
-    /**
-     * Returns the number of goods of the given type stored in the
-     * colony.
-     *
-     * @param type a {@code GoodsType} value
-     * @return an {@code int} value
-     */
-    private int getGoodsCount(GoodsType type) {
-        return colony.getGoodsCount(type);
+        return snapshot;
     }
 
     /**
@@ -199,7 +77,7 @@ public class ProductionCache {
      *
      */
     public synchronized void invalidate() {
-        upToDate = false;
+        snapshot = null;
     }
 
     /**
@@ -210,8 +88,8 @@ public class ProductionCache {
      * @param goodsType a {@code GoodsType} value
      */
     public synchronized void invalidate(GoodsType goodsType) {
-        if (goodsUsed.contains(goodsType)) {
-            upToDate = false;
+        if (snapshot != null && snapshot.isUsing(goodsType)) {
+            snapshot = null;
         }
     }
 
@@ -222,10 +100,7 @@ public class ProductionCache {
      * @return True if there is a production entry for the given type.
      */
     public boolean isProducing(GoodsType goodsType) {
-        update();
-        return any(productionAndConsumption.values(),
-                   pi -> any(pi.getProduction(),
-                             AbstractGoods.matches(goodsType)));
+        return update().isProducing(goodsType);
     }
 
     /**
@@ -235,10 +110,7 @@ public class ProductionCache {
      * @return True if there is a consumption entry for the given type.
      */
     public boolean isConsuming(GoodsType goodsType) {
-        update();
-        return any(productionAndConsumption.values(),
-                   pi -> any(pi.getConsumption(),
-                             AbstractGoods.matches(goodsType)));
+        return update().isConsuming(goodsType);
     }
     
     /**
@@ -249,8 +121,7 @@ public class ProductionCache {
      * @return an {@code int} value
      */
     public int getNetProductionOf(GoodsType type) {
-        update();
-        return netProduction.getCount(type);
+        return update().getNetProductionOf(type);
     }
 
     /**
@@ -261,8 +132,7 @@ public class ProductionCache {
      * @return a {@code ProductionInfo} value
      */
     public ProductionInfo getProductionInfo(Object object) {
-        update();
-        return productionAndConsumption.get(object);
+        return update().getProductionInfo(object);
     }
 
     /**
@@ -271,9 +141,6 @@ public class ProductionCache {
      * @return A copy of the current production state.
      */
     public TypeCountMap<GoodsType> getProductionMap() {
-        update();
-        TypeCountMap<GoodsType> result = new TypeCountMap<>();
-        result.putAll(netProduction);
-        return result;
+        return update().getProductionMap();
     }
 }
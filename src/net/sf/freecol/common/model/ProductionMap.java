@@ -20,6 +20,7 @@
 package net.sf.freecol.common.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -141,11 +142,94 @@ public class ProductionMap {
     }
 
 
+    /**
+     * The entries, either an Integer amount or a shared
+     * ProductionTree, by goods type index.
+     */
+    private Object[] entries = new Object[0];
+
+    /** The goods types of the entries, by index. */
+    private GoodsType[] types = new GoodsType[0];
+
+    /** The number of goods types present in the arrays. */
+    private int indexed = 0;
+
+    /** The specification of the goods types in the arrays. */
+    private Specification spec = null;
+
+    /**
+     * Entries for goods types that do not fit the arrays, or that
+     * come from another specification.
+     */
     private final Map<GoodsType, Object> cache = new HashMap<>();
 
 
+    /**
+     * Find the array position of a goods type.
+     *
+     * @param type The {@code GoodsType} to look for.
+     * @return The position of the type in the arrays, or negative
+     *     if it is not there.
+     */
+    private int findEntry(GoodsType type) {
+        final int i = type.getIndex();
+        if (i >= 0 && i < this.types.length && this.types[i] == type) return i;
+        if (this.indexed == 0
+            || (this.spec != null && this.spec == type.getSpecification())) {
+            return -1;
+        }
+        // An equal type from another specification can have another index
+        for (int j = 0; j < this.types.length; j++) {
+            if (type.equals(this.types[j])) return j;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Gets the entry for a goods type.
+     *
+     * @param type The {@code GoodsType} to look up.
+     * @return The entry, or null if none.
+     */
+    private Object getEntry(GoodsType type) {
+        final int i = findEntry(type);
+        return (i >= 0) ? this.entries[i] : this.cache.get(type);
+    }
+
+    /**
+     * Sets the entry for a goods type.
+     *
+     * @param type The {@code GoodsType} to set.
+     * @param value The new entry.
+     */
+    private void putEntry(GoodsType type, Object value) {
+        int i = findEntry(type);
+        if (i >= 0) {
+            this.entries[i] = value;
+            return;
+        }
+        i = type.getIndex();
+        if (i >= 0 && !this.cache.containsKey(type)
+            && (this.indexed == 0 || this.spec == type.getSpecification())) {
+            if (i >= this.types.length) {
+                int length = Math.max(i + 1, 2 * this.types.length);
+                this.types = Arrays.copyOf(this.types, length);
+                this.entries = Arrays.copyOf(this.entries, length);
+            }
+            if (this.types[i] == null) {
+                if (this.indexed == 0) this.spec = type.getSpecification();
+                this.types[i] = type;
+                this.entries[i] = value;
+                this.indexed++;
+                return;
+            }
+        }
+        this.cache.put(type, value);
+    }
+
     public AbstractGoods get(GoodsType type) {
-        Object value = cache.get(type);
+        Object value = getEntry(type);
         if (value == null) {
             return new AbstractGoods(type, 0);
         } else if (value instanceof Integer) {
@@ -157,15 +241,15 @@ public class ProductionMap {
 
     public void add(AbstractGoods goods) {
         GoodsType goodsType = goods.getType();
-        Object value = cache.get(goodsType);
+        Object value = getEntry(goodsType);
         if (value == null) {
             // no entry yet
             GoodsType rootType = goodsType.getStoredAs();
             if (rootType == goodsType) {
-                cache.put(goodsType, goods.getAmount());
+                putEntry(goodsType, goods.getAmount());
             } else {
                 // is leaf of production tree
-                value = cache.get(rootType);
+                value = getEntry(rootType);
                 if (value instanceof ProductionTree) {
                     // entry is already present
                     ((ProductionTree) value).add(goods);
@@ -173,20 +257,20 @@ public class ProductionMap {
                     // add new root entry
                     int amount = (value == null) ? 0 : (Integer)value;
                     value = new ProductionTree(new AbstractGoods(rootType, amount), goods);
-                    cache.put(rootType, value);
+                    putEntry(rootType, value);
                 }
                 // add the same entry for the goods type itself
-                cache.put(goodsType, value);
+                putEntry(goodsType, value);
             }
         } else if (value instanceof Integer) {
-            cache.put(goodsType, (Integer) value + goods.getAmount());
+            putEntry(goodsType, (Integer) value + goods.getAmount());
         } else {
             ((ProductionTree) value).add(goods);
         }
     }
 
     public void remove(AbstractGoods goods) {
-        Object value = cache.get(goods.getType());
+        Object value = getEntry(goods.getType());
         if (value instanceof ProductionTree) {
             ((ProductionTree) value).remove(goods);
         } else {
@@ -217,6 +301,11 @@ public class ProductionMap {
     public String toString() {
         StringBuilder sb = new StringBuilder(64);
         sb.append('[');
+        for (int i = 0; i < this.types.length; i++) {
+            if (this.types[i] == null) continue;
+            sb.append(' ').append(this.types[i].getSuffix())
+              .append(':').append(this.entries[i].toString());
+        }
         forEachMapEntry(cache, e ->
             sb.append(' ').append(e.getKey().getSuffix())
               .append(':').append(e.getValue().toString()));
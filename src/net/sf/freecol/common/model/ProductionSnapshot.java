@@ -0,0 +1,580 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import net.sf.freecol.common.option.GameOptions;
+import static net.sf.freecol.common.util.CollectionUtils.*;
+
+
+/**
+ * An immutable snapshot of the state of a colony that determines its
+ * production, that is the goods stored, the liberty and production
+ * bonus, and where each unit works and what it makes.  The production
+ * and consumption of the colony are evaluated from the snapshot,
+ * once, when first needed.
+ *
+ * {@link #withUnit} makes a copy of the snapshot with a unit working
+ * somewhere else, or joining or leaving the colony, which evaluates
+ * as the colony would if the unit were really moved.  The colony
+ * itself is not touched, so "what if this unit worked here"
+ * questions can be answered without the cache invalidation and
+ * property changes that moving the unit would cause, and from
+ * several threads at once.
+ *
+ * The buildings, tiles, build queues and modifiers are read from the
+ * colony when a snapshot is evaluated, so a snapshot should not be
+ * kept across changes to those.
+ */
+public final class ProductionSnapshot {
+
+    /** The colony the snapshot was taken from. */
+    private final Colony colony;
+
+    /** The goods stored in the colony.  Never changed once set. */
+    private final TypeCountMap<GoodsType> stored;
+
+    /** The liberty of the colony. */
+    private final int liberty;
+
+    /** The production bonus of the colony. */
+    private final int productionBonus;
+
+    /**
+     * Has a unit joined or left the colony since the snapshot was
+     * taken, in which case the production bonus is recalculated.
+     */
+    private final boolean populationChanged;
+
+    /** The units working in the colony. */
+    private final Unit[] units;
+
+    /** The work location of each unit. */
+    private final WorkLocation[] locations;
+
+    /** The work type of each unit. */
+    private final GoodsType[] workTypes;
+
+    /** The production type of each work location. */
+    private final Map<WorkLocation, ProductionType> productionTypes;
+
+    /** The evaluated production, or null until needed. */
+    private volatile Result result = null;
+
+    /** The result of evaluating a snapshot. */
+    private static final class Result {
+
+        /** A map of net production by goods type. */
+        public final TypeCountMap<GoodsType> netProduction
+            = new TypeCountMap<>();
+
+        /** A map of production info for producers and consumers. */
+        public final Map<Object, ProductionInfo> productionAndConsumption
+            = new HashMap<>();
+
+        /** A set of the goods used by the colony. */
+        public final Set<GoodsType> goodsUsed = new HashSet<>();
+    }
+
+
+    /**
+     * Take a snapshot of a colony.
+     *
+     * @param colony The {@code Colony} to take a snapshot of.
+     */
+    public ProductionSnapshot(Colony colony) {
+        this.colony = colony;
+        this.stored = new TypeCountMap<>();
+        for (GoodsType gt : colony.getSpecification().getGoodsTypeList()) {
+            int amount = colony.getGoodsCount(gt);
+            if (amount != 0) this.stored.incrementCount(gt, amount);
+        }
+        this.liberty = colony.getLiberty();
+        this.productionBonus = colony.getProductionBonus();
+        this.populationChanged = false;
+        this.productionTypes = new HashMap<>();
+        List<Unit> unitList = new ArrayList<>();
+        List<WorkLocation> locationList = new ArrayList<>();
+        for (WorkLocation wl : colony.getAllWorkLocationsList()) {
+            this.productionTypes.put(wl, wl.getProductionType());
+            if (!wl.isCurrent()) continue;
+            for (Unit u : wl.getUnitList()) {
+                unitList.add(u);
+                locationList.add(wl);
+            }
+        }
+        this.units = unitList.toArray(new Unit[0]);
+        this.locations = locationList.toArray(new WorkLocation[0]);
+        this.workTypes = new GoodsType[this.units.length];
+        for (int i = 0; i < this.units.length; i++) {
+            this.workTypes[i] = this.units[i].getWorkType();
+        }
+    }
+
+    /**
+     * Create a copy of a snapshot with different units.
+     *
+     * @param other The {@code ProductionSnapshot} to copy.
+     * @param populationChanged Whether the population has changed.
+     * @param units The units working in the colony.
+     * @param locations The work location of each unit.
+     * @param workTypes The work type of each unit.
+     * @param productionTypes The production type of each work location.
+     */
+    private ProductionSnapshot(ProductionSnapshot other,
+                               boolean populationChanged,
+                               Unit[] units, WorkLocation[] locations,
+                               GoodsType[] workTypes,
+                               Map<WorkLocation, ProductionType> productionTypes) {
+        this.colony = other.colony;
+        this.stored = other.stored;
+        this.liberty = other.liberty;
+        this.productionBonus = other.productionBonus;
+        this.populationChanged = populationChanged;
+        this.units = units;
+        this.locations = locations;
+        this.workTypes = workTypes;
+        this.productionTypes = productionTypes;
+    }
+
+
+    /**
+     * Get the colony this snapshot was taken from.
+     *
+     * @return The {@code Colony}.
+     */
+    public Colony getColony() {
+        return this.colony;
+    }
+
+    /**
+     * Get the number of units in the colony.
+     *
+     * @return The number of units.
+     */
+    public int getUnitCount() {
+        return this.units.length;
+    }
+
+    /**
+     * Get the production bonus of the colony, recalculated if the
+     * population has changed as the colony would.
+     *
+     * @return The production bonus.
+     */
+    public int getProductionBonus() {
+        return (this.populationChanged)
+            ? this.colony.calculateProductionBonus(this.units.length,
+                                                   this.liberty)
+            : this.productionBonus;
+    }
+
+    /**
+     * Get the work location of a unit.
+     *
+     * @param unit The {@code Unit} to look for.
+     * @return The {@code WorkLocation} the unit works at, or null if
+     *     it is not in the colony.
+     */
+    public WorkLocation getWorkLocation(Unit unit) {
+        int i = indexOf(unit);
+        return (i < 0) ? null : this.locations[i];
+    }
+
+    /**
+     * Get the work type of a unit.
+     *
+     * @param unit The {@code Unit} to look for.
+     * @return The {@code GoodsType} the unit makes, or null if it is
+     *     not in the colony.
+     */
+    public GoodsType getWorkType(Unit unit) {
+        int i = indexOf(unit);
+        return (i < 0) ? null : this.workTypes[i];
+    }
+
+    /**
+     * Get the production type of a work location.
+     *
+     * @param wl The {@code WorkLocation} to check.
+     * @return The {@code ProductionType} in use there.
+     */
+    public ProductionType getProductionType(WorkLocation wl) {
+        return this.productionTypes.get(wl);
+    }
+
+    /**
+     * Get a copy of this snapshot with a unit moved.
+     *
+     * As when a unit is really moved, a work location that the unit
+     * leaves empty switches to the best unattended production type,
+     * and the work location it goes to switches to the best
+     * production type for the work its first unit does.
+     *
+     * @param unit The {@code Unit} to move.
+     * @param wl The {@code WorkLocation} in the colony to move to,
+     *     or null to leave the colony.
+     * @param workType The {@code GoodsType} for the unit to make.
+     * @return A new {@code ProductionSnapshot} with the unit moved.
+     */
+    public ProductionSnapshot withUnit(Unit unit, WorkLocation wl,
+                                       GoodsType workType) {
+        final int index = indexOf(unit);
+        if (index < 0 && wl == null) return this;
+        final WorkLocation old = (index < 0) ? null : this.locations[index];
+        Unit[] newUnits;
+        WorkLocation[] newLocations;
+        GoodsType[] newWorkTypes;
+        if (old == wl) {
+            // Changing work, the unit keeps its place
+            newUnits = this.units;
+            newLocations = this.locations;
+            newWorkTypes = this.workTypes.clone();
+            newWorkTypes[index] = workType;
+        } else {
+            int n = this.units.length - ((index < 0) ? 0 : 1);
+            newUnits = new Unit[n + ((wl == null) ? 0 : 1)];
+            newLocations = new WorkLocation[newUnits.length];
+            newWorkTypes = new GoodsType[newUnits.length];
+            for (int i = 0, j = 0; i < this.units.length; i++) {
+                if (i == index) continue;
+                newUnits[j] = this.units[i];
+                newLocations[j] = this.locations[i];
+                newWorkTypes[j] = this.workTypes[i];
+                j++;
+            }
+            if (wl != null) {
+                newUnits[n] = unit;
+                newLocations[n] = wl;
+                newWorkTypes[n] = workType;
+            }
+        }
+        Map<WorkLocation, ProductionType> newProductionTypes
+            = new HashMap<>(this.productionTypes);
+        if (old != null && old != wl
+            && !any(newLocations, matchKey(old))) {
+            newProductionTypes.put(old, old.getBestProductionType(true, null));
+        }
+        if (wl != null) {
+            GoodsType first = null;
+            for (int i = 0; i < newUnits.length; i++) {
+                if (newLocations[i] == wl) {
+                    first = newWorkTypes[i];
+                    break;
+                }
+            }
+            newProductionTypes.put(wl, wl.getBestProductionType(false, first));
+        }
+        return new ProductionSnapshot(this,
+            this.populationChanged || old == null || wl == null,
+            newUnits, newLocations, newWorkTypes, newProductionTypes);
+    }
+
+    /**
+     * Get the net production, that is the total production minus
+     * the total consumption, of a goods type.
+     *
+     * @param goodsType The {@code GoodsType} to check.
+     * @return The net production.
+     * @see Colony#getNetProductionOf
+     */
+    public int getNetProductionOf(GoodsType goodsType) {
+        return getResult().netProduction.getCount(goodsType);
+    }
+
+    /**
+     * Get the net production of a goods type, adding back the
+     * consumption by the build queues.
+     *
+     * @param goodsType The {@code GoodsType} to check.
+     * @return The adjusted net production.
+     * @see Colony#getAdjustedNetProductionOf
+     */
+    public int getAdjustedNetProductionOf(GoodsType goodsType) {
+        int result = getNetProductionOf(goodsType);
+        for (BuildQueue<?> queue : new BuildQueue<?>[] {
+                this.colony.buildQueue, this.colony.populationQueue }) {
+            ProductionInfo pi = getProductionInfo(queue);
+            if (pi != null) {
+                result += AbstractGoods.getCount(goodsType,
+                                                 pi.getConsumption());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the {@code ProductionInfo} for a {@link WorkLocation} or
+     * {@link Consumer}.
+     *
+     * @param object The object to check.
+     * @return The {@code ProductionInfo}, or null if none.
+     */
+    public ProductionInfo getProductionInfo(Object object) {
+        return getResult().productionAndConsumption.get(object);
+    }
+
+    /**
+     * Is a goods type produced?
+     *
+     * @param goodsType The {@code GoodsType} to check.
+     * @return True if there is a production entry for the goods type.
+     */
+    public boolean isProducing(GoodsType goodsType) {
+        return any(getResult().productionAndConsumption.values(),
+                   pi -> any(pi.getProduction(),
+                             AbstractGoods.matches(goodsType)));
+    }
+
+    /**
+     * Is a goods type consumed?
+     *
+     * @param goodsType The {@code GoodsType} to check.
+     * @return True if there is a consumption entry for the goods type.
+     */
+    public boolean isConsuming(GoodsType goodsType) {
+        return any(getResult().productionAndConsumption.values(),
+                   pi -> any(pi.getConsumption(),
+                             AbstractGoods.matches(goodsType)));
+    }
+
+    /**
+     * Is a goods type produced, consumed or its stock consulted?
+     *
+     * @param goodsType The {@code GoodsType} to check.
+     * @return True if the production depends on the goods type.
+     */
+    boolean isUsing(GoodsType goodsType) {
+        return getResult().goodsUsed.contains(goodsType);
+    }
+
+    /**
+     * Gets a copy of the net production.
+     *
+     * @return A map of net production by goods type.
+     */
+    public TypeCountMap<GoodsType> getProductionMap() {
+        TypeCountMap<GoodsType> ret = new TypeCountMap<>();
+        ret.putAll(getResult().netProduction);
+        return ret;
+    }
+
+    /**
+     * Find a unit in this snapshot.
+     *
+     * @param unit The {@code Unit} to find.
+     * @return The index of the unit, or -1 if not present.
+     */
+    private int indexOf(Unit unit) {
+        for (int i = 0; i < this.units.length; i++) {
+            if (this.units[i] == unit) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the total production of a goods type by the units at a
+     * work location.
+     *
+     * @param wl The {@code WorkLocation} to check.
+     * @param goodsType The {@code GoodsType} to produce.
+     * @param bonus The colony production bonus.
+     * @return The production by the units.
+     */
+    private int getUnitProduction(WorkLocation wl, GoodsType goodsType,
+                                  int bonus) {
+        final ProductionType pt = getProductionType(wl);
+        int ret = 0;
+        for (int i = 0; i < this.units.length; i++) {
+            if (this.locations[i] != wl) continue;
+            ret += wl.getUnitProduction(pt, this.units[i].getType(),
+                                        this.workTypes[i], goodsType, bonus);
+        }
+        return ret;
+    }
+
+    /**
+     * Count the experts at a building.
+     *
+     * @param building The {@code Building} to check.
+     * @return The number of units of the building expert type there.
+     */
+    private int getExpertCount(Building building) {
+        final UnitType expert = building.getExpertUnitType();
+        int ret = 0;
+        for (int i = 0; i < this.units.length; i++) {
+            if (this.locations[i] == building
+                && this.units[i].getType() == expert) ret++;
+        }
+        return ret;
+    }
+
+    /**
+     * Get the result, evaluating it if not already done.
+     *
+     * @return The {@code Result} of evaluating this snapshot.
+     */
+    private Result getResult() {
+        Result ret = this.result;
+        if (ret == null) this.result = ret = calculate();
+        return ret;
+    }
+
+    /**
+     * Evaluate the production of the snapshot now, if not already done.
+     *
+     * @return This snapshot.
+     */
+    ProductionSnapshot evaluate() {
+        getResult();
+        return this;
+    }
+
+    /**
+     * Evaluate the production of the snapshot.
+     *
+     * For now, there is a hard assumption that ColonyTiles do not
+     * consume but Buildings do.  One day we may want to generalize
+     * this, which will require processing the goods types in an order
+     * sorted by the requirement dependencies.  But not yet.  This
+     * assumption is made explicit by getting the ProductionInfo from
+     * ColonyTiles with the simple getBasicProductionInfo() routine,
+     * but from Buildings with getAdjustedProductionInfo() which takes
+     * account of the input and output goods levels.
+     *
+     * FIXME: Ideally these should be unified into a
+     * WorkLocation.getProductionInfo with the Building-form
+     * arguments.
+     *
+     * @return The {@code Result} of the evaluation.
+     */
+    private Result calculate() {
+        final Specification spec = this.colony.getSpecification();
+        final GoodsType bells = spec.getGoodsType("model.goods.bells");
+        final int bonus = getProductionBonus();
+        final Result ret = new Result();
+        ProductionMap production = new ProductionMap();
+
+        for (ColonyTile colonyTile : this.colony.getColonyTiles()) {
+            ProductionInfo info = colonyTile.getBasicProductionInfo(
+                getProductionType(colonyTile), bonus,
+                gt -> getUnitProduction(colonyTile, gt, bonus));
+            production.add(info.getProduction());
+            ret.productionAndConsumption.put(colonyTile, info);
+            for (AbstractGoods goods : info.getProduction()) {
+                ret.goodsUsed.add(goods.getType());
+                ret.netProduction.incrementCount(goods.getType().getStoredAs(),
+                                                 goods.getAmount());
+            }
+        }
+
+        // Add bell production to compensate for the units-that-use-no-bells
+        // as this is not handled by the unit conumption.
+        int unitsThatUseNoBells
+            = spec.getInteger(GameOptions.UNITS_THAT_USE_NO_BELLS);
+        int amount = Math.min(unitsThatUseNoBells, this.units.length);
+        ProductionInfo bellsInfo = new ProductionInfo();
+        bellsInfo.addProduction(new AbstractGoods(bells, amount));
+        ret.productionAndConsumption.put(this, bellsInfo);
+        ret.netProduction.incrementCount(bells, amount);
+
+        List<Consumer> consumers = new ArrayList<>();
+        for (Unit u : this.units) consumers.add(u);
+        consumers.addAll(this.colony.getBuildings());
+        consumers.add(this.colony.buildQueue);
+        consumers.add(this.colony.populationQueue);
+        consumers.sort(Consumer.COMPARATOR);
+
+        List<AbstractGoods> goods = new ArrayList<>();
+        for (Consumer consumer : consumers) {
+            List<Modifier> modifiers = toList(consumer
+                .getModifiers(Modifier.CONSUME_ONLY_SURPLUS_PRODUCTION));
+            // Buildings consume the inputs of their production type
+            // here, which may not be the one they have at present.
+            final ProductionType pt = (consumer instanceof WorkLocation)
+                ? getProductionType((WorkLocation)consumer) : null;
+            final List<AbstractGoods> consumed
+                = (!(consumer instanceof WorkLocation))
+                ? consumer.getConsumedGoods()
+                : (pt == null) ? new ArrayList<>()
+                : toList(pt.getInputs());
+            goods.clear();
+            for (AbstractGoods g : consumed) {
+                ret.goodsUsed.add(g.getType());
+                AbstractGoods surplus
+                    = new AbstractGoods(production.get(g.getType()));
+                if (modifiers.isEmpty()) {
+                    surplus.setAmount(surplus.getAmount()
+                        + this.stored.getCount(g.getType()));
+                } else {
+                    surplus.setAmount((int)FeatureContainer
+                        .applyModifiers(surplus.getAmount(), null, modifiers));
+                }
+                goods.add(surplus);
+            }
+            ProductionInfo info = null;
+            if (consumer instanceof Building) {
+                final Building building = (Building)consumer;
+                final Function<AbstractGoods, AbstractGoods> mapper = ag -> {
+                    GoodsType outputType = ag.getType();
+                    AbstractGoods newOutput
+                        = new AbstractGoods(production.get(outputType));
+                    newOutput.setAmount(newOutput.getAmount()
+                        + this.stored.getCount(outputType));
+                    return newOutput;
+                };
+                List<AbstractGoods> outputs = (pt == null)
+                    ? new ArrayList<>()
+                    : transform(pt.getOutputs(), alwaysTrue(), mapper);
+                ret.goodsUsed.addAll(transform(outputs, alwaysTrue(),
+                                               AbstractGoods::getType));
+                info = building.getAdjustedProductionInfo(goods, outputs, pt,
+                    gt -> getUnitProduction(building, gt, bonus),
+                    getExpertCount(building),
+                    gt -> this.stored.getCount(gt));
+            } else if (consumer instanceof Unit) {
+                info = ((Unit)consumer).getProductionInfo(goods);
+            } else if (consumer instanceof BuildQueue) {
+                info = ((BuildQueue<?>)consumer).getProductionInfo(goods);
+            }
+            if (info != null) {
+                production.add(info.getProduction());
+                production.remove(info.getConsumption());
+                for (AbstractGoods g : info.getProduction()) {
+                    ret.netProduction.incrementCount(g.getType().getStoredAs(),
+                                                     g.getAmount());
+                }
+                for (AbstractGoods g : info.getConsumption()) {
+                    ret.netProduction.incrementCount(g.getType().getStoredAs(),
+                                                     -g.getAmount());
+                }
+                ret.productionAndConsumption.put(consumer, info);
+            }
+        }
+        return ret;
+    }
+}
@@ -523,6 +523,7 @@ public abstract class Settlement extends GoodsLocation
     @Override
     public void setOwner(Player player) {
         this.owner = player;
+        if (tile != null) tile.invalidatePaths();
     }
 
 
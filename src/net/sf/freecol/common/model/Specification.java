@@ -428,6 +428,7 @@ public final class Specification {
      * @return True if any mod was loaded.
      */
     public boolean loadMods(List<FreeColModFile> mods) {
+        final long start = System.currentTimeMillis();
         initialized = false;
         boolean loadedMod = false;
         for (FreeColModFile mod : mods) {
@@ -447,7 +448,11 @@ public final class Specification {
                     rte);
             }
         }
-        if (loadedMod) clean("mod loading");
+        if (loadedMod) {
+            clean("mod loading");
+            logger.info("Loaded " + mods.size() + " mods in "
+                + (System.currentTimeMillis() - start) + "ms");
+        }
         initialized = true;
         return loadedMod;
     }
@@ -489,6 +494,23 @@ public final class Specification {
         // Drop all abstract types
         removeInPlace(allTypes, e -> e.getValue().isAbstractType());
 
+        // Number the types densely, so that they can index arrays.
+        // The nation types are left alone as the European ones are
+        // split between two lists below.
+        renumber(buildingTypeList);
+        renumber(disasters);
+        renumber(equipmentTypes);
+        renumber(events);
+        renumber(foundingFathers);
+        renumber(goodsTypeList);
+        renumber(nations);
+        renumber(resourceTypeList);
+        renumber(roles);
+        renumber(tileTypeList);
+        renumber(tileImprovementTypeList);
+        renumber(unitChangeTypeList);
+        renumber(unitTypeList);
+
         // Fix up the GoodsType derived attributes.  Several GoodsType
         // predicates are likely to fail until this is done.
         GoodsType.setDerivedAttributes(this);
@@ -660,6 +682,16 @@ public final class Specification {
             + " read.");
     }
 
+    /**
+     * Number a list of types densely, in list order.
+     *
+     * @param types The list of types to number.
+     */
+    private static void renumber(List<? extends FreeColSpecObjectType> types) {
+        int index = 0;
+        for (FreeColSpecObjectType type : types) type.setIndex(index++);
+    }
+
     /**
      * Disable editing of some critical option groups.
      */
@@ -2831,6 +2863,12 @@ public final class Specification {
         // SAVEGAME_VERSION == 12
         // SAVEGAME_VERSION == 13
 
+        // @compat 0.11.6
+        ret |= checkBooleanOption(MapGeneratorOptions.PARALLEL_TERRAIN,
+                                  MapGeneratorOptions.MAPGENERATOROPTIONS_TERRAIN_GENERATOR,
+                                  false);
+        // end @compat 0.11.6
+
         return ret;
     }
 
@@ -2916,7 +2954,7 @@ public final class Specification {
      * @exception XMLStreamException if there are any problems writing
      *      to the stream.
      */
-    protected void toXML(FreeColXMLWriter xw) throws XMLStreamException {
+    public void toXML(FreeColXMLWriter xw) throws XMLStreamException {
         xw.writeStartElement(TAG);
 
         // Add attributes
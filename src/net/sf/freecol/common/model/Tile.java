@@ -212,6 +212,9 @@ public final class Tile extends UnitLocation implements Named, Ownable {
      */
     private final java.util.Map<Player, IndianSettlementInternals> playerIndianSettlements;
 
+    /** The map arrays to keep up to date, if in a map.  Do not serialize. */
+    private TileArrays tileArrays = null;
+
 
     /**
      * The main tile constructor.
@@ -282,6 +285,8 @@ public final class Tile extends UnitLocation implements Named, Ownable {
      */
     public void setType(TileType t) {
         type = t;
+        invalidatePaths();
+        updateTileArrays();
     }
 
     /**
@@ -338,6 +343,34 @@ public final class Tile extends UnitLocation implements Named, Ownable {
         return getGame().getMap();
     }
 
+    /**
+     * Tell the map that a change to this tile may alter paths
+     * across it.
+     */
+    void invalidatePaths() {
+        final Game game = getGame();
+        final Map map = (game == null) ? null : game.getMap();
+        if (map != null) map.invalidatePathCache();
+    }
+
+    /**
+     * Set the map arrays this tile should keep up to date.
+     *
+     * @param tileArrays The {@code TileArrays} of the map this tile
+     *     has been placed in.
+     */
+    void setTileArrays(TileArrays tileArrays) {
+        this.tileArrays = tileArrays;
+        updateTileArrays();
+    }
+
+    /**
+     * Copy the properties of this tile into the map arrays.
+     */
+    private void updateTileArrays() {
+        if (this.tileArrays != null) this.tileArrays.update(this);
+    }
+
     /**
      * Gets the settlement on this tile.
      *
@@ -363,6 +396,7 @@ public final class Tile extends UnitLocation implements Named, Ownable {
      */
     public void setSettlement(Settlement settlement) {
         this.settlement = settlement;
+        invalidatePaths();
     }
 
     /**
@@ -394,6 +428,7 @@ public final class Tile extends UnitLocation implements Named, Ownable {
      */
     public void setOwningSettlement(Settlement owner) {
         this.owningSettlement = owner;
+        invalidatePaths();
     }
 
     /**
@@ -442,6 +477,7 @@ public final class Tile extends UnitLocation implements Named, Ownable {
      */
     public void setRegion(final Region newRegion) {
         this.region = newRegion;
+        updateTileArrays();
     }
 
     /**
@@ -817,6 +853,7 @@ public final class Tile extends UnitLocation implements Named, Ownable {
             tileItemContainer = new TileItemContainer(getGame(), this);
         }
         TileItem added = tileItemContainer.tryAddTileItem(item);
+        invalidatePaths();
         return added == item;
     }
 
@@ -831,6 +868,7 @@ public final class Tile extends UnitLocation implements Named, Ownable {
      */
     private <T extends TileItem> T removeTileItem(T item) {
         if (item == null || tileItemContainer == null) return null;
+        invalidatePaths();
         return tileItemContainer.removeTileItem(item);
     }
 
@@ -1829,7 +1867,8 @@ public final class Tile extends UnitLocation implements Named, Ownable {
      */
     public void setCachedTile(Player player, Tile tile) {
         if (cachedTiles == null || !player.isEuropean()) return;
-        cachedTiles.put(player, tile);
+        // A newly explored tile changes where the player may move
+        if (cachedTiles.put(player, tile) == null) invalidatePaths();
     }
 
     /**
@@ -2003,8 +2042,8 @@ public final class Tile extends UnitLocation implements Named, Ownable {
         if (cachedTiles == null || !player.isEuropean()) return;
         if (reveal) {
             seeTile(player);
-        } else {
-            cachedTiles.remove(player);
+        } else if (cachedTiles.remove(player) != null) {
+            invalidatePaths();
         }
     }
 
@@ -2291,6 +2330,8 @@ public final class Tile extends UnitLocation implements Named, Ownable {
     @Override
     public void setOwner(Player owner) {
         this.owner = owner;
+        invalidatePaths();
+        updateTileArrays();
     }
 
 
@@ -2540,6 +2581,7 @@ public final class Tile extends UnitLocation implements Named, Ownable {
     @Override
     protected void readAttributes(FreeColXMLReader xr) throws XMLStreamException {
         super.readAttributes(xr);
+        invalidatePaths();
 
         final Specification spec = getSpecification();
         final Game game = getGame();
@@ -2630,6 +2672,7 @@ public final class Tile extends UnitLocation implements Named, Ownable {
             }
         }
         // end @compat 0.10.1
+        updateTileArrays();
     }
 
     /**
@@ -0,0 +1,233 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+
+/**
+ * Flat copies of the most commonly scanned tile properties of a map,
+ * so that whole map scans need not visit the tiles themselves.
+ *
+ * The arrays are indexed by {@link #index}, that is row by row.
+ * Each tile placed in the map with {@link Map#setTile} updates its
+ * entries when its type, owner or region is set, or when it is read.
+ *
+ * Types and owners are stored as specification indexes, the owner
+ * being the index of the owning player's nation.  Regions are
+ * numbered in the order they are first seen.  Missing values are
+ * {@link #NONE}.
+ */
+public final class TileArrays {
+
+    /** The value stored for a missing type, owner or region. */
+    public static final int NONE = -1;
+
+    /** The map whose tiles are copied. */
+    private final Map map;
+
+    /** The map dimensions. */
+    private final int width, height;
+
+    /** The tile type indexes. */
+    private final int[] types;
+
+    /** Is the tile land? */
+    private final boolean[] land;
+
+    /** The basic move cost of the tile type, zero if unexplored. */
+    private final int[] moveCosts;
+
+    /** The owner nation indexes. */
+    private final int[] owners;
+
+    /** The region numbers. */
+    private final int[] regions;
+
+    /** The regions seen so far, and their numbers. */
+    private final List<Region> regionList = new ArrayList<>();
+    private final HashMap<Region, Integer> regionNumbers = new HashMap<>();
+
+
+    /**
+     * Create new tile arrays for a map.
+     *
+     * @param map The {@code Map} whose tiles are copied.
+     * @param width The map width.
+     * @param height The map height.
+     */
+    TileArrays(Map map, int width, int height) {
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        final int n = width * height;
+        this.types = new int[n];
+        this.land = new boolean[n];
+        this.moveCosts = new int[n];
+        this.owners = new int[n];
+        this.regions = new int[n];
+        Arrays.fill(this.types, NONE);
+        Arrays.fill(this.owners, NONE);
+        Arrays.fill(this.regions, NONE);
+    }
+
+
+    /**
+     * Gets the map width.
+     *
+     * @return The width.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Gets the map height.
+     *
+     * @return The height.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Gets the array index of a map position.
+     *
+     * @param x The x-coordinate.
+     * @param y The y-coordinate.
+     * @return The index into the arrays.
+     */
+    public int index(int x, int y) {
+        return y * this.width + x;
+    }
+
+    /**
+     * Gets the tile type index at an array index.
+     *
+     * @param i The array index.
+     * @return The {@code TileType} index, or NONE if unexplored.
+     */
+    public int getType(int i) {
+        return this.types[i];
+    }
+
+    /**
+     * Is the tile at an array index explored?
+     *
+     * @param i The array index.
+     * @return True if the tile has a type.
+     */
+    public boolean isExplored(int i) {
+        return this.types[i] != NONE;
+    }
+
+    /**
+     * Is the tile at an array index land?
+     *
+     * @param i The array index.
+     * @return True if the tile is land.
+     */
+    public boolean isLand(int i) {
+        return this.land[i];
+    }
+
+    /**
+     * Gets the basic move cost of the tile at an array index.
+     *
+     * @param i The array index.
+     * @return The basic move cost of the tile type, or zero if
+     *     unexplored.
+     */
+    public int getMoveCost(int i) {
+        return this.moveCosts[i];
+    }
+
+    /**
+     * Gets the owner of the tile at an array index.
+     *
+     * @param i The array index.
+     * @return The owner {@code Nation} index, or NONE if unowned.
+     */
+    public int getOwner(int i) {
+        return this.owners[i];
+    }
+
+    /**
+     * Gets the region number of the tile at an array index.
+     *
+     * @param i The array index.
+     * @return The region number, or NONE if there is no region.
+     */
+    public int getRegion(int i) {
+        return this.regions[i];
+    }
+
+    /**
+     * Gets a region by number.
+     *
+     * @param number The region number.
+     * @return The {@code Region}, or null if not found.
+     */
+    public synchronized Region getRegionByNumber(int number) {
+        return (number < 0 || number >= this.regionList.size()) ? null
+            : this.regionList.get(number);
+    }
+
+    /**
+     * Gets the number of a region, allocating one if needed.
+     *
+     * @param region The {@code Region} to look up.
+     * @return The region number.
+     */
+    private synchronized int getRegionNumber(Region region) {
+        Integer n = this.regionNumbers.get(region);
+        if (n == null) {
+            n = this.regionList.size();
+            this.regionList.add(region);
+            this.regionNumbers.put(region, n);
+        }
+        return n;
+    }
+
+    /**
+     * Copy the properties of a tile into the arrays, if it is the
+     * tile the map holds at its position.
+     *
+     * @param tile The {@code Tile} to copy.
+     */
+    void update(Tile tile) {
+        final int x = tile.getX(), y = tile.getY();
+        if (x < 0 || x >= this.width || y < 0 || y >= this.height
+            || this.map.getTile(x, y) != tile) return;
+        final int i = index(x, y);
+        final TileType type = tile.getType();
+        this.types[i] = (type == null) ? NONE : type.getIndex();
+        this.land[i] = type != null && !type.isWater();
+        this.moveCosts[i] = (type == null) ? 0 : type.getBasicMoveCost();
+        final Player owner = tile.getOwner();
+        final Nation nation = (owner == null) ? null : owner.getNation();
+        this.owners[i] = (nation == null) ? NONE : nation.getIndex();
+        final Region region = tile.getRegion();
+        this.regions[i] = (region == null) ? NONE : getRegionNumber(region);
+    }
+}
@@ -197,6 +197,8 @@ public class TileImprovement extends TileItem implements Named {
      */
     public void setTurnsToComplete(int turns) {
         turnsToComplete = turns;
+        final Tile tile = getTile();
+        if (tile != null) tile.invalidatePaths();
     }
 
     /**
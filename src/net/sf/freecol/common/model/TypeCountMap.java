@@ -19,8 +19,13 @@
 
 package net.sf.freecol.common.model;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -30,64 +35,205 @@ import static net.sf.freecol.common.util.CollectionUtils.*;
 /**
  * A map that incorporates a count.
  *
+ * The counts are kept in arrays indexed by the type index, so the
+ * common operations do no hashing or boxing.  Only types from one
+ * specification are kept in the arrays.  Types without an index,
+ * whose index is taken by a different type, or from another
+ * specification are kept in an ordinary map.  Types are still
+ * compared with equals, so a type with the same identifier from
+ * another specification finds the same count.  Identifiers are
+ * unique within a specification, so a type from the specification
+ * of the arrays is only looked for at its own index.  The key set and
+ * values are copies, in index order.
+ *
  * FIXME: implement entire Map interface
  */
 public class TypeCountMap<T extends FreeColSpecObjectType> {
 
-    private final Map<T, Integer> values = new HashMap<>();
+    private static final FreeColSpecObjectType[] NO_KEYS
+        = new FreeColSpecObjectType[0];
+
+    /** The types present, by index, or null if absent. */
+    private FreeColSpecObjectType[] keys = NO_KEYS;
+
+    /** The counts, by index. */
+    private int[] counts = new int[0];
+
+    /** The number of types present in the arrays. */
+    private int indexed = 0;
+
+    /** The specification of the types in the arrays. */
+    private Specification spec = null;
+
+    /** The counts of types that are not in the arrays, created on demand. */
+    private Map<T, Integer> others = null;
+
+
+    /**
+     * Find the array position of a type.
+     *
+     * @param key The type to look for.
+     * @return The position of the type in the arrays, or negative
+     *     if it is not there.
+     */
+    private int find(T key) {
+        final int i = key.getIndex();
+        if (i >= 0 && i < this.keys.length && this.keys[i] == key) return i;
+        if (this.indexed == 0
+            || (this.spec != null && this.spec == key.getSpecification())) {
+            return -1;
+        }
+        // An equal type from another specification can have another index
+        for (int j = 0; j < this.keys.length; j++) {
+            if (key.equals(this.keys[j])) return j;
+        }
+        return -1;
+    }
+
+    /**
+     * Set the count for a type.
+     *
+     * @param key The type to set the count of.
+     * @param count The new count.
+     * @return The previous count, or null if none.
+     */
+    private Integer put(T key, int count) {
+        int i = find(key);
+        if (i >= 0) {
+            int old = this.counts[i];
+            this.counts[i] = count;
+            return old;
+        }
+        if (this.others != null && this.others.containsKey(key)) {
+            return this.others.put(key, count);
+        }
+        i = key.getIndex();
+        if (i < 0 || (i < this.keys.length && this.keys[i] != null)
+            || (this.indexed > 0 && this.spec != key.getSpecification())) {
+            if (this.others == null) this.others = new HashMap<>();
+            return this.others.put(key, count);
+        }
+        if (i >= this.keys.length) {
+            int length = Math.max(i + 1, 2 * this.keys.length);
+            this.keys = Arrays.copyOf(this.keys, length);
+            this.counts = Arrays.copyOf(this.counts, length);
+        }
+        if (this.indexed == 0) this.spec = key.getSpecification();
+        this.keys[i] = key;
+        this.counts[i] = count;
+        this.indexed++;
+        return null;
+    }
+
+    /**
+     * Remove a type.
+     *
+     * @param key The type to remove.
+     * @return The previous count, or null if none.
+     */
+    public Integer remove(T key) {
+        final int i = find(key);
+        if (i >= 0) {
+            this.keys[i] = null;
+            this.indexed--;
+            return this.counts[i];
+        }
+        return (this.others == null) ? null : this.others.remove(key);
+    }
 
+    /**
+     * Gets a copy of this map as an ordinary map.
+     *
+     * @return A map of the types and counts, in index order.
+     */
     public Map<T, Integer> getValues() {
-        return values;
+        Map<T, Integer> ret = new LinkedHashMap<>();
+        for (T key : keySet()) ret.put(key, getCount(key));
+        return ret;
     }
 
     public int getCount(T key) {
-        Integer value = values.get(key);
+        final int i = find(key);
+        if (i >= 0) return this.counts[i];
+        if (this.others == null) return 0;
+        Integer value = this.others.get(key);
         return value == null ? 0 : value;
     }
 
+    /**
+     * Set the count of a type.
+     *
+     * @param key The type to set the count of.
+     * @param count The new count.
+     * @return The previous count, or null if none.
+     */
+    public Integer setCount(T key, int count) {
+        return put(key, count);
+    }
+
     public Integer incrementCount(T key, int newCount) {
-        Integer oldValue = values.get(key);
+        final int i = find(key);
+        final Integer oldValue = (i >= 0) ? Integer.valueOf(this.counts[i])
+            : (this.others == null) ? null
+            : this.others.get(key);
         if (oldValue == null) {
-            return values.put(key, newCount);
+            return put(key, newCount);
         } else if (oldValue == -newCount) {
-            values.remove(key);
+            remove(key);
             return null;
         } else {
-            return values.put(key, oldValue + newCount);
+            return put(key, oldValue + newCount);
         }
     }
 
     public void add(TypeCountMap<T> other) {
-        forEachMapEntry(other.values,
-                        e -> incrementCount(e.getKey(), e.getValue()));
+        for (T key : other.keySet()) incrementCount(key, other.getCount(key));
     }
 
     public void clear() {
-        values.clear();
+        Arrays.fill(this.keys, null);
+        this.indexed = 0;
+        this.others = null;
     }
 
+    @SuppressWarnings("unchecked")
     public Set<T> keySet() {
-        return values.keySet();
+        Set<T> ret = new LinkedHashSet<>();
+        if (this.indexed > 0) {
+            for (FreeColSpecObjectType k : this.keys) {
+                if (k != null) ret.add((T)k);
+            }
+        }
+        if (this.others != null) ret.addAll(this.others.keySet());
+        return ret;
     }
 
     public Collection<Integer> values() {
-        return values.values();
+        List<Integer> ret = new ArrayList<>(size());
+        if (this.indexed > 0) {
+            for (int i = 0; i < this.keys.length; i++) {
+                if (this.keys[i] != null) ret.add(this.counts[i]);
+            }
+        }
+        if (this.others != null) ret.addAll(this.others.values());
+        return ret;
     }
 
     public boolean containsKey(T key) {
-        return values.containsKey(key);
+        return find(key) >= 0
+            || (this.others != null && this.others.containsKey(key));
     }
 
     public boolean isEmpty() {
-        return values.isEmpty();
+        return size() == 0;
     }
 
     public int size() {
-        return values.size();
+        return this.indexed + ((this.others == null) ? 0 : this.others.size());
     }
 
     public void putAll(TypeCountMap<T> other) {
-        values.putAll(other.values);
+        for (T key : other.keySet()) put(key, other.getCount(key));
     }
 
 
@@ -100,7 +246,7 @@ public class TypeCountMap<T extends FreeColSpecObjectType> {
     public String toString() {
         StringBuilder sb = new StringBuilder(64);
         sb.append('[').append(getClass().getName());
-        forEachMapEntry(values, e ->
+        forEachMapEntry(getValues(), e ->
             sb.append(" [").append(e.getKey().getIndex())
               .append(',').append(e.getValue()).append(']'));
         sb.append(']');
@@ -939,6 +939,16 @@ public class Unit extends GoodsLocation
                                        role, roleCount);
     }
 
+    /**
+     * Tell the map that a change to this unit may alter paths,
+     * both its own and those of units it blocks.
+     */
+    private void invalidatePaths() {
+        final Game game = getGame();
+        final Map map = (game == null) ? null : game.getMap();
+        if (map != null) map.invalidatePathCache();
+    }
+
     /**
      * Sets the units location without updating any other variables
      *
@@ -950,6 +960,7 @@ public class Unit extends GoodsLocation
      */
     public void setLocationNoUpdate(Location newLocation) {
         this.location = newLocation;
+        invalidatePaths();
         if (newLocation instanceof Colony) {
             logger.warning("Unit->Colony " + this.getId()
                 + " " + ((Colony)newLocation).getId() + "\n"
@@ -3778,6 +3789,7 @@ public class Unit extends GoodsLocation
     @Override
     public void setOwner(Player player) {
         this.owner = player;
+        invalidatePaths();
     }
 
 
@@ -4084,6 +4096,7 @@ public class Unit extends GoodsLocation
             // Do not set location to null, units that are slaughtered in
             // battle need to remain valid during the animation.
         }
+        invalidatePaths();
 
         if (teacher != null) {
             teacher.setStudent(null);
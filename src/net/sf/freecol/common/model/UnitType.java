@@ -875,18 +875,18 @@ public final class UnitType extends BuildableType implements Consumer {
             Modifier m;
             if (!containsModifierKey(Modifier.CONVERSION_SKILL)) {
                 m = new Modifier(Modifier.CONVERSION_SKILL, 8.0f,
-                        Modifier.ModifierType.ADDITIVE);
+                        Modifier.ModifierType.ADDITIVE, this);
                 addModifier(m);
 
                 if (hasAbility(Ability.EXPERT_MISSIONARY)) {
                     m = new Modifier(Modifier.CONVERSION_SKILL, 5.0f,
-                            Modifier.ModifierType.ADDITIVE);
+                            Modifier.ModifierType.ADDITIVE, this);
                     addModifier(m);
                 }
             }
             if (!containsModifierKey(Modifier.CONVERSION_ALARM_RATE)) {
                 m = new Modifier(Modifier.CONVERSION_ALARM_RATE, 2.0f,
-                        Modifier.ModifierType.PERCENTAGE);
+                        Modifier.ModifierType.PERCENTAGE, this);
                 addModifier(m);
             }
         }
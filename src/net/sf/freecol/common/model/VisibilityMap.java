@@ -0,0 +1,164 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+
+/**
+ * The tiles a player can see under fog of war, maintained
+ * incrementally.
+ *
+ * Each tile has a count of the sights that cover it, where a sight
+ * is a unit or settlement seeing a given distance from a given tile.
+ * When the sights are updated only those that appeared, disappeared
+ * or changed tile or line of sight have their tiles counted in or
+ * out, so a unit move costs two circles of tiles, rather than a
+ * walk over every unit and settlement the player has.
+ *
+ * Not thread safe, the owning player locks around it.
+ */
+final class VisibilityMap {
+
+    /** A unit or settlement line of sight. */
+    static final class Sight {
+
+        /** The tile seen from. */
+        private final Tile tile;
+
+        /** The line of sight. */
+        private final int radius;
+
+
+        /**
+         * Create a new sight.
+         *
+         * @param tile The {@code Tile} seen from.
+         * @param radius The line of sight.
+         */
+        Sight(Tile tile, int radius) {
+            this.tile = tile;
+            this.radius = radius;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Sight)) return false;
+            Sight s = (Sight)o;
+            return this.tile == s.tile && this.radius == s.radius;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return 31 * this.tile.hashCode() + this.radius;
+        }
+    }
+
+    /** The map height, to index the counts. */
+    private final int width, height;
+
+    /** The number of sights covering each tile. */
+    private final int[] counts;
+
+    /** The current sights, by the object that sees. */
+    private HashMap<FreeColGameObject, Sight> sights = new HashMap<>();
+
+
+    /**
+     * Create a new visibility map with nothing visible.
+     *
+     * @param map The {@code Map} to cover.
+     */
+    VisibilityMap(Map map) {
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.counts = new int[this.width * this.height];
+    }
+
+
+    /**
+     * Does this visibility map fit a map?
+     *
+     * @param map The {@code Map} to check.
+     * @return True if the map is the size this was created for.
+     */
+    boolean fits(Map map) {
+        return map.getWidth() == this.width && map.getHeight() == this.height;
+    }
+
+    /**
+     * Is a tile covered by any sight?
+     *
+     * @param tile The {@code Tile} to check.
+     * @return True if the tile is visible.
+     */
+    boolean canSee(Tile tile) {
+        final int x = tile.getX(), y = tile.getY();
+        return x >= 0 && x < this.width && y >= 0 && y < this.height
+            && this.counts[x * this.height + y] > 0;
+    }
+
+    /**
+     * Replace the current sights.
+     *
+     * @param newSights The new sights by the object that sees.
+     * @return A list of the tiles covered by new or changed sights.
+     */
+    List<Tile> update(HashMap<FreeColGameObject, Sight> newSights) {
+        List<Tile> seen = new ArrayList<>();
+        for (java.util.Map.Entry<FreeColGameObject, Sight> e
+                 : this.sights.entrySet()) {
+            if (!e.getValue().equals(newSights.get(e.getKey()))) {
+                count(e.getValue(), -1, null);
+            }
+        }
+        for (java.util.Map.Entry<FreeColGameObject, Sight> e
+                 : newSights.entrySet()) {
+            if (!e.getValue().equals(this.sights.get(e.getKey()))) {
+                count(e.getValue(), 1, seen);
+            }
+        }
+        this.sights = newSights;
+        return seen;
+    }
+
+    /**
+     * Count the tiles covered by a sight in or out.
+     *
+     * @param sight The {@code Sight} to count.
+     * @param delta The change to the count.
+     * @param seen A list to add the covered tiles to, or null.
+     */
+    private void count(Sight sight, int delta, List<Tile> seen) {
+        for (Tile t : sight.tile.getSurroundingTiles(0, sight.radius)) {
+            this.counts[t.getX() * this.height + t.getY()] += delta;
+            if (seen != null) seen.add(t);
+        }
+    }
+}
@@ -566,14 +566,35 @@ public abstract class WorkLocation extends UnitLocation
      * @return The maximum return from this unit.
      */
     public int getUnitProduction(Unit unit, GoodsType goodsType) {
-        if (unit == null || unit.getWorkType() != goodsType) return 0;
-        final UnitType unitType = unit.getType();
+        return (unit == null) ? 0
+            : getUnitProduction(getProductionType(), unit.getType(),
+                                unit.getWorkType(), goodsType,
+                                getColony().getProductionBonus());
+    }
+
+    /**
+     * Gets the productivity of a unit of a given type and work type,
+     * with a given production type and colony production bonus.
+     *
+     * @param productionType The {@code ProductionType} to use.
+     * @param unitType The {@code UnitType} of the unit.
+     * @param workType The {@code GoodsType} the unit is working on.
+     * @param goodsType The {@code GoodsType} to check the production of.
+     * @param bonus The colony production bonus to use.
+     * @return The maximum return from the unit.
+     * @see ProductionSnapshot
+     */
+    int getUnitProduction(ProductionType productionType, UnitType unitType,
+                          GoodsType workType, GoodsType goodsType,
+                          int bonus) {
+        if (workType != goodsType) return 0;
         final Turn turn = getGame().getTurn();
         return Math.max(0,
-            (int)applyModifiers(getBaseProduction(getProductionType(),
+            (int)applyModifiers(getBaseProduction(productionType,
                                                   goodsType, unitType),
                                 turn,
-                                getProductionModifiers(goodsType, unitType)));
+                                getProductionModifiers(goodsType, unitType,
+                                                       bonus)));
     }
 
     /**
@@ -864,6 +885,19 @@ public abstract class WorkLocation extends UnitLocation
     public abstract Stream<Modifier> getProductionModifiers(GoodsType goodsType,
                                                             UnitType unitType);
 
+    /**
+     * Gets the production modifiers for the given type of goods and
+     * unit type, as if the colony had a given production bonus.
+     *
+     * @param goodsType The {@code GoodsType} to produce.
+     * @param unitType The optional {@code UnitType} to produce them.
+     * @param bonus The colony production bonus to use.
+     * @return A stream of the applicable modifiers.
+     */
+    abstract Stream<Modifier> getProductionModifiers(GoodsType goodsType,
+                                                     UnitType unitType,
+                                                     int bonus);
+
     /**
      * Get the production types available for this work location.
      *
@@ -0,0 +1,444 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.logging.Logger;
+
+import static net.sf.freecol.common.util.CollectionUtils.*;
+
+
+/**
+ * Finds the best way to fill a set of jobs with a set of units.
+ *
+ * A job is an {@link Occupation}, a work location and the goods type
+ * to make there.  Buildings with room for several units appear as
+ * several jobs.  The value of a unit doing a job is the potential
+ * production of its unit type, which is independent of the other
+ * units and of the colony stock, so the values are found once per
+ * unit type and job without moving any units.  The assignment that
+ * fills the most jobs, then has the greatest total production, then
+ * moves the fewest units, is found with the Hungarian method.
+ *
+ * This does not decide which jobs are worth doing, which depends on
+ * the production chains and the food supply.  Callers choose the
+ * jobs, typically the current ones, and this chooses who does them.
+ */
+public class WorkerAssignment {
+
+    private static final Logger logger = Logger.getLogger(WorkerAssignment.class.getName());
+
+    /** The cost of an impossible assignment. */
+    private static final long IMPOSSIBLE = 1L << 50;
+
+    /** The value of filling a job, which outweighs any production. */
+    private static final long FILLED = 1L << 40;
+
+    /** The units to assign. */
+    private final List<Unit> units;
+
+    /** The jobs to fill. */
+    private final List<Occupation> jobs;
+
+    /** The production of each unit at each job, or -1 if impossible. */
+    private final int[][] values;
+
+    /** The job each unit is assigned to, or -1, once solved. */
+    private int[] solution = null;
+
+
+    /**
+     * Create a new worker assignment.
+     *
+     * @param units The {@code Unit}s to assign.
+     * @param jobs The {@code Occupation}s to fill.
+     */
+    public WorkerAssignment(List<Unit> units, List<Occupation> jobs) {
+        this.units = new ArrayList<>(units);
+        this.jobs = new ArrayList<>(jobs);
+        this.values = new int[this.units.size()][];
+        Map<UnitType, int[]> rows = new HashMap<>();
+        for (int i = 0; i < this.units.size(); i++) {
+            final UnitType type = this.units.get(i).getType();
+            int[] row = rows.get(type);
+            if (row == null) {
+                row = new int[this.jobs.size()];
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = getValue(type, this.jobs.get(j));
+                }
+                rows.put(type, row);
+            }
+            this.values[i] = row;
+        }
+    }
+
+    /**
+     * Create a new worker assignment for the units working in a
+     * colony, with the jobs they are currently doing.
+     *
+     * Units that are not producing anything, such as teachers, are
+     * left out.
+     *
+     * @param colony The {@code Colony} to reassign.
+     */
+    public WorkerAssignment(Colony colony) {
+        this(getWorkers(colony), getJobs(getWorkers(colony)));
+    }
+
+    /**
+     * Get the units working in a colony.
+     *
+     * @param colony The {@code Colony} to check.
+     * @return A list of {@code Unit}s with a work type.
+     */
+    private static List<Unit> getWorkers(Colony colony) {
+        List<Unit> result = new ArrayList<>();
+        for (Unit u : colony.getUnitList()) {
+            if (u.getWorkType() != null
+                && u.getLocation() instanceof WorkLocation) result.add(u);
+        }
+        return result;
+    }
+
+    /**
+     * Get the jobs a list of units are currently doing.
+     *
+     * @param units The {@code Unit}s to check.
+     * @return A list of {@code Occupation}s.
+     */
+    public static List<Occupation> getJobs(List<Unit> units) {
+        List<Occupation> result = new ArrayList<>();
+        for (Unit u : units) {
+            WorkLocation wl = (WorkLocation)u.getLocation();
+            result.add(new Occupation(wl, wl.getProductionType(),
+                                      u.getWorkType()));
+        }
+        return result;
+    }
+
+    /**
+     * Get the production of a unit type at a job.
+     *
+     * @param type The {@code UnitType} to check.
+     * @param job The {@code Occupation} to check.
+     * @return The potential production, or -1 if the unit type can
+     *     not do the job.
+     */
+    private static int getValue(UnitType type, Occupation job) {
+        final WorkLocation wl = job.workLocation;
+        if (!type.isPerson()
+            || (wl instanceof Building && !((Building)wl).canAddType(type)))
+            return -1;
+        return wl.getPotentialProduction(job.workType, type);
+    }
+
+    /**
+     * Is a unit already doing a job?
+     *
+     * @param unit The {@code Unit} to check.
+     * @param job The {@code Occupation} to check.
+     * @return True if the unit is at the job work location, making
+     *     the job goods type.
+     */
+    private static boolean isDoing(Unit unit, Occupation job) {
+        return unit.getLocation() == job.workLocation
+            && unit.getWorkType() == job.workType;
+    }
+
+    /**
+     * Get the units to assign.
+     *
+     * @return The list of {@code Unit}s.
+     */
+    public List<Unit> getUnits() {
+        return this.units;
+    }
+
+    /**
+     * Get the jobs to fill.
+     *
+     * @return The list of {@code Occupation}s.
+     */
+    public List<Occupation> getJobs() {
+        return this.jobs;
+    }
+
+    /**
+     * Get the total production of the current assignment.
+     *
+     * @return The total production of the units at their current jobs.
+     */
+    public int getCurrentProduction() {
+        int total = 0;
+        for (int i = 0; i < this.units.size(); i++) {
+            final Unit u = this.units.get(i);
+            for (int j = 0; j < this.jobs.size(); j++) {
+                if (isDoing(u, this.jobs.get(j))) {
+                    total += Math.max(0, this.values[i][j]);
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Get the total production of the best assignment.
+     *
+     * @return The total production of the units at their best jobs.
+     */
+    public int getBestProduction() {
+        final int[] best = solve();
+        int total = 0;
+        for (int i = 0; i < best.length; i++) {
+            if (best[i] >= 0) total += this.values[i][best[i]];
+        }
+        return total;
+    }
+
+    /**
+     * Get the best assignment.
+     *
+     * @return A map of each assigned {@code Unit} to its
+     *     {@code Occupation}, in the order of the units.
+     */
+    public Map<Unit, Occupation> getAssignment() {
+        final int[] best = solve();
+        Map<Unit, Occupation> result = new LinkedHashMap<>();
+        for (int i = 0; i < best.length; i++) {
+            if (best[i] >= 0) result.put(this.units.get(i), this.jobs.get(best[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Get the changes needed to reach the best assignment.
+     *
+     * @return A map of each {@code Unit} that is not already doing
+     *     its best job to that {@code Occupation}.
+     */
+    public Map<Unit, Occupation> getChanges() {
+        Map<Unit, Occupation> result = getAssignment();
+        result.entrySet().removeIf(e -> isDoing(e.getKey(), e.getValue()));
+        return result;
+    }
+
+    /**
+     * Would making the changes to reach the best assignment leave a
+     * colony short of food?
+     *
+     * The best assignment only counts production, so it may move a
+     * unit off food production.  That is not acceptable if the net
+     * food production becomes negative and worse than before.
+     *
+     * @param colony The {@code Colony} the units work in.
+     * @return True if the changes would starve the colony.
+     */
+    public boolean wouldStarve(Colony colony) {
+        final GoodsType foodType = colony.getSpecification()
+            .getPrimaryFoodType();
+        final ProductionSnapshot before = new ProductionSnapshot(colony);
+        ProductionSnapshot after = before;
+        for (Map.Entry<Unit, Occupation> e : getChanges().entrySet()) {
+            after = after.withUnit(e.getKey(), e.getValue().workLocation,
+                                   e.getValue().workType);
+        }
+        final int food = after.getAdjustedNetProductionOf(foodType);
+        return food < 0
+            && food < before.getAdjustedNetProductionOf(foodType);
+    }
+
+    /**
+     * Make the changes to reach the best assignment in a colony.
+     *
+     * If a unit can not be moved, the units that moved are put back
+     * where they were.
+     *
+     * @param colony The {@code Colony} the units work in.
+     * @param work Moves a unit to a work location, returning true if
+     *     it succeeded.
+     * @param changeWork Changes the work type of a unit, returning
+     *     true if it succeeded.
+     * @return True if all the changes were made.
+     */
+    public boolean apply(Colony colony, BiPredicate<Unit, WorkLocation> work,
+                         BiPredicate<Unit, GoodsType> changeWork) {
+        Map<Unit, Occupation> original = new HashMap<>();
+        for (Unit u : colony.getUnitList()) {
+            WorkLocation wl = (WorkLocation)u.getLocation();
+            original.put(u, new Occupation(wl, wl.getProductionType(),
+                                           u.getWorkType()));
+        }
+        if (place(colony, getChanges(), work, changeWork)) return true;
+
+        original.entrySet().removeIf(e -> isDoing(e.getKey(), e.getValue()));
+        if (!place(colony, original, work, changeWork)) {
+            logger.warning("Could not restore the units of "
+                + colony.getName());
+        }
+        return false;
+    }
+
+    /**
+     * Move units in a colony to new occupations.
+     *
+     * Units are moved to the work locations with room for them first.
+     * When the work locations wanted are all full, a unit is moved
+     * aside to another work location to make room.
+     *
+     * @param colony The {@code Colony} the units work in.
+     * @param changes A map of each {@code Unit} to move to its new
+     *     {@code Occupation}, which is emptied as units are moved.
+     * @param work Moves a unit to a work location.
+     * @param changeWork Changes the work type of a unit.
+     * @return True if all the units were moved.
+     */
+    private static boolean place(Colony colony, Map<Unit, Occupation> changes,
+                                 BiPredicate<Unit, WorkLocation> work,
+                                 BiPredicate<Unit, GoodsType> changeWork) {
+        boolean parked = false;
+        while (!changes.isEmpty()) {
+            final Unit unit = find(changes.keySet(), u -> {
+                    WorkLocation wl = changes.get(u).workLocation;
+                    return u.getLocation() == wl || wl.canAdd(u);
+                });
+            if (unit == null) {
+                // The jobs are full, so move a unit out of the way.
+                if (parked) return false;
+                final Unit u = first(changes.keySet());
+                WorkLocation wl = find(colony.getAvailableWorkLocations(),
+                    w -> w != u.getLocation() && w.canAdd(u));
+                if (wl == null || !work.test(u, wl)) return false;
+                parked = true;
+                continue;
+            }
+            final Occupation occupation = changes.remove(unit);
+            if (unit.getLocation() != occupation.workLocation
+                && !(work.test(unit, occupation.workLocation)
+                    && unit.getLocation() == occupation.workLocation)) {
+                return false;
+            }
+            if (unit.getWorkType() != occupation.workType
+                && !changeWork.test(unit, occupation.workType)) {
+                return false;
+            }
+            parked = false;
+        }
+        return true;
+    }
+
+    /**
+     * Solve the assignment, if not already done.
+     *
+     * Each unit is a row, and each job a column.  A further column
+     * per unit stands for leaving that unit unassigned, so there are
+     * always more columns than rows and every row is matched.
+     *
+     * @return The job index for each unit, or -1 if unassigned.
+     */
+    private int[] solve() {
+        if (this.solution != null) return this.solution;
+        final int n = this.units.size(), m = this.jobs.size() + n;
+        long[][] cost = new long[n][m];
+        for (int i = 0; i < n; i++) {
+            final Unit u = this.units.get(i);
+            for (int j = 0; j < this.jobs.size(); j++) {
+                int value = this.values[i][j];
+                cost[i][j] = (value < 0) ? IMPOSSIBLE
+                    : -(FILLED + (long)value * (n + 1)
+                        + ((isDoing(u, this.jobs.get(j))) ? 1 : 0));
+            }
+        }
+        int[] result = hungarian(cost, n, m);
+        for (int i = 0; i < n; i++) {
+            if (result[i] >= this.jobs.size()
+                || (result[i] >= 0 && this.values[i][result[i]] < 0)) {
+                result[i] = -1;
+            }
+        }
+        return this.solution = result;
+    }
+
+    /**
+     * Find the minimum cost assignment of rows to columns.
+     *
+     * This is the O(n^2.m) form of the Hungarian method, with row and
+     * column potentials and 1-based indexes internally.
+     *
+     * @param cost The cost matrix.
+     * @param n The number of rows.
+     * @param m The number of columns, at least n.
+     * @return The column assigned to each row.
+     */
+    private static int[] hungarian(long[][] cost, int n, int m) {
+        long[] u = new long[n + 1], v = new long[m + 1], minv = new long[m + 1];
+        int[] p = new int[m + 1], way = new int[m + 1];
+        boolean[] used = new boolean[m + 1];
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Long.MAX_VALUE);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0], j1 = 0;
+                long delta = Long.MAX_VALUE;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) continue;
+                    long cur = cost[i0 - 1][j - 1] - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        int[] result = new int[n];
+        Arrays.fill(result, -1);
+        for (int j = 1; j <= m; j++) {
+            if (p[j] != 0) result[p[j] - 1] = j - 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model.pathfinding;
+
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import net.sf.freecol.common.model.Europe;
+import net.sf.freecol.common.model.Location;
+import net.sf.freecol.common.model.PathNode;
+import net.sf.freecol.common.model.Player;
+import net.sf.freecol.common.model.Role;
+import net.sf.freecol.common.model.Unit;
+import net.sf.freecol.common.model.UnitType;
+
+
+/**
+ * A cache of the results of {@link net.sf.freecol.common.model.Map#findPath}.
+ *
+ * Paths are keyed on the parts of the unit and carrier state that
+ * the move rules depend on, rather than the unit itself, so units of
+ * the same type and role in the same place share results.  The cache
+ * is emptied whenever the map reports a change that could alter a
+ * path (tile ownership, settlements, improvements, unit positions),
+ * and at the start of each turn.
+ *
+ * Cached paths are copied on the way in and out, as callers freely
+ * modify the paths they are given.
+ */
+public final class PathCache {
+
+    /** Drop everything when this many paths are cached. */
+    private static final int MAXIMUM_SIZE = 4096;
+
+    /** Marker for a cached search failure. */
+    private static final PathNode NO_PATH
+        = new PathNode(null, 0, 0, false, null, null);
+
+    /** A key for a cached path. */
+    public static final class Key {
+
+        private final UnitType unitType;
+        private final Role role;
+        private final Player owner;
+        private final Location unitLocation;
+        private final int movesLeft;
+        private final int cargo;
+        private final Unit carrier;
+        private final int carrierMovesLeft;
+        private final int carrierCargo;
+        private final Location start;
+        private final Location end;
+        private final Class<?> costDeciderClass;
+        private final int hash;
+
+
+        private Key(Unit unit, Location start, Location end, Unit carrier,
+                    CostDecider costDecider) {
+            this.unitType = unit.getType();
+            this.role = unit.getRole();
+            this.owner = unit.getOwner();
+            this.unitLocation = unit.getLocation();
+            this.movesLeft = unit.getMovesLeft();
+            this.cargo = unit.getCargoSpaceTaken();
+            this.carrier = carrier;
+            this.carrierMovesLeft = (carrier == null) ? 0
+                : carrier.getMovesLeft();
+            this.carrierCargo = (carrier == null) ? 0
+                : carrier.getCargoSpaceTaken();
+            this.start = start;
+            this.end = end;
+            this.costDeciderClass = (costDecider == null) ? null
+                : costDecider.getClass();
+            this.hash = Objects.hash(unitType, role, owner, unitLocation,
+                movesLeft, cargo, carrier, carrierMovesLeft, carrierCargo,
+                start, end, costDeciderClass);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key)o;
+            return this.hash == k.hash
+                && this.unitType == k.unitType
+                && this.role == k.role
+                && this.owner == k.owner
+                && this.unitLocation == k.unitLocation
+                && this.movesLeft == k.movesLeft
+                && this.cargo == k.cargo
+                && this.carrier == k.carrier
+                && this.carrierMovesLeft == k.carrierMovesLeft
+                && this.carrierCargo == k.carrierCargo
+                && this.start == k.start
+                && this.end == k.end
+                && this.costDeciderClass == k.costDeciderClass;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    /** The cached paths. */
+    private final HashMap<Key, PathNode> paths = new HashMap<>();
+
+    /** The turn number the cached paths are valid for. */
+    private int turn = -1;
+
+    /** Incremented on every invalidation. */
+    private long version = 0;
+
+    /** Cache statistics. */
+    private long hits = 0, misses = 0, invalidations = 0;
+
+
+    /**
+     * Gets a key for a path query, if the query is cacheable.
+     *
+     * Queries starting or ending off the map other than in Europe
+     * depend on unit destinations and are not cached, nor are cost
+     * deciders that are anonymous or lambdas, as their class does
+     * not identify their behaviour.
+     *
+     * @param unit The {@code Unit} to find the path for.
+     * @param start The {@code Location} in which the path starts from.
+     * @param end The {@code Location} at the end of the path.
+     * @param carrier An optional naval carrier {@code Unit} to use.
+     * @param costDecider An optional {@code CostDecider}.
+     * @return A new {@code Key}, or null if the query can not be cached.
+     */
+    public static Key getKey(Unit unit, Location start, Location end,
+                             Unit carrier, CostDecider costDecider) {
+        if (unit == null || start == null || end == null
+            || unit.isAtSea() || (carrier != null && carrier.isAtSea())
+            || !isCacheable(start) || !isCacheable(end)) return null;
+        if (costDecider != null) {
+            Class<?> c = costDecider.getClass();
+            if (c.isAnonymousClass() || c.isSynthetic()) return null;
+        }
+        return new Key(unit, start, end, carrier, costDecider);
+    }
+
+    /**
+     * Is a location stable enough to use as a cache key?
+     *
+     * @param loc The {@code Location} to check.
+     * @return True if the location is Europe, a unit or on the map.
+     */
+    private static boolean isCacheable(Location loc) {
+        return loc instanceof Europe || loc instanceof Unit
+            || loc.getTile() != null;
+    }
+
+    /**
+     * Gets a path, from the cache if possible, otherwise by running
+     * the supplied search and caching its result.
+     *
+     * The cache is not locked while searching, as searches may nest.
+     * The result is only cached if nothing invalidated the cache
+     * while the search was running.
+     *
+     * @param key The {@code Key} for the query.
+     * @param turn The current turn number.
+     * @param search A {@code Supplier} to perform the actual search.
+     * @return The path found, or null if none.
+     */
+    public PathNode get(Key key, int turn, Supplier<PathNode> search) {
+        PathNode path;
+        final long version;
+        synchronized (this) {
+            if (turn != this.turn) {
+                this.paths.clear();
+                this.turn = turn;
+                this.version++;
+            }
+            path = this.paths.get(key);
+            if (path != null) this.hits++; else this.misses++;
+            version = this.version;
+        }
+        if (path != null) return (path == NO_PATH) ? null : path.copy();
+
+        path = search.get();
+        final PathNode copy = (path == null) ? NO_PATH : path.copy();
+        synchronized (this) {
+            if (version == this.version) {
+                if (this.paths.size() >= MAXIMUM_SIZE) this.paths.clear();
+                this.paths.put(key, copy);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Drop all cached paths.
+     */
+    public synchronized void invalidate() {
+        this.version++;
+        if (!this.paths.isEmpty()) {
+            this.paths.clear();
+            this.invalidations++;
+        }
+    }
+
+    /**
+     * Gets the number of cache hits.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Gets the number of cache misses.
+     *
+     * @return The miss count.
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Gets the number of times a non-empty cache was invalidated.
+     *
+     * @return The invalidation count.
+     */
+    public synchronized long getInvalidations() {
+        return this.invalidations;
+    }
+
+    /**
+     * Gets the number of cached paths.
+     *
+     * @return The cache size.
+     */
+    public synchronized int size() {
+        return this.paths.size();
+    }
+
+
+    // Override Object
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString() {
+        return "[PathCache size=" + this.paths.size()
+            + " hits=" + this.hits + " misses=" + this.misses
+            + " invalidations=" + this.invalidations + "]";
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model.pathfinding;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+
+/**
+ * An indexed binary min-heap of small integer node indexes, ordered
+ * by an integer key.  Used as the open list of the map search, where
+ * the node index is derived from the tile position.
+ *
+ * The heap remembers the position of every queued index, so
+ * membership tests, key lookups and removal of arbitrary entries are
+ * O(1), O(1) and O(log N) respectively, rather than the O(N) removal
+ * of {@link java.util.PriorityQueue}.
+ *
+ * The sift operations deliberately mirror those of
+ * {@link java.util.PriorityQueue}, so that entries with equal keys
+ * are dequeued in exactly the same order as they would be from a
+ * PriorityQueue subjected to the same sequence of operations.  This
+ * keeps the paths found identical to the older search.
+ */
+public final class SearchQueue {
+
+    /** Position value for an index that is not queued. */
+    private static final int ABSENT = -1;
+
+    /** The heap of node indexes. */
+    private int[] heap;
+
+    /** The key of each node index (valid only while queued). */
+    private final int[] keys;
+
+    /** The heap position of each node index, or ABSENT. */
+    private final int[] positions;
+
+    /** The number of entries in the heap. */
+    private int size = 0;
+
+
+    /**
+     * Create a new search queue.
+     *
+     * @param capacity The number of distinct node indexes to support.
+     */
+    public SearchQueue(int capacity) {
+        this.heap = new int[Math.min(capacity, 1024) + 1];
+        this.keys = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(this.positions, ABSENT);
+    }
+
+
+    /**
+     * Get the number of node indexes this queue supports.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return this.positions.length;
+    }
+
+    /**
+     * Is this queue empty?
+     *
+     * @return True if there are no queued indexes.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Get the number of queued indexes.
+     *
+     * @return The queue size.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Is a node index present in the queue?
+     *
+     * @param index The node index to check.
+     * @return True if the index is queued.
+     */
+    public boolean contains(int index) {
+        return this.positions[index] != ABSENT;
+    }
+
+    /**
+     * Get the key of a queued node index.
+     *
+     * @param index The node index to check.
+     * @return The key of the index.
+     * @throws NoSuchElementException if the index is not queued.
+     */
+    public int getKey(int index) {
+        if (!contains(index)) {
+            throw new NoSuchElementException("Not queued: " + index);
+        }
+        return this.keys[index];
+    }
+
+    /**
+     * Empty the queue.  Only the queued entries are touched, so this
+     * is cheap to call between searches.
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++) this.positions[heap[i]] = ABSENT;
+        this.size = 0;
+    }
+
+    /**
+     * Add a node index to the queue.
+     *
+     * @param index The node index to add.
+     * @param key The key to order the index by.
+     * @throws IllegalStateException if the index is already queued.
+     */
+    public void offer(int index, int key) {
+        if (contains(index)) {
+            throw new IllegalStateException("Already queued: " + index);
+        }
+        if (this.size >= this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap,
+                Math.min(this.heap.length * 2, getCapacity() + 1));
+        }
+        this.keys[index] = key;
+        siftUp(this.size++, index);
+    }
+
+    /**
+     * Remove and return the node index with the lowest key.
+     *
+     * @return The node index with the lowest key.
+     * @throws NoSuchElementException if the queue is empty.
+     */
+    public int poll() {
+        if (this.size == 0) throw new NoSuchElementException("Empty");
+        final int result = this.heap[0];
+        final int last = this.heap[--this.size];
+        this.positions[result] = ABSENT;
+        if (this.size > 0) siftDown(0, last);
+        return result;
+    }
+
+    /**
+     * Remove a node index from the queue if present.
+     *
+     * @param index The node index to remove.
+     * @return True if the index was queued.
+     */
+    public boolean remove(int index) {
+        final int i = this.positions[index];
+        if (i == ABSENT) return false;
+        this.positions[index] = ABSENT;
+        final int s = --this.size;
+        if (s != i) {
+            final int moved = this.heap[s];
+            siftDown(i, moved);
+            if (this.heap[i] == moved) siftUp(i, moved);
+        }
+        return true;
+    }
+
+    /**
+     * Change the key of a node index, adding it if not present.
+     *
+     * This is a remove-and-reinsert rather than an in-place sift,
+     * which keeps the tie-breaking order identical to that of a
+     * PriorityQueue, at the same O(log N) cost.
+     *
+     * @param index The node index to update.
+     * @param key The new key.
+     */
+    public void update(int index, int key) {
+        remove(index);
+        offer(index, key);
+    }
+
+    /**
+     * Move an index up the heap until its parent key is not greater.
+     *
+     * @param k The heap position to start at.
+     * @param index The node index to place.
+     */
+    private void siftUp(int k, int index) {
+        final int key = this.keys[index];
+        while (k > 0) {
+            final int parent = (k - 1) >>> 1;
+            final int e = this.heap[parent];
+            if (key >= this.keys[e]) break;
+            this.heap[k] = e;
+            this.positions[e] = k;
+            k = parent;
+        }
+        this.heap[k] = index;
+        this.positions[index] = k;
+    }
+
+    /**
+     * Move an index down the heap until its children are not lesser.
+     *
+     * @param k The heap position to start at.
+     * @param index The node index to place.
+     */
+    private void siftDown(int k, int index) {
+        final int key = this.keys[index];
+        final int half = this.size >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            int c = this.heap[child];
+            final int right = child + 1;
+            if (right < this.size && this.keys[c] > this.keys[heap[right]]) {
+                c = this.heap[child = right];
+            }
+            if (key <= this.keys[c]) break;
+            this.heap[k] = c;
+            this.positions[c] = k;
+            k = child;
+        }
+        this.heap[k] = index;
+        this.positions[index] = k;
+    }
+}
@@ -0,0 +1,346 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.networking;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+
+/**
+ * The binary message format, an alternative to line delimited XML
+ * that can be negotiated at login.
+ *
+ * A binary frame is a marker byte, a flags byte, a four byte payload
+ * length and the payload.  The marker can never start an XML message,
+ * so the receiver can tell the formats apart message by message, and
+ * XML always remains usable.  If the compressed flag is set the
+ * payload is deflated.
+ *
+ * The payload is the element tree.  Tag names, attribute names and
+ * short attribute values are entered into a string table the first
+ * time they are sent, and thereafter sent as an index.  Each
+ * direction of a connection has its own table, which stays in step
+ * because frames are decoded in the order they were encoded.
+ */
+final class BinaryCodec {
+
+    /** The first byte of a binary frame. */
+    public static final int FRAME_MARKER = 0x01;
+
+    /** The size of the frame header. */
+    public static final int HEADER_SIZE = 6;
+
+    /** Flag for a compressed payload. */
+    private static final int FLAG_COMPRESSED = 0x01;
+
+    /** Refuse frames larger than this. */
+    private static final int MAXIMUM_PAYLOAD = 1 << 26;
+
+    /** Only compress payloads larger than this. */
+    private static final int COMPRESS_THRESHOLD = 512;
+
+    /** Only add attribute values shorter than this to the table. */
+    private static final int TABLE_VALUE_LENGTH = 32;
+
+    /** Stop adding to the table when it is this large. */
+    private static final int MAXIMUM_TABLE_SIZE = 1 << 16;
+
+    /** String codes.  Higher codes are table indexes. */
+    private static final int STRING_LITERAL = 0, STRING_NEW = 1;
+
+    /** Node types. */
+    private static final int NODE_ELEMENT = 0, NODE_TEXT = 1;
+
+    /** The table of strings sent. */
+    private final Map<String, Integer> sent = new HashMap<>();
+
+    /** The table of strings received. */
+    private final List<String> received = new ArrayList<>();
+
+
+    /**
+     * Encode an element as a binary frame.
+     *
+     * Not thread safe, callers must serialize encoding.
+     *
+     * @param element The {@code Element} to encode.
+     * @param compress If true, compress large payloads.
+     * @return The encoded frame.
+     */
+    public byte[] encode(Element element, boolean compress) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(1024);
+        writeElement(payload, element);
+        int flags = 0;
+        if (compress && payload.size() > COMPRESS_THRESHOLD) {
+            ByteArrayOutputStream deflated
+                = new ByteArrayOutputStream(payload.size() / 2);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DeflaterOutputStream dos
+                = new DeflaterOutputStream(deflated, deflater)) {
+                payload.writeTo(dos);
+            } catch (IOException ioe) {
+                throw new RuntimeException("Deflate failed", ioe); // Can not happen
+            } finally {
+                deflater.end();
+            }
+            payload = deflated;
+            flags |= FLAG_COMPRESSED;
+        }
+        final byte[] body = payload.toByteArray();
+        final int n = body.length;
+        byte[] frame = new byte[HEADER_SIZE + n];
+        frame[0] = (byte)FRAME_MARKER;
+        frame[1] = (byte)flags;
+        frame[2] = (byte)(n >>> 24);
+        frame[3] = (byte)(n >>> 16);
+        frame[4] = (byte)(n >>> 8);
+        frame[5] = (byte)n;
+        System.arraycopy(body, 0, frame, HEADER_SIZE, n);
+        return frame;
+    }
+
+    /**
+     * Gets the payload length from a frame header.
+     *
+     * @param header The frame header.
+     * @return The payload length.
+     * @exception IOException if the header is invalid.
+     */
+    public static int getPayloadLength(byte[] header) throws IOException {
+        if ((header[0] & 0xff) != FRAME_MARKER) {
+            throw new IOException("Not a binary frame: " + header[0]);
+        }
+        int n = ((header[2] & 0xff) << 24) | ((header[3] & 0xff) << 16)
+            | ((header[4] & 0xff) << 8) | (header[5] & 0xff);
+        if (n < 0 || n > MAXIMUM_PAYLOAD) {
+            throw new IOException("Bad binary frame length: " + n);
+        }
+        return n;
+    }
+
+    /**
+     * Decode a binary frame.
+     *
+     * Not thread safe, callers must serialize decoding.
+     *
+     * @param header The frame header.
+     * @param payload The frame payload.
+     * @return The decoded {@code Element}.
+     * @exception IOException if the frame is invalid.
+     */
+    public Element decode(byte[] header, byte[] payload) throws IOException {
+        InputStream is = new ByteArrayInputStream(payload);
+        if ((header[1] & FLAG_COMPRESSED) != 0) {
+            is = new InflaterInputStream(is);
+        }
+        try (DataInputStream dis = new DataInputStream(is)) {
+            Document doc = DOMMessage.createNewDocument();
+            Element root = readElement(dis, doc);
+            doc.appendChild(root);
+            return root;
+        }
+    }
+
+    /**
+     * Write an unsigned variable length integer.
+     *
+     * @param out The stream to write to.
+     * @param n The integer to write.
+     */
+    private static void writeInt(ByteArrayOutputStream out, int n) {
+        while ((n & ~0x7f) != 0) {
+            out.write((n & 0x7f) | 0x80);
+            n >>>= 7;
+        }
+        out.write(n);
+    }
+
+    /**
+     * Read an unsigned variable length integer.
+     *
+     * @param in The stream to read from.
+     * @return The integer read.
+     * @exception IOException if the stream ends or the value is bogus.
+     */
+    private static int readInt(DataInputStream in) throws IOException {
+        int n = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            n |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (n < 0) break;
+                return n;
+            }
+        }
+        throw new IOException("Bad integer in binary frame");
+    }
+
+    /**
+     * Write a string, using the table if possible.
+     *
+     * @param out The stream to write to.
+     * @param s The string to write.
+     * @param table If true, the string may be added to the table.
+     */
+    private void writeString(ByteArrayOutputStream out, String s,
+                             boolean table) {
+        Integer index = this.sent.get(s);
+        if (index != null) {
+            writeInt(out, index + STRING_NEW + 1);
+            return;
+        }
+        if (table && this.sent.size() < MAXIMUM_TABLE_SIZE) {
+            this.sent.put(s, this.sent.size());
+            writeInt(out, STRING_NEW);
+        } else {
+            writeInt(out, STRING_LITERAL);
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Read a string.
+     *
+     * @param in The stream to read from.
+     * @return The string read.
+     * @exception IOException if the stream is invalid.
+     */
+    private String readString(DataInputStream in) throws IOException {
+        final int code = readInt(in);
+        if (code > STRING_NEW) {
+            final int index = code - STRING_NEW - 1;
+            if (index >= this.received.size()) {
+                throw new IOException("Bad string index: " + index);
+            }
+            return this.received.get(index);
+        }
+        final int len = readInt(in);
+        if (len > MAXIMUM_PAYLOAD) {
+            throw new IOException("Bad string length: " + len);
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        if (code == STRING_NEW) this.received.add(s);
+        return s;
+    }
+
+    /**
+     * Write an element.
+     *
+     * @param out The stream to write to.
+     * @param element The {@code Element} to write.
+     */
+    private void writeElement(ByteArrayOutputStream out, Element element) {
+        writeString(out, element.getTagName(), true);
+        NamedNodeMap attributes = element.getAttributes();
+        final int n = attributes.getLength();
+        writeInt(out, n);
+        for (int i = 0; i < n; i++) {
+            Node a = attributes.item(i);
+            String value = a.getNodeValue();
+            writeString(out, a.getNodeName(), true);
+            writeString(out, value, value.length() < TABLE_VALUE_LENGTH);
+        }
+        int count = 0;
+        for (Node c = element.getFirstChild(); c != null;
+             c = c.getNextSibling()) {
+            if (isWritten(c)) count++;
+        }
+        writeInt(out, count);
+        for (Node c = element.getFirstChild(); c != null;
+             c = c.getNextSibling()) {
+            if (!isWritten(c)) continue;
+            if (c.getNodeType() == Node.ELEMENT_NODE) {
+                out.write(NODE_ELEMENT);
+                writeElement(out, (Element)c);
+            } else {
+                out.write(NODE_TEXT);
+                writeString(out, c.getNodeValue(), false);
+            }
+        }
+    }
+
+    /**
+     * Is a node sent?  Only elements and text are.
+     *
+     * @param node The {@code Node} to check.
+     * @return True if the node is written.
+     */
+    private static boolean isWritten(Node node) {
+        switch (node.getNodeType()) {
+        case Node.ELEMENT_NODE: case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Read an element.
+     *
+     * @param in The stream to read from.
+     * @param doc The {@code Document} to create the element in.
+     * @return The element read.
+     * @exception IOException if the stream is invalid.
+     */
+    private Element readElement(DataInputStream in, Document doc)
+        throws IOException {
+        Element element = doc.createElement(readString(in));
+        int n = readInt(in);
+        while (n-- > 0) {
+            String name = readString(in);
+            element.setAttribute(name, readString(in));
+        }
+        n = readInt(in);
+        while (n-- > 0) {
+            switch (in.readUnsignedByte()) {
+            case NODE_ELEMENT:
+                element.appendChild(readElement(in, doc));
+                break;
+            case NODE_TEXT:
+                element.appendChild(doc.createTextNode(readString(in)));
+                break;
+            default:
+                throw new IOException("Bad node type in binary frame");
+            }
+        }
+        return element;
+    }
+}
@@ -19,18 +19,26 @@
 
 package net.sf.freecol.common.networking;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.dom.DOMSource;
@@ -38,11 +46,15 @@ import javax.xml.transform.stream.StreamResult;
 
 import net.sf.freecol.common.FreeColException;
 import net.sf.freecol.common.debug.FreeColDebugger;
+import net.sf.freecol.common.io.FreeColXMLReader;
 import net.sf.freecol.common.model.Game;
 import net.sf.freecol.common.model.StringTemplate;
 import net.sf.freecol.common.util.Utils;
 
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
 
 
 /**
@@ -68,14 +80,48 @@ public class Connection implements Closeable {
 
     private static final int TIMEOUT = 5000; // 5s
 
+    /** The formats messages can be sent in. */
+    public static enum WireFormat {
+        XML,        // Line delimited XML, always understood
+        BINARY,     // Binary frames, see BinaryCodec
+        COMPRESSED; // Binary frames, deflated if large
+
+        /**
+         * Get a wire format by name, defaulting to XML.
+         *
+         * @param name The name of the format, case insensitive.
+         * @return The corresponding {@code WireFormat}.
+         */
+        public static WireFormat fromString(String name) {
+            for (WireFormat wf : values()) {
+                if (wf.toString().equalsIgnoreCase(name)) return wf;
+            }
+            return XML;
+        }
+    }
+
     private InputStream in;
 
     private Socket socket;
 
-    /** The transformer for output, also used as a lock for out. */
-    private final Transformer outTransformer;
+    /** A lock for out and outWriter. */
+    private final Object outLock = new Object();
     /** The output stream to write to. */
     private OutputStream out;
+    /** A buffered UTF-8 writer for the output stream. */
+    private Writer outWriter;
+    /** The format to send messages in. */
+    private WireFormat wireFormat = WireFormat.XML;
+    /**
+     * Are incoming XML messages read straight from the stream, rather
+     * than parsed into DOM first?
+     */
+    private volatile boolean streaming = false;
+    /** The binary encoder and decoder. */
+    private final BinaryCodec codec = new BinaryCodec();
+    /** Bytes sent and received. */
+    private final AtomicLong bytesSent = new AtomicLong(0L),
+                             bytesReceived = new AtomicLong(0L);
 
     private ReceivingThread receivingThread;
 
@@ -96,11 +142,11 @@ public class Connection implements Closeable {
      */
     protected Connection(String name) {
         this.name = name;
-        this.outTransformer = Utils.makeTransformer(false, false);
 
         this.in = null;
         this.socket = null;
         this.out = null;
+        this.outWriter = null;
         this.receivingThread = null;
         this.messageHandler = null;
 
@@ -129,7 +175,21 @@ public class Connection implements Closeable {
 
         this.socket = socket;
         this.in = socket.getInputStream();
-        this.out = socket.getOutputStream();
+        this.out = new FilterOutputStream(socket.getOutputStream()) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    bytesSent.incrementAndGet();
+                }
+                @Override
+                public void write(byte[] b, int off, int len)
+                    throws IOException {
+                    out.write(b, off, len);
+                    bytesSent.addAndGet(len);
+                }
+            };
+        this.outWriter = new BufferedWriter(new OutputStreamWriter(this.out,
+                StandardCharsets.UTF_8), BUFFER_SIZE);
         this.receivingThread = new ReceivingThread(this, this.in, name);
         this.messageHandler = messageHandler;
 
@@ -187,7 +247,7 @@ public class Connection implements Closeable {
      * Close and clear the output stream.
      */
     private void closeOutputStream() {
-        synchronized (this.outTransformer) {
+        synchronized (this.outLock) {
             if (this.out == null) return;
             try {
                 this.out.close();
@@ -195,6 +255,7 @@ public class Connection implements Closeable {
                 logger.log(Level.WARNING, "Error closing output", ioe);
             } finally {
                 this.out = null;
+                this.outWriter = null;
             }
         }
     }
@@ -268,6 +329,120 @@ public class Connection implements Closeable {
         return this.name;
     }
 
+    /**
+     * Gets the format messages are sent in.
+     *
+     * @return The current {@code WireFormat}.
+     */
+    public WireFormat getWireFormat() {
+        synchronized (this.outLock) {
+            return this.wireFormat;
+        }
+    }
+
+    /**
+     * Sets the format to send messages in.  Only formats the other
+     * end has agreed to at login may be used.  Messages in any format
+     * are always accepted.
+     *
+     * @param wireFormat The new {@code WireFormat}.
+     */
+    public void setWireFormat(WireFormat wireFormat) {
+        synchronized (this.outLock) {
+            this.wireFormat = (wireFormat == null) ? WireFormat.XML
+                : wireFormat;
+        }
+    }
+
+    /**
+     * Are incoming XML messages read straight from the stream?
+     *
+     * @return True if streaming.
+     */
+    public boolean isStreaming() {
+        return this.streaming;
+    }
+
+    /**
+     * Sets whether incoming XML messages are read straight from the
+     * stream.  Like the wire format, this is agreed at login.
+     *
+     * @param streaming The new streaming state.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Gets the number of bytes sent on this connection.
+     *
+     * @return The byte count.
+     */
+    public long getBytesSent() {
+        return this.bytesSent.get();
+    }
+
+    /**
+     * Gets the number of bytes received on this connection.
+     *
+     * @return The byte count.
+     */
+    public long getBytesReceived() {
+        return this.bytesReceived.get();
+    }
+
+    /**
+     * Count bytes sent or received.
+     *
+     * @param sent True if the bytes were sent, false if received.
+     * @param n The number of bytes.
+     */
+    protected void countBytes(boolean sent, long n) {
+        ((sent) ? this.bytesSent : this.bytesReceived).addAndGet(n);
+    }
+
+    /**
+     * Gets the number of received messages that have not yet been
+     * completely handled.
+     *
+     * @return The message queue depth.
+     */
+    public int getQueueDepth() {
+        return (this.receivingThread == null) ? 0
+            : this.receivingThread.getDispatcher().getQueueDepth();
+    }
+
+    /**
+     * Gets the number of received messages that have been handled.
+     *
+     * @return The handled message count.
+     */
+    public long getHandledCount() {
+        return (this.receivingThread == null) ? 0L
+            : this.receivingThread.getDispatcher().getHandledCount();
+    }
+
+    /**
+     * Gets the mean time taken to handle a received message,
+     * including any time spent waiting to be handled.
+     *
+     * @return The mean handling latency in milliseconds.
+     */
+    public double getMeanLatency() {
+        return (this.receivingThread == null) ? 0.0
+            : this.receivingThread.getDispatcher().getMeanLatency();
+    }
+
+    /**
+     * Gets the longest time taken to handle a received message.
+     *
+     * @return The maximum handling latency in milliseconds.
+     */
+    public double getMaximumLatency() {
+        return (this.receivingThread == null) ? 0.0
+            : this.receivingThread.getDispatcher().getMaximumLatency();
+    }
+
     /**
      * Close this connection.
      */
@@ -346,15 +521,161 @@ public class Connection implements Closeable {
      * @exception IOException If an error occur while sending the message.
      */
     private void sendInternal(Element element) throws IOException {
-        synchronized (this.outTransformer) {
-            if (this.out == null) return;
-            StringWriter sw = elementToStringWriter(this.outTransformer, element);
-            if (sw == null) return;
-            this.out.write(sw.toString().getBytes("UTF-8"));
-            this.out.flush();
+        synchronized (this.outLock) {
+            if (this.outWriter == null) return;
+            if (this.wireFormat == WireFormat.XML) {
+                writeElement(this.outWriter, element);
+                this.outWriter.write(END_OF_STREAM);
+                this.outWriter.flush();
+            } else {
+                this.out.write(this.codec.encode(element,
+                        this.wireFormat == WireFormat.COMPRESSED));
+                this.out.flush();
+            }
         }
     }
 
+    /**
+     * Encode a message in the current wire format.
+     *
+     * @param element The {@code Element} to encode.
+     * @return The encoded message.
+     * @exception IOException if the encoding fails.
+     */
+    protected byte[] encodeMessage(Element element) throws IOException {
+        synchronized (this.outLock) {
+            if (this.wireFormat != WireFormat.XML) {
+                return this.codec.encode(element,
+                    this.wireFormat == WireFormat.COMPRESSED);
+            }
+            StringWriter sw = new StringWriter(BUFFER_SIZE);
+            writeElement(sw, element);
+            sw.write(END_OF_STREAM);
+            return sw.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Decode a message in any wire format.
+     *
+     * Must be called in the order the messages were encoded.
+     *
+     * @param bytes The encoded message.
+     * @return The decoded {@code Element}.
+     * @exception IOException if the message is invalid.
+     */
+    protected Element decodeMessage(byte[] bytes) throws IOException {
+        if (bytes.length > 0 && bytes[0] == BinaryCodec.FRAME_MARKER) {
+            final int h = BinaryCodec.HEADER_SIZE;
+            byte[] header = Arrays.copyOf(bytes, h);
+            if (BinaryCodec.getPayloadLength(header) != bytes.length - h) {
+                throw new IOException("Binary frame length mismatch");
+            }
+            return decodeFrame(header, Arrays.copyOfRange(bytes, h,
+                                                          bytes.length));
+        }
+        try {
+            int n = bytes.length;
+            if (n > 0 && bytes[n-1] == END_OF_STREAM) n--;
+            return new DOMMessage(new ByteArrayInputStream(bytes, 0, n))
+                .toXMLElement();
+        } catch (SAXException se) {
+            throw new IOException("Bad XML message", se);
+        }
+    }
+
+    /**
+     * Decode a binary frame received on this connection.
+     *
+     * @param header The frame header.
+     * @param payload The frame payload.
+     * @return The decoded {@code Element}.
+     * @exception IOException if the frame is invalid.
+     */
+    Element decodeFrame(byte[] header, byte[] payload) throws IOException {
+        return this.codec.decode(header, payload);
+    }
+
+    /**
+     * Stream an element to a writer as XML.
+     *
+     * This replaces a {@code Transformer}, avoiding its set up cost
+     * and the intermediate string for every message.  Line breaks are
+     * always escaped, as an unescaped {@link #END_OF_STREAM} would
+     * end the message.
+     *
+     * @param writer The {@code Writer} to write to.
+     * @param element The {@code Element} to write.
+     * @exception IOException if the write fails.
+     */
+    static void writeElement(Writer writer, Element element)
+        throws IOException {
+        writer.write('<');
+        writer.write(element.getTagName());
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node a = attributes.item(i);
+            writer.write(' ');
+            writer.write(a.getNodeName());
+            writer.write("=\"");
+            writeEscaped(writer, a.getNodeValue(), true);
+            writer.write('"');
+        }
+        Node child = element.getFirstChild();
+        if (child == null) {
+            writer.write("/>");
+            return;
+        }
+        writer.write('>');
+        for (; child != null; child = child.getNextSibling()) {
+            switch (child.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                writeElement(writer, (Element)child);
+                break;
+            case Node.TEXT_NODE: case Node.CDATA_SECTION_NODE:
+                writeEscaped(writer, child.getNodeValue(), false);
+                break;
+            default: // Comments, processing instructions are not sent
+                break;
+            }
+        }
+        writer.write("</");
+        writer.write(element.getTagName());
+        writer.write('>');
+    }
+
+    /**
+     * Write a string to a writer escaping XML special characters.
+     *
+     * @param writer The {@code Writer} to write to.
+     * @param value The string to write.
+     * @param attribute True if this is an attribute value.
+     * @exception IOException if the write fails.
+     */
+    private static void writeEscaped(Writer writer, String value,
+                                     boolean attribute) throws IOException {
+        final int len = value.length();
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+            String rep;
+            switch (value.charAt(i)) {
+            case '&':  rep = "&amp;"; break;
+            case '<':  rep = "&lt;"; break;
+            case '>':  rep = "&gt;"; break;
+            case '\n': rep = "&#10;"; break;
+            case '\r': rep = "&#13;"; break;
+            case '"':  rep = (attribute) ? "&quot;" : null; break;
+            case '\t': rep = (attribute) ? "&#9;" : null; break;
+            default:   rep = null; break;
+            }
+            if (rep == null) continue;
+            writer.write(value, start, i - start);
+            writer.write(rep);
+            start = i + 1;
+        }
+        writer.write(value, start, len - start);
+    }
+
     /**
      * Low level routine to sends a message and return the reply.
      *
@@ -525,6 +846,62 @@ public class Connection implements Closeable {
         if (reply != null) send(reply);
     }
 
+    /**
+     * Handle a query read straight from the stream, and send a reply.
+     *
+     * @param bytes The bytes of the message, a question wrapping the query.
+     * @param replyId The reply id.
+     * @exception FreeColException if there is a handler problem.
+     * @exception IOException if sending fails.
+     * @exception XMLStreamException if the message can not be read.
+     */
+    public void handleQuery(byte[] bytes, int replyId)
+        throws FreeColException, IOException, XMLStreamException {
+        Element reply = handle(bytes);
+        DOMMessage msg = new DOMMessage(REPLY_TAG,
+            NETWORK_REPLY_ID_TAG, Integer.toString(replyId));
+        if (reply != null) msg.add(reply);
+        send(msg);
+    }
+
+    /**
+     * Handle an ordinary message read straight from the stream, and
+     * if the response is non-null send it.
+     *
+     * @param bytes The bytes of the message.
+     * @exception FreeColException if there is a handler problem.
+     * @exception IOException if sending fails.
+     * @exception XMLStreamException if the message can not be read.
+     */
+    public void handleUpdate(byte[] bytes)
+        throws FreeColException, IOException, XMLStreamException {
+        Element reply = handle(bytes);
+        if (reply != null) send(reply);
+    }
+
+    /**
+     * Handle a message read straight from the stream.  Questions
+     * are unwrapped, and the query they contain is handled.
+     *
+     * @param bytes The bytes of the message.
+     * @return The reply from the message handler.
+     * @exception FreeColException if there is trouble with the response.
+     * @exception IOException if the message can not be read.
+     * @exception XMLStreamException if the message can not be read.
+     */
+    public Element handle(byte[] bytes)
+        throws FreeColException, IOException, XMLStreamException {
+        if (this.messageHandler == null) return null;
+        try (
+            FreeColXMLReader xr
+                = new FreeColXMLReader(new ByteArrayInputStream(bytes));
+        ) {
+            xr.nextTag();
+            if (xr.atTag(QUESTION_TAG)) xr.nextTag();
+            return this.messageHandler.handle(this, xr);
+        }
+    }
+
     /**
      * Handle a request.
      *
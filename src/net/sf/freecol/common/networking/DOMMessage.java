@@ -37,6 +37,7 @@ import java.util.logging.Logger;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -60,6 +61,7 @@ import net.sf.freecol.server.control.ChangeSet;
 import net.sf.freecol.server.model.ServerPlayer;
     
 import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
@@ -104,6 +106,15 @@ public class DOMMessage {
         this.document = createDocument(tag);
     }
         
+    /**
+     * Create a DOMMessage wrapping an existing document.
+     *
+     * @param document The {@code Document} containing the message.
+     */
+    DOMMessage(Document document) {
+        this.document = document;
+    }
+
     /**
      * Constructs a new DOMMessage with data from the given InputStream. The
      * constructor to use if this is an INCOMING message.
@@ -372,7 +383,11 @@ public class DOMMessage {
     }
 
     public DOMMessage add(Element e) {
-        if (e != null) getElement().appendChild(this.document.importNode(e, true));
+        if (e == null) return this;
+        // Elements already made for this document need not be copied
+        getElement().appendChild((e.getOwnerDocument() == this.document
+                && e.getParentNode() == null) ? e
+            : this.document.importNode(e, true));
         return this;
     }
     public DOMMessage add(FreeColObject fco) {
@@ -1008,10 +1023,12 @@ public class DOMMessage {
      */
     private static Element toXMLElement(FreeColObject fco, Document document,
                                         WriteScope writeScope, String[] fields) {
-        StringWriter sw = new StringWriter();
+        // Write straight into the document, without serializing
+        // the object to a string and parsing it again.
+        DocumentFragment fragment = document.createDocumentFragment();
         FreeColXMLWriter xw = null;
         try {
-            xw = new FreeColXMLWriter(sw, writeScope);
+            xw = FreeColXMLWriter.domWriter(fragment, writeScope);
         } catch (IOException ioe) {
             logger.log(Level.WARNING, "Error creating FreeColXMLWriter,", ioe);
             return null;
@@ -1032,17 +1049,63 @@ public class DOMMessage {
                         + "] failed on " + fco, xse);
                 }
             }
-            DocumentBuilderFactory factory
-                = DocumentBuilderFactory.newInstance();
-            Document tempDocument = null;
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            tempDocument = builder.parse(new InputSource(new StringReader(sw.toString())));
-            return (Element)document.importNode(tempDocument.getDocumentElement(), true);
-        } catch (IOException|ParserConfigurationException|SAXException ex) {
-            throw new RuntimeException("Parse fail at " + fco, ex);
         } finally {
             xw.close();
         }
+        return (Element)fragment.removeChild(fragment.getFirstChild());
+    }
+
+    /**
+     * Read the element a stream is positioned at into a new document.
+     *
+     * This is the fallback for handlers that need a DOM element when
+     * a message is read straight from the input stream.
+     *
+     * @param xr The {@code FreeColXMLReader} to read from, positioned
+     *     at a start tag.  It is left at the matching end tag.
+     * @return The {@code Element} read.
+     * @exception XMLStreamException if there is a problem reading the stream.
+     */
+    public static Element readXMLElement(FreeColXMLReader xr)
+        throws XMLStreamException {
+        Document document = createNewDocument();
+        Element element = readXMLElement(document, xr);
+        document.appendChild(element);
+        return element;
+    }
+
+    /**
+     * Read the element a stream is positioned at.
+     *
+     * @param document The {@code Document} to create the element in.
+     * @param xr The {@code FreeColXMLReader} to read from.
+     * @return The {@code Element} read.
+     * @exception XMLStreamException if there is a problem reading the stream.
+     */
+    private static Element readXMLElement(Document document,
+                                          FreeColXMLReader xr)
+        throws XMLStreamException {
+        Element element = document.createElement(xr.getLocalName());
+        for (int i = 0; i < xr.getAttributeCount(); i++) {
+            element.setAttribute(xr.getAttributeLocalName(i),
+                                 xr.getAttributeValue(i));
+        }
+        for (;;) {
+            switch (xr.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                element.appendChild(readXMLElement(document, xr));
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                element.appendChild(document.createTextNode(xr.getText()));
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                return element;
+            default:
+                break;
+            }
+        }
     }
 
     /**
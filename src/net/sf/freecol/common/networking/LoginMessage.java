@@ -47,8 +47,10 @@ public class LoginMessage extends DOMMessage {
     private static final String CURRENT_PLAYER_TAG = "currentPlayer";
     private static final String SINGLE_PLAYER_TAG = "singlePlayer";
     private static final String STATE_TAG = "state";
+    private static final String STREAMING_TAG = "streaming";
     private static final String USER_NAME_TAG = "userName";
     private static final String VERSION_TAG = "version";
+    private static final String WIRE_FORMAT_TAG = "wireFormat";
     
     /** The user name. */
     private final String userName;
@@ -68,6 +70,15 @@ public class LoginMessage extends DOMMessage {
     /** The game. */
     private final Game game;
 
+    /** The wire format requested by the client, or agreed by the server. */
+    private final Connection.WireFormat wireFormat;
+
+    /**
+     * Whether the client asks to, or the server agrees to, read
+     * messages straight from the stream.
+     */
+    private final boolean streaming;
+
         
     /**
      * Create a new {@code LoginMessage} with the supplied parameters.
@@ -78,9 +89,13 @@ public class LoginMessage extends DOMMessage {
      * @param singlePlayer True in single player games.
      * @param currentPlayer True if this player is the current player.
      * @param game The entire game.
+     * @param wireFormat The {@code WireFormat} to use.
+     * @param streaming True if messages are to be read straight from
+     *     the stream.
      */
     public LoginMessage(String userName, String version, ServerState state,
-                        boolean singlePlayer, boolean currentPlayer, Game game) {
+                        boolean singlePlayer, boolean currentPlayer, Game game,
+                        Connection.WireFormat wireFormat, boolean streaming) {
         super(TAG);
 
         this.userName = userName;
@@ -89,6 +104,8 @@ public class LoginMessage extends DOMMessage {
         this.singlePlayer = singlePlayer;
         this.currentPlayer = currentPlayer;
         this.game = game;
+        this.wireFormat = wireFormat;
+        this.streaming = streaming;
     }
 
     /**
@@ -104,7 +121,10 @@ public class LoginMessage extends DOMMessage {
                               ServerState.class, (ServerState)null),
              getBooleanAttribute(e, SINGLE_PLAYER_TAG, true),
              getBooleanAttribute(e, CURRENT_PLAYER_TAG, false),
-             getChild(game, e, 0, Game.class));
+             getChild(game, e, 0, Game.class),
+             Connection.WireFormat.fromString(getStringAttribute(e,
+                     WIRE_FORMAT_TAG)),
+             getBooleanAttribute(e, STREAMING_TAG, false));
     }
 
 
@@ -134,6 +154,14 @@ public class LoginMessage extends DOMMessage {
         return this.game;
     }
 
+    public Connection.WireFormat getWireFormat() {
+        return this.wireFormat;
+    }
+
+    public boolean getStreaming() {
+        return this.streaming;
+    }
+
     /**
      * Get the player (if any) with the current name in a given game.
      *
@@ -211,12 +239,7 @@ public class LoginMessage extends DOMMessage {
 
             // Add the connection, send back the game
             freeColServer.addPlayerConnection(conn);
-            return ChangeSet.simpleChange(serverPlayer,
-                new LoginMessage(this.userName, this.version,
-                                 freeColServer.getServerState(),
-                                 freeColServer.getSinglePlayer(),
-                                 game.getCurrentPlayer() == serverPlayer,
-                                 game));
+            return accept(freeColServer, conn, serverPlayer, game);
 
         case LOAD_GAME:
             if (FreeColServer.MAP_EDITOR_NAME.equals(this.userName)) {
@@ -254,11 +277,7 @@ public class LoginMessage extends DOMMessage {
 
             // Add the connection, send back the game
             freeColServer.addPlayerConnection(conn);
-            return ChangeSet.simpleChange(present,
-                new LoginMessage(this.userName, this.version,
-                                 freeColServer.getServerState(),
-                                 freeColServer.getSinglePlayer(),
-                                 game.getCurrentPlayer() == present, game));
+            return accept(freeColServer, conn, present, game);
 
         case IN_GAME:
             game = freeColServer.getGame(); // Restoring from existing game.
@@ -294,11 +313,7 @@ public class LoginMessage extends DOMMessage {
 
             // Add the connection, send back the game
             freeColServer.addPlayerConnection(conn);
-            return ChangeSet.simpleChange(present,
-                new LoginMessage(this.userName, this.version,
-                                 freeColServer.getServerState(),
-                                 freeColServer.getSinglePlayer(),
-                                 game.getCurrentPlayer() == present, game));
+            return accept(freeColServer, conn, present, game);
             
         case END_GAME: default:
             break;
@@ -306,6 +321,32 @@ public class LoginMessage extends DOMMessage {
         return null; // Bogus, do nothing
     }
 
+    /**
+     * Accept a login, switching to the requested wire format.  The
+     * reply is already sent in the new format, which the client
+     * accepts as it asked for it.  If the client asked to stream,
+     * this end also reads its messages straight from the stream,
+     * and says so in the reply.  Older clients do not ask, and
+     * older servers do not reply, so both ends stay with DOM.
+     *
+     * @param freeColServer The {@code FreeColServer} handling the login.
+     * @param conn The {@code Connection} the login arrived on.
+     * @param player The {@code ServerPlayer} that logged in.
+     * @param game The {@code Game} to send to the player.
+     * @return A {@code ChangeSet} containing the reply.
+     */
+    private ChangeSet accept(FreeColServer freeColServer, Connection conn,
+                             ServerPlayer player, Game game) {
+        conn.setWireFormat(this.wireFormat);
+        conn.setStreaming(this.streaming);
+        return ChangeSet.simpleChange(player,
+            new LoginMessage(this.userName, this.version,
+                             freeColServer.getServerState(),
+                             freeColServer.getSinglePlayer(),
+                             game.getCurrentPlayer() == player, game,
+                             conn.getWireFormat(), conn.isStreaming()));
+    }
+
     /**
      * Convert this LoginMessage to XML.
      *
@@ -316,12 +357,17 @@ public class LoginMessage extends DOMMessage {
         Player player = (this.game == null || this.userName == null) ? null
             : this.game.getPlayerByName(this.userName);
         String state = (this.state == null) ? "" : this.state.toString();
+        String wire = (this.wireFormat == null
+            || this.wireFormat == Connection.WireFormat.XML) ? null
+            : this.wireFormat.toString();
         return new DOMMessage(TAG,
             USER_NAME_TAG, this.userName,
             VERSION_TAG, this.version,
             STATE_TAG, state,
             SINGLE_PLAYER_TAG, Boolean.toString(this.singlePlayer),
-            CURRENT_PLAYER_TAG, Boolean.toString(this.currentPlayer))
+            CURRENT_PLAYER_TAG, Boolean.toString(this.currentPlayer),
+            WIRE_FORMAT_TAG, wire,
+            STREAMING_TAG, (this.streaming) ? Boolean.toString(true) : null)
             .add(this.game, player)
             .toXMLElement();
     }
@@ -0,0 +1,241 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.networking;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sf.freecol.FreeCol;
+
+
+/**
+ * Runs the handlers for the messages received on a connection.
+ *
+ * The handlers run on a thread pool shared by all connections, rather
+ * than on a new thread per message.  Queries are independent and may
+ * run concurrently, but the updates received on a connection are
+ * handled one at a time in the order they arrived.
+ *
+ * The pool is bounded by {@link FreeCol#getMessageThreads}, or if
+ * that is zero grows as needed, reusing idle threads.  Beware that
+ * handlers may block waiting for replies, so a small bound can stall
+ * the game.
+ */
+final class MessageDispatcher {
+
+    private static final Logger logger = Logger.getLogger(MessageDispatcher.class.getName());
+
+    /** The pool to run handlers on, shared by all connections. */
+    private static ExecutorService pool = null;
+
+    /** Counter to name the pool threads. */
+    private static final AtomicInteger threadCount = new AtomicInteger(0);
+
+    /** The name of the connection, used to name the handler threads. */
+    private final String name;
+
+    /** Updates waiting for the previous update to complete. */
+    private final ArrayDeque<Runnable> updates = new ArrayDeque<>();
+
+    /** Is an update being handled? */
+    private boolean updating = false;
+
+    /** The number of messages received but not yet completely handled. */
+    private final AtomicInteger pending = new AtomicInteger(0);
+
+    /** Handling statistics, times in nanoseconds. */
+    private long handled = 0, totalLatency = 0, maximumLatency = 0;
+
+
+    /**
+     * Create a new message dispatcher.
+     *
+     * @param name The name of the connection to dispatch for.
+     */
+    public MessageDispatcher(String name) {
+        this.name = name;
+    }
+
+
+    /**
+     * Gets the handler pool, creating it if needed.
+     *
+     * @return The {@code ExecutorService} to run handlers on.
+     */
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            final int n = FreeCol.getMessageThreads();
+            ThreadFactory factory = r -> {
+                Thread t = new Thread(r, "MessageHandler-"
+                    + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            pool = (n > 0) ? Executors.newFixedThreadPool(n, factory)
+                : Executors.newCachedThreadPool(factory);
+        }
+        return pool;
+    }
+
+    /**
+     * Handle a query.  Queries may be handled concurrently with any
+     * other message.
+     *
+     * @param tag The message tag, used to name the handler thread.
+     * @param handler The {@code Runnable} handler.
+     */
+    public void dispatchQuery(String tag, Runnable handler) {
+        submit(tag, handler, false);
+    }
+
+    /**
+     * Handle an update.  Updates are handled in order of arrival,
+     * and each must complete before the next starts.
+     *
+     * @param tag The message tag, used to name the handler thread.
+     * @param handler The {@code Runnable} handler.
+     */
+    public void dispatchUpdate(String tag, Runnable handler) {
+        synchronized (this.updates) {
+            if (this.updating) {
+                this.pending.incrementAndGet();
+                final long start = System.nanoTime();
+                this.updates.add(() -> run(tag, handler, start, true));
+                return;
+            }
+            this.updating = true;
+        }
+        submit(tag, handler, true);
+    }
+
+    /**
+     * Submit a handler to the pool.
+     *
+     * @param tag The message tag.
+     * @param handler The {@code Runnable} handler.
+     * @param update True if this is an update.
+     */
+    private void submit(String tag, Runnable handler, boolean update) {
+        this.pending.incrementAndGet();
+        final long start = System.nanoTime();
+        getPool().execute(() -> run(tag, handler, start, update));
+    }
+
+    /**
+     * Run a handler, recording its latency, and if it is an update
+     * start the next waiting update.
+     *
+     * @param tag The message tag.
+     * @param handler The {@code Runnable} handler.
+     * @param start The time the message was received.
+     * @param update True if this is an update.
+     */
+    private void run(String tag, Runnable handler, long start,
+                     boolean update) {
+        final Thread thread = Thread.currentThread();
+        final String oldName = thread.getName();
+        thread.setName(this.name + "-MessageHandler-" + tag);
+        try {
+            handler.run();
+        } catch (RuntimeException re) {
+            logger.log(Level.WARNING, "Handler for " + tag + " crashed", re);
+        } finally {
+            thread.setName(oldName);
+            this.pending.decrementAndGet();
+            final long latency = System.nanoTime() - start;
+            synchronized (this) {
+                this.handled++;
+                this.totalLatency += latency;
+                if (latency > this.maximumLatency) {
+                    this.maximumLatency = latency;
+                }
+            }
+            if (update) {
+                Runnable next;
+                synchronized (this.updates) {
+                    next = this.updates.poll();
+                    if (next == null) this.updating = false;
+                }
+                if (next != null) getPool().execute(next);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of messages received but not yet completely
+     * handled.
+     *
+     * @return The queue depth.
+     */
+    public int getQueueDepth() {
+        return this.pending.get();
+    }
+
+    /**
+     * Gets the number of messages handled.
+     *
+     * @return The handled message count.
+     */
+    public synchronized long getHandledCount() {
+        return this.handled;
+    }
+
+    /**
+     * Gets the mean time from receiving a message to completing its
+     * handler.
+     *
+     * @return The mean latency in milliseconds.
+     */
+    public synchronized double getMeanLatency() {
+        return (this.handled == 0) ? 0.0
+            : this.totalLatency / (this.handled * 1000000.0);
+    }
+
+    /**
+     * Gets the longest time from receiving a message to completing
+     * its handler.
+     *
+     * @return The maximum latency in milliseconds.
+     */
+    public synchronized double getMaximumLatency() {
+        return this.maximumLatency / 1000000.0;
+    }
+
+
+    // Override Object
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString() {
+        return "[MessageDispatcher " + this.name
+            + " pending=" + this.pending.get()
+            + " handled=" + this.handled
+            + " mean=" + String.format("%.2f", getMeanLatency())
+            + "ms max=" + String.format("%.2f", getMaximumLatency())
+            + "ms]";
+    }
+}
@@ -20,7 +20,10 @@
 
 package net.sf.freecol.common.networking;
 
+import javax.xml.stream.XMLStreamException;
+
 import net.sf.freecol.common.FreeColException;
+import net.sf.freecol.common.io.FreeColXMLReader;
 
 import org.w3c.dom.Element;
 
@@ -40,4 +43,24 @@ public interface MessageHandler {
      */
     public Element handle(Connection connection, Element element)
         throws FreeColException;
+
+    /**
+     * Handles a message read straight from the input stream.
+     *
+     * By default the message is read into an element and handled by
+     * {@link #handle(Connection, Element)}.  Handlers override this to
+     * decode messages straight into the game without building a DOM.
+     *
+     * @param connection The {@code Connection} the message came from.
+     * @param xr The {@code FreeColXMLReader} to read from, positioned
+     *     at the start tag of the message.  It must be left at the
+     *     matching end tag.
+     * @return The reply (if any) or <i>null</i>.
+     * @throws FreeColException on error.
+     * @throws XMLStreamException if there is a problem reading the stream.
+     */
+    public default Element handle(Connection connection, FreeColXMLReader xr)
+        throws FreeColException, XMLStreamException {
+        return handle(connection, DOMMessage.readXMLElement(xr));
+    }
 }
@@ -20,6 +20,9 @@
 package net.sf.freecol.common.networking;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
@@ -33,6 +36,7 @@ import javax.xml.stream.XMLStreamException;
 import net.sf.freecol.common.FreeColException;
 import net.sf.freecol.common.io.FreeColXMLReader;
 
+import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 
 
@@ -58,6 +62,8 @@ final class ReceivingThread extends Thread {
 
         private final InputStream in;
 
+        private final Connection connection;
+
         private final byte[] buffer = new byte[Connection.BUFFER_SIZE];
 
         private final byte[] bb = new byte[1];
@@ -74,9 +80,12 @@ final class ReceivingThread extends Thread {
          * 
          * @param in The input stream in which this object should get the data
          *            from.
+         * @param connection The {@code Connection} to count bytes for.
          */
-        public FreeColNetworkInputStream(InputStream in) {
+        public FreeColNetworkInputStream(InputStream in,
+                                         Connection connection) {
             this.in = in;
+            this.connection = connection;
         }
 
         /**
@@ -104,9 +113,43 @@ final class ReceivingThread extends Thread {
 
             this.bStart = 0;
             this.bSize = r;
+            this.connection.countBytes(false, r);
             return true;
         }
 
+        /**
+         * Look at the next byte without consuming it.
+         *
+         * @return The next byte, or EOS_RESULT if the stream has ended.
+         * @exception IOException is thrown by the underlying read.
+         */
+        public int peek() throws IOException {
+            if (this.bSize == 0 && !fill()) return EOS_RESULT;
+            return this.buffer[this.bStart] & 0xff;
+        }
+
+        /**
+         * Read an exact number of bytes, ignoring message delimiters.
+         *
+         * @param b The buffer to put the data in.
+         * @param off The offset to use when writing the data.
+         * @param len The number of bytes to read.
+         * @exception IOException if the stream ends or the read fails.
+         */
+        public void readFully(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (this.bSize == 0 && !fill()) {
+                    throw new EOFException("End of stream in binary frame");
+                }
+                int n = Math.min(len, this.bSize);
+                System.arraycopy(this.buffer, this.bStart, b, off, n);
+                this.bStart += n;
+                this.bSize -= n;
+                off += n;
+                len -= n;
+            }
+        }
+
         /**
          * Reads a single byte.
          * 
@@ -154,6 +197,11 @@ final class ReceivingThread extends Thread {
         }
     }
 
+    /** The handling of a received message, which may fail. */
+    private interface MessageTask {
+        void run() throws FreeColException, IOException, XMLStreamException;
+    }
+
     /** Maximum number of retries before closing the connection. */
     private static final int MAXIMUM_RETRIES = 5;
 
@@ -167,6 +215,9 @@ final class ReceivingThread extends Thread {
     /** The connection to receive on. */
     private final Connection connection;
 
+    /** The dispatcher to handle the received messages. */
+    private final MessageDispatcher dispatcher;
+
     /** Whether the thread should run. */
     private boolean shouldRun;
 
@@ -186,8 +237,9 @@ final class ReceivingThread extends Thread {
                            String threadName) {
         super(threadName + "-ReceivingThread-" + connection);
 
-        this.in = new FreeColNetworkInputStream(in);
+        this.in = new FreeColNetworkInputStream(in, connection);
         this.connection = connection;
+        this.dispatcher = new MessageDispatcher(connection.getName());
         this.shouldRun = true;
         this.nextNetworkReplyId = 1;
     }
@@ -217,6 +269,15 @@ final class ReceivingThread extends Thread {
         return nro;
     }
 
+    /**
+     * Gets the dispatcher that handles the received messages.
+     *
+     * @return The {@code MessageDispatcher} for this thread.
+     */
+    public MessageDispatcher getDispatcher() {
+        return this.dispatcher;
+    }
+
     /**
      * Checks if this thread should run.
      *
@@ -259,6 +320,16 @@ final class ReceivingThread extends Thread {
     private void listen() throws IOException, SAXException, XMLStreamException {
         in.enable();
 
+        // Binary frames are recognized by their first byte.
+        if (in.peek() == BinaryCodec.FRAME_MARKER) {
+            listenBinary();
+            return;
+        }
+        if (this.connection.isStreaming()) {
+            listenStream();
+            return;
+        }
+
         // Open a rewindable stream
         final int LOOK_AHEAD = Connection.BUFFER_SIZE;
         BufferedInputStream bis = new BufferedInputStream(in, LOOK_AHEAD);
@@ -279,96 +350,191 @@ final class ReceivingThread extends Thread {
                 replyId = -1;
             }
 
-            // Respond to message according to tag, optionally defining a
-            // thread to start.
-            Thread t = null;
-            DOMMessage msg;
             switch (tag) {
-
             case DisconnectMessage.TAG:
                 // Disconnect at once if needed.
                 askToStop();
-                return;
+                break;
 
             case Connection.REPLY_TAG:
                 // A reply.  Look up its waiting thread and set a response.
                 NetworkReplyObject nro = waitingThreads.remove(replyId);
                 if (nro == null) {
                     logger.warning("Could not find replyId: " + replyId);
-                    return;
+                    break;
                 }
                 try {
                     bis.reset();
-                    msg = new DOMMessage(bis);
-                    nro.setResponse(msg);
+                    nro.setResponse(new DOMMessage(bis));
                 } catch (IOException|SAXException ex) {
                     // Always respond, even when failed, so as to unblock the
                     // waiting thread.
                     nro.setResponse(null);
                     throw ex;
                 }
-                return;
-
-            case Connection.QUESTION_TAG:
-                // A query.  Build a thread to handle it and send a reply.
-                bis.reset();
-                msg = new DOMMessage(bis);
-                final int finalReplyId = replyId;
-                t = new Thread(msg.getType()) {
-                        @Override
-                        public void run() {
-                            String tag = msg.getType();
-                            try {
-                                ReceivingThread.this.connection
-                                    .handleQuery(msg, finalReplyId);
-                            } catch (FreeColException fce) {
-                                logger.log(Level.WARNING, "Query "
-                                    + finalReplyId
-                                    + " handler for " + tag + " failed", fce);
-                            } catch (IOException ioe) {
-                                logger.log(Level.WARNING, "Query "
-                                    + finalReplyId
-                                    + " response send for " + tag + " failed",
-                                    ioe);
-                            }
-                        }
-                    };
                 break;
 
             default:
-                // An ordinary update message.  Build a thread to handle
-                // it and possibly respond.
                 bis.reset();
-                msg = new DOMMessage(bis);
-                t = new Thread(msg.getType()) {
-                        @Override
-                        public void run() {
-                            String tag = msg.getType();
-                            try {
-                                ReceivingThread.this.connection.handleUpdate(msg);
-                            } catch (FreeColException fce) {
-                                logger.log(Level.WARNING, "Update handler for "
-                                    + tag + " failed", fce);
-                            } catch (IOException ioe) {
-                                logger.log(Level.WARNING, "Update send for "
-                                    + tag + " failed", ioe);
-                            }
-                        }
-                    };
+                dispatch(tag, replyId, new DOMMessage(bis));
                 break;
             }
-
-            // Start the optional thread
-            if (t != null) {
-                t.setName(this.connection.getName() + "-MessageHandler-"
-                    + t.getName());
-                t.start();
-            }
         } finally {
             xr.close();
         }
     }
 
+    /**
+     * Reads an XML message and calls the MessageHandler for it,
+     * without parsing it into DOM.  Only replies, which the waiting
+     * thread expects as a DOM message, are parsed.
+     *
+     * @throws IOException If thrown by the {@link FreeColNetworkInputStream}.
+     * @throws SAXException if a problem occured parsing a reply.
+     */
+    private void listenStream() throws IOException, SAXException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[Connection.BUFFER_SIZE];
+        for (int n; (n = in.read(buf, 0, buf.length)) > 0;) {
+            bos.write(buf, 0, n);
+        }
+        final byte[] bytes = bos.toByteArray();
+
+        // Peek at the tag of the message, and of the query in a question.
+        String tag, type;
+        int replyId;
+        try (
+            FreeColXMLReader xr
+                = new FreeColXMLReader(new ByteArrayInputStream(bytes));
+        ) {
+            xr.nextTag();
+            tag = type = xr.getLocalName();
+            replyId = xr.getAttribute(Connection.NETWORK_REPLY_ID_TAG, -1);
+            if (Connection.QUESTION_TAG.equals(tag)) {
+                xr.nextTag();
+                type = xr.getLocalName();
+            }
+        } catch (XMLStreamException xse) {
+            // EOS can occur when the other end disconnects
+            tag = type = DisconnectMessage.TAG;
+            replyId = -1;
+        }
+
+        switch (tag) {
+        case DisconnectMessage.TAG:
+            askToStop();
+            break;
+        case Connection.REPLY_TAG:
+            NetworkReplyObject nro = waitingThreads.remove(replyId);
+            if (nro == null) {
+                logger.warning("Could not find replyId: " + replyId);
+                break;
+            }
+            try {
+                nro.setResponse(new DOMMessage(new ByteArrayInputStream(
+                            bytes)));
+            } catch (IOException|SAXException ex) {
+                nro.setResponse(null);
+                throw ex;
+            }
+            break;
+        default:
+            final boolean query = Connection.QUESTION_TAG.equals(tag);
+            final int finalReplyId = replyId;
+            dispatch(query, type, replyId, (query)
+                ? () -> this.connection.handleQuery(bytes, finalReplyId)
+                : () -> this.connection.handleUpdate(bytes));
+            break;
+        }
+    }
+
+    /**
+     * Reads a binary frame and calls the MessageHandler for it.
+     *
+     * @throws IOException If thrown by the {@link FreeColNetworkInputStream}
+     *     or the frame is invalid.
+     */
+    private void listenBinary() throws IOException {
+        byte[] header = new byte[BinaryCodec.HEADER_SIZE];
+        in.readFully(header, 0, header.length);
+        byte[] payload = new byte[BinaryCodec.getPayloadLength(header)];
+        in.readFully(payload, 0, payload.length);
+        final Element element = this.connection.decodeFrame(header, payload);
+        final String tag = element.getTagName();
+        int replyId;
+        try {
+            replyId = Integer.parseInt(element
+                .getAttribute(Connection.NETWORK_REPLY_ID_TAG));
+        } catch (NumberFormatException nfe) {
+            replyId = -1;
+        }
+        final DOMMessage msg = new DOMMessage(element.getOwnerDocument());
+
+        switch (tag) {
+        case DisconnectMessage.TAG:
+            askToStop();
+            break;
+        case Connection.REPLY_TAG:
+            NetworkReplyObject nro = waitingThreads.remove(replyId);
+            if (nro == null) {
+                logger.warning("Could not find replyId: " + replyId);
+            } else {
+                nro.setResponse(msg);
+            }
+            break;
+        default:
+            dispatch(tag, replyId, msg);
+            break;
+        }
+    }
+
+    /**
+     * Pass a query or update on to the dispatcher.
+     *
+     * @param tag The message tag.
+     * @param replyId The reply identifier for a query.
+     * @param msg The {@code DOMMessage} to handle.
+     */
+    private void dispatch(String tag, int replyId, final DOMMessage msg) {
+        final boolean query = Connection.QUESTION_TAG.equals(tag);
+        dispatch(query, msg.getType(), replyId, (query)
+            ? () -> this.connection.handleQuery(msg, replyId)
+            : () -> this.connection.handleUpdate(msg));
+    }
+
+    /**
+     * Pass a message handler on to the dispatcher.
+     *
+     * @param query True if the message is a query.
+     * @param type The type of message, which for a query is the tag
+     *     of the query rather than its wrapper.
+     * @param replyId The reply identifier for a query.
+     * @param handler The {@code MessageTask} that handles the message.
+     */
+    private void dispatch(boolean query, String type, int replyId,
+                          MessageTask handler) {
+        final String what = (query) ? "Query " + replyId : "Update";
+        Runnable runnable = () -> {
+            try {
+                handler.run();
+            } catch (FreeColException|XMLStreamException ex) {
+                logger.log(Level.WARNING, what + " handler for " + type
+                    + " failed", ex);
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, what + " send for " + type
+                    + " failed", ioe);
+            }
+        };
+        if (query) {
+            // A query.  Handle it and send a reply.
+            this.dispatcher.dispatchQuery(type, runnable);
+        } else {
+            // An ordinary update message.  Handle it in order and
+            // possibly respond.
+            this.dispatcher.dispatchUpdate(type, runnable);
+        }
+    }
+
     /**
      * Receives messages from the network in a loop. This method is
      * invoked when the thread starts and the thread will stop when
@@ -402,6 +568,6 @@ final class ReceivingThread extends Thread {
         }
         // Do not send disconnect again
         connection.reallyClose();
-        logger.info("Finished: " + getName());
+        logger.info("Finished: " + getName() + " " + this.dispatcher);
     }
 }
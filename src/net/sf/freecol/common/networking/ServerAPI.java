@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import net.sf.freecol.FreeCol;
 import net.sf.freecol.common.FreeColException;
 import net.sf.freecol.common.model.BuildableType;
 import net.sf.freecol.common.model.Colony;
@@ -709,7 +710,8 @@ public abstract class ServerAPI {
     public boolean login(String userName, String version,
                          boolean single, boolean current) {
         return ask(null,
-            new LoginMessage(userName, version, null, single, current, null));
+            new LoginMessage(userName, version, null, single, current, null,
+                             FreeCol.getWireFormat(), true));
     }
 
     /**
@@ -21,7 +21,11 @@ package net.sf.freecol.common.networking;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Logger;
 
+import javax.xml.stream.XMLStreamException;
+
+import net.sf.freecol.common.io.FreeColXMLReader;
 import net.sf.freecol.common.model.FreeColGameObject;
 import net.sf.freecol.common.model.Game;
 import net.sf.freecol.common.model.Player;
@@ -36,6 +40,8 @@ import org.w3c.dom.Element;
  */
 public class UpdateMessage extends DOMMessage {
 
+    private static final Logger logger = Logger.getLogger(UpdateMessage.class.getName());
+
     public static final String TAG = "update";
 
     /** The players to add. */
@@ -71,6 +77,33 @@ public class UpdateMessage extends DOMMessage {
     }
 
 
+    /**
+     * Create a new {@code UpdateMessage} read straight from a stream,
+     * updating the objects in place without building a DOM tree.
+     *
+     * @param game The {@code Game} this message belongs to.
+     * @param xr The {@code FreeColXMLReader} to read from, positioned
+     *     at the start tag of the message.  It is left at the end tag.
+     * @exception XMLStreamException if there is a problem reading the stream.
+     */
+    public UpdateMessage(Game game, FreeColXMLReader xr)
+        throws XMLStreamException {
+        this(null);
+
+        while (xr.moreTags()) {
+            final String id = xr.readId();
+            FreeColGameObject fcgo = game.getFreeColGameObject(id);
+            if (fcgo == null) {
+                logger.warning("Update object not present: " + id);
+                xr.skipTag();
+            } else {
+                fcgo.readFromXML(xr);
+                this.fcgos.add(fcgo);
+            }
+        }
+        xr.expectTag(TAG);
+    }
+
     // Public interface
 
     /**
@@ -127,6 +127,10 @@ public class MapGeneratorOptions {
     public static final String BONUS_NUMBER 
         = "model.option.bonusNumber";
 
+    /** Generate the terrain in parallel latitude bands. */
+    public static final String PARALLEL_TERRAIN
+        = "model.option.parallelTerrain";
+
     /** Option for setting the humidity of the map. */
     public static final String HUMIDITY 
         = "model.option.humidity";
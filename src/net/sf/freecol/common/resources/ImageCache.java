@@ -0,0 +1,246 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.resources;
+
+import java.awt.image.BufferedImage;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+
+/**
+ * A cache of derived images, such as scaled and grayscale copies of
+ * image resources, and rendered strings.
+ *
+ * The images are kept in least recently used order up to a budget
+ * measured in pixel bytes.  Images evicted past the budget are held
+ * through soft references, so they can still be reused until the
+ * garbage collector needs the memory.
+ */
+public final class ImageCache {
+
+    private static final Logger logger = Logger.getLogger(ImageCache.class.getName());
+
+    /** A soft reference to an evicted image, remembering its key. */
+    private static final class SoftImage extends SoftReference<BufferedImage> {
+
+        public final Object key;
+
+        public SoftImage(Object key, BufferedImage image,
+                         ReferenceQueue<BufferedImage> queue) {
+            super(image, queue);
+            this.key = key;
+        }
+    }
+
+    /** The images within the budget, least recently used first. */
+    private final LinkedHashMap<Object, BufferedImage> images
+        = new LinkedHashMap<>(256, 0.75f, true);
+
+    /** The evicted images. */
+    private final Map<Object, SoftImage> evicted = new HashMap<>();
+
+    /** Queue of evicted images the garbage collector has cleared. */
+    private final ReferenceQueue<BufferedImage> cleared
+        = new ReferenceQueue<>();
+
+    /** The budget, in bytes. */
+    private long budget;
+
+    /** The number of bytes of the images within the budget. */
+    private long size = 0L;
+
+    /** Statistics. */
+    private long hits = 0L, softHits = 0L, misses = 0L, evictions = 0L;
+
+
+    /**
+     * Create a new image cache.
+     *
+     * @param budget The budget in bytes.
+     */
+    public ImageCache(long budget) {
+        this.budget = budget;
+    }
+
+
+    /**
+     * Get the number of bytes taken by an image.
+     *
+     * @param image The {@code BufferedImage} to measure.
+     * @return The size of its pixels in bytes.
+     */
+    private static long getBytes(BufferedImage image) {
+        return (long)image.getWidth() * image.getHeight()
+            * ((image.getColorModel().getPixelSize() + 7) / 8);
+    }
+
+    /**
+     * Set the budget, evicting images if needed.
+     *
+     * @param budget The new budget in bytes.
+     */
+    public synchronized void setBudget(long budget) {
+        this.budget = budget;
+        evict();
+        logger.info("Image cache budget " + (budget >> 20) + "MB");
+    }
+
+    /**
+     * Gets a cached image.
+     *
+     * @param key The key of the image.
+     * @return The image, or null if it is not in the cache.
+     */
+    public synchronized BufferedImage get(Object key) {
+        BufferedImage image = images.get(key);
+        if (image != null) {
+            hits++;
+            return image;
+        }
+        expunge();
+        SoftImage si = evicted.remove(key);
+        image = (si == null) ? null : si.get();
+        if (image == null) {
+            misses++;
+            return null;
+        }
+        softHits++;
+        add(key, image);
+        return image;
+    }
+
+    /**
+     * Adds an image to the cache.
+     *
+     * @param key The key of the image.
+     * @param image The {@code BufferedImage} to add.
+     */
+    public synchronized void put(Object key, BufferedImage image) {
+        expunge();
+        BufferedImage old = images.remove(key);
+        if (old != null) size -= getBytes(old);
+        evicted.remove(key);
+        add(key, image);
+    }
+
+    /**
+     * Remove the images with matching keys.
+     *
+     * @param pred A {@code Predicate} to select the keys to remove.
+     */
+    public synchronized void removeIf(Predicate<Object> pred) {
+        Iterator<Map.Entry<Object, BufferedImage>> it
+            = images.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Object, BufferedImage> e = it.next();
+            if (pred.test(e.getKey())) {
+                size -= getBytes(e.getValue());
+                it.remove();
+            }
+        }
+        evicted.keySet().removeIf(pred);
+    }
+
+    /**
+     * Count the images with matching keys.
+     *
+     * @param pred A {@code Predicate} to select the keys to count.
+     * @return The number of images within the budget that match.
+     */
+    public synchronized int count(Predicate<Object> pred) {
+        int n = 0;
+        for (Object key : images.keySet()) {
+            if (pred.test(key)) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Remove all the images.
+     */
+    public synchronized void clear() {
+        images.clear();
+        evicted.clear();
+        size = 0L;
+    }
+
+    /**
+     * Gets the statistics of this cache.
+     *
+     * @return A {@code Map} of the statistics.
+     */
+    public synchronized Map<String, String> getStatistics() {
+        expunge();
+        Map<String, String> stats = new HashMap<>();
+        stats.put("imageCacheImages", Integer.toString(images.size()));
+        stats.put("imageCacheBytes", Long.toString(size));
+        stats.put("imageCacheBudget", Long.toString(budget));
+        stats.put("imageCacheSoftImages", Integer.toString(evicted.size()));
+        stats.put("imageCacheHits", Long.toString(hits));
+        stats.put("imageCacheSoftHits", Long.toString(softHits));
+        stats.put("imageCacheMisses", Long.toString(misses));
+        stats.put("imageCacheEvictions", Long.toString(evictions));
+        return stats;
+    }
+
+    /**
+     * Add an image within the budget, evicting others if needed.
+     *
+     * @param key The key of the image.
+     * @param image The {@code BufferedImage} to add.
+     */
+    private void add(Object key, BufferedImage image) {
+        images.put(key, image);
+        size += getBytes(image);
+        evict();
+    }
+
+    /**
+     * Evict the least recently used images until within the budget.
+     */
+    private void evict() {
+        Iterator<Map.Entry<Object, BufferedImage>> it
+            = images.entrySet().iterator();
+        while (size > budget && it.hasNext()) {
+            Map.Entry<Object, BufferedImage> e = it.next();
+            size -= getBytes(e.getValue());
+            evicted.put(e.getKey(),
+                        new SoftImage(e.getKey(), e.getValue(), cleared));
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Forget evicted images that the garbage collector has cleared.
+     */
+    private void expunge() {
+        SoftImage si;
+        while ((si = (SoftImage)cleared.poll()) != null) {
+            if (evicted.get(si.key) == si) evicted.remove(si.key);
+        }
+    }
+}
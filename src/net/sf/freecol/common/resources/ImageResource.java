@@ -30,7 +30,6 @@ import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.logging.Level;
@@ -59,8 +58,48 @@ public class ImageResource extends Resource
     private List<URI> alternativeLocators = new ArrayList<>();
     private List<BufferedImage> loadedImages = null;
 
-    private HashMap<Dimension, BufferedImage> scaledImages = new HashMap<>();
-    private HashMap<Dimension, BufferedImage> grayscaleImages = new HashMap<>();
+    /** The key of a derived image in the image cache. */
+    private static final class Key {
+
+        public final ImageResource resource;
+        public final int width, height;
+        public final boolean grayscale;
+
+        public Key(ImageResource resource, Dimension d, boolean grayscale) {
+            this.resource = resource;
+            this.width = d.width;
+            this.height = d.height;
+            this.grayscale = grayscale;
+        }
+
+
+        // Override Object
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object other) {
+            if (other instanceof Key) {
+                Key k = (Key)other;
+                return this.resource == k.resource
+                    && this.width == k.width && this.height == k.height
+                    && this.grayscale == k.grayscale;
+            }
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(resource);
+            hash = 31 * hash + width;
+            hash = 31 * hash + height;
+            return 31 * hash + ((grayscale) ? 1 : 0);
+        }
+    }
 
 
     /**
@@ -117,13 +156,22 @@ public class ImageResource extends Resource
         return null;
     }
 
+    /**
+     * Is a cache key one of ours?
+     *
+     * @param key The key to check.
+     * @return True if the key belongs to this resource.
+     */
+    private boolean isOwnKey(Object key) {
+        return key instanceof Key && ((Key)key).resource == this;
+    }
+
     /**
      * Clean up old cached copies.
      */
     @Override
     public void clean() {
-        scaledImages = new HashMap<>();
-        grayscaleImages = new HashMap<>();
+        ResourceManager.getImageCache().removeIf(k -> isOwnKey(k));
     }
 
     /**
@@ -178,7 +226,9 @@ public class ImageResource extends Resource
         }
         if (wNew == w && hNew == h) return im;
 
-        final BufferedImage cached = scaledImages.get(d);
+        final ImageCache cache = ResourceManager.getImageCache();
+        final Key key = new Key(this, d, false);
+        final BufferedImage cached = cache.get(key);
         if (cached != null) return cached;
 
         final int fwNew = wNew, fhNew = hNew;
@@ -222,7 +272,7 @@ public class ImageResource extends Resource
             g.dispose();
             im = scaled;
         }
-        scaledImages.put(d, im);
+        cache.put(key, im);
         return im;
     }
 
@@ -233,7 +283,9 @@ public class ImageResource extends Resource
      * @return The {@code BufferedImage}.
      */
     public BufferedImage getGrayscaleImage(Dimension d) {
-        final BufferedImage cached = grayscaleImages.get(d);
+        final ImageCache cache = ResourceManager.getImageCache();
+        final Key key = new Key(this, d, true);
+        final BufferedImage cached = cache.get(key);
         if (cached != null) return cached;
         final BufferedImage im = getImage(d);
         if (im == null) return null;
@@ -249,7 +301,7 @@ public class ImageResource extends Resource
         ColorConvertOp filter = new ColorConvertOp(
             ColorSpace.getInstance(ColorSpace.CS_GRAY), null);
         final BufferedImage grayscaleImage = filter.filter(srcImage, null);
-        grayscaleImages.put(d, grayscaleImage);
+        cache.put(key, grayscaleImage);
         return grayscaleImage;
     }
 
@@ -269,6 +321,6 @@ public class ImageResource extends Resource
     }
 
     public int getCount() {
-        return grayscaleImages.size() + scaledImages.size();
+        return ResourceManager.getImageCache().count(k -> isOwnKey(k));
     }
 }
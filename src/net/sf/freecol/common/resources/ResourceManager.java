@@ -69,8 +69,18 @@ public class ResourceManager {
      */
     private static ResourceMapping mergedContainer;
 
+    /** Incremented whenever the resource mappings change. */
+    private static volatile int mappingVersion = 0;
+
     private static volatile Thread preloadThread = null;
 
+    /** The default budget for the image cache, in megabytes. */
+    public static final int DEFAULT_IMAGE_CACHE_SIZE = 128;
+
+    /** The cache of scaled, grayscale and string images. */
+    private static final ImageCache imageCache
+        = new ImageCache((long)DEFAULT_IMAGE_CACHE_SIZE << 20);
+
 
     /**
      * Sets the mappings specified in the date/base-directory.
@@ -127,6 +137,7 @@ public class ResourceManager {
      * Clean up easily replaced modified copies in caches.
      */
     public static synchronized void clean() {
+        imageCache.clear();
         if (baseMapping != null) {
             forEachMapEntry(baseMapping.getImageResources(),
                             e -> e.getValue().clean());
@@ -146,6 +157,26 @@ public class ResourceManager {
         System.gc();
     }
 
+    /**
+     * Gets the image cache.
+     *
+     * @return The shared {@code ImageCache}.
+     */
+    public static ImageCache getImageCache() {
+        return imageCache;
+    }
+
+    /**
+     * Gets the version of the resource mappings, which changes
+     * whenever a mapping is set.  Callers that keep images drawn from
+     * the resources can use it to notice that they are stale.
+     *
+     * @return The current mapping version.
+     */
+    public static int getMappingVersion() {
+        return mappingVersion;
+    }
+
     /**
      * Updates the resource mappings after making changes.
      * 
@@ -157,6 +188,7 @@ public class ResourceManager {
             preloadThread = null;
         }
         createMergedContainer();
+        mappingVersion++;
         if(newItems) {
             // TODO: This should wait for the thread to exit, if one was running.
             startBackgroundPreloading();
@@ -22,6 +22,7 @@ package net.sf.freecol.common.util;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,23 +32,56 @@ import net.sf.freecol.common.model.Location;
 
 /**
  * A class to wrap a StringBuilder for log generation purposes.
+ *
+ * A LogBuilder without a buffer is disabled, and ignores everything
+ * added to it.  Objects added to an enabled buffer are only converted
+ * to strings as they are added, and {@code Supplier}s are only called
+ * then, so building a log for a logger that will discard it costs
+ * little more than the calls themselves.
  */
 public class LogBuilder {
 
-    /** The string builder to use. */
+    /** A per-thread scratch buffer for {@link #grew} and {@link #wide}. */
+    private static final ThreadLocal<StringBuilder> scratch
+        = new ThreadLocal<>();
+
+    /** The string builder to use, null if disabled. */
     private final StringBuilder sb;
 
     /** The remembered buffer index. */
     private final List<Integer> points = new ArrayList<>();
 
+    /** The logger to write to with {@link #log()}, if any. */
+    private final Logger logger;
+
+    /** The level to write at with {@link #log()}, if any. */
+    private final Level level;
+
 
     /**
      * Create a new LogBuilder that can only be used as a buffer.
      *
-     * @param size An initial size for the buffer.
+     * @param size An initial size for the buffer, non-positive to
+     *     disable the builder.
      */
     public LogBuilder(int size) {
-        this.sb = (size <= 0) ? null : new StringBuilder(size);
+        this(null, null, size);
+    }
+
+    /**
+     * Create a new LogBuilder for a logger, which is disabled unless
+     * the logger accepts messages at the given level.
+     *
+     * @param logger The {@code Logger} to write to.
+     * @param level The logging {@code Level}.
+     * @param size An initial size for the buffer.
+     */
+    public LogBuilder(Logger logger, Level level, int size) {
+        this.logger = logger;
+        this.level = level;
+        this.sb = (size <= 0 || (logger != null
+                && (level == null || !logger.isLoggable(level)))) ? null
+            : new StringBuilder(size);
     }
 
 
@@ -62,9 +96,36 @@ public class LogBuilder {
             : (o instanceof Class) ? ((Class)o).getName()
             : (o instanceof String) ? (String)o
             : (o instanceof Location) ? ((Location)o).toShortString()
+            : (o instanceof Supplier) ? o2s(((Supplier)o).get())
             : o.toString();
     }
 
+    /**
+     * Take the scratch buffer for this thread.
+     *
+     * The buffer is released with {@link #release}.  If it is already
+     * taken, as it may be if a {@code toString} call leads back here,
+     * a new one is made.
+     *
+     * @return An empty {@code StringBuilder}.
+     */
+    private static StringBuilder take() {
+        StringBuilder s = scratch.get();
+        if (s == null) return new StringBuilder(64);
+        scratch.set(null);
+        s.setLength(0);
+        return s;
+    }
+
+    /**
+     * Release a scratch buffer taken with {@link #take}.
+     *
+     * @param s The {@code StringBuilder} to release.
+     */
+    private static void release(StringBuilder s) {
+        if (s.capacity() <= 1024) scratch.set(s);
+    }
+
     /**
      * Add objects to a string builder.
      *
@@ -83,9 +144,24 @@ public class LogBuilder {
         }
     }
 
+    /**
+     * Is this builder enabled?
+     *
+     * Callers can use this to avoid work that is only needed for
+     * the log.
+     *
+     * @return True if objects added to this builder are kept.
+     */
+    public boolean isEnabled() {
+        return sb != null;
+    }
+
     /**
      * Add objects to the buffer.
      *
+     * {@code Supplier}s are called and their result added, only if
+     * this builder is enabled.
+     *
      * @param objects The objects to add.
      */
     public void add(Object... objects) {
@@ -143,9 +219,10 @@ public class LogBuilder {
         if (sb == null) return false;
         int p = this.points.remove(0);
         if (sb.length() <= p) return false;
-        StringBuilder sb2 = new StringBuilder(64);
+        StringBuilder sb2 = take();
         add(sb2, objects);
-        this.sb.insert(p, sb2.toString());
+        this.sb.insert(p, sb2);
+        release(sb2);
         return true;
     }
 
@@ -162,6 +239,13 @@ public class LogBuilder {
         }
     }
 
+    /**
+     * Output to the logger this builder was created for.
+     */
+    public void log() {
+        log(this.logger, this.level);
+    }
+
     /**
      * Output to a logger.
      *
@@ -195,16 +279,18 @@ public class LogBuilder {
         if (size == 0) return "";
         boolean left = size > 0;
         if (!left) size = -size;
-        StringBuilder s2 = new StringBuilder(size);
+        StringBuilder s2 = take();
         add(s2, objects);
         int delta = size - s2.length();
         if (left) {
             for (; delta > 0; delta--) s2.append(' ');
         } else {
-            for (; delta > 0; delta--) s2.insert(0, " ");
+            for (; delta > 0; delta--) s2.insert(0, ' ');
         }
         if (delta < 0) s2.setLength(size);
-        return s2.toString();
+        String result = s2.toString();
+        release(s2);
+        return result;
     }
 
 
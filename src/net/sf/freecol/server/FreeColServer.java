@@ -20,18 +20,18 @@
 package net.sf.freecol.server;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.BindException;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Random;
 import java.util.Timer;
-import java.util.jar.JarEntry;
-import java.util.jar.JarOutputStream;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -211,6 +211,9 @@ public final class FreeColServer {
     /** Meta-server update timer. */
     private Timer metaServerUpdateTimer = null;
 
+    /** The savegame writer. */
+    private final SavegameWriter savegameWriter = new SavegameWriter();
+
 
     /**
      * Base constructor common to the following new-game and
@@ -286,6 +289,7 @@ public final class FreeColServer {
         throws IOException {
         this(name, port);
 
+        final long start = System.currentTimeMillis();
         this.publicServer = publicServer;
         this.singlePlayer = singlePlayer;
         this.random = new Random(FreeColSeed.getFreeColSeed(true));
@@ -294,7 +298,11 @@ public final class FreeColServer {
         this.game.randomize(random);
         this.inGameController.setRandom(random);
         this.mapGenerator = new SimpleMapGenerator(this.game, random);
+        final long created = System.currentTimeMillis();
         this.publicServer = updateMetaServer(true);
+        logger.info("New game created in " + (created - start) + "ms"
+            + ", meta-server update "
+            + (System.currentTimeMillis() - created) + "ms");
     }
 
     /**
@@ -409,6 +417,7 @@ public final class FreeColServer {
      * Shut down this FreeColServer.
      */
     public void shutdown() {
+        finishSaves();
         this.server.shutdown();
     }
 
@@ -812,7 +821,43 @@ public final class FreeColServer {
      */
     public void saveGame(File file, OptionGroup options, Unit active)
         throws IOException {
-        saveGame(file, null, options, active, null);
+        this.savegameWriter.write(snapshotGame(null, options, active, null,
+                FreeCol.getSavegameFormat()), file);
+    }
+
+    /**
+     * Saves a normal game in the background.
+     *
+     * The game is serialized before returning, so it may change as
+     * soon as this returns, but the files are compressed and written
+     * on another thread.
+     *
+     * @param files The files where the data will be written.
+     * @param options The client options to save.
+     * @param active An optional active {@code Unit}.
+     * @return A future that completes when the files are written.
+     * @exception IOException If the game could not be serialized.
+     */
+    public CompletableFuture<Void> saveGameInBackground(List<File> files,
+        OptionGroup options, Unit active) throws IOException {
+        return this.savegameWriter.writeLater(snapshotGame(null, options,
+                active, null, FreeCol.getSavegameFormat()), files);
+    }
+
+    /**
+     * Wait for any saves in progress to complete.
+     */
+    public void finishSaves() {
+        this.savegameWriter.finish();
+    }
+
+    /**
+     * Gets statistics about the games saved.
+     *
+     * @return A map of statistics key,value pairs.
+     */
+    public java.util.Map<String, String> getSaveStatistics() {
+        return this.savegameWriter.getStatistics();
     }
 
     /**
@@ -829,51 +874,64 @@ public final class FreeColServer {
         // Mask out spec while saving map.
         Specification spec = game.getSpecification();
         game.setSpecification(null);
-        saveGame(file, MAP_EDITOR_NAME, null, null, image);
-        game.setSpecification(spec);
+        try {
+            this.savegameWriter.write(snapshotGame(MAP_EDITOR_NAME, null,
+                    null, image, FreeColSavegameFile.Format.XML), file);
+        } finally {
+            game.setSpecification(spec);
+        }
     }
 
     /**
-     * Saves a game.
+     * Serializes a game into the uncompressed entries of a savegame.
      *
-     * @param file The file where the data will be written.
      * @param owner An optional name to use as the owner of the game.
      * @param options Optional client options to save in the game.
      * @param active An optional active {@code Unit}.
      * @param image A thumbnail {@code Image} value to save in the game.
-     * @exception IOException If a problem was encountered while trying
-     *     to open, write or close the file.
+     * @param format The savegame {@code Format} to use.
+     * @return The {@code Snapshot} of the savegame.
+     * @exception IOException If the game could not be serialized.
      */
-    private void saveGame(File file, String owner, OptionGroup options,
-                          Unit active, BufferedImage image) throws IOException {
+    private SavegameWriter.Snapshot snapshotGame(String owner,
+        OptionGroup options, Unit active, BufferedImage image,
+        FreeColSavegameFile.Format format) throws IOException {
+        final boolean compact = format == FreeColSavegameFile.Format.COMPACT;
         final ServerGame game = getGame();
-        try (
-            JarOutputStream fos = new JarOutputStream(new FileOutputStream(file));
-        ) {
+        final SavegameWriter.Snapshot snapshot = new SavegameWriter.Snapshot();
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(1 << 20);
+        try {
             if (image != null) {
-                fos.putNextEntry(new JarEntry(FreeColSavegameFile.THUMBNAIL_FILE));
-                ImageIO.write(image, "png", fos);
-                fos.closeEntry();
+                ImageIO.write(image, "png", bos);
+                snapshot.add(FreeColSavegameFile.THUMBNAIL_FILE,
+                             bos.toByteArray());
+                bos.reset();
             }
 
             if (options != null) {
-                fos.putNextEntry(new JarEntry(FreeColSavegameFile.CLIENT_OPTIONS));
-                options.save(fos, null, true);
-                fos.closeEntry();
+                options.save(bos, null, true);
+                snapshot.add(FreeColSavegameFile.CLIENT_OPTIONS,
+                             bos.toByteArray());
+                bos.reset();
             }
 
             Properties properties = new Properties();
             properties.put("map.width", Integer.toString(game.getMap().getWidth()));
             properties.put("map.height", Integer.toString(game.getMap().getHeight()));
-            fos.putNextEntry(new JarEntry(FreeColSavegameFile.SAVEGAME_PROPERTIES));
-            properties.store(fos, null);
-            fos.closeEntry();
+            properties.put(FreeColSavegameFile.FORMAT_PROPERTY,
+                           format.toString().toLowerCase());
+            properties.store(bos, null);
+            snapshot.add(FreeColSavegameFile.SAVEGAME_PROPERTIES,
+                         bos.toByteArray());
+            bos.reset();
 
             // save the actual game data
-            fos.putNextEntry(new JarEntry(FreeColSavegameFile.SAVEGAME_FILE));
             try (
-                FreeColXMLWriter xw = new FreeColXMLWriter(fos,
-                    FreeColXMLWriter.WriteScope.toSave(), false);
+                FreeColXMLWriter xw = (compact)
+                    ? FreeColXMLWriter.compactWriter(bos,
+                        FreeColXMLWriter.WriteScope.toSave())
+                    : new FreeColXMLWriter(bos,
+                        FreeColXMLWriter.WriteScope.toSave(), false);
             ) {
                 xw.writeStartDocument("UTF-8", "1.0");
 
@@ -919,12 +977,17 @@ public final class FreeColServer {
                 xw.writeEndDocument();
                 xw.flush();
             }
-            fos.closeEntry();
+            snapshot.add((compact) ? FreeColSavegameFile.COMPACT_SAVEGAME_FILE
+                : FreeColSavegameFile.SAVEGAME_FILE, bos.toByteArray());
         } catch (XMLStreamException e) {
             throw new IOException("Failed to save (XML)", e);
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
             throw new IOException("Failed to save", e);
         }
+        snapshot.done();
+        return snapshot;
     }
 
     /**
@@ -1006,7 +1069,7 @@ public final class FreeColServer {
 
         ServerGame game = null;
         try (
-            FreeColXMLReader xr = fis.getSavedGameFreeColXMLReader();
+            FreeColXMLReader xr = fis.getLoadingFreeColXMLReader();
         ) {
             // Switch to the read scope that creates server objects.
             xr.setReadScope(FreeColXMLReader.ReadScope.SERVER);
@@ -0,0 +1,278 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.logging.Logger;
+
+import net.sf.freecol.FreeCol;
+
+
+/**
+ * Writes savegame archives on a background thread.
+ *
+ * The server serializes the game into a {@link Snapshot} of
+ * uncompressed archive entries, which is quick and must be done
+ * while the game is not changing.  The snapshot is then compressed
+ * and written here, so the slow part of a save does not hold up
+ * the game.
+ *
+ * Archives are written to a temporary file in the same directory,
+ * synced, and then renamed over the target, so a crash during a
+ * save never leaves a damaged savegame behind.  All writes go
+ * through the one thread, so writes to the same file land in the
+ * order they were requested.
+ */
+final class SavegameWriter {
+
+    private static final Logger logger = Logger.getLogger(SavegameWriter.class.getName());
+
+    /** The suffix of the temporary file written before renaming. */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /** The uncompressed entries of a savegame archive. */
+    static final class Snapshot {
+
+        /** The entries, by name, in archive order. */
+        private final LinkedHashMap<String, byte[]> entries
+            = new LinkedHashMap<>();
+
+        /** When the snapshot was started. */
+        private final long start = System.currentTimeMillis();
+
+        /** How long the snapshot took, in milliseconds. */
+        private long duration = -1L;
+
+
+        /**
+         * Add an entry.
+         *
+         * @param name The entry name.
+         * @param data The entry contents.
+         */
+        void add(String name, byte[] data) {
+            this.entries.put(name, data);
+        }
+
+        /**
+         * Mark the snapshot as complete.
+         */
+        void done() {
+            this.duration = System.currentTimeMillis() - this.start;
+        }
+
+        /**
+         * Gets the total size of the entries.
+         *
+         * @return The uncompressed size in bytes.
+         */
+        long getSize() {
+            long size = 0L;
+            for (byte[] b : this.entries.values()) size += b.length;
+            return size;
+        }
+    }
+
+    /** The writer thread, created when first needed. */
+    private ExecutorService executor = null;
+
+    /** The most recently requested write. */
+    private CompletableFuture<Void> last
+        = CompletableFuture.completedFuture(null);
+
+    /** Statistics. */
+    private long saves = 0L, failures = 0L, bytes = 0L;
+    private long snapshotTime = 0L, writeTime = 0L;
+    private long lastSnapshotTime = 0L, lastWriteTime = 0L;
+
+
+    /**
+     * Gets the writer thread, creating it if needed.
+     *
+     * @return The {@code ExecutorService} to write on.
+     */
+    private synchronized ExecutorService getExecutor() {
+        if (this.executor == null) {
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, FreeCol.SERVER_THREAD
+                        + "SavegameWriter");
+                    t.setDaemon(true);
+                    return t;
+                });
+        }
+        return this.executor;
+    }
+
+    /**
+     * Write a snapshot to some files in the background.
+     *
+     * @param snapshot The {@code Snapshot} to write.
+     * @param files The {@code File}s to write to.
+     * @return A future that completes when the files are written,
+     *     or completes exceptionally with an
+     *     {@code UncheckedIOException} if any could not be.
+     */
+    public synchronized CompletableFuture<Void> writeLater(Snapshot snapshot,
+                                                           List<File> files) {
+        this.last = CompletableFuture.runAsync(() -> {
+                for (File f : files) {
+                    try {
+                        writeNow(snapshot, f);
+                    } catch (IOException ioe) {
+                        throw new UncheckedIOException(ioe);
+                    }
+                }
+            }, getExecutor());
+        return this.last;
+    }
+
+    /**
+     * Write a snapshot to a file, waiting until it is written.
+     *
+     * @param snapshot The {@code Snapshot} to write.
+     * @param file The {@code File} to write to.
+     * @exception IOException if the file could not be written.
+     */
+    public void write(Snapshot snapshot, File file) throws IOException {
+        try {
+            writeLater(snapshot, Collections.singletonList(file))
+                .get();
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException)cause).getCause();
+            }
+            throw new IOException("Failed to save", cause);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving", ie);
+        }
+    }
+
+    /**
+     * Wait for all the requested writes to finish.  Failures are
+     * reported to the requesters, not here.
+     */
+    public void finish() {
+        CompletableFuture<Void> f;
+        synchronized (this) {
+            f = this.last;
+        }
+        try {
+            f.get();
+        } catch (ExecutionException ee) {
+            ; // Already reported
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Compress and write a snapshot to a file, by way of a temporary
+     * file that is renamed into place.
+     *
+     * @param snapshot The {@code Snapshot} to write.
+     * @param file The {@code File} to write to.
+     * @exception IOException if the file could not be written.
+     */
+    private void writeNow(Snapshot snapshot, File file) throws IOException {
+        final long start = System.currentTimeMillis();
+        final File target = file.getAbsoluteFile();
+        final File temp = new File(target.getParentFile(),
+                                   target.getName() + TEMPORARY_SUFFIX);
+        try {
+            try (FileOutputStream fos = new FileOutputStream(temp)) {
+                JarOutputStream jos = new JarOutputStream(fos);
+                for (Map.Entry<String, byte[]> e
+                         : snapshot.entries.entrySet()) {
+                    jos.putNextEntry(new JarEntry(e.getKey()));
+                    jos.write(e.getValue());
+                    jos.closeEntry();
+                }
+                jos.finish();
+                jos.flush();
+                fos.getFD().sync();
+            }
+            try {
+                Files.move(temp.toPath(), target.toPath(),
+                           StandardCopyOption.ATOMIC_MOVE,
+                           StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException amnse) {
+                Files.move(temp.toPath(), target.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ioe) {
+            synchronized (this) {
+                this.failures++;
+            }
+            if (temp.exists() && !temp.delete()) {
+                logger.warning("Could not delete: " + temp.getPath());
+            }
+            throw ioe;
+        }
+        final long duration = System.currentTimeMillis() - start;
+        final long size = target.length();
+        synchronized (this) {
+            this.saves++;
+            this.bytes += size;
+            this.snapshotTime += snapshot.duration;
+            this.writeTime += duration;
+            this.lastSnapshotTime = snapshot.duration;
+            this.lastWriteTime = duration;
+        }
+        logger.info("Saved " + target.getPath() + " (" + snapshot.getSize()
+            + " bytes, " + size + " compressed)"
+            + " snapshot " + snapshot.duration + "ms"
+            + " write " + duration + "ms");
+    }
+
+    /**
+     * Gets statistics about the saves written.
+     *
+     * @return A map of statistics key,value pairs.
+     */
+    public synchronized Map<String, String> getStatistics() {
+        Map<String, String> stats = new LinkedHashMap<>();
+        stats.put("saves", Long.toString(this.saves));
+        stats.put("failures", Long.toString(this.failures));
+        stats.put("bytes", Long.toString(this.bytes));
+        stats.put("snapshotMillis", Long.toString(this.snapshotTime));
+        stats.put("writeMillis", Long.toString(this.writeTime));
+        stats.put("lastSnapshotMillis", Long.toString(this.lastSnapshotTime));
+        stats.put("lastWriteMillis", Long.toString(this.lastWriteTime));
+        return stats;
+    }
+}
@@ -214,17 +214,32 @@ public class AIColony extends AIObject implements PropertyChangeListener {
     /**
      * Rearranges the workers within this colony using the {@link ColonyPlan}.
      *
+     * This is the combination of {@link #prepareRearrange},
+     * {@link #updateColonyPlan} and {@link #applyRearrange}.
+     *
      * FIXME: Detect military threats and boost defence.
      *
      * @param lb A {@code LogBuilder} to log to.
      */
     public void rearrangeColony(LogBuilder lb) {
+        if (!prepareRearrange(lb)) return;
+        updateColonyPlan();
+        applyRearrange(lb);
+    }
+
+    /**
+     * Prepares to rearrange this colony, checking whether it needs
+     * rearranging and claiming any tiles it can use.
+     *
+     * @param lb A {@code LogBuilder} to log to.
+     * @return True if the colony should be rearranged.
+     */
+    public boolean prepareRearrange(LogBuilder lb) {
         final AIMain aiMain = getAIMain();
-        Set<AIUnit> result = new HashSet<>();
 
         // First check if it is collapsing.
         if (colony.getUnitCount() <= 0) {
-            if (!avertAutoDestruction()) return;
+            if (!avertAutoDestruction()) return false;
         }
 
         // Skip this colony if it does not yet need rearranging.
@@ -237,19 +252,14 @@ public class AIColony extends AIObject implements PropertyChangeListener {
                     + " is asleep until turn: " + rearrangeTurn.getNumber()
                     + "( > " + turn + ")");
             } else {
-                return;
+                return false;
             }
         }
 
         final Tile tile = colony.getTile();
         final Player player = colony.getOwner();
-        final Specification spec = getSpecification();
         lb.add("\n  ", colony.getName());
 
-        // For now, cap the rearrangement horizon, because confidence
-        // that we are triggering on all relevant changes is low.
-        int nextRearrange = 15;
-
         // See if there are neighbouring LCRs to explore, or tiles
         // to steal, or just unclaimed tiles (a neighbouring settlement
         // might have disappeared or relinquished a tile).
@@ -263,9 +273,36 @@ public class AIColony extends AIObject implements PropertyChangeListener {
             if (player.owns(t)) lb.add(", claimed tile ", t);
         }
 
-        // Update the colony plan.
         if (colonyPlan == null) colonyPlan = new ColonyPlan(aiMain, colony);
+        return true;
+    }
+
+    /**
+     * Updates the colony plan, following a successful call to
+     * {@link #prepareRearrange}.
+     *
+     * This only reads the game, so the plans of different colonies
+     * may be updated concurrently.
+     */
+    public void updateColonyPlan() {
         colonyPlan.update();
+    }
+
+    /**
+     * Applies the updated colony plan, assigning the workers and
+     * choosing what to build.
+     *
+     * @param lb A {@code LogBuilder} to log to.
+     */
+    public void applyRearrange(LogBuilder lb) {
+        final Tile tile = colony.getTile();
+        final Specification spec = getSpecification();
+        final int turn = getGame().getTurn().getNumber();
+        Set<AIUnit> result = new HashSet<>();
+
+        // For now, cap the rearrangement horizon, because confidence
+        // that we are triggering on all relevant changes is low.
+        int nextRearrange = 15;
 
         // Now that we know what raw materials are available in the
         // colony plan, set the current buildable, first backing out
@@ -312,6 +349,7 @@ public class AIColony extends AIObject implements PropertyChangeListener {
         if (scratch == null) {
             lb.add(", failed to assign workers.");
             rearrangeTurn = new Turn(turn + 1);
+            colonyPlan.invalidate(); // Start again from scratch next time
             return;
         }
         lb.add(", assigned ", workers.size(), " workers");
@@ -1320,6 +1358,8 @@ public class AIColony extends AIObject implements PropertyChangeListener {
             && event.getOldValue() instanceof GoodsType) {
             GoodsType goodsType = (GoodsType)event.getOldValue();
             int left = colony.getGoodsCount(goodsType);
+            // The party bonus changes all the production
+            if (colonyPlan != null) colonyPlan.invalidate();
             for (AIGoods aig : getExportGoods()) {
                 boolean remove = false;
                 if (aig.isDisposed()) {
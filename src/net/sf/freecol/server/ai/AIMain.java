@@ -24,6 +24,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -31,6 +35,7 @@ import java.util.stream.Collectors;
 
 import javax.xml.stream.XMLStreamException;
 
+import net.sf.freecol.FreeCol;
 import net.sf.freecol.common.io.FreeColXMLReader;
 import net.sf.freecol.common.io.FreeColXMLWriter;
 import net.sf.freecol.common.model.Colony;
@@ -60,6 +65,12 @@ public class AIMain extends FreeColObject
 
     public static final String TAG = "aiMain";
 
+    /**
+     * The executor for concurrent AI planning, shared by all AIs and
+     * created on first use.
+     */
+    private static ExecutorService planner = null;
+
     /** The server that this AI is operating within. */
     private final FreeColServer freeColServer;
 
@@ -142,6 +153,80 @@ public class AIMain extends FreeColObject
                          Integer.MAX_VALUE);
     }
 
+    /**
+     * Is AI planning to be done concurrently?
+     *
+     * @return True if there is more than one AI planning thread.
+     */
+    public boolean isConcurrentPlanning() {
+        return FreeCol.getAIThreads() > 1;
+    }
+
+    /**
+     * Gets the AI planning executor, creating it if needed.
+     *
+     * @return The {@code ExecutorService} to run planning tasks on.
+     */
+    private static synchronized ExecutorService getPlanner() {
+        if (planner == null) {
+            final int n = FreeCol.getAIThreads();
+            planner = Executors.newFixedThreadPool(n, r -> {
+                    Thread t = new Thread(r, FreeCol.SERVER_THREAD
+                        + "AIPlanner");
+                    t.setDaemon(true);
+                    return t;
+                });
+            logger.info("Started " + n + " AI planning threads.");
+        }
+        return planner;
+    }
+
+    /**
+     * Run a list of AI planning tasks, and wait for them to complete.
+     *
+     * If concurrent planning is enabled the tasks are run on the
+     * planning executor, otherwise they are run in order in this
+     * thread.  Tasks that run concurrently must not modify the game,
+     * nor any AI object other than the one they are planning for.
+     * Failures are logged, and do not prevent the other tasks from
+     * completing.
+     *
+     * @param tasks The list of {@code Runnable} tasks to run.
+     */
+    public void runPlanningTasks(List<Runnable> tasks) {
+        if (!isConcurrentPlanning() || tasks.size() <= 1) {
+            for (Runnable r : tasks) {
+                try {
+                    r.run();
+                } catch (RuntimeException re) {
+                    logger.log(Level.WARNING, "AI planning failed", re);
+                }
+            }
+            return;
+        }
+        final ExecutorService executor = getPlanner();
+        List<Future<?>> futures = transform(tasks, alwaysTrue(),
+                                            r -> executor.submit(r));
+        // Always wait for every task, as the caller goes on to apply
+        // the plans as soon as this returns.
+        boolean interrupted = false;
+        for (Future<?> f : futures) {
+            for (;;) {
+                try {
+                    f.get();
+                    break;
+                } catch (ExecutionException ee) {
+                    logger.log(Level.WARNING, "AI planning failed",
+                               ee.getCause());
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
     /**
      * Should a {@code FreeColGameObject} have a corresponding AI
      * object?
@@ -20,6 +20,7 @@
 package net.sf.freecol.server.ai;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -33,8 +34,11 @@ import java.util.logging.Logger;
 import net.sf.freecol.common.model.Ability;
 import net.sf.freecol.common.model.AbstractGoods;
 import net.sf.freecol.common.model.BuildableType;
+import net.sf.freecol.common.model.Building;
 import net.sf.freecol.common.model.BuildingType;
 import net.sf.freecol.common.model.Colony;
+import net.sf.freecol.common.model.ColonyTile;
+import net.sf.freecol.common.model.Feature;
 import net.sf.freecol.common.model.FreeColObject;
 import net.sf.freecol.common.model.GoodsContainer;
 import net.sf.freecol.common.model.GoodsType;
@@ -42,14 +46,21 @@ import net.sf.freecol.common.model.Location;
 import net.sf.freecol.common.model.Market;
 import net.sf.freecol.common.model.Modifier;
 import net.sf.freecol.common.model.NationType;
+import net.sf.freecol.common.model.Occupation;
 import net.sf.freecol.common.model.Player;
+import net.sf.freecol.common.model.ProductionSnapshot;
+import net.sf.freecol.common.model.Resource;
 import net.sf.freecol.common.model.Role;
 import net.sf.freecol.common.model.Specification;
 import net.sf.freecol.common.model.Tile;
+import net.sf.freecol.common.model.TileImprovement;
+import net.sf.freecol.common.model.TileItem;
+import net.sf.freecol.common.model.TileItemContainer;
 import net.sf.freecol.common.model.Unit;
 import net.sf.freecol.common.model.UnitChangeType;
 import net.sf.freecol.common.model.UnitType;
 import net.sf.freecol.common.model.WorkLocation;
+import net.sf.freecol.common.model.WorkerAssignment;
 import static net.sf.freecol.common.util.CollectionUtils.*;
 import net.sf.freecol.common.util.LogBuilder;
 
@@ -72,6 +83,14 @@ import net.sf.freecol.common.util.LogBuilder;
  * {@link AIColony} is responsible for making
  * the real decisions.
  *
+ * The potential production of each work location is expensive to
+ * find and rarely changes, so it is kept between updates.  The
+ * potential of a work location is found again only when the state it
+ * depends on changes: for a tile its type, items and claim, and for
+ * a building its type.  Changes to the colony as a whole, such as the
+ * buildings present, the production bonus, or the owner's founding
+ * fathers, discard all the potentials.
+ *
  * @see Colony
  */
 public class ColonyPlan {
@@ -177,6 +196,19 @@ public class ColonyPlan {
     private final List<GoodsType> luxuryGoodsTypes = new ArrayList<>();
     private final List<GoodsType> otherRawGoodsTypes = new ArrayList<>();
 
+    /**
+     * The potential production of each work location, indexed as the
+     * specification goods type list.
+     */
+    private final Map<WorkLocation, int[]> potentials = new HashMap<>();
+
+    /** The state of each work location when its potential was found. */
+    private final Map<WorkLocation, List<Object>> potentialKeys
+        = new HashMap<>();
+
+    /** The state of the colony when the potentials were found. */
+    private List<Object> colonyKey = null;
+
 
     /**
      * Creates a new {@code ColonyPlan}.
@@ -352,6 +384,14 @@ public class ColonyPlan {
         }
     }
 
+    /**
+     * Discards the potential production of all the work locations,
+     * so that the next update rebuilds the plan from scratch.
+     */
+    public void invalidate() {
+        this.colonyKey = null;
+    }
+
     /**
      * Recreates the buildables and work location plans for this
      * colony.
@@ -394,11 +434,25 @@ public class ColonyPlan {
      * @return The map of potential production.
      */
     private Map<GoodsType, Map<WorkLocation, Integer>> createProductionMap() {
+        final List<GoodsType> goodsTypes = spec().getGoodsTypeList();
+        final List<WorkLocation> wls = colony.getAvailableWorkLocationsList();
+        final List<Object> key = getColonyKey();
+        if (!key.equals(this.colonyKey)) {
+            this.potentials.clear();
+            this.potentialKeys.clear();
+            this.colonyKey = key;
+        } else {
+            this.potentials.keySet().retainAll(wls);
+            this.potentialKeys.keySet().retainAll(wls);
+        }
+
         Map<GoodsType, Map<WorkLocation, Integer>> production = new HashMap<>();
-        for (WorkLocation wl : colony.getAvailableWorkLocationsList()) {
-            for (GoodsType g : spec().getGoodsTypeList()) {
-                int p = wl.getGenericPotential(g);
+        for (WorkLocation wl : wls) {
+            int[] row = getPotentials(wl, goodsTypes);
+            for (int i = 0; i < row.length; i++) {
+                int p = row[i];
                 if (p > 0) {
+                    GoodsType g = goodsTypes.get(i);
                     Map<WorkLocation, Integer> m = production.get(g);
                     if (m == null) {
                         m = new HashMap<>();
@@ -411,6 +465,84 @@ public class ColonyPlan {
         return production;
     }
 
+    /**
+     * Gets the potential production of a work location, finding it
+     * again if the work location has changed.
+     *
+     * @param wl The {@code WorkLocation} to check.
+     * @param goodsTypes The list of all {@code GoodsType}s.
+     * @return The potential production, indexed as the goods types.
+     */
+    private int[] getPotentials(WorkLocation wl, List<GoodsType> goodsTypes) {
+        final List<Object> key = getPotentialKey(wl);
+        int[] row = this.potentials.get(wl);
+        if (row == null || !key.equals(this.potentialKeys.get(wl))) {
+            row = new int[goodsTypes.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = wl.getGenericPotential(goodsTypes.get(i));
+            }
+            this.potentials.put(wl, row);
+            this.potentialKeys.put(wl, key);
+        }
+        return row;
+    }
+
+    /**
+     * Gets the state of a work location that its potential production
+     * depends on, excluding the state of the colony as a whole.
+     *
+     * @param wl The {@code WorkLocation} to check.
+     * @return A list of objects that changes when the potential might.
+     */
+    private List<Object> getPotentialKey(WorkLocation wl) {
+        if (wl instanceof Building) {
+            return Collections.<Object>singletonList(((Building)wl).getType());
+        }
+        final Tile tile = ((ColonyTile)wl).getWorkTile();
+        List<Object> key = new ArrayList<>();
+        key.add(tile.getType());
+        key.add(wl.getNoWorkReason());
+        final TileItemContainer tic = tile.getTileItemContainer();
+        if (tic != null) {
+            for (TileItem ti : tic.getCompleteItems()) {
+                key.add(ti);
+                if (ti instanceof TileImprovement) {
+                    key.add(((TileImprovement)ti).getMagnitude());
+                } else if (ti instanceof Resource) {
+                    key.add(((Resource)ti).getQuantity());
+                }
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Gets the state of the colony that the potential production of
+     * all its work locations depends on.
+     *
+     * Time limited modifiers (e.g. goods parties, disasters) may
+     * change value every turn, so while there are any the turn is
+     * part of the state.
+     *
+     * @return A list of objects that changes when the potentials might.
+     */
+    private List<Object> getColonyKey() {
+        final Player owner = colony.getOwner();
+        List<Object> key = new ArrayList<>();
+        key.add(owner);
+        key.add(owner.getPlayerType());
+        key.add(owner.getFatherCount());
+        key.add(colony.getProductionBonus());
+        key.addAll(transform(colony.getBuildings(), alwaysTrue(),
+                             Building::getType));
+        key.addAll(colony.getSortedModifiers());
+        if (any(colony.getModifiers(), Feature::hasTimeLimit)
+            || any(owner.getModifiers(), Feature::hasTimeLimit)) {
+            key.add(colony.getGame().getTurn().getNumber());
+        }
+        return key;
+    }
+
     /**
      * Updates the goods type lists.  The categories are:<UL>
      * <LI>food</LI>
@@ -868,7 +1000,7 @@ public class ColonyPlan {
                     return (i < 0 && !gt.isFoodType()) ? 99999 : i;
                 })
             .thenComparingInt((WorkLocationPlan wp) ->
-                wp.getWorkLocation().getGenericPotential(wp.getGoodsType()))
+                production.get(wp.getGoodsType()).get(wp.getWorkLocation()))
             .thenComparing((WorkLocationPlan wp) ->
                 wp.getGoodsType(), GoodsType.goodsTypeComparator);
         workPlans.sort(comp);
@@ -936,38 +1068,6 @@ public class ColonyPlan {
         }
     }
 
-    /**
-     * Tries to swap an expert unit for another doing its job.
-     *
-     * @param expert The expert {@code Unit}.
-     * @param others A list of other {@code Unit}s to test against.
-     * @param colony The {@code Colony} the units are working in.
-     * @return The unit that was replaced by the expert, or null if none.
-     */
-    private Unit trySwapExpert(Unit expert, List<Unit> others, Colony colony) {
-        final Role oldRole = expert.getRole();
-        final int oldRoleCount = expert.getRoleCount();
-        final GoodsType work = expert.getType().getExpertProduction();
-        final GoodsType oldWork = expert.getWorkType();
-        final Unit other = find(others, u ->
-            (u.isPerson() && u.getWorkType() == work
-                && u.getType().getExpertProduction() != work));
-        if (other != null) {
-            Location l1 = expert.getLocation();
-            Location l2 = other.getLocation();
-            other.setLocation(colony.getTile());
-            expert.setLocation(l2);
-            expert.changeWorkType(work);
-            other.setLocation(l1);
-            if (oldWork != null) other.changeWorkType(oldWork);
-            Role tmpRole = other.getRole();
-            int tmpRoleCount = other.getRoleCount();
-            other.changeRole(oldRole, oldRoleCount);
-            expert.changeRole(tmpRole, tmpRoleCount);
-        }
-        return other;
-    }
-
     /**
      * Finds a plan on a list that produces a given goods type.
      *
@@ -1025,16 +1125,14 @@ public class ColonyPlan {
         // Do not mutate the workers list!
         List<Unit> todo = new ArrayList<>(workers);
         List<Unit> best = new ArrayList<>();
-        int bestValue = colony.getAdjustedNetProductionOf(outputType);
+        // Try the workers in a snapshot rather than moving them.
+        final ProductionSnapshot snapshot = new ProductionSnapshot(colony);
+        int bestValue = snapshot.getAdjustedNetProductionOf(outputType);
         Unit special = null;
         best.clear();
         for (Unit u : transform(todo, u2 -> wl.canAdd(u2))) {
-            Location oldLoc = u.getLocation();
-            GoodsType oldWork = u.getWorkType();
-            u.setLocation(wl);
-            u.changeWorkType(goodsType);
-
-            int value = colony.getAdjustedNetProductionOf(outputType);
+            int value = snapshot.withUnit(u, wl, goodsType)
+                .getAdjustedNetProductionOf(outputType);
             if (value > bestValue) {
                 bestValue = value;
                 best.clear();
@@ -1048,9 +1146,6 @@ public class ColonyPlan {
                     special = u;
                 }
             }
-
-            u.setLocation(oldLoc);
-            u.changeWorkType(oldWork);
         }
 
         switch (best.size()) {
@@ -1416,46 +1511,15 @@ plans:          for (WorkLocationPlan w : getFoodPlans()) {
         // misplace experts when they are more productive at the
         // immediately required task than a lesser unit, not knowing
         // that a requirement for their speciality will subsequently
-        // follow.  Do a cleanup pass to sort these out.
-        List<Unit> experts = new ArrayList<>();
-        List<Unit> nonExperts = new ArrayList<>();
-        for (Unit u : col.getUnitList()) {
-            if (u.getType().getExpertProduction() != null) {
-                if (u.getType().getExpertProduction() != u.getWorkType()) {
-                    experts.add(u);
-                }
-            } else {
-                nonExperts.add(u);
-            }
-        }
-        int expert = 0;
-        while (expert < experts.size()) {
-            Unit u1 = experts.get(expert);
-            Unit other;
-            if ((other = trySwapExpert(u1, experts, col)) != null) {
-                lb.add("    Swapped ", u1.getId(), "(",
-                    u1.getType().getSuffix(), ") for ", other, "\n");
-                experts.remove(u1);
-            } else if ((other = trySwapExpert(u1, nonExperts, col)) != null) {
-                lb.add("    Swapped ", u1.getId(), "(",
-                    u1.getType().getSuffix(), ") for ", other, "\n");
-                experts.remove(u1);
-            } else {
-                expert++;
-            }
-        }
-        for (Unit u : new ArrayList<>(workers)) {
-            GoodsType work = u.getType().getExpertProduction();
-            if (work != null) {
-                Unit other = trySwapExpert(u, col.getUnitList(), col);
-                if (other != null) {
-                    lb.add("    Swapped ", u.getId(), "(",
-                        u.getType().getSuffix(), ") for ", other, "\n");
-                    workers.remove(u);
-                    workers.add(other);
-                }
-            }
-        }
+        // follow.  Keep the jobs it chose, but find the best units to
+        // do them, including any unused experts.
+        final List<Unit> placed = transform(col.getUnits(), u ->
+            u.getWorkType() != null && u.getLocation() instanceof WorkLocation);
+        List<Unit> candidates = new ArrayList<>(placed);
+        candidates.addAll(transform(workers, u ->
+                u.getType().getExpertProduction() != null));
+        reassignWorkers(col, new WorkerAssignment(candidates,
+                WorkerAssignment.getJobs(placed)), workers, lb);
 
         // Rearm what remains as far as possible.
         for (Unit u : sort(workers, soldierComparator)) {
@@ -1483,6 +1547,73 @@ plans:          for (WorkLocationPlan w : getFoodPlans()) {
         return col;
     }
 
+    /**
+     * Find the best units for the jobs in a scratch colony.
+     *
+     * Units that lose their jobs are added to the workers, and units
+     * that gain one are removed from them.  The changes are backed
+     * out if they would leave the colony short of food.
+     *
+     * @param col The scratch {@code Colony} to work on.
+     * @param assignment The {@code WorkerAssignment} of the candidate
+     *     units to the jobs.
+     * @param workers The list of {@code Unit}s still to be placed.
+     * @param lb A {@code LogBuilder} to log to.
+     * @return True if the units were reassigned.
+     */
+    boolean reassignWorkers(Colony col, WorkerAssignment assignment,
+                            List<Unit> workers, LogBuilder lb) {
+        final GoodsType foodType = spec().getPrimaryFoodType();
+        final Tile tile = col.getTile();
+        final Map<Unit, Occupation> best = assignment.getAssignment();
+        final List<Unit> moved = transform(assignment.getUnits(), u -> {
+                Occupation o = best.get(u);
+                return (o == null) ? u.getLocation() instanceof WorkLocation
+                    : u.getLocation() != o.workLocation
+                        || u.getWorkType() != o.workType;
+            });
+        if (moved.isEmpty()) return false;
+        final int oldFood = col.getAdjustedNetProductionOf(foodType);
+        Map<Unit, Location> oldLocations = new HashMap<>();
+        Map<Unit, GoodsType> oldWork = new HashMap<>();
+        for (Unit u : moved) {
+            oldLocations.put(u, u.getLocation());
+            oldWork.put(u, u.getWorkType());
+            u.setLocation(tile);
+        }
+        for (Unit u : moved) {
+            Occupation o = best.get(u);
+            if (o != null) o.install(u);
+        }
+        // Do not trade food for other production if it would starve.
+        final int food = col.getAdjustedNetProductionOf(foodType);
+        if (food < 0 && food < oldFood) {
+            for (Unit u : moved) u.setLocation(tile);
+            for (Unit u : moved) {
+                if (oldLocations.get(u) == tile) continue;
+                u.setLocation(oldLocations.get(u));
+                u.changeWorkType(oldWork.get(u));
+            }
+            lb.add("    Reassignment would starve\n");
+            return false;
+        }
+        for (Unit u : moved) {
+            Occupation o = best.get(u);
+            if (o == null) {
+                workers.add(u);
+                lb.add("    Displaced ", u.getId(), "(",
+                    u.getType().getSuffix(), ")\n");
+            } else {
+                workers.remove(u);
+                lb.add("    Reassigned ", u.getId(), "(",
+                    u.getType().getSuffix(), ") -> ",
+                    o.workType.getSuffix(), "@",
+                    locationDescription(o.workLocation), "\n");
+            }
+        }
+        return true;
+    }
+
     /**
      * Gets a concise textual description of a location associated with
      * the colony.  No i18n here, this is for debugging purposes.
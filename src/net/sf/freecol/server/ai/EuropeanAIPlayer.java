@@ -30,6 +30,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -1063,10 +1064,37 @@ public class EuropeanAIPlayer extends MissionAIPlayer {
     /**
      * Rearrange colonies.
      *
+     * When AI planning is concurrent, all the colonies are prepared
+     * first, then their plans are updated in parallel, and finally the
+     * plans are applied in the usual colony order.  This is
+     * deterministic, but not identical to the serial rearrangement, as
+     * the later colonies are planned before the earlier ones are
+     * rearranged.
+     *
      * @param lb A {@code LogBuilder} to log to.
      */
     private void rearrangeColonies(LogBuilder lb) {
-        for (AIColony aic : getAIColonies()) aic.rearrangeColony(lb);
+        final AIMain aiMain = getAIMain();
+        if (!aiMain.isConcurrentPlanning()) {
+            for (AIColony aic : getAIColonies()) aic.rearrangeColony(lb);
+            return;
+        }
+
+        List<AIColony> aics = new ArrayList<>();
+        List<LogBuilder> lbs = new ArrayList<>();
+        for (AIColony aic : getAIColonies()) {
+            LogBuilder clb = new LogBuilder((lb.isEnabled()) ? 256 : 0);
+            if (aic.prepareRearrange(clb)) {
+                aics.add(aic);
+                lbs.add(clb);
+            }
+        }
+        aiMain.runPlanningTasks(transform(aics, alwaysTrue(),
+                aic -> (Runnable)aic::updateColonyPlan));
+        for (int i = 0; i < aics.size(); i++) {
+            aics.get(i).applyRearrange(lbs.get(i));
+            lb.add(lbs.get(i).toString());
+        }
     }
 
 
@@ -2257,15 +2285,18 @@ public class EuropeanAIPlayer extends MissionAIPlayer {
         // AIPlayer.createAIUnits which we want to do early, certainly
         // before cheat() or other operations that might make new units
         // happen.
-        LogBuilder lb = new LogBuilder(1024);
+        LogBuilder lb = new LogBuilder(logger, Level.FINE, 1024);
         int colonyCount = getAIColonies().size();
         lb.add(player.getDebugName(),
                " in ", turn, "/", turn.getNumber(),
                " units=", getAIUnits().size(),
                " colonies=", colonyCount,
-               " declare=", (player.checkDeclareIndependence() == null),
-               " v-land-REF=", player.getRebelStrengthRatio(false),
-               " v-naval-REF=", player.getRebelStrengthRatio(true));
+               " declare=", (Supplier<Boolean>)() ->
+                   player.checkDeclareIndependence() == null,
+               " v-land-REF=", (Supplier<Double>)() ->
+                   player.getRebelStrengthRatio(false),
+               " v-naval-REF=", (Supplier<Double>)() ->
+                   player.getRebelStrengthRatio(true));
         if (turn.isFirstTurn()) initializeMissions(lb);
         determineStances(lb);
 
@@ -2299,7 +2330,7 @@ public class EuropeanAIPlayer extends MissionAIPlayer {
             if (aiUnits.isEmpty()) break;
             aiUnits = doMissions(aiUnits, lb);
         }
-        lb.log(logger, Level.FINE);
+        lb.log();
 
         clearAIUnits();
         tipMap.clear();
@@ -729,7 +729,7 @@ public class NativeAIPlayer extends MissionAIPlayer {
         final int nSettlements = player.getSettlementCount();
         final Random air = getAIRandom();
 
-        LogBuilder lb = new LogBuilder(1024);
+        LogBuilder lb = new LogBuilder(logger, Level.FINEST, 1024);
         lb.add(player.getDebugName(), " in ", turn, "/", turn.getNumber());
 
         clearAIUnits();
@@ -759,7 +759,7 @@ public class NativeAIPlayer extends MissionAIPlayer {
             doMissions(more, lb);
         }
         clearAIUnits();
-        lb.log(logger, Level.FINEST);
+        lb.log();
     }
 
     /**
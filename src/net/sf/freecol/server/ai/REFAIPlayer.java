@@ -222,10 +222,10 @@ public class REFAIPlayer extends EuropeanAIPlayer {
         }
         targets.sort(Comparator.naturalOrder());
 
-        LogBuilder lb = new LogBuilder(64);
+        LogBuilder lb = new LogBuilder(logger, Level.FINE, 64);
         lb.add("REF found colony targets:");
         for (TargetTuple t : targets) lb.add(" ", t.colony, "(", t.score, ")");
-        lb.log(logger, Level.FINE);
+        lb.log();
         return targets;
     }
 
@@ -285,7 +285,7 @@ public class REFAIPlayer extends EuropeanAIPlayer {
         final Player rebel = targets.get(0).colony.getOwner();
         double ratio = getStrengthRatio(rebel);
         int n = targets.size();
-        LogBuilder lb = new LogBuilder(64);
+        LogBuilder lb = new LogBuilder(logger, Level.FINE, 64);
         lb.add("REF attacking ", rebel.getName(), " ratio=", ratio);
 
         // For each target search from the target position to find a
@@ -459,7 +459,7 @@ public class REFAIPlayer extends EuropeanAIPlayer {
                 }
             }
         }
-        lb.log(logger, Level.FINE);
+        lb.log();
         return true;
     }
 
@@ -861,9 +861,9 @@ public class REFAIPlayer extends EuropeanAIPlayer {
             }
         }
         if (!land.isEmpty() && !transport.isEmpty()) {
-            LogBuilder lb = new LogBuilder(256);
+            LogBuilder lb = new LogBuilder(logger, Level.FINE, 256);
             allocateTransportables(land, transport, lb);
-            lb.log(logger, Level.FINE);
+            lb.log();
         }
     }
 
@@ -308,6 +308,15 @@ public class ChangeSet {
             return true;
         }
 
+        /**
+         * Is this Change a complete update of a single object?
+         *
+         * @return False by default.
+         */
+        public boolean isObjectUpdate() {
+            return false;
+        }
+
         /**
          * Specialize a Change for a particular player.
          *
@@ -824,6 +833,14 @@ public class ChangeSet {
             return element;
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isObjectUpdate() {
+            return true;
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -893,6 +910,14 @@ public class ChangeSet {
             return element;
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isObjectUpdate() {
+            return false;
+        }
+
 
         // Override Object
 
@@ -1861,15 +1886,34 @@ public class ChangeSet {
         List<Element> elements = new ArrayList<>();
         List<Change> diverted = new ArrayList<>();
         Document doc = DOMMessage.createNewDocument();
+        final UpdateHistory history = (serverPlayer.isConnected())
+            ? serverPlayer.getUpdateHistory() : null;
 
         // For all sorted changes, if it is notifiable to the target
         // player then convert it to an Element, or divert for later
-        // attachment.  Then add all consequence changes to the list.
+        // attachment.  Object updates are cut down to the objects
+        // within them that would change the client copy.  Then add
+        // all consequence changes to the list.
         while (!c.isEmpty()) {
             Change change = c.remove(0);
             if (change.isNotifiable(serverPlayer)) {
                 if (change.convertsToElement()) {
-                    elements.add(change.toElement(serverPlayer, doc));
+                    Element element = change.toElement(serverPlayer, doc);
+                    if (history == null) {
+                        elements.add(element);
+                    } else if (change.isObjectUpdate()) {
+                        Element object = (Element)element.getFirstChild();
+                        List<Element> parts = history.reduce(object,
+                            serverPlayer.getGame());
+                        if (!parts.isEmpty()) {
+                            element.removeChild(object);
+                            for (Element e : parts) element.appendChild(e);
+                            elements.add(element);
+                        }
+                    } else {
+                        history.forget(element);
+                        elements.add(element);
+                    }
                 } else {
                     diverted.add(change);
                 }
@@ -155,6 +155,9 @@ public final class InGameController extends Controller {
     private MonarchAction debugMonarchAction = null;
     private ServerPlayer debugMonarchPlayer = null;
 
+    /** When the current turn started, for timing debug runs. */
+    private long debugTurnStart = -1L;
+
 
     /**
      * The constructor to use.
@@ -1985,15 +1988,27 @@ public final class InGameController extends Controller {
             // Check for new turn
             ChangeSet cs = new ChangeSet();
             if (game.isNextPlayerInNewTurn()) {
+                if (debugOnlyAITurns > 0) {
+                    // Time the turns of a debug run, so they can be
+                    // used as a benchmark.
+                    long now = System.currentTimeMillis();
+                    if (debugTurnStart >= 0L) {
+                        logger.info("Debug run turn " + game.getTurn()
+                            + " took " + (now - debugTurnStart)
+                            + "ms with " + FreeCol.getAIThreads()
+                            + " AI planning threads.");
+                    }
+                    debugTurnStart = now;
+                }
                 ChangeSet next = new ChangeSet();
                 game.csNextTurn(next);
                 game.sendToAll(next);
 
-                LogBuilder lb = new LogBuilder(512);
+                LogBuilder lb = new LogBuilder(logger, Level.FINEST, 512);
                 lb.add("New turn ", game.getTurn(), " for ");
                 game.csNewTurn(random, lb, cs);
                 lb.shrink(", ");
-                lb.log(logger, Level.FINEST);
+                lb.log();
                 if (debugOnlyAITurns > 0) {
                     if (--debugOnlyAITurns <= 0) {
                         // If this was a debug run, complete it.  This will
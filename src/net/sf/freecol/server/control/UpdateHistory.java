@@ -0,0 +1,311 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.server.control;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.freecol.common.debug.FreeColDebugger;
+import net.sf.freecol.common.model.FreeColGameObject;
+import net.sf.freecol.common.model.FreeColObject;
+import net.sf.freecol.common.model.Game;
+import net.sf.freecol.common.model.Player;
+import net.sf.freecol.common.model.TradeRoute;
+import net.sf.freecol.common.model.Unit;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+
+/**
+ * Remembers what the server last told a player about each object, so
+ * that full object updates can be cut down to the objects within them
+ * that the client copy does not already match.
+ *
+ * The client reads an update of an object in place, replacing its
+ * attributes and child lists, and reading the objects within it as
+ * it would read an update of each of them alone.  So each game object
+ * in an update is recorded by a digest of its own part: its
+ * attributes, text, and the elements within it that are not game
+ * objects, with the game objects within it reduced to their tag and
+ * identifier.  When an object is updated again with the same own
+ * part, only the objects within it that changed need be sent, each
+ * as an update by itself.
+ *
+ * The client changes some objects by itself, for example a unit
+ * skipped on a trade route loses its moves.  Those object types are
+ * never recorded, so they are always sent.  Debug mode edits objects
+ * on the client, so nothing is recorded while the debug menus are
+ * enabled.  Any other mention of an object in an outgoing message, in
+ * a removal, an animation, a partial update or a message that is not
+ * a change set, forgets the object and everything recorded as
+ * containing it.
+ */
+public final class UpdateHistory {
+
+    /** FNV-1a parameters. */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** The tags of the objects the client changes by itself. */
+    private static final Set<String> CLIENT_CHANGED
+        = new HashSet<>(Arrays.asList(Player.TAG, TradeRoute.TAG, Unit.TAG));
+
+    /** The digest of the own part last sent, by object identifier. */
+    private final Map<String, Long> digests = new HashMap<>();
+
+    /** The recorded objects containing an object, by identifier. */
+    private final Map<String, Set<String>> containers = new HashMap<>();
+
+    /** Statistics. */
+    private long sent = 0, suppressed = 0;
+
+
+    /**
+     * Reduce a full object update to the parts the client does not
+     * already have.  The parts to send are recorded as the client's
+     * current copy of those objects.
+     *
+     * @param element The serialized object {@code Element}.
+     * @param game The {@code Game} the object belongs to.
+     * @return A list of the {@code Element}s to send in its place,
+     *     which are the element itself or elements within it, or
+     *     empty if the client copy is already up to date.
+     */
+    public synchronized List<Element> reduce(Element element, Game game) {
+        if (FreeColDebugger.isInDebugMode(FreeColDebugger.DebugMode.MENUS)) {
+            clear();
+            this.sent++;
+            return Collections.singletonList(element);
+        }
+        List<Element> result = new ArrayList<>();
+        reduce(element, game, result);
+        return result;
+    }
+
+    /**
+     * Reduce an object update, adding the parts to send to a list.
+     *
+     * @param element The serialized object {@code Element}.
+     * @param game The {@code Game} the object belongs to.
+     * @param result A list of {@code Element}s to add to.
+     */
+    private void reduce(Element element, Game game, List<Element> result) {
+        if (isObject(element, game)
+            && !CLIENT_CHANGED.contains(element.getTagName())) {
+            final String id = getId(element);
+            List<Element> contents = new ArrayList<>();
+            final long digest = digest(element, FNV_OFFSET, game, contents);
+            Long old = this.digests.get(id);
+            if (old != null && old == digest) {
+                this.suppressed++;
+                for (Element e : contents) reduce(e, game, result);
+                return;
+            }
+        }
+        this.sent++;
+        record(element, game);
+        result.add(element);
+    }
+
+    /**
+     * Record the objects in an element that is to be sent.
+     *
+     * @param element The {@code Element} to be sent.
+     * @param game The {@code Game} the objects belong to.
+     */
+    private void record(Element element, Game game) {
+        if (!isObject(element, game)) {
+            forget(element);
+            return;
+        }
+        final String id = getId(element);
+        List<Element> contents = new ArrayList<>();
+        final long digest = digest(element, FNV_OFFSET, game, contents);
+        if (CLIENT_CHANGED.contains(element.getTagName())) {
+            this.digests.remove(id);
+        } else {
+            this.digests.put(id, digest);
+        }
+        for (Element e : contents) {
+            record(e, game);
+            final String c = getId(e);
+            Set<String> s = this.containers.get(c);
+            if (s == null) {
+                s = new HashSet<>();
+                this.containers.put(c, s);
+            }
+            s.add(id);
+        }
+    }
+
+    /**
+     * Forget all the objects mentioned in an element.
+     *
+     * @param element The outgoing {@code Element}.
+     */
+    public synchronized void forget(Element element) {
+        String id = getId(element);
+        if (!id.isEmpty()) forget(id);
+        for (Node n = element.getFirstChild(); n != null;
+             n = n.getNextSibling()) {
+            if (n instanceof Element) forget((Element)n);
+        }
+    }
+
+    /**
+     * Forget an object, and every object recorded as containing it.
+     *
+     * @param id The object identifier.
+     */
+    private void forget(String id) {
+        this.digests.remove(id);
+        Set<String> s = this.containers.remove(id);
+        if (s != null) {
+            for (String c : s) this.digests.remove(c);
+        }
+    }
+
+    /**
+     * Forget everything, as when the client has been sent a new copy
+     * of the whole game.
+     */
+    public synchronized void clear() {
+        this.digests.clear();
+        this.containers.clear();
+    }
+
+    /**
+     * Gets the number of objects sent in full.
+     *
+     * @return The sent count.
+     */
+    public synchronized long getSentCount() {
+        return this.sent;
+    }
+
+    /**
+     * Gets the number of objects whose own part was dropped as
+     * unchanged.
+     *
+     * @return The suppressed count.
+     */
+    public synchronized long getSuppressedCount() {
+        return this.suppressed;
+    }
+
+    /**
+     * Get the identifier of an element.
+     *
+     * @param element The {@code Element} to check.
+     * @return The identifier, or the empty string if none.
+     */
+    private static String getId(Element element) {
+        return element.getAttribute(FreeColObject.ID_ATTRIBUTE_TAG);
+    }
+
+    /**
+     * Is an element a complete serialization of a game object, that
+     * the client can read as an update by itself?
+     *
+     * @param element The {@code Element} to check.
+     * @param game The {@code Game} to look the object up in.
+     * @return True if the element is a game object.
+     */
+    private static boolean isObject(Element element, Game game) {
+        final String id = getId(element);
+        if (id.isEmpty()) return false;
+        FreeColGameObject fcgo = game.getFreeColGameObject(id);
+        return fcgo != null
+            && fcgo.getXMLTagName().equals(element.getTagName());
+    }
+
+    /**
+     * Digest the own part of an element tree, collecting the game
+     * objects within it.
+     *
+     * @param element The {@code Element} to digest.
+     * @param h The digest so far.
+     * @param game The {@code Game} to look objects up in.
+     * @param contents A list to add the game object elements to.
+     * @return The new digest.
+     */
+    private static long digest(Element element, long h, Game game,
+                               List<Element> contents) {
+        h = digest(element.getTagName(), h);
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node a = attributes.item(i);
+            h = digest(a.getNodeName(), h);
+            h = digest(a.getNodeValue(), h);
+        }
+        for (Node n = element.getFirstChild(); n != null;
+             n = n.getNextSibling()) {
+            if (n instanceof Element) {
+                Element e = (Element)n;
+                if (isObject(e, game)) {
+                    contents.add(e);
+                    h = digest(e.getTagName(), h);
+                    h = digest(getId(e), h);
+                } else {
+                    h = digest(e, h, game, contents);
+                }
+            } else if (n.getNodeType() == Node.TEXT_NODE) {
+                h = digest(n.getNodeValue(), h);
+            }
+            h = (h ^ '/') * FNV_PRIME;
+        }
+        return (h ^ '>') * FNV_PRIME;
+    }
+
+    /**
+     * Add a string to a digest.  The string is terminated so that
+     * adjacent strings can not be confused.
+     *
+     * @param s The string to add.
+     * @param h The digest so far.
+     * @return The new digest.
+     */
+    private static long digest(String s, long h) {
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return (h ^ 0xffff) * FNV_PRIME;
+    }
+
+
+    // Override Object
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString() {
+        return "[UpdateHistory objects=" + this.digests.size()
+            + " sent=" + this.sent + " suppressed=" + this.suppressed + "]";
+    }
+}
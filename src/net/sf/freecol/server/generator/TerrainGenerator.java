@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import net.sf.freecol.common.model.Game;
 import net.sf.freecol.common.model.LandMap;
@@ -63,6 +64,27 @@ public class TerrainGenerator {
     public static final int LAND_REGION_MIN_SCORE = 5;
     public static final int LAND_REGION_MAX_SIZE = 75;
 
+    /**
+     * The number of rows in each latitude band processed as a unit
+     * by the parallel terrain generation.  Fixed, so that the map
+     * generated for a given seed does not depend on the number of
+     * processors.
+     */
+    private static final int BAND_ROWS = 8;
+
+    /** The bonuses to add to a tile, decided before they are created. */
+    private static class Bonus {
+
+        /** Add the land and river fish bonus improvements? */
+        public boolean fishLand = false, fishRiver = false;
+
+        /** The type of resource to add, if any. */
+        public ResourceType resourceType = null;
+
+        /** The quantity of the resource. */
+        public int quantity = 0;
+    }
+
     /** The Game to generate for. */
     private final Game game;
 
@@ -135,9 +157,22 @@ public class TerrainGenerator {
      * @return The created tile.
      */
     private Tile createTile(int x, int y, LandMap landMap, int latitude) {
-        return (landMap.isLand(x, y))
-            ? new Tile(game, getRandomLandTileType(latitude), x, y)
-            : new Tile(game, getRandomOceanTileType(latitude), x, y);
+        return new Tile(game, getRandomTileType(landMap.isLand(x, y),
+                                                latitude, random), x, y);
+    }
+
+    /**
+     * Gets a random land or ocean tile type.
+     *
+     * @param land If true choose a land tile type, otherwise ocean.
+     * @param latitude The tile latitude.
+     * @param random A pseudo-random number source.
+     * @return A suitable random tile type.
+     */
+    private TileType getRandomTileType(boolean land, int latitude,
+                                       Random random) {
+        return (land) ? getRandomLandTileType(latitude, random)
+            : getRandomOceanTileType(latitude, random);
     }
 
     /**
@@ -147,31 +182,51 @@ public class TerrainGenerator {
      *     poles and equator:
      *     0 is the mid-section of the map (equator)
      *     +/-90 is on the bottom/top of the map (poles).
+     * @param random A pseudo-random number source.
      * @return A suitable random land tile type.
      */
-    private TileType getRandomLandTileType(int latitude) {
+    private TileType getRandomLandTileType(int latitude, Random random) {
+        return getRandomTileType(getLandTileTypes(), latitude, random);
+    }
+
+    /**
+     * Gets the land tile types to choose from.
+     *
+     * @return A list of land {@code TileType}s.
+     */
+    private List<TileType> getLandTileTypes() {
         if (landTileTypes == null) {
             // Do not generate elevated and water tiles at this time
             // they are created elsewhere.
             landTileTypes = transform(spec.getTileTypeList(),
                                       t -> !t.isElevation() && !t.isWater());
         }
-        return getRandomTileType(landTileTypes, latitude);
+        return landTileTypes;
     }
 
     /**
      * Gets a random ocean tile type.
      *
      * @param latitude The latitude of the proposed tile.
+     * @param random A pseudo-random number source.
      * @return A suitable random ocean tile type.
      */
-    private TileType getRandomOceanTileType(int latitude) {
+    private TileType getRandomOceanTileType(int latitude, Random random) {
+        return getRandomTileType(getOceanTileTypes(), latitude, random);
+    }
+
+    /**
+     * Gets the ocean tile types to choose from.
+     *
+     * @return A list of ocean {@code TileType}s.
+     */
+    private List<TileType> getOceanTileTypes() {
         if (oceanTileTypes == null) {
             oceanTileTypes = transform(spec.getTileTypeList(),
                                        t -> t.isWater() && t.isHighSeasConnected()
                                            && !t.isDirectlyHighSeasConnected());
         }
-        return getRandomTileType(oceanTileTypes, latitude);
+        return oceanTileTypes;
     }
 
     /**
@@ -182,10 +237,11 @@ public class TerrainGenerator {
      * @param candidates A list of {@code TileType}s to use for
      *     calculations.
      * @param latitude The tile latitude.
+     * @param random A pseudo-random number source.
      * @return A suitable {@code TileType}.
      */
     private TileType getRandomTileType(List<TileType> candidates,
-                                       int latitude) {
+                                       int latitude, Random random) {
         // decode options
         final int forestChance
             = mapOptions.getInteger(MapGeneratorOptions.FOREST_NUMBER);
@@ -723,18 +779,30 @@ public class TerrainGenerator {
      * @param generateBonus Generate the bonus or not.
      */
     private void perhapsAddBonus(Tile t, boolean generateBonus) {
-        final Specification spec = t.getSpecification();
-        TileImprovementType fishBonusLandType
-            = spec.getTileImprovementType("model.improvement.fishBonusLand");
-        TileImprovementType fishBonusRiverType
-            = spec.getTileImprovementType("model.improvement.fishBonusRiver");
+        addBonus(t, chooseBonus(t, generateBonus, random));
+    }
+
+    /**
+     * Decide which terrain bonuses to add to a tile, with a
+     * probability determined by the {@code MapGeneratorOptions}.
+     *
+     * Only reads the map, so may be called concurrently for
+     * different tiles given separate random number sources.
+     *
+     * @param t The {@code Tile} to add bonuses to.
+     * @param generateBonus Generate the bonus or not.
+     * @param random A pseudo-random number source.
+     * @return The {@code Bonus} to add, or null if none.
+     */
+    private Bonus chooseBonus(Tile t, boolean generateBonus, Random random) {
         final int bonusNumber
             = mapOptions.getInteger(MapGeneratorOptions.BONUS_NUMBER);
+        Bonus bonus = new Bonus();
         if (t.isLand()) {
             if (generateBonus
                 && randomInt(logger, "Land Resource", random, 100) < bonusNumber) {
                 // Create random Bonus Resource
-                t.addResource(createResource(t));
+                chooseResource(t, bonus, random);
             }
         } else {
             int adjacentLand = 0;
@@ -751,50 +819,72 @@ public class TerrainGenerator {
 
             // In Col1, ocean tiles with less than 3 land neighbours
             // produce 2 fish, all others produce 4 fish
-            if (adjacentLand > 2) {
-                t.add(new TileImprovement(game, t, fishBonusLandType, null));
-            }
+            bonus.fishLand = adjacentLand > 2;
 
             // In Col1, the ocean tile in front of a river mouth would
             // get an additional +1 bonus
             // FIXME: This probably has some false positives, means
             // river tiles that are NOT a river mouth next to this tile!
-            if (!t.hasRiver() && adjacentRiver) {
-                t.add(new TileImprovement(game, t, fishBonusRiverType, null));
-            }
+            bonus.fishRiver = !t.hasRiver() && adjacentRiver;
 
             if (t.getType().isHighSeasConnected()) {
                 if (generateBonus && adjacentLand > 1
                     && randomInt(logger, "Sea resource", random,
                                  10 - adjacentLand) == 0) {
-                    t.addResource(createResource(t));
+                    chooseResource(t, bonus, random);
                 }
             } else {
                 if (randomInt(logger, "Water resource", random, 100) < bonusNumber) {
                     // Create random Bonus Resource
-                    t.addResource(createResource(t));
+                    chooseResource(t, bonus, random);
                 }
             }
         }
+        return (bonus.fishLand || bonus.fishRiver
+            || bonus.resourceType != null) ? bonus : null;
     }
 
     /**
-     * Create a random resource on a tile.
+     * Choose a random resource for a tile.
      *
-     * @param tile The {@code Tile} to create the resource on.
-     * @return The created resource, or null if it is not possible.
+     * @param tile The {@code Tile} to choose the resource for.
+     * @param bonus The {@code Bonus} to record the choice in.
+     * @param random A pseudo-random number source.
      */
-    private Resource createResource(Tile tile) {
-        if (tile == null) return null;
+    private void chooseResource(Tile tile, Bonus bonus, Random random) {
         ResourceType resourceType = RandomChoice.getWeightedRandom(null, null,
             tile.getType().getWeightedResources(), random);
-        if (resourceType == null) return null;
+        if (resourceType == null) return;
         int minValue = resourceType.getMinValue();
         int maxValue = resourceType.getMaxValue();
-        int quantity = (minValue == maxValue) ? maxValue
+        bonus.resourceType = resourceType;
+        bonus.quantity = (minValue == maxValue) ? maxValue
             : (minValue + randomInt(logger, "Rsiz", random, 
                                     maxValue - minValue + 1));
-        return new Resource(game, tile, resourceType, quantity);
+    }
+
+    /**
+     * Add previously chosen bonuses to a tile.
+     *
+     * @param t The {@code Tile} to add bonuses to.
+     * @param bonus The {@code Bonus} to add, or null if none.
+     */
+    private void addBonus(Tile t, Bonus bonus) {
+        if (bonus == null) return;
+        if (bonus.fishLand) {
+            t.add(new TileImprovement(game, t, spec
+                    .getTileImprovementType("model.improvement.fishBonusLand"),
+                    null));
+        }
+        if (bonus.fishRiver) {
+            t.add(new TileImprovement(game, t, spec
+                    .getTileImprovementType("model.improvement.fishBonusRiver"),
+                    null));
+        }
+        if (bonus.resourceType != null) {
+            t.addResource(new Resource(game, t, bonus.resourceType,
+                                       bonus.quantity));
+        }
     }
 
     // @compat 0.10.x
@@ -842,6 +932,88 @@ public class TerrainGenerator {
         tile.setStyle(result);
     }
 
+    // Parallel generation.
+    //
+    // The map is split into bands of BAND_ROWS rows, each of which
+    // gets its own random number source seeded in order from the
+    // main one.  Within a band the work is done serially, so the
+    // result only depends on the seed, whatever order the bands are
+    // run in.  Game objects are not thread safe and take their
+    // identifiers in order of creation, so the bands only make
+    // decisions, and the objects are created afterwards in tile order.
+
+    /**
+     * Get a random number source for each band of the map.
+     *
+     * @param height The map height.
+     * @return An array of {@code Random}s, one per band.
+     */
+    private Random[] getBandRandoms(int height) {
+        Random[] randoms = new Random[(height + BAND_ROWS - 1) / BAND_ROWS];
+        for (int i = 0; i < randoms.length; i++) {
+            randoms[i] = new Random(random.nextLong());
+        }
+        return randoms;
+    }
+
+    /**
+     * Choose the types of all the tiles of a new map, in parallel.
+     *
+     * @param map The new {@code Map}, used to find the latitudes.
+     * @param landMap The {@code LandMap} to use as a template.
+     * @return The chosen tile types, indexed by row then column.
+     */
+    private TileType[][] chooseTileTypes(Map map, LandMap landMap) {
+        final int width = landMap.getWidth(), height = landMap.getHeight();
+        final Random[] randoms = getBandRandoms(height);
+        final TileType[][] types = new TileType[height][width];
+        // Initialize the type lists before going parallel.
+        getLandTileTypes();
+        getOceanTileTypes();
+        IntStream.range(0, randoms.length).parallel().forEach(band -> {
+                final Random r = randoms[band];
+                final int yEnd = Math.min(height, (band + 1) * BAND_ROWS);
+                for (int y = band * BAND_ROWS; y < yEnd; y++) {
+                    int latitude = map.getLatitude(y);
+                    for (int x = 0; x < width; x++) {
+                        types[y][x] = getRandomTileType(landMap.isLand(x, y),
+                                                        latitude, r);
+                    }
+                }
+            });
+        return types;
+    }
+
+    /**
+     * Add the bonuses to a completed map and encode the water tile
+     * styles, deciding on the bonuses in parallel.
+     *
+     * @param map The {@code Map} to add to.
+     * @param generateBonus Generate the resources or not.
+     */
+    private void addBonuses(Map map, boolean generateBonus) {
+        final int width = map.getWidth(), height = map.getHeight();
+        final Random[] randoms = getBandRandoms(height);
+        final Bonus[][] bonuses = new Bonus[height][];
+        IntStream.range(0, randoms.length).parallel().forEach(band -> {
+                final Random r = randoms[band];
+                final int yEnd = Math.min(height, (band + 1) * BAND_ROWS);
+                for (int y = band * BAND_ROWS; y < yEnd; y++) {
+                    bonuses[y] = new Bonus[width];
+                    for (int x = 0; x < width; x++) {
+                        Tile t = map.getTile(x, y);
+                        bonuses[y][x] = chooseBonus(t, generateBonus, r);
+                        if (!t.isLand()) encodeStyle(t);
+                    }
+                }
+            });
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                addBonus(map.getTile(x, y), bonuses[y][x]);
+            }
+        }
+    }
+
     // Main functionality, create the map.
 
     /**
@@ -860,6 +1032,8 @@ public class TerrainGenerator {
             && mapOptions.getBoolean(MapGeneratorOptions.IMPORT_RUMOURS);
         final boolean importTerrain = (importGame != null)
             && mapOptions.getBoolean(MapGeneratorOptions.IMPORT_TERRAIN);
+        final boolean parallel
+            = mapOptions.getBoolean(MapGeneratorOptions.PARALLEL_TERRAIN);
 
         boolean mapHasLand = false;
         Map map = new Map(game, width, height);
@@ -895,6 +1069,10 @@ public class TerrainGenerator {
             lb.add("\n");
         }
 
+        // Choose the tile types in parallel if allowed.
+        final TileType[][] types = (parallel && !importTerrain)
+            ? chooseTileTypes(map, landMap) : null;
+
         List<Tile> fixRegions = new ArrayList<>();
         for (int y = 0; y < height; y++) {
             int latitude = map.getLatitude(y);
@@ -934,6 +1112,8 @@ public class TerrainGenerator {
                             ours.addTile(t);
                         }
                     }
+                } else if (types != null) {
+                    t = new Tile(game, types[y][x], x, y);
                 } else {
                     t = createTile(x, y, landMap, latitude);
                 }
@@ -983,10 +1163,14 @@ public class TerrainGenerator {
         // Add the bonuses only after the map is completed.
         // Otherwise we risk creating resources on fields where they
         // do not belong (like sugar in large rivers or tobacco on hills).
-        map.forEachTile(t -> {
-                perhapsAddBonus(t, !importBonuses);
-                if (!t.isLand()) encodeStyle(t);
-            });
+        if (parallel) {
+            addBonuses(map, !importBonuses);
+        } else {
+            map.forEachTile(t -> {
+                    perhapsAddBonus(t, !importBonuses);
+                    if (!t.isLand()) encodeStyle(t);
+                });
+        }
 
         // Final cleanups
         map.resetContiguity();
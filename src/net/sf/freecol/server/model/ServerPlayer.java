@@ -109,6 +109,7 @@ import static net.sf.freecol.common.util.RandomUtils.*;
 import net.sf.freecol.server.control.ChangeSet;
 import net.sf.freecol.server.control.ChangeSet.ChangePriority;
 import net.sf.freecol.server.control.ChangeSet.See;
+import net.sf.freecol.server.control.UpdateHistory;
 
 import org.w3c.dom.Element;
 
@@ -165,6 +166,9 @@ public class ServerPlayer extends Player implements ServerModelObject {
     /** Accumulate extra trades here. */
     private final List<AbstractGoods> extraTrades = new ArrayList<>();
 
+    /** What the client has been told about each object. */
+    private final UpdateHistory updateHistory = new UpdateHistory();
+
 
     /**
      * Trivial constructor required for all ServerModelObjects.
@@ -291,6 +295,7 @@ public class ServerPlayer extends Player implements ServerModelObject {
      *     connected to the server.
      */
     public void setConnected(boolean connected) {
+        if (connected != this.connected) this.updateHistory.clear();
         this.connected = connected;
     }
 
@@ -311,6 +316,16 @@ public class ServerPlayer extends Player implements ServerModelObject {
     public void setConnection(Connection connection) {
         this.connection = connection;
         this.connected = this.connection != null;
+        this.updateHistory.clear();
+    }
+
+    /**
+     * Gets the record of the object updates sent to this player.
+     *
+     * @return The {@code UpdateHistory}.
+     */
+    public UpdateHistory getUpdateHistory() {
+        return this.updateHistory;
     }
 
     /**
@@ -330,7 +345,10 @@ public class ServerPlayer extends Player implements ServerModelObject {
      * @return The resulting {@code DOMMessage}.
      */
     public DOMMessage ask(Game game, DOMMessage request) {
-        return (isConnected()) ? this.connection.ask(game, request) : null;
+        if (!isConnected()) return null;
+        // The message may carry objects the update history relies on.
+        this.updateHistory.forget(request.toXMLElement());
+        return this.connection.ask(game, request);
     }
     
     /**
@@ -1189,7 +1207,7 @@ public class ServerPlayer extends Player implements ServerModelObject {
         List<Unit> leftOver = new ArrayList<>();
         randomShuffle(logger, "Naval load", navalUnits, random);
         randomShuffle(logger, "Land load", landUnits, random);
-        LogBuilder lb = new LogBuilder(256);
+        LogBuilder lb = new LogBuilder(logger, Level.FINEST, 256);
         lb.mark();
         for (Unit unit : landUnits) {
             Unit carrier = find(navalUnits, u -> u.canAdd(unit));
@@ -1202,7 +1220,7 @@ public class ServerPlayer extends Player implements ServerModelObject {
         }
         if (lb.grew("Load ships: ")) {
             lb.shrink(", ");
-            lb.log(logger, Level.FINEST);
+            lb.log();
         }        
         return leftOver;
     }
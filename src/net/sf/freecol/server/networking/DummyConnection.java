@@ -21,6 +21,8 @@ package net.sf.freecol.server.networking;
 
 import java.io.IOException;
 
+import javax.xml.stream.XMLStreamException;
+
 import net.sf.freecol.common.FreeColException;
 import net.sf.freecol.common.networking.Connection;
 import net.sf.freecol.common.networking.MessageHandler;
@@ -38,6 +40,12 @@ public final class DummyConnection extends Connection {
 
     private DummyConnection otherConnection;
 
+    /**
+     * If true, messages are encoded and decoded in the wire format
+     * as if they were sent over a socket.
+     */
+    private boolean simulateWire = false;
+
 
     /**
      * Sets up a dummy connection using the specified {@link MessageHandler}s.
@@ -81,6 +89,65 @@ public final class DummyConnection extends Connection {
         return otherConnection;
     }
 
+    /**
+     * Should messages be encoded and decoded as if sent over a
+     * socket?  This is slower, but counts the bytes that would be
+     * sent in the current wire format.
+     *
+     * @param simulateWire The new wire simulation state.
+     */
+    public void setSimulateWire(boolean simulateWire) {
+        this.simulateWire = simulateWire;
+    }
+
+    /**
+     * Pass a message to the other connection through the wire format
+     * if simulating the wire.
+     *
+     * @param element The {@code Element} to send.
+     * @return The {@code Element} as received by the other connection.
+     * @exception IOException if the message can not be encoded or decoded.
+     */
+    private Element transmit(Element element) throws IOException {
+        if (!this.simulateWire || element == null) return element;
+        // Encode and decode together, keeping the binary string
+        // tables of both ends in step.
+        synchronized (this) {
+            byte[] bytes = encodeMessage(element);
+            countBytes(true, bytes.length);
+            this.otherConnection.countBytes(false, bytes.length);
+            return this.otherConnection.decodeMessage(bytes);
+        }
+    }
+
+    /**
+     * Have the other connection handle a message.  If simulating the
+     * wire and the other connection is streaming XML, it reads the
+     * message straight from the encoded bytes.
+     *
+     * @param element The {@code Element} to send.
+     * @return The reply from the other connection.
+     * @exception FreeColException if there is a handler problem.
+     * @exception IOException if the message can not be encoded or decoded.
+     */
+    private Element deliver(Element element)
+        throws FreeColException, IOException {
+        if (this.simulateWire && element != null
+            && this.otherConnection.isStreaming()
+            && getWireFormat() == WireFormat.XML) {
+            byte[] bytes = encodeMessage(element);
+            countBytes(true, bytes.length);
+            this.otherConnection.countBytes(false, bytes.length);
+            try {
+                return this.otherConnection.handle(bytes);
+            } catch (XMLStreamException xse) {
+                throw new IOException(xse);
+            }
+        }
+        return outgoingMessageHandler.handle(getOtherConnection(),
+                                             transmit(element));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -109,7 +176,7 @@ public final class DummyConnection extends Connection {
     @Override
     public void send(Element element) throws IOException {
         try {
-            outgoingMessageHandler.handle(getOtherConnection(), element);
+            deliver(element);
             log(element, true);
         } catch (FreeColException e) {
         }
@@ -144,8 +211,7 @@ public final class DummyConnection extends Connection {
         Element reply;
         try {
             log(request, true);
-            reply = outgoingMessageHandler.handle(getOtherConnection(),
-                                                  request);
+            reply = getOtherConnection().transmit(deliver(request));
             log(reply, false);            
         } catch (FreeColException e) {
             reply = null;
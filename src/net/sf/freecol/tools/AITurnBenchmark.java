@@ -0,0 +1,143 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.tools;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sf.freecol.common.i18n.Messages;
+import net.sf.freecol.common.io.FreeColTcFile;
+import net.sf.freecol.common.model.Player;
+import net.sf.freecol.common.model.Specification;
+import net.sf.freecol.common.util.LogBuilder;
+import net.sf.freecol.server.FreeColServer;
+import net.sf.freecol.server.ai.AIMain;
+import net.sf.freecol.server.ai.AIPlayer;
+import net.sf.freecol.server.control.ChangeSet;
+import net.sf.freecol.server.generator.SimpleMapGenerator;
+import net.sf.freecol.server.model.ServerGame;
+import net.sf.freecol.server.model.ServerPlayer;
+
+
+/**
+ * Measure the time and memory allocated by the AI players' turns.
+ *
+ * A new single player game is created with every European player
+ * under AI control, and played for a number of turns set by the
+ * "turns" system property.  After a game to warm up, the game is
+ * played with the FreeCol loggers at the level set by the "level"
+ * system property (INFO by default), and then at FINEST, where all
+ * the AI turn logs are built.  Log records are discarded rather than
+ * written.  The games start from the seed set by the "seed" system
+ * property.  Each player's turn is started before its AI plays it.
+ * The mean time and allocation per AI player turn are printed.
+ * Allocation varies by a few percent between runs, so only compare
+ * the two levels within one run.
+ *
+ * Allocation is measured with the HotSpot thread allocation counter,
+ * so this needs a JVM that supports it.
+ */
+public class AITurnBenchmark {
+
+    /** The thread allocation counter. */
+    private static final com.sun.management.ThreadMXBean threads
+        = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+
+    public static void main(String[] args) throws Exception {
+        final int turns = Integer.getInteger("turns", 20);
+        final long seed = Long.getLong("seed", 1L);
+        final Level level = Level.parse(System.getProperty("level", "INFO"));
+        Messages.loadMessageBundle(Locale.US);
+        final Specification spec = new FreeColTcFile("freecol")
+            .getSpecification();
+        spec.applyDifficultyLevel("model.difficulty.medium");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        Logger root = Logger.getLogger("");
+        for (Handler h : root.getHandlers()) root.removeHandler(h);
+
+        // Play one game to warm up, then one at each level.
+        final Level[] levels = { Level.FINEST, level, Level.FINEST };
+        for (int i = 0; i < levels.length; i++) {
+            Logger.getLogger("net.sf.freecol").setLevel(levels[i]);
+            String result = run(spec, levels[i], turns, seed);
+            if (i > 0) System.out.println(result);
+        }
+    }
+
+    /**
+     * Play a game.
+     *
+     * @param spec The {@code Specification} to use.
+     * @param level The logging {@code Level}.
+     * @param turns The number of turns to play.
+     * @param seed The seed for the random number source.
+     * @return A summary of the AI turns.
+     * @exception Exception if the game can not be started.
+     */
+    private static String run(Specification spec, Level level, int turns,
+                              long seed) throws Exception {
+        FreeColServer server = new FreeColServer(false, true, spec, -1,
+                                                 "AITurnBenchmark");
+        try {
+            final Random random = new Random(seed);
+            server.setServerRandom(random);
+            server.getInGameController().setRandom(random);
+            server.setMapGenerator(new SimpleMapGenerator(server.getGame(),
+                                                          random));
+            server.startGame();
+            final ServerGame game = server.getGame();
+            final AIMain aiMain = server.getAIMain();
+            final long thread = Thread.currentThread().getId();
+            long time = 0L, bytes = 0L;
+            int count = 0;
+            for (int turn = 0; turn < turns; turn++) {
+                List<Player> players = game.getLivePlayerList();
+                for (Player p : players) {
+                    AIPlayer aip = aiMain.getAIPlayer(p);
+                    if (aip == null) continue;
+                    // Start the turn as the server does, or the
+                    // European AIs never leave Europe.
+                    game.setCurrentPlayer(p);
+                    ((ServerPlayer)p).csStartTurn(random, new ChangeSet());
+                    long b = threads.getThreadAllocatedBytes(thread);
+                    long t = System.nanoTime();
+                    aip.startWorking();
+                    time += System.nanoTime() - t;
+                    bytes += threads.getThreadAllocatedBytes(thread) - b;
+                    count++;
+                }
+                game.csNextTurn(new ChangeSet());
+                game.csNewTurn(random, new LogBuilder(0), new ChangeSet());
+            }
+            return String.format("%-7s %3d turns %5d AI turns %8.2fms %10.1fkB per AI turn",
+                    level.getName(), turns, count,
+                    time / 1.0e6 / Math.max(1, count),
+                    bytes / 1024.0 / Math.max(1, count));
+        } finally {
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.tools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.freecol.common.io.FreeColSavegameFile;
+import net.sf.freecol.common.io.FreeColTcFile;
+import net.sf.freecol.common.model.Specification;
+import net.sf.freecol.server.FreeColServer;
+import net.sf.freecol.server.model.ServerGame;
+import static net.sf.freecol.common.util.CollectionUtils.*;
+
+
+/**
+ * Time loading saved games.
+ *
+ * Arguments are savegame files or directories of them, defaulting
+ * to the maps directory.  Each game is loaded once to warm up and
+ * then a number of times, set by the "runs" system property, and
+ * the fastest and mean load times are printed.
+ */
+public class LoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int runs = Integer.getInteger("runs", 5);
+        final Specification spec = new FreeColTcFile("freecol")
+            .getSpecification();
+
+        List<File> allFiles = new ArrayList<>();
+        for (String name : (args.length == 0) ? new String[] { "data/maps" }
+                 : args) {
+            File file = new File(name);
+            if (file.exists()) {
+                if (file.isDirectory()) {
+                    allFiles.addAll(toList(FreeColSavegameFile.getFiles(file)));
+                } else if (FreeColSavegameFile.fileFilter(file)) {
+                    allFiles.add(file);
+                }
+            }
+        }
+
+        long total = 0L;
+        for (File file : allFiles) {
+            try {
+                FreeColSavegameFile fsg = new FreeColSavegameFile(file);
+                ServerGame game = FreeColServer.readGame(fsg, spec, null);
+                long best = Long.MAX_VALUE, sum = 0L;
+                for (int i = 0; i < runs; i++) {
+                    long start = System.nanoTime();
+                    FreeColServer.readGame(fsg, spec, null);
+                    long t = System.nanoTime() - start;
+                    best = Math.min(best, t);
+                    sum += t;
+                }
+                total += sum;
+                System.out.println(String.format("%-32s %4dx%-4d %8.1fms %8.1fms",
+                        file.getName(), game.getMap().getWidth(),
+                        game.getMap().getHeight(), best / 1.0e6,
+                        sum / 1.0e6 / runs));
+            } catch (Exception e) {
+                System.out.println("Failed to load " + file.getName()
+                    + ": " + e);
+            }
+        }
+        System.out.println(String.format("Total mean %.1fms",
+                total / 1.0e6 / Math.max(1, runs)));
+    }
+}
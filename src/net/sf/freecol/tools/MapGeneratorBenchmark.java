@@ -0,0 +1,125 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.tools;
+
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sf.freecol.common.io.FreeColTcFile;
+import net.sf.freecol.common.model.LandMap;
+import net.sf.freecol.common.model.Map;
+import net.sf.freecol.common.model.Resource;
+import net.sf.freecol.common.model.Specification;
+import net.sf.freecol.common.model.Tile;
+import net.sf.freecol.common.option.FileOption;
+import net.sf.freecol.common.option.MapGeneratorOptions;
+import net.sf.freecol.common.option.OptionGroup;
+import net.sf.freecol.common.util.LogBuilder;
+import net.sf.freecol.server.generator.TerrainGenerator;
+import net.sf.freecol.server.model.ServerGame;
+
+
+/**
+ * Time the generation of the terrain of large maps.
+ *
+ * Arguments are map sizes as WIDTHxHEIGHT, defaulting to the largest
+ * sizes allowed.  Each map is generated once to warm up and then a
+ * number of times, set by the "runs" system property, both serially
+ * and in parallel, and the fastest and mean times are printed.  Every
+ * map is generated from the same seed, set by the "seed" system
+ * property, and a checksum of the map is printed so that the same
+ * seed can be seen to give the same map.
+ */
+public class MapGeneratorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int runs = Integer.getInteger("runs", 5);
+        final long seed = Long.getLong("seed", 1L);
+        // Quieten the disposal of merged river sections.
+        Logger.getLogger("").setLevel(Level.WARNING);
+        final Specification spec = new FreeColTcFile("freecol")
+            .getSpecification();
+        ((FileOption)spec.getOption(MapGeneratorOptions.IMPORT_FILE))
+            .setValue(null);
+
+        for (String size : (args.length == 0)
+                 ? new String[] { "40x100", "100x200", "200x200" } : args) {
+            String[] wh = size.split("x");
+            int width = Integer.parseInt(wh[0]);
+            int height = Integer.parseInt(wh[1]);
+            for (boolean parallel : new boolean[] { false, true }) {
+                long check = generate(spec, width, height, parallel, seed);
+                long best = Long.MAX_VALUE, sum = 0L;
+                for (int i = 0; i < runs; i++) {
+                    long start = System.nanoTime();
+                    long c = generate(spec, width, height, parallel, seed);
+                    long t = System.nanoTime() - start;
+                    if (c != check) {
+                        System.out.println("Map changed with the same seed");
+                    }
+                    best = Math.min(best, t);
+                    sum += t;
+                }
+                System.out.println(String.format("%4dx%-4d %-8s %8.1fms %8.1fms %016x",
+                        width, height, (parallel) ? "parallel" : "serial",
+                        best / 1.0e6, sum / 1.0e6 / Math.max(1, runs),
+                        check));
+            }
+        }
+    }
+
+    /**
+     * Generate a map.
+     *
+     * @param spec The {@code Specification} to use.
+     * @param width The map width.
+     * @param height The map height.
+     * @param parallel Generate the terrain in parallel.
+     * @param seed The seed for the random number source.
+     * @return A checksum of the generated map.
+     */
+    private static long generate(Specification spec, int width, int height,
+                                 boolean parallel, long seed) {
+        ServerGame game = new ServerGame(spec);
+        OptionGroup options = game.getMapGeneratorOptions();
+        options.setInteger(MapGeneratorOptions.MAP_WIDTH, width);
+        options.setInteger(MapGeneratorOptions.MAP_HEIGHT, height);
+        options.setBoolean(MapGeneratorOptions.PARALLEL_TERRAIN, parallel);
+        Random random = new Random(seed);
+        LandMap landMap = new LandMap(options, random);
+        Map map = new TerrainGenerator(game, null, random)
+            .createMap(landMap, new LogBuilder(-1));
+
+        long check = 0L;
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                Tile t = map.getTile(x, y);
+                Resource r = t.getResource();
+                check = 31 * check + t.getType().getId().hashCode();
+                check = 31 * check + t.getStyle();
+                check = 31 * check + ((t.hasRiver()) ? 1 : 0);
+                check = 31 * check + ((r == null) ? 0
+                    : r.getType().getId().hashCode() + r.getQuantity());
+            }
+        }
+        return check;
+    }
+}
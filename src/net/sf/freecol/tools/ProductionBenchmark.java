@@ -0,0 +1,93 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.tools;
+
+import java.io.File;
+import java.util.List;
+
+import net.sf.freecol.common.io.FreeColSavegameFile;
+import net.sf.freecol.common.io.FreeColTcFile;
+import net.sf.freecol.common.model.Colony;
+import net.sf.freecol.common.model.FeatureContainer;
+import net.sf.freecol.common.model.GoodsType;
+import net.sf.freecol.common.model.Specification;
+import net.sf.freecol.server.FreeColServer;
+import net.sf.freecol.server.model.ServerGame;
+
+
+/**
+ * Time the colony production calculation.
+ *
+ * Arguments are savegame files.  For each game every colony has its
+ * production cache invalidated and the net production of each goods
+ * type recalculated, a number of times set by the "runs" system
+ * property.  The fastest and mean times per colony are printed,
+ * along with the hit rate of the resolved modifier caches.
+ */
+public class ProductionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int runs = Integer.getInteger("runs", 100);
+        final Specification spec = new FreeColTcFile("freecol")
+            .getSpecification();
+        final List<GoodsType> goodsTypes = spec.getGoodsTypeList();
+
+        for (String name : args) {
+            File file = new File(name);
+            ServerGame game;
+            try {
+                game = FreeColServer.readGame(new FreeColSavegameFile(file),
+                                              spec, null);
+            } catch (Exception e) {
+                System.out.println("Failed to load " + file.getName()
+                    + ": " + e);
+                continue;
+            }
+            final List<Colony> colonies = game.getAllColoniesList(null);
+            if (colonies.isEmpty()) {
+                System.out.println(file.getName() + ": no colonies");
+                continue;
+            }
+
+            long hits = FeatureContainer.getModifierCacheHits();
+            long misses = FeatureContainer.getModifierCacheMisses();
+            long best = Long.MAX_VALUE, sum = 0L;
+            for (int i = 0; i < runs; i++) {
+                long start = System.nanoTime();
+                for (Colony colony : colonies) {
+                    colony.invalidateCache();
+                    for (GoodsType type : goodsTypes) {
+                        colony.getNetProductionOf(type);
+                    }
+                }
+                long t = System.nanoTime() - start;
+                best = Math.min(best, t);
+                sum += t;
+            }
+            hits = FeatureContainer.getModifierCacheHits() - hits;
+            misses = FeatureContainer.getModifierCacheMisses() - misses;
+            System.out.println(String.format("%-32s %4d colonies %8.1fus %8.1fus  hit rate %.1f%%",
+                    file.getName(), colonies.size(),
+                    best / 1.0e3 / colonies.size(),
+                    sum / 1.0e3 / runs / colonies.size(),
+                    100.0 * hits / Math.max(1L, hits + misses)));
+        }
+    }
+}
@@ -24,12 +24,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.transform.stax.StAXSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 
 import net.sf.freecol.common.io.FreeColSavegameFile;
+import net.sf.freecol.common.io.FreeColXMLReader;
 import static net.sf.freecol.common.util.CollectionUtils.*;
 
 import org.xml.sax.SAXException;
@@ -64,13 +65,30 @@ public class SaveGameValidator {
             System.out.println("Processing file " + file.getPath());
             try {
                 FreeColSavegameFile mapFile = new FreeColSavegameFile(file);
-                saveGameValidator.validate(new StreamSource(mapFile.getSavegameInputStream()));
+                // Read through the savegame reader, which understands
+                // both the XML and compact formats.
+                try (FreeColXMLReader xr
+                    = mapFile.getSavedGameFreeColXMLReader()) {
+                    saveGameValidator.validate(new StAXSource(xr));
+                }
                 System.out.println("Successfully validated " + file.getName());
             } catch (SAXParseException e) {
                 System.out.println(e.getMessage() 
                                    + " at line=" + e.getLineNumber() 
                                    + " column=" + e.getColumnNumber());
             } catch (IOException | SAXException e) {
+                // Validating a StAXSource wraps the parse exception
+                Throwable t = e;
+                while (t != null && !(t instanceof SAXParseException)) {
+                    t = t.getCause();
+                }
+                if (t != null) {
+                    SAXParseException spe = (SAXParseException)t;
+                    System.out.println(spe.getMessage()
+                                       + " at line=" + spe.getLineNumber()
+                                       + " column=" + spe.getColumnNumber());
+                    continue;
+                }
                 System.out.println("Failed to read " + file.getName());
             }
         }
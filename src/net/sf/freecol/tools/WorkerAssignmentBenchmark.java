@@ -0,0 +1,213 @@
+/**
+ *  Copyright (C) 2002-2016   The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sf.freecol.common.i18n.Messages;
+import net.sf.freecol.common.io.FreeColTcFile;
+import net.sf.freecol.common.model.Colony;
+import net.sf.freecol.common.model.Occupation;
+import net.sf.freecol.common.model.Player;
+import net.sf.freecol.common.model.Specification;
+import net.sf.freecol.common.model.Tile;
+import net.sf.freecol.common.model.Unit;
+import net.sf.freecol.common.model.UnitType;
+import net.sf.freecol.common.model.WorkLocation;
+import net.sf.freecol.common.model.WorkerAssignment;
+import net.sf.freecol.common.util.LogBuilder;
+import net.sf.freecol.server.FreeColServer;
+import net.sf.freecol.server.ai.AIMain;
+import net.sf.freecol.server.ai.AIPlayer;
+import net.sf.freecol.server.ai.ColonyPlan;
+import net.sf.freecol.server.control.ChangeSet;
+import net.sf.freecol.server.generator.SimpleMapGenerator;
+import net.sf.freecol.server.model.ServerGame;
+import net.sf.freecol.server.model.ServerPlayer;
+import net.sf.freecol.server.model.ServerUnit;
+
+
+/**
+ * Compare the greedy worker placement with the worker assignment
+ * solver on large colonies.
+ *
+ * A game is played by the AI for a number of turns, set by the
+ * "turns" system property, to found some colonies.  Each colony is
+ * then grown with random colonists and experts, which join the colony
+ * as usual, until it reaches the size set by the "size" system
+ * property or no more can join.  The jobs the colonists end up doing
+ * are then filled again, once by placing the best worker for each job
+ * in turn as {@link ColonyPlan#getBestWorker} does, and once with the
+ * {@link WorkerAssignment}.  Each is repeated "runs" times, and the
+ * mean time per colony, the jobs filled and the total potential
+ * production are printed.  The game starts from the seed set by the
+ * "seed" system property.
+ */
+public class WorkerAssignmentBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int turns = Integer.getInteger("turns", 40);
+        final int size = Integer.getInteger("size", 24);
+        final int runs = Integer.getInteger("runs", 5);
+        final long seed = Long.getLong("seed", 1L);
+        Messages.loadMessageBundle(Locale.US);
+        final Specification spec = new FreeColTcFile("freecol")
+            .getSpecification();
+        spec.applyDifficultyLevel("model.difficulty.medium");
+        Logger root = Logger.getLogger("");
+        for (Handler h : root.getHandlers()) root.removeHandler(h);
+        Logger.getLogger("net.sf.freecol").setLevel(Level.WARNING);
+
+        FreeColServer server = new FreeColServer(false, true, spec, -1,
+                                                 "WorkerAssignmentBenchmark");
+        try {
+            final Random random = new Random(seed);
+            server.setServerRandom(random);
+            server.getInGameController().setRandom(random);
+            server.setMapGenerator(new SimpleMapGenerator(server.getGame(),
+                                                          random));
+            server.startGame();
+            final ServerGame game = server.getGame();
+            final AIMain aiMain = server.getAIMain();
+            for (int turn = 0; turn < turns; turn++) {
+                for (Player p : game.getLivePlayerList()) {
+                    AIPlayer aip = aiMain.getAIPlayer(p);
+                    if (aip == null) continue;
+                    game.setCurrentPlayer(p);
+                    ((ServerPlayer)p).csStartTurn(random, new ChangeSet());
+                    aip.startWorking();
+                }
+                game.csNextTurn(new ChangeSet());
+                game.csNewTurn(random, new LogBuilder(0), new ChangeSet());
+            }
+
+            List<UnitType> types = new ArrayList<>();
+            types.add(spec.getDefaultUnitType());
+            for (UnitType ut : spec.getUnitTypeList()) {
+                if (ut.isPerson() && ut.getExpertProduction() != null
+                    && ut.getSkill() > 0) types.add(ut);
+            }
+            long greedyTime = 0L, solverTime = 0L;
+            int colonies = 0, units = 0, greedyFilled = 0, solverFilled = 0,
+                greedyProduction = 0, solverProduction = 0;
+            for (Player p : game.getLiveEuropeanPlayerList()) {
+                for (Colony colony : p.getColonyList()) {
+                    grow(colony, size, types, random);
+                    List<Unit> workers = new ArrayList<>();
+                    for (Unit u : colony.getUnitList()) {
+                        if (u.getWorkType() != null) workers.add(u);
+                    }
+                    List<Occupation> jobs = WorkerAssignment.getJobs(workers);
+                    colonies++;
+                    units += workers.size();
+                    for (int i = 0; i < runs; i++) {
+                        long t = System.nanoTime();
+                        int[] g = greedy(colony, workers, jobs);
+                        greedyTime += System.nanoTime() - t;
+                        t = System.nanoTime();
+                        WorkerAssignment wa
+                            = new WorkerAssignment(workers, jobs);
+                        int filled = wa.getAssignment().size();
+                        int production = wa.getBestProduction();
+                        solverTime += System.nanoTime() - t;
+                        if (i == 0) {
+                            greedyFilled += g[0];
+                            greedyProduction += g[1];
+                            solverFilled += filled;
+                            solverProduction += production;
+                        }
+                    }
+                }
+            }
+            int n = Math.max(1, colonies * runs);
+            System.out.println(String.format("%d colonies, %d units", colonies, units));
+            System.out.println(String.format("greedy %8.2fms per colony %5d jobs filled %6d production",
+                    greedyTime / 1.0e6 / n, greedyFilled, greedyProduction));
+            System.out.println(String.format("solver %8.2fms per colony %5d jobs filled %6d production",
+                    solverTime / 1.0e6 / n, solverFilled, solverProduction));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Grow a colony with random units.
+     *
+     * @param colony The {@code Colony} to grow.
+     * @param size The size to grow to.
+     * @param types The {@code UnitType}s to choose from.
+     * @param random A pseudo-random number source.
+     */
+    private static void grow(Colony colony, int size, List<UnitType> types,
+                             Random random) {
+        final Tile tile = colony.getTile();
+        while (colony.getUnitCount() < size) {
+            UnitType type = types.get(random.nextInt(types.size()));
+            Unit unit = new ServerUnit(colony.getGame(), tile,
+                                       colony.getOwner(), type);
+            if (!colony.joinColony(unit)) {
+                unit.dispose();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Fill jobs with the best worker for each in turn, in a copy of
+     * the colony.
+     *
+     * @param colony The {@code Colony} to work on.
+     * @param workers The {@code Unit}s to place.
+     * @param jobs The {@code Occupation}s to fill.
+     * @return The number of jobs filled and their total potential
+     *     production in the original colony.
+     */
+    private static int[] greedy(Colony colony, List<Unit> workers,
+                                List<Occupation> jobs) {
+        final Colony col = colony.copyColony();
+        List<Unit> todo = new ArrayList<>();
+        for (Unit u : workers) {
+            Unit unit = col.getCorresponding(u);
+            unit.setLocation(col.getTile());
+            todo.add(unit);
+        }
+        int filled = 0, production = 0;
+        for (Occupation job : jobs) {
+            WorkLocation wl = col.getCorresponding(job.workLocation);
+            Unit best = ColonyPlan.getBestWorker(wl, job.workType, todo);
+            if (best == null) continue;
+            best.setLocation(wl);
+            best.changeWorkType(job.workType);
+            todo.remove(best);
+            filled++;
+            // Value the job in the original colony, where the
+            // production bonus is the same as for the solver.
+            production += job.workLocation
+                .getPotentialProduction(job.workType, best.getType());
+        }
+        return new int[] { filled, production };
+    }
+}
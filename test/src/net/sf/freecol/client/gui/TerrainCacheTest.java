@@ -0,0 +1,144 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.client.gui;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import net.sf.freecol.common.model.Game;
+import net.sf.freecol.common.model.Map;
+import net.sf.freecol.common.model.Tile;
+import net.sf.freecol.common.model.TileType;
+import net.sf.freecol.common.resources.ResourceManager;
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class TerrainCacheTest extends FreeColTestCase {
+
+    private static final TileType hills
+        = spec().getTileType("model.tile.hills");
+
+
+    /** The number of tiles painted. */
+    private int painted = 0;
+
+    /** The cache under test. */
+    private TerrainCache cache;
+
+    /** Graphics covering the whole map. */
+    private Graphics2D g;
+
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        painted = 0;
+        cache = new TerrainCache((Graphics2D tg, Tile tile) -> painted++);
+        ImageLibrary lib = new ImageLibrary(0.25f);
+        cache.setImageLibrary(lib);
+        int width = 20 * lib.tileSize.width + lib.tileSize.width / 2;
+        int height = 15 * lib.tileSize.height / 2 + lib.tileSize.height;
+        g = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+            .createGraphics();
+        g.setClip(0, 0, width, height);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        g.dispose();
+        super.tearDown();
+    }
+
+    /**
+     * Display the map and count the tiles painted.
+     *
+     * @param map The {@code Map} to display.
+     * @return The number of tiles painted.
+     */
+    private int display(Map map) {
+        painted = 0;
+        cache.display(g, map);
+        return painted;
+    }
+
+    public void testStamp() {
+        Game game = getStandardGame();
+        Map map = getTestMap(true);
+        game.setMap(map);
+        Tile tile = map.getTile(5, 5);
+
+        long stamp = TerrainCache.getStamp(tile);
+        assertEquals(stamp, TerrainCache.getStamp(tile));
+        tile.setType(hills);
+        assertFalse(stamp == TerrainCache.getStamp(tile));
+        stamp = TerrainCache.getStamp(tile);
+        tile.setStyle(tile.getStyle() + 1);
+        assertFalse(stamp == TerrainCache.getStamp(tile));
+        stamp = TerrainCache.getStamp(tile);
+        tile.addRiver(1, "1010");
+        assertFalse(stamp == TerrainCache.getStamp(tile));
+        stamp = TerrainCache.getStamp(tile);
+        tile.setType(null);
+        assertFalse(stamp == TerrainCache.getStamp(tile));
+    }
+
+    public void testChangedTiles() {
+        Game game = getStandardGame();
+        Map map = getTestMap(true);
+        game.setMap(map);
+
+        final int all = display(map);
+        assertTrue(all >= map.getWidth() * map.getHeight());
+        assertEquals("Nothing changed", 0, display(map));
+
+        // Only the chunk holding the tile is redrawn
+        map.getTile(2, 5).setType(hills);
+        int changed = display(map);
+        assertTrue(changed > 0);
+        assertTrue(changed < all);
+        assertEquals(0, display(map));
+
+        map.getTile(2, 5).setStyle(1);
+        assertEquals(changed, display(map));
+        assertEquals(0, display(map));
+    }
+
+    public void testInvalidation() {
+        Game game = getStandardGame();
+        Map map = getTestMap(true);
+        game.setMap(map);
+
+        final int all = display(map);
+        assertEquals(0, display(map));
+
+        cache.clear();
+        assertEquals(all, display(map));
+
+        cache.setImageLibrary(new ImageLibrary(0.25f));
+        assertEquals(all, display(map));
+
+        ResourceManager.setScenarioMapping(null);
+        assertEquals("Resources changed", all, display(map));
+
+        Map other = getTestMap(true);
+        assertEquals("Map changed", all, display(other));
+        assertEquals(0, display(other));
+    }
+}
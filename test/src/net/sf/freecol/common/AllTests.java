@@ -29,8 +29,11 @@ public class AllTests {
         //$JUnit-BEGIN$
         suite.addTest(net.sf.freecol.common.i18n.AllTests.suite());
         suite.addTest(net.sf.freecol.common.io.AllTests.suite());
+        suite.addTest(net.sf.freecol.common.logging.AllTests.suite());
         suite.addTest(net.sf.freecol.common.option.AllTests.suite());
+        suite.addTest(net.sf.freecol.common.resources.AllTests.suite());
         suite.addTest(net.sf.freecol.common.model.AllTests.suite());
+        suite.addTest(net.sf.freecol.common.networking.AllTests.suite());
         suite.addTest(net.sf.freecol.common.utils.AllTests.suite());
         suite.addTest(net.sf.freecol.common.sound.AllTests.suite());
         //$JUnit-END$
@@ -22,6 +22,9 @@ package net.sf.freecol.common.i18n;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import net.sf.freecol.util.test.FreeColTestCase;
 import net.sf.freecol.common.model.AbstractGoods;
@@ -362,6 +365,44 @@ public class MessagesTest extends FreeColTestCase {
             .equals(Messages.message("key3")));
     }
 
+    public void testCompiledMessages() {
+        Messages.loadMessageBundle(Locale.US);
+        final Pattern variable = Pattern.compile("%[A-Za-z]+%");
+
+        for (Map.Entry<String, String> e
+                 : Messages.getMessageBundle().entrySet()) {
+            final String key = e.getKey(), value = e.getValue();
+            assertEquals(key, Messages.replaceChoices(value, null).trim(),
+                         Messages.message(key));
+            assertEquals(key, Messages.replaceChoices(value, null),
+                         Messages.message(StringTemplate.key(key)));
+            if (!value.contains("{{")) continue;
+
+            final MessageProgram program = MessageProgram.compile(value);
+            for (int amount : new int[] { 0, 1, 2, 5 }) {
+                StringTemplate t = StringTemplate.template(key);
+                Matcher m = variable.matcher(value);
+                while (m.find()) {
+                    if (t.getReplacement(m.group()) == null) {
+                        t.addAmount(m.group(), amount);
+                    }
+                }
+                assertEquals(key + "/" + amount,
+                             Messages.replaceChoices(value, t),
+                             program.apply(t));
+            }
+            StringTemplate t = StringTemplate.template(key);
+            Matcher m = variable.matcher(value);
+            while (m.find()) {
+                if (t.getReplacement(m.group()) == null) {
+                    t.add(m.group(), "model.goods.food.name");
+                }
+            }
+            assertEquals(key, Messages.replaceChoices(value, t),
+                         program.apply(t));
+        }
+    }
+
     public void testREFMessages() {
         StringTemplate template = StringTemplate
             .template(Monarch.MonarchAction.ADD_TO_REF.getTextKey())
@@ -27,7 +27,10 @@ public class AllTests {
 
     public static Test suite() {
 	TestSuite suite = new TestSuite("Test for net.sf.freecol.common.option");
+        suite.addTestSuite(CompactXMLStreamTest.class);
         suite.addTestSuite(ModTest.class);
+        suite.addTestSuite(ReadAheadInputStreamTest.class);
+        suite.addTestSuite(SpecificationCacheTest.class);
         return suite;
     }
 
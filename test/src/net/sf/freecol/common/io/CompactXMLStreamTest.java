@@ -0,0 +1,104 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class CompactXMLStreamTest extends FreeColTestCase {
+
+    public void testRoundTrip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLStreamWriter xw = new CompactXMLStreamWriter(out);
+        xw.writeStartDocument("UTF-8", "1.0");
+        xw.writeComment("comment");
+        xw.writeStartElement("game");
+        xw.writeAttribute("id", "game:1");
+        xw.writeAttribute("turn", "-42");
+        xw.writeAttribute("padded", "007");
+        xw.writeAttribute("name", "Nieuw Amsterdam");
+        for (int i = 0; i < 3; i++) {
+            xw.writeEmptyElement("tile");
+            xw.writeAttribute("id", "tile:" + (1000 + i));
+            xw.writeAttribute("type", "model.tile.plains");
+        }
+        xw.writeStartElement("text");
+        xw.writeCharacters("a < b & é");
+        xw.writeEndElement();
+        xw.writeEndElement();
+        xw.writeEndDocument();
+        xw.close();
+
+        XMLStreamReader xr = new CompactXMLStreamReader(new
+            ByteArrayInputStream(out.toByteArray()));
+        assertEquals(XMLStreamConstants.COMMENT, xr.next());
+        assertEquals("comment", xr.getText());
+        assertEquals(XMLStreamConstants.START_ELEMENT, xr.nextTag());
+        assertEquals("game", xr.getLocalName());
+        assertEquals(4, xr.getAttributeCount());
+        assertEquals("game:1", xr.getAttributeValue(null, "id"));
+        assertEquals("-42", xr.getAttributeValue(null, "turn"));
+        assertEquals("007", xr.getAttributeValue(null, "padded"));
+        assertEquals("Nieuw Amsterdam", xr.getAttributeValue(null, "name"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(XMLStreamConstants.START_ELEMENT, xr.nextTag());
+            assertEquals("tile", xr.getLocalName());
+            assertEquals("tile:" + (1000 + i),
+                         xr.getAttributeValue(null, "id"));
+            assertEquals("model.tile.plains",
+                         xr.getAttributeValue(null, "type"));
+            assertEquals(XMLStreamConstants.END_ELEMENT, xr.nextTag());
+        }
+        assertEquals(XMLStreamConstants.START_ELEMENT, xr.nextTag());
+        assertEquals("text", xr.getLocalName());
+        assertEquals("a < b & é", xr.getElementText());
+        assertEquals(XMLStreamConstants.END_ELEMENT, xr.nextTag());
+        assertEquals("game", xr.getLocalName());
+        assertEquals(XMLStreamConstants.END_DOCUMENT, xr.next());
+        assertFalse(xr.hasNext());
+    }
+
+    public void testUnsupported() throws Exception {
+        XMLStreamWriter xw
+            = new CompactXMLStreamWriter(new ByteArrayOutputStream());
+        xw.writeStartElement("game");
+        try {
+            xw.writeNamespace("fc", "http://www.freecol.org");
+            fail("Namespace written");
+        } catch (XMLStreamException xse) {}
+        try {
+            xw.writeProcessingInstruction("target", "data");
+            fail("Processing instruction written");
+        } catch (XMLStreamException xse) {}
+        try {
+            xw.writeEntityRef("amp");
+            fail("Entity reference written");
+        } catch (XMLStreamException xse) {}
+        xw.close();
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class ReadAheadInputStreamTest extends FreeColTestCase {
+
+    public void testReadAhead() throws IOException {
+        byte[] data = new byte[300000];
+        new Random(1).nextBytes(data);
+        final List<Integer> reports = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ReadAheadInputStream(new
+                ByteArrayInputStream(data), data.length, reports::add)) {
+            assertEquals(data[0] & 0xff, in.read());
+            out.write(data[0]);
+            byte[] b = new byte[1000];
+            int n;
+            while ((n = in.read(b, 0, b.length)) > 0) out.write(b, 0, n);
+            assertEquals(-1, in.read());
+        }
+        assertTrue(java.util.Arrays.equals(data, out.toByteArray()));
+
+        assertFalse(reports.isEmpty());
+        int last = -1;
+        for (int p : reports) {
+            assertTrue(p > last);
+            last = p;
+        }
+        assertEquals(100, last);
+    }
+
+    public void testFailure() {
+        InputStream bad = new InputStream() {
+                private int n = 0;
+                @Override
+                public int read() throws IOException {
+                    if (++n > 100000) throw new IOException("bad");
+                    return 0;
+                }
+            };
+        try (InputStream in = new ReadAheadInputStream(bad, -1, null)) {
+            byte[] b = new byte[1000];
+            while (in.read(b, 0, b.length) > 0);
+            fail("Failure not reported");
+        } catch (IOException ioe) {
+            assertEquals("bad", ioe.getMessage());
+        }
+    }
+}
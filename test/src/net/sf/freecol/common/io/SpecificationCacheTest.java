@@ -0,0 +1,117 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.io;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.freecol.common.io.FreeColXMLWriter.WriteScope;
+import net.sf.freecol.common.model.FeatureContainer;
+import net.sf.freecol.common.model.FreeColSpecObjectType;
+import net.sf.freecol.common.model.Specification;
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class SpecificationCacheTest extends FreeColTestCase {
+
+    private static String toXML(Specification spec) throws Exception {
+        StringWriter sw = new StringWriter();
+        try (FreeColXMLWriter xw = new FreeColXMLWriter(sw,
+                WriteScope.toSave())) {
+            spec.toXML(xw);
+        }
+        return sw.toString();
+    }
+
+    private static long countFeatures(Specification spec) {
+        List<FreeColSpecObjectType> types = new ArrayList<>();
+        types.addAll(spec.getBuildingTypeList());
+        types.addAll(spec.getResourceTypeList());
+        types.addAll(spec.getTileTypeList());
+        types.addAll(spec.getUnitTypeList());
+        long n = 0;
+        for (FreeColSpecObjectType type : types) {
+            FeatureContainer fc = type.getFeatureContainer();
+            n += fc.getAllAbilities().count() + fc.getAllModifiers().count();
+        }
+        return n;
+    }
+
+    public void testCachedSpecification() throws Exception {
+        for (String id : new String[] { "freecol", "classic" }) {
+            final FreeColTcFile tcf = new FreeColTcFile(id);
+            Specification parsed;
+            try (InputStream si = tcf.getSpecificationInputStream()) {
+                parsed = new Specification(si);
+            }
+
+            SpecificationCache.clear();
+            Specification first = tcf.getSpecification();
+            Specification second = tcf.getSpecification();
+            Specification third = tcf.getSpecification();
+            assertNotSame(first, second);
+            assertNotSame(second, third);
+
+            // Misses and hits both give what the rules do
+            final String xml = toXML(parsed);
+            assertEquals(id + " miss", xml, toXML(first));
+            assertEquals(id + " hit", xml, toXML(second));
+            assertEquals(id + " hit", xml, toXML(third));
+            // Including the features scoped to particular types
+            assertEquals(id + " features", countFeatures(parsed),
+                         countFeatures(second));
+        }
+    }
+
+    public void testCodeStamp() throws Exception {
+        File dir = Files.createTempDirectory("codestamp").toFile();
+        File pkg = new File(dir, "pkg");
+        assertTrue(pkg.mkdir());
+        File a = new File(dir, "A.class");
+        File b = new File(pkg, "B.class");
+        File other = new File(dir, "other.txt");
+        try {
+            assertTrue(a.createNewFile());
+            assertTrue(b.createNewFile());
+            assertTrue(other.createNewFile());
+            assertTrue(a.setLastModified(1000000L));
+            assertTrue(b.setLastModified(2000000L));
+            assertTrue(other.setLastModified(3000000L));
+
+            // A directory is stamped by its newest class, wherever it is
+            assertEquals(2000000L, SpecificationCache.getCodeStamp(dir));
+            assertTrue(a.setLastModified(4000000L));
+            assertEquals(4000000L, SpecificationCache.getCodeStamp(dir));
+
+            // A jar is stamped by itself
+            assertEquals(3000000L, SpecificationCache.getCodeStamp(other));
+        } finally {
+            a.delete();
+            b.delete();
+            other.delete();
+            pkg.delete();
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class DefaultHandlerTest extends FreeColTestCase {
+
+    private static File makeLogFile() throws IOException {
+        File file = File.createTempFile("freecol", ".log");
+        file.deleteOnExit();
+        new File(file.getPath() + ".1").deleteOnExit();
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()),
+                          StandardCharsets.UTF_8);
+    }
+
+    private static int count(String text, String match) {
+        int n = 0;
+        for (int i = text.indexOf(match); i >= 0;
+             i = text.indexOf(match, i + match.length())) n++;
+        return n;
+    }
+
+
+    public void testWarningsFlushed() throws Exception {
+        File file = makeLogFile();
+        DefaultHandler handler = new DefaultHandler(false, file.getPath());
+        handler.setLevel(Level.ALL);
+        for (int i = 0; i < 100; i++) {
+            handler.publish(new LogRecord(Level.FINE, "fine" + i));
+        }
+        handler.publish(new LogRecord(Level.WARNING, "warning"));
+
+        // The warning, and everything before it, must already be written
+        String text = read(file);
+        assertTrue(text.contains("fine0\n"));
+        assertTrue(text.contains("fine99\n"));
+        assertTrue(text.contains("warning\n"));
+        handler.close();
+    }
+
+    public void testClose() throws Exception {
+        File file = makeLogFile();
+        DefaultHandler handler = new DefaultHandler(false, file.getPath());
+        handler.setLevel(Level.ALL);
+        for (int i = 0; i < 1000; i++) {
+            handler.publish(new LogRecord(Level.INFO, "record" + i));
+        }
+        handler.close();
+
+        String text = read(file);
+        int dropped = Integer.parseInt(handler.getStatistics()
+            .get("logDropped"));
+        assertEquals(1000 - dropped, count(text, "INFO: record"));
+        if (dropped > 0) {
+            assertTrue(text.contains("Dropped " + dropped + " log records."));
+        }
+        assertEquals("1000", handler.getStatistics().get("logRecords"));
+        assertEquals("0", handler.getStatistics().get("logQueueDepth"));
+
+        // Closed handlers ignore further records
+        handler.publish(new LogRecord(Level.SEVERE, "ignored"));
+        assertFalse(read(file).contains("ignored"));
+    }
+
+    public void testRotation() throws Exception {
+        File file = makeLogFile();
+        DefaultHandler handler
+            = new DefaultHandler(false, file.getPath(), 64, 4096);
+        handler.setLevel(Level.ALL);
+        for (int i = 0; i < 100; i++) {
+            handler.publish(new LogRecord(Level.WARNING, "record" + i));
+        }
+        handler.close();
+
+        File old = new File(file.getPath() + ".1");
+        assertTrue(old.exists());
+        assertTrue(Integer.parseInt(handler.getStatistics()
+                .get("logRotations")) > 0);
+        // Every file starts with the header
+        assertTrue(read(old).startsWith("FreeCol game version: "));
+        assertTrue(read(file).startsWith("FreeCol game version: "));
+        assertTrue(read(file).contains("WARNING: record99\n"));
+        assertEquals("0", handler.getStatistics().get("logDropped"));
+    }
+}
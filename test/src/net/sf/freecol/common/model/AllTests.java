@@ -50,7 +50,10 @@ public class AllTests {
         suite.addTestSuite(MonarchTest.class);
         suite.addTestSuite(MovementTest.class);
         suite.addTestSuite(NationTypeTest.class);
+        suite.addTestSuite(PathfindingTest.class);
         suite.addTestSuite(PlayerTest.class);
+        suite.addTestSuite(ProductionMapTest.class);
+        suite.addTestSuite(ProductionSnapshotTest.class);
         suite.addTestSuite(ProductionTypeTest.class);
         suite.addTestSuite(RandomRangeTest.class);
         suite.addTestSuite(RoleTest.class);
@@ -63,8 +66,10 @@ public class AllTests {
         suite.addTestSuite(TileItemContainerTest.class);
         suite.addTestSuite(TileTest.class);
         suite.addTestSuite(TradeRouteTest.class);
+        suite.addTestSuite(TypeCountMapTest.class);
         suite.addTestSuite(UnitTest.class);
         suite.addTestSuite(UnitChangeTypeTest.class);
+        suite.addTestSuite(WorkerAssignmentTest.class);
         //$JUnit-END$
         return suite;
     }
@@ -20,6 +20,7 @@
 package net.sf.freecol.common.model;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import net.sf.freecol.common.FreeColException;
@@ -103,4 +104,53 @@ public class GameTest extends FreeColTestCase {
         assertEquals(310, Turn.yearToTurn(1700, 1));
         assertEquals(1, Turn.getSeason(310));
     }
+
+    public void testRegistry() {
+        assertEquals(42, GameObjectRegistry.getNumber("unit:42"));
+        assertEquals(7, GameObjectRegistry.getNumber("model.foo:bar:7"));
+        assertEquals(-1, GameObjectRegistry.getNumber("model.player.dutch"));
+        assertEquals(-1, GameObjectRegistry.getNumber("unit:"));
+        assertEquals(-1, GameObjectRegistry.getNumber("unit:4x2"));
+        assertEquals(-1, GameObjectRegistry.getNumber("unit:123456789"));
+
+        Game game = getStandardGame();
+        List<String> removed = new ArrayList<>();
+        GameObjectRegistry registry = new GameObjectRegistry(removed::add);
+        Region r1 = new Region(game), r2 = new Region(game),
+            r3 = new Region(game);
+        registry.put("region:5", r1);
+        registry.put("other:5", r2); // same number, found by identifier
+        registry.put("region:100000", r3); // grows the number index
+        assertEquals(3, registry.size());
+        assertEquals(r1, registry.get("region:5"));
+        assertEquals(r2, registry.get("other:5"));
+        assertEquals(r3, registry.get("region:100000"));
+        assertNull(registry.get("region:6"));
+
+        registry.remove("region:5");
+        assertNull(registry.get("region:5"));
+        assertEquals(r2, registry.get("other:5"));
+        registry.put("region:5", r1);
+        assertEquals(r1, registry.get("region:5"));
+
+        Iterator<FreeColGameObject> it = registry.iterator(removed::add);
+        int n = 0;
+        while (it.hasNext()) {
+            if (it.next() == r2) it.remove();
+            n++;
+        }
+        assertEquals(3, n);
+        assertEquals(2, registry.size());
+        assertNull(registry.get("other:5"));
+        assertEquals(1, removed.size());
+        assertEquals(0, registry.getPurgedCount());
+
+        // The game counts its objects
+        int count = game.getFreeColGameObjectCount();
+        Region r4 = new Region(game);
+        assertEquals(count + 1, game.getFreeColGameObjectCount());
+        assertEquals(r4, game.getFreeColGameObject(r4.getId()));
+        r4.dispose();
+        assertEquals(count, game.getFreeColGameObjectCount());
+    }
 }
@@ -32,6 +32,7 @@ import net.sf.freecol.common.model.Stance;
 import net.sf.freecol.common.model.pathfinding.CostDecider;
 import net.sf.freecol.common.model.pathfinding.CostDeciders;
 import net.sf.freecol.common.model.pathfinding.GoalDecider;
+import net.sf.freecol.common.model.pathfinding.PathCache;
 import static net.sf.freecol.common.util.CollectionUtils.*;
 import net.sf.freecol.server.model.ServerUnit;
 import net.sf.freecol.util.test.FreeColTestCase;
@@ -590,6 +591,136 @@ public class MapTest extends FreeColTestCase {
             path.getTransportDropNode());
     }
 
+    public void testPathCache() {
+        Game game = getStandardGame();
+        Map map = getTestMap(plainsType, true);
+        game.setMap(map);
+        final PathCache cache = map.getPathCache();
+        Player dutchPlayer = game.getPlayerByNationId("model.nation.dutch");
+        Tile unitTile = map.getTile(5, 5);
+        Tile destinationTile = map.getTile(9, 12);
+        Unit colonist = new ServerUnit(game, unitTile, dutchPlayer,
+                                       colonistType);
+        map.invalidatePathCache();
+        long hits = cache.getHits(), misses = cache.getMisses();
+
+        PathNode path = colonist.findPath(destinationTile);
+        assertNotNull(path);
+        assertEquals(misses + 1, cache.getMisses());
+        PathNode again = colonist.findPath(destinationTile);
+        assertEquals(hits + 1, cache.getHits());
+        assertFalse("Cached paths should be copies", path == again);
+        assertEquals(path.fullPathToString(), again.fullPathToString());
+
+        // Callers may modify the path they are given
+        again.getLastNode().next = new PathNode(map.getTile(9, 13), 0, 9,
+                                                false, again, null);
+        assertEquals(path.fullPathToString(),
+            colonist.findPath(destinationTile).fullPathToString());
+        assertEquals(hits + 2, cache.getHits());
+
+        // Another colonist on the same tile shares the result
+        Unit other = new ServerUnit(game, unitTile, dutchPlayer,
+                                    colonistType);
+        map.invalidatePathCache();
+        other.findPath(destinationTile);
+        misses = cache.getMisses();
+        assertNotNull(colonist.findPath(destinationTile));
+        assertEquals(misses, cache.getMisses());
+
+        // A settlement in the way invalidates the cache
+        FreeColTestCase.IndianSettlementBuilder builder
+            = new FreeColTestCase.IndianSettlementBuilder(game);
+        builder.settlementTile(map.getTile(7, 8)).build();
+        misses = cache.getMisses();
+        PathNode blocked = colonist.findPath(destinationTile);
+        assertEquals(misses + 1, cache.getMisses());
+        for (PathNode p = blocked; p != null; p = p.next) {
+            assertFalse(p.getTile().hasSettlement());
+        }
+    }
+
+    /**
+     * Find a path along the single land path map, with a unit blocking
+     * it, and check the cache agrees with a fresh search.
+     *
+     * @param map The {@code Map} to search.
+     * @param colonist The {@code Unit} to find a path for.
+     * @param costDecider The {@code CostDecider} to use.
+     * @return The path found.
+     */
+    private PathNode checkCachedPath(Map map, Unit colonist,
+                                     CostDecider costDecider) {
+        final Tile destinationTile = map.getTile(3, 7);
+        PathNode path = map.findPath(colonist, colonist.getTile(),
+            destinationTile, null, costDecider, null);
+        map.invalidatePathCache();
+        PathNode fresh = map.findPath(colonist, colonist.getTile(),
+            destinationTile, null, costDecider, null);
+        assertEquals("Cached path should match a fresh search",
+            (fresh == null) ? null : fresh.fullPathToString(),
+            (path == null) ? null : path.fullPathToString());
+        return path;
+    }
+
+    public void testPathCacheDisposedBlocker() {
+        Game game = getStandardGame();
+        Map map = getSingleLandPathMap(game);
+        game.setMap(map);
+        Player frenchPlayer = game.getPlayerByNationId("model.nation.french");
+        Player dutchPlayer = game.getPlayerByNationId("model.nation.dutch");
+        Unit blocker = new ServerUnit(game, map.getTile(2, 10), frenchPlayer,
+                                      colonistType);
+        Unit colonist = new ServerUnit(game, map.getTile(1, 11), dutchPlayer,
+                                       colonistType);
+        final CostDecider cd = CostDeciders.avoidSettlementsAndBlockingUnits();
+        assertNull(checkCachedPath(map, colonist, cd));
+
+        // Disposing the blocker removes it from its tile directly
+        blocker.dispose();
+        assertNotNull(checkCachedPath(map, colonist, cd));
+    }
+
+    public void testPathCacheChangedOwner() {
+        Game game = getStandardGame();
+        Map map = getSingleLandPathMap(game);
+        game.setMap(map);
+        Player frenchPlayer = game.getPlayerByNationId("model.nation.french");
+        Player dutchPlayer = game.getPlayerByNationId("model.nation.dutch");
+        Unit blocker = new ServerUnit(game, map.getTile(2, 10), frenchPlayer,
+                                      colonistType);
+        Unit colonist = new ServerUnit(game, map.getTile(1, 11), dutchPlayer,
+                                       colonistType);
+        final CostDecider cd = CostDeciders.avoidSettlementsAndBlockingUnits();
+        assertNull(checkCachedPath(map, colonist, cd));
+
+        // A unit of the same owner does not block
+        blocker.changeOwner(dutchPlayer);
+        assertNotNull(checkCachedPath(map, colonist, cd));
+        blocker.changeOwner(frenchPlayer);
+        assertNull(checkCachedPath(map, colonist, cd));
+    }
+
+    public void testPathCacheExploration() {
+        Game game = getStandardGame();
+        Map map = getSingleLandPathMap(game);
+        game.setMap(map);
+        Player dutchPlayer = game.getPlayerByNationId("model.nation.dutch");
+        map.forEachTile(t -> t.setExplored(dutchPlayer, true));
+        Unit colonist = new ServerUnit(game, map.getTile(1, 11), dutchPlayer,
+                                       colonistType);
+        final CostDecider cd = CostDeciders.serverAvoidIllegal();
+        assertNotNull(checkCachedPath(map, colonist, cd));
+
+        // The server refuses moves to unexplored tiles
+        Tile tile = map.getTile(2, 10);
+        tile.setExplored(dutchPlayer, false);
+        assertFalse(tile.isExploredBy(dutchPlayer));
+        assertNull(checkCachedPath(map, colonist, cd));
+        tile.setExplored(dutchPlayer, true);
+        assertNotNull(checkCachedPath(map, colonist, cd));
+    }
+
     public void testCopy() {
         Game game = getStandardGame();
         game.setMap(getTestMap());
@@ -610,4 +741,50 @@ public class MapTest extends FreeColTestCase {
         assertFalse(otherColony == colony);
         assertEquals(otherColony.getId(), colony.getId());
     }
+
+    public void testTileArrays() {
+        Game game = getStandardGame();
+        Map map = getSingleLandPathMap(game);
+        game.setMap(map);
+        final TileArrays ta = map.getTileArrays();
+        final Player dutch = game.getPlayerByNationId("model.nation.dutch");
+
+        map.forEachTile(t -> {
+                int i = ta.index(t.getX(), t.getY());
+                assertEquals(t.isLand(), ta.isLand(i));
+                assertEquals(t.getType().getIndex(), ta.getType(i));
+                assertEquals(t.getType().getBasicMoveCost(),
+                             ta.getMoveCost(i));
+                assertEquals(TileArrays.NONE, ta.getOwner(i));
+            });
+
+        // Setters keep the arrays in step
+        Tile tile = map.getTile(6, 6);
+        final int i = ta.index(6, 6);
+        assertFalse(ta.isLand(i));
+        tile.setType(plainsType);
+        assertTrue(ta.isLand(i));
+        assertEquals(plainsType.getIndex(), ta.getType(i));
+        tile.setOwner(dutch);
+        assertEquals(dutch.getNation().getIndex(), ta.getOwner(i));
+        Region region = new Region(game);
+        tile.setRegion(region);
+        assertEquals(region, ta.getRegionByNumber(ta.getRegion(i)));
+        tile.setType(null);
+        assertFalse(ta.isExplored(i));
+        assertFalse(ta.isLand(i));
+
+        // A replaced tile no longer writes to the arrays
+        Tile replacement = new Tile(game, oceanType, 6, 6);
+        map.setTile(replacement, 6, 6);
+        assertEquals(oceanType.getIndex(), ta.getType(i));
+        assertEquals(TileArrays.NONE, ta.getOwner(i));
+        tile.setType(plainsType);
+        assertEquals(oceanType.getIndex(), ta.getType(i));
+
+        // The land map is built from the arrays
+        LandMap landMap = new LandMap(game);
+        assertTrue(landMap.isLand(3, 8));
+        assertFalse(landMap.isLand(6, 6));
+    }
 }
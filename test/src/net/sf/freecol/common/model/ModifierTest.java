@@ -344,4 +344,45 @@ public class ModifierTest extends FreeColTestCase {
         assertEquals(Modifier.UNKNOWN,
             featureContainer.applyModifiers(1, new Turn(15), "test", null));
     }
+
+    public void testResolvedModifiers() {
+        Modifier modifier1 = new Modifier("test", 3,
+                                          ModifierType.ADDITIVE);
+        Modifier modifier2 = new Modifier("test", 2,
+                                          ModifierType.MULTIPLICATIVE);
+        Modifier modifier3 = new Modifier("test", 5,
+                                          ModifierType.ADDITIVE);
+        Scope scope = new Scope();
+        scope.setType("model.unit.frigate");
+        modifier3.addScope(scope);
+
+        FeatureContainer featureContainer = new FeatureContainer();
+        featureContainer.addModifier(modifier1);
+        featureContainer.addModifier(modifier3);
+        assertEquals(4f,
+            featureContainer.applyModifiers(1, null, "test", carpenter));
+        assertEquals(9f,
+            featureContainer.applyModifiers(1, null, "test", frigate));
+
+        // Changes to the container must be seen
+        featureContainer.addModifier(modifier2);
+        assertEquals(8f,
+            featureContainer.applyModifiers(1, null, "test", carpenter));
+        assertEquals(18f,
+            featureContainer.applyModifiers(1, null, "test", frigate));
+        featureContainer.removeModifier(modifier1);
+        assertEquals(2f,
+            featureContainer.applyModifiers(1, null, "test", carpenter));
+        featureContainer.removeModifiers("test");
+        assertEquals(1f,
+            featureContainer.applyModifiers(1, null, "test", frigate));
+
+        // Modifiers with a turn limit depend on the turn
+        modifier1.setFirstTurn(new Turn(10));
+        featureContainer.addModifier(modifier1);
+        assertEquals(1f,
+            featureContainer.applyModifiers(1, new Turn(5), "test", null));
+        assertEquals(4f,
+            featureContainer.applyModifiers(1, new Turn(10), "test", null));
+    }
 }
@@ -38,9 +38,172 @@ public class PathfindingTest extends FreeColTestCase {
     private final TileType plainsType
         = spec().getTileType("model.tile.plains");
 
+    private final TileType hillsType
+        = spec().getTileType("model.tile.hills");
+
+    private final TileType mountainsType
+        = spec().getTileType("model.tile.mountains");
+
+    private final TileType forestType
+        = spec().getTileType("model.tile.mixedForest");
+
     private final UnitType colonistType
         = spec().getUnitType("model.unit.freeColonist");
 
+    private final UnitType galleonType
+        = spec().getUnitType("model.unit.galleon");
+
+
+    /**
+     * Check two paths are identical, node by node.
+     *
+     * @param message A message to identify the path.
+     * @param expected The expected {@code PathNode}.
+     * @param actual The actual {@code PathNode}.
+     */
+    private static void assertSamePath(String message, PathNode expected,
+                                       PathNode actual) {
+        if (expected == null) {
+            assertNull(message, actual);
+            return;
+        }
+        assertNotNull(message, actual);
+        assertEquals(message, expected.fullPathToString(),
+                     actual.fullPathToString());
+        for (PathNode e = expected, a = actual; e != null || a != null;
+             e = e.next, a = a.next) {
+            assertNotNull(message + " path too short", a);
+            assertNotNull(message + " path too long", e);
+            assertEquals(message, e.getLocation(), a.getLocation());
+            assertEquals(message, e.getMovesLeft(), a.getMovesLeft());
+            assertEquals(message, e.getTurns(), a.getTurns());
+            assertEquals(message, e.isOnCarrier(), a.isOnCarrier());
+        }
+    }
+
+    /**
+     * Find a path with both the indexed and original searches.
+     *
+     * @param map The {@code Map} to search.
+     * @param unit The {@code Unit} to find a path for.
+     * @param start The starting {@code Location}.
+     * @param end The end {@code Location}.
+     * @param carrier An optional carrier {@code Unit}.
+     */
+    private static void checkFindPath(Map map, Unit unit, Location start,
+                                      Location end, Unit carrier) {
+        boolean old = map.setIndexedSearch(false);
+        map.invalidatePathCache();
+        PathNode expected = map.findPath(unit, start, end, carrier,
+                                         null, null);
+        map.setIndexedSearch(true);
+        map.invalidatePathCache();
+        PathNode actual = map.findPath(unit, start, end, carrier,
+                                       null, null);
+        map.setIndexedSearch(old);
+        assertSamePath(unit + " " + start + " -> " + end, expected, actual);
+    }
+
+    /**
+     * Vary the terrain of the land half of a coast test map so that
+     * paths have non-trivial costs.
+     *
+     * @param map The {@code Map} to modify.
+     */
+    private void roughenLand(Map map) {
+        final TileType[] types = { hillsType, mountainsType, forestType };
+        for (int x = 1; x < 8; x++) {
+            for (int y = 1; y < map.getHeight() - 1; y++) {
+                if ((x * 7 + y * 3) % 5 < 2) {
+                    map.getTile(x, y).changeType(types[(x + y) % 3]);
+                }
+            }
+        }
+    }
+
+    public void testIndexedSearchLandEquivalence() {
+        final Game game = getStandardGame();
+        final Map map = getCoastTestMap(plainsType, true);
+        game.setMap(map);
+        roughenLand(map);
+        final Player dutch = game.getPlayerByNationId("model.nation.dutch");
+
+        Tile start = map.getTile(1, 1);
+        Unit unit = new ServerUnit(game, start, dutch, colonistType);
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                Tile end = map.getTile(x, y);
+                if (end == start) continue;
+                checkFindPath(map, unit, start, end, null);
+            }
+        }
+    }
+
+    public void testIndexedSearchNavalEquivalence() {
+        final Game game = getStandardGame();
+        final Map map = getCoastTestMap(plainsType, true);
+        game.setMap(map);
+        final Player dutch = game.getPlayerByNationId("model.nation.dutch");
+
+        Tile start = map.getTile(12, 7);
+        Unit galleon = new ServerUnit(game, start, dutch, galleonType);
+        for (int x = 10; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                Tile end = map.getTile(x, y);
+                if (end == start) continue;
+                checkFindPath(map, galleon, start, end, null);
+            }
+        }
+        checkFindPath(map, galleon, start, dutch.getEurope(), null);
+        checkFindPath(map, galleon, dutch.getEurope(), map.getTile(10, 3),
+                      null);
+    }
+
+    public void testIndexedSearchCarrierEquivalence() {
+        final Game game = getStandardGame();
+        final Map map = getCoastTestMap(plainsType, true);
+        game.setMap(map);
+        roughenLand(map);
+        final Player dutch = game.getPlayerByNationId("model.nation.dutch");
+
+        Tile colonyTile = map.getTile(9, 2);
+        FreeColTestUtils.getColonyBuilder().player(dutch)
+            .colonyTile(colonyTile).build();
+        Tile start = map.getTile(10, 10);
+        Unit galleon = new ServerUnit(game, start, dutch, galleonType);
+        Unit unit = new ServerUnit(game, galleon, dutch, colonistType);
+        for (int y = 0; y < map.getHeight(); y++) {
+            checkFindPath(map, unit, galleon, map.getTile(8, y), galleon);
+            checkFindPath(map, unit, galleon, map.getTile(2, y), galleon);
+        }
+    }
+
+    public void testIndexedSearchGoalEquivalence() {
+        final Game game = getStandardGame();
+        final Map map = getCoastTestMap(plainsType, true);
+        game.setMap(map);
+        roughenLand(map);
+        final Player dutch = game.getPlayerByNationId("model.nation.dutch");
+
+        Tile unitTile = map.getTile(2, 12);
+        Unit unit = new ServerUnit(game, unitTile, dutch, colonistType);
+        for (int turns : new int[] { 1, 2, 4, Map.INFINITY }) {
+            GoalDecider gd = GoalDeciders.getComposedGoalDecider(false,
+                GoalDeciders.getLocationGoalDecider(map.getTile(8, 1)),
+                GoalDeciders.getLocationGoalDecider(map.getTile(1, 1)));
+            map.setIndexedSearch(false);
+            PathNode expected = map.search(unit, unitTile, gd, null, turns,
+                                           null, null);
+            gd = GoalDeciders.getComposedGoalDecider(false,
+                GoalDeciders.getLocationGoalDecider(map.getTile(8, 1)),
+                GoalDeciders.getLocationGoalDecider(map.getTile(1, 1)));
+            map.setIndexedSearch(true);
+            PathNode actual = map.search(unit, unitTile, gd, null, turns,
+                                         null, null);
+            assertSamePath("search " + turns, expected, actual);
+        }
+    }
+
 
 
     public void testComposedGoalDeciders() {
@@ -136,7 +299,7 @@ public class PathfindingTest extends FreeColTestCase {
         assertNotNull(path);
         assertEquals("Composed-OR GoalDecider should find natives", nativeTile,
                      path.getLastNode().getTile());
-        gd = GoalDeciders.getComposedGoalDecider(false, nativeGD, colonyGD);
+        gd = GoalDeciders.getComposedGoalDecider(false, colonyGD, nativeGD);
         path = unit.search(unitTile, gd, null, 1, null);
         assertNotNull(path);
         assertEquals("Composed-OR GoalDecider should find colony", colonyTile,
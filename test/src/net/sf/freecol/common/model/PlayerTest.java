@@ -19,8 +19,11 @@
 
 package net.sf.freecol.common.model;
 
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
+import net.sf.freecol.common.option.GameOptions;
 import net.sf.freecol.server.model.ServerGame;
 import net.sf.freecol.server.model.ServerPlayer;
 import net.sf.freecol.server.model.ServerUnit;
@@ -35,6 +38,9 @@ public class PlayerTest extends FreeColTestCase {
     private static final UnitType galleonType
         = spec().getUnitType("model.unit.galleon");
 
+    private static final Role scoutRole
+        = spec().getRole("model.role.scout");
+
 
     public void testUnits() {
         Game game = getStandardGame();
@@ -295,4 +301,75 @@ public class PlayerTest extends FreeColTestCase {
 
         }
     }
+
+    /**
+     * Check the incrementally maintained visibility against a full
+     * recomputation from every unit and settlement.
+     *
+     * @param player The {@code Player} to check.
+     */
+    private static void checkCanSee(Player player) {
+        Set<Tile> expected = new HashSet<>();
+        for (Unit u : player.getUnitList()) {
+            if (u.getLocation() instanceof Tile) {
+                expected.addAll(u.getVisibleTiles());
+            }
+        }
+        for (Settlement s : player.getSettlementList()) {
+            expected.addAll(s.getVisibleTiles());
+        }
+        player.invalidateCanSeeTiles();
+        player.getGame().getMap().forEachTile(t ->
+            assertEquals("Visibility of " + t, expected.contains(t),
+                         player.canSee(t)));
+    }
+
+    public void testCanSee() {
+        Game game = getStandardGame();
+        Map map = getTestMap();
+        game.setMap(map);
+        Player dutch = game.getPlayerByNationId("model.nation.dutch");
+        Player french = game.getPlayerByNationId("model.nation.french");
+        assertTrue(spec().getBoolean(GameOptions.FOG_OF_WAR));
+
+        checkCanSee(dutch);
+        assertFalse(dutch.canSee(map.getTile(5, 8)));
+
+        Unit u1 = new ServerUnit(game, map.getTile(5, 8), dutch,
+                                 freeColonist);
+        Unit u2 = new ServerUnit(game, map.getTile(6, 8), dutch,
+                                 freeColonist);
+        checkCanSee(dutch);
+        assertTrue(dutch.canSee(map.getTile(5, 8)));
+
+        // Moving, overlapping and not.
+        u1.setLocation(map.getTile(7, 8));
+        checkCanSee(dutch);
+        u1.setLocation(map.getTile(12, 3));
+        checkCanSee(dutch);
+
+        // Line of sight change.
+        u2.changeRole(scoutRole, 1);
+        assertTrue(u2.getLineOfSight() > 1);
+        checkCanSee(dutch);
+
+        // Leaving the map.
+        u2.setLocation(dutch.getEurope());
+        checkCanSee(dutch);
+        u2.setLocation(map.getTile(12, 4));
+        checkCanSee(dutch);
+
+        // Settlements.
+        Colony colony = getStandardColony(2, 3, 3);
+        checkCanSee(dutch);
+
+        // Ownership change and disposal.
+        u2.changeOwner(french);
+        checkCanSee(dutch);
+        checkCanSee(french);
+        u1.dispose();
+        checkCanSee(dutch);
+        assertTrue(dutch.canSee(colony.getTile()));
+        assertFalse(dutch.canSee(map.getTile(12, 3)));
+    }
 }
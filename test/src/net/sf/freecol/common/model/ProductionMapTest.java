@@ -0,0 +1,72 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model;
+
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class ProductionMapTest extends FreeColTestCase {
+
+    private static final GoodsType furs
+        = spec().getGoodsType("model.goods.furs");
+    private static final GoodsType sugar
+        = spec().getGoodsType("model.goods.sugar");
+
+
+    public void testAdd() {
+        ProductionMap map = new ProductionMap();
+        assertEquals(0, map.get(furs).getAmount());
+        map.add(new AbstractGoods(furs, 3));
+        map.add(new AbstractGoods(furs, 2));
+        map.add(new AbstractGoods(sugar, 1));
+        assertEquals(5, map.get(furs).getAmount());
+        assertEquals(1, map.get(sugar).getAmount());
+        map.remove(new AbstractGoods(furs, 4));
+        assertEquals(1, map.get(furs).getAmount());
+    }
+
+    public void testEqualTypes() {
+        // Types with the same identifier from other specifications
+        GoodsType moved = new GoodsType(furs.getId(), new Specification());
+        moved.setIndex(sugar.getIndex());
+        GoodsType unused = new GoodsType(furs.getId(), new Specification());
+        unused.setIndex(spec().getGoodsTypeList().size() + 2);
+
+        ProductionMap map = new ProductionMap();
+        map.add(new AbstractGoods(furs, 2));
+        map.add(new AbstractGoods(sugar, 1));
+        map.add(new AbstractGoods(moved, 3));
+        map.add(new AbstractGoods(unused, 4));
+        assertEquals(9, map.get(furs).getAmount());
+        assertEquals(9, map.get(moved).getAmount());
+        assertEquals(9, map.get(unused).getAmount());
+        assertEquals(1, map.get(sugar).getAmount());
+
+        // The other way around
+        map = new ProductionMap();
+        map.add(new AbstractGoods(unused, 4));
+        map.add(new AbstractGoods(moved, 3));
+        map.add(new AbstractGoods(sugar, 1));
+        map.add(new AbstractGoods(furs, 2));
+        assertEquals(9, map.get(furs).getAmount());
+        assertEquals(9, map.get(unused).getAmount());
+        assertEquals(1, map.get(sugar).getAmount());
+    }
+}
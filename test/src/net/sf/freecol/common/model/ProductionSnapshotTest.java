@@ -0,0 +1,178 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model;
+
+import net.sf.freecol.server.model.ServerUnit;
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class ProductionSnapshotTest extends FreeColTestCase {
+
+    private static final BuildingType carpenterHouseType
+        = spec().getBuildingType("model.building.carpenterHouse");
+
+    private static final GoodsType hammersType
+        = spec().getGoodsType("model.goods.hammers");
+    private static final GoodsType lumberType
+        = spec().getGoodsType("model.goods.lumber");
+
+    private static final UnitType carpenterType
+        = spec().getUnitType("model.unit.masterCarpenter");
+    private static final UnitType freeColonistType
+        = spec().getUnitType("model.unit.freeColonist");
+
+
+    /**
+     * Check a snapshot predicts the production of a colony.
+     *
+     * @param msg A message to show on failure.
+     * @param colony The {@code Colony} to check.
+     * @param snapshot The {@code ProductionSnapshot} to check.
+     */
+    private static void checkSnapshot(String msg, Colony colony,
+                                      ProductionSnapshot snapshot) {
+        assertEquals(msg, colony.getUnitCount(), snapshot.getUnitCount());
+        assertEquals(msg, colony.getProductionBonus(),
+                     snapshot.getProductionBonus());
+        for (GoodsType gt : spec().getGoodsTypeList()) {
+            assertEquals(msg + " net " + gt.getSuffix(),
+                         colony.getNetProductionOf(gt),
+                         snapshot.getNetProductionOf(gt));
+            assertEquals(msg + " adjusted " + gt.getSuffix(),
+                         colony.getAdjustedNetProductionOf(gt),
+                         snapshot.getAdjustedNetProductionOf(gt));
+        }
+        for (WorkLocation wl : colony.getAllWorkLocationsList()) {
+            assertEquals(msg + " at " + wl,
+                         String.valueOf(colony.getProductionInfo(wl)),
+                         String.valueOf(snapshot.getProductionInfo(wl)));
+        }
+    }
+
+    /**
+     * Check moving a unit in a snapshot predicts moving it in the
+     * colony, then move it back.
+     *
+     * @param colony The {@code Colony} to check.
+     * @param unit The {@code Unit} to move.
+     * @param wl The {@code WorkLocation} to move to, or null to leave.
+     * @param workType The {@code GoodsType} to make.
+     * @return The {@code ProductionSnapshot} with the unit moved.
+     */
+    private static ProductionSnapshot checkMove(Colony colony, Unit unit,
+                                                WorkLocation wl,
+                                                GoodsType workType) {
+        ProductionSnapshot snapshot = new ProductionSnapshot(colony);
+        checkSnapshot("snapshot", colony, snapshot);
+        ProductionSnapshot moved = snapshot.withUnit(unit, wl, workType);
+
+        Location oldLoc = unit.getLocation();
+        GoodsType oldWork = unit.getWorkType();
+        if (wl == null) {
+            unit.setLocation(colony.getTile());
+        } else {
+            unit.setLocation(wl);
+            unit.changeWorkType(workType);
+        }
+        checkSnapshot(unit + " to " + wl + " making " + workType,
+                      colony, moved);
+        unit.setLocation(oldLoc);
+        unit.changeWorkType(oldWork);
+        return moved;
+    }
+
+    public void testSnapshot() {
+        Game game = getStandardGame();
+        game.setMap(getTestMap());
+        Colony colony = getStandardColony(3);
+        Building carpenterHouse = colony.getBuilding(carpenterHouseType);
+        Unit carpenter = colony.getUnitList().get(0);
+        carpenter.changeType(carpenterType);
+        assertTrue(carpenter.setLocation(carpenterHouse));
+        carpenter.changeWorkType(hammersType);
+        colony.addGoods(lumberType, 20);
+
+        ProductionSnapshot snapshot = new ProductionSnapshot(colony);
+        checkSnapshot("initial", colony, snapshot);
+        int hammers = colony.getNetProductionOf(hammersType);
+        assertTrue(hammers > 0);
+
+        // The snapshot does not see later changes to the colony
+        colony.removeGoods(lumberType);
+        assertTrue(colony.getNetProductionOf(hammersType) < hammers);
+        assertEquals(hammers, snapshot.getNetProductionOf(hammersType));
+        checkSnapshot("no lumber", colony, new ProductionSnapshot(colony));
+
+        // Nor does it change when copies are made
+        ProductionSnapshot moved = snapshot.withUnit(carpenter, null, null);
+        assertEquals(0, moved.getNetProductionOf(hammersType));
+        assertNull(moved.getWorkLocation(carpenter));
+        assertEquals(carpenterHouse, snapshot.getWorkLocation(carpenter));
+        assertEquals(hammers, snapshot.getNetProductionOf(hammersType));
+    }
+
+    public void testWithUnit() {
+        Game game = getStandardGame();
+        game.setMap(getTestMap());
+        Colony colony = getStandardColony(4);
+        Building carpenterHouse = colony.getBuilding(carpenterHouseType);
+        Unit carpenter = colony.getUnitList().get(0);
+        carpenter.changeType(carpenterType);
+        assertTrue(carpenter.setLocation(carpenterHouse));
+        carpenter.changeWorkType(hammersType);
+        colony.addGoods(lumberType, 5);
+
+        // Try every unit at every job
+        for (Unit u : colony.getUnitList()) {
+            for (WorkLocation wl : colony.getCurrentWorkLocationsList()) {
+                if (!wl.canAdd(u)) continue;
+                for (GoodsType gt : spec().getGoodsTypeList()) {
+                    if (wl.getPotentialProduction(gt, u.getType()) <= 0) {
+                        continue;
+                    }
+                    checkMove(colony, u, wl, gt);
+                }
+            }
+            checkMove(colony, u, null, null);
+        }
+
+        // Starting work in a building that uses the stored goods
+        assertTrue(carpenter.setLocation(colony.getTile()));
+        assertTrue(carpenterHouse.isEmpty());
+        ProductionSnapshot started
+            = checkMove(colony, carpenter, carpenterHouse, hammersType);
+        assertTrue(started.getNetProductionOf(hammersType) > 0);
+        assertTrue(carpenter.setLocation(carpenterHouse));
+        carpenter.changeWorkType(hammersType);
+
+        // A unit joining the colony, enough to change the production
+        // bonus with the liberty set so that four units get a bonus.
+        colony.modifyLiberty(2 * Colony.LIBERTY_PER_REBEL
+            - colony.getLiberty());
+        assertEquals(1, colony.getProductionBonus());
+        Unit unit = new ServerUnit(game, colony.getTile(), colony.getOwner(),
+                                   freeColonistType);
+        ColonyTile tile = colony.getColonyTile(colony.getTile()
+            .getNeighbourOrNull(Direction.S));
+        assertTrue(tile.canAdd(unit));
+        ProductionSnapshot joined = checkMove(colony, unit, tile, lumberType);
+        assertEquals(0, joined.getProductionBonus());
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class TypeCountMapTest extends FreeColTestCase {
+
+    private static final GoodsType food
+        = spec().getPrimaryFoodType();
+    private static final GoodsType furs
+        = spec().getGoodsType("model.goods.furs");
+    private static final GoodsType sugar
+        = spec().getGoodsType("model.goods.sugar");
+
+
+    public void testDenseIndexes() {
+        int index = 0;
+        for (GoodsType type : spec().getGoodsTypeList()) {
+            assertEquals(index++, type.getIndex());
+        }
+        index = 0;
+        for (UnitType type : spec().getUnitTypeList()) {
+            assertEquals(index++, type.getIndex());
+        }
+    }
+
+    public void testCounts() {
+        TypeCountMap<GoodsType> map = new TypeCountMap<>();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.getCount(furs));
+
+        map.incrementCount(furs, 10);
+        map.incrementCount(food, 0);
+        map.incrementCount(furs, 5);
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(food));
+        assertEquals(0, map.getCount(food));
+        assertEquals(15, map.getCount(furs));
+
+        map.incrementCount(furs, -15);
+        assertFalse(map.containsKey(furs));
+        assertEquals(1, map.size());
+
+        map.setCount(sugar, 3);
+        Iterator<GoodsType> it = map.keySet().iterator();
+        assertEquals(food, it.next());
+        assertEquals(sugar, it.next());
+        assertFalse(it.hasNext());
+
+        assertEquals(Integer.valueOf(3), map.remove(sugar));
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    public void testUnindexedTypes() {
+        UnitType gardener = new UnitType("gardener", spec());
+        assertEquals(-1, gardener.getIndex());
+        UnitType colonist = spec().getDefaultUnitType();
+
+        TypeCountMap<UnitType> map = new TypeCountMap<>();
+        map.incrementCount(gardener, 2);
+        map.incrementCount(colonist, 1);
+        map.incrementCount(gardener, 2);
+        assertEquals(4, map.getCount(gardener));
+        assertEquals(1, map.getCount(colonist));
+        assertEquals(2, map.size());
+
+        TypeCountMap<UnitType> other = new TypeCountMap<>();
+        other.add(map);
+        other.add(map);
+        assertEquals(8, other.getCount(gardener));
+        assertEquals(2, other.getCount(colonist));
+        assertTrue(Arrays.asList(4, 1).containsAll(map.values()));
+    }
+
+    public void testEqualTypes() {
+        // Types with the same identifier from other specifications
+        GoodsType moved = new GoodsType(furs.getId(), new Specification());
+        moved.setIndex(sugar.getIndex());
+        GoodsType unused = new GoodsType(furs.getId(), new Specification());
+        unused.setIndex(spec().getGoodsTypeList().size() + 2);
+        assertEquals(furs, moved);
+        assertEquals(furs, unused);
+
+        TypeCountMap<GoodsType> map = new TypeCountMap<>();
+        map.incrementCount(furs, 2);
+        map.incrementCount(sugar, 1);
+        map.incrementCount(moved, 3);
+        map.incrementCount(unused, 4);
+        assertEquals(2, map.size());
+        assertEquals(9, map.getCount(furs));
+        assertEquals(9, map.getCount(moved));
+        assertEquals(9, map.getCount(unused));
+        assertEquals(1, map.getCount(sugar));
+
+        // The other way around
+        map = new TypeCountMap<>();
+        map.incrementCount(unused, 4);
+        map.incrementCount(moved, 3);
+        map.incrementCount(sugar, 1);
+        map.incrementCount(furs, 2);
+        assertEquals(2, map.size());
+        assertEquals(9, map.getCount(furs));
+        assertEquals(1, map.getCount(sugar));
+        assertEquals(Integer.valueOf(9), map.remove(furs));
+        assertFalse(map.containsKey(unused));
+        assertEquals(1, map.size());
+    }
+}
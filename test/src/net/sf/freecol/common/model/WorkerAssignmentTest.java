@@ -0,0 +1,204 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.freecol.server.model.ServerUnit;
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class WorkerAssignmentTest extends FreeColTestCase {
+
+    private static final BuildingType carpenterHouseType
+        = spec().getBuildingType("model.building.carpenterHouse");
+    private static final BuildingType townHallType
+        = spec().getBuildingType("model.building.townHall");
+
+    private static final GoodsType bellsType
+        = spec().getGoodsType("model.goods.bells");
+    private static final GoodsType foodType
+        = spec().getPrimaryFoodType();
+    private static final GoodsType grainType
+        = spec().getGoodsType("model.goods.grain");
+    private static final GoodsType hammersType
+        = spec().getGoodsType("model.goods.hammers");
+
+    private static final UnitType farmerType
+        = spec().getUnitType("model.unit.expertFarmer");
+    private static final UnitType statesmanType
+        = spec().getUnitType("model.unit.elderStatesman");
+
+
+    public void testSwapExperts() {
+        Game game = getStandardGame();
+        game.setMap(getTestMap());
+        Colony colony = getStandardColony(2);
+        Building townHall = colony.getBuilding(townHallType);
+        ColonyTile tile = colony.getColonyTile(colony.getTile()
+            .getNeighbourOrNull(Direction.N));
+
+        // Put the farmer in the town hall, and the statesman on a farm
+        Unit farmer = colony.getUnitList().get(0);
+        Unit statesman = colony.getUnitList().get(1);
+        farmer.changeType(farmerType);
+        statesman.changeType(statesmanType);
+        assertTrue(farmer.setLocation(townHall));
+        farmer.changeWorkType(bellsType);
+        assertTrue(statesman.setLocation(tile));
+        statesman.changeWorkType(grainType);
+
+        WorkerAssignment wa = new WorkerAssignment(colony);
+        assertEquals(2, wa.getUnits().size());
+        assertEquals(2, wa.getJobs().size());
+        assertTrue(wa.getBestProduction() > wa.getCurrentProduction());
+        assertEquals(wa.getBestProduction(),
+            tile.getPotentialProduction(grainType, farmerType)
+            + townHall.getPotentialProduction(bellsType, statesmanType));
+
+        java.util.Map<Unit, Occupation> changes = wa.getChanges();
+        assertEquals(2, changes.size());
+        assertEquals(tile, changes.get(farmer).workLocation);
+        assertEquals(grainType, changes.get(farmer).workType);
+        assertEquals(townHall, changes.get(statesman).workLocation);
+        assertEquals(bellsType, changes.get(statesman).workType);
+        assertFalse(wa.wouldStarve(colony));
+
+        // Once swapped, nothing changes
+        for (Unit u : new ArrayList<>(changes.keySet())) {
+            u.setLocation(colony.getTile());
+        }
+        for (java.util.Map.Entry<Unit, Occupation> e : changes.entrySet()) {
+            assertTrue(e.getValue().install(e.getKey()));
+        }
+        wa = new WorkerAssignment(colony);
+        assertTrue(wa.getChanges().isEmpty());
+        assertEquals(wa.getBestProduction(), wa.getCurrentProduction());
+    }
+
+    public void testMoreUnitsThanJobs() {
+        Game game = getStandardGame();
+        game.setMap(getTestMap());
+        Colony colony = getStandardColony(1);
+        ColonyTile tile = colony.getColonyTile(colony.getTile()
+            .getNeighbourOrNull(Direction.N));
+
+        // Two units for one farm, the expert should get it
+        Unit colonist = colony.getUnitList().get(0);
+        assertTrue(colonist.setLocation(tile));
+        colonist.changeWorkType(grainType);
+        Unit farmer = new ServerUnit(game, colony.getTile(),
+                                     colony.getOwner(), farmerType);
+        List<Unit> units = new ArrayList<>();
+        units.add(colonist);
+        units.add(farmer);
+
+        WorkerAssignment wa = new WorkerAssignment(units,
+            WorkerAssignment.getJobs(colony.getUnitList()));
+        java.util.Map<Unit, Occupation> assignment = wa.getAssignment();
+        assertEquals(1, assignment.size());
+        assertEquals(tile, assignment.get(farmer).workLocation);
+        assertNull(assignment.get(colonist));
+    }
+
+    public void testWouldStarve() {
+        Game game = getStandardGame();
+        game.setMap(getTestMap());
+        Colony colony = getStandardColony(3);
+        Building carpenterHouse = colony.getBuilding(carpenterHouseType);
+        Building townHall = colony.getBuilding(townHallType);
+        ColonyTile tile = colony.getColonyTile(colony.getTile()
+            .getNeighbourOrNull(Direction.N));
+
+        // The farmer feeds the colony, the others make nothing
+        Unit farmer = colony.getUnitList().get(0);
+        farmer.changeType(farmerType);
+        assertTrue(farmer.setLocation(tile));
+        farmer.changeWorkType(grainType);
+        for (Unit u : colony.getUnitList()) {
+            if (u == farmer) continue;
+            assertTrue(u.setLocation(carpenterHouse));
+            u.changeWorkType(hammersType);
+        }
+        int food = colony.getAdjustedNetProductionOf(foodType);
+        assertTrue(food > 0);
+
+        // Making bells instead would starve the colony
+        List<Unit> units = new ArrayList<>();
+        units.add(farmer);
+        List<Occupation> jobs = new ArrayList<>();
+        jobs.add(new Occupation(townHall, townHall.getProductionType(),
+                                bellsType));
+        WorkerAssignment wa = new WorkerAssignment(units, jobs);
+        assertEquals(townHall, wa.getChanges().get(farmer).workLocation);
+        assertTrue(wa.wouldStarve(colony));
+        assertEquals(tile, farmer.getLocation());
+        assertEquals(food, colony.getAdjustedNetProductionOf(foodType));
+
+        // ...as the colony itself shows
+        assertTrue(farmer.setLocation(townHall));
+        farmer.changeWorkType(bellsType);
+        assertTrue(colony.getAdjustedNetProductionOf(foodType) < 0);
+    }
+
+    public void testApply() {
+        Game game = getStandardGame();
+        game.setMap(getTestMap());
+        Colony colony = getStandardColony(2);
+        Building townHall = colony.getBuilding(townHallType);
+        ColonyTile tile = colony.getColonyTile(colony.getTile()
+            .getNeighbourOrNull(Direction.N));
+        Unit farmer = colony.getUnitList().get(0);
+        Unit statesman = colony.getUnitList().get(1);
+        farmer.changeType(farmerType);
+        statesman.changeType(statesmanType);
+
+        // The statesman has to leave the farm before the farmer
+        // can take it, and one of the moves fails.
+        final int[] moves = new int[1];
+        for (int fail = 2; fail >= 0; fail--) {
+            assertTrue(farmer.setLocation(townHall));
+            farmer.changeWorkType(bellsType);
+            assertTrue(statesman.setLocation(tile));
+            statesman.changeWorkType(grainType);
+
+            final int failing = fail;
+            moves[0] = 0;
+            WorkerAssignment wa = new WorkerAssignment(colony);
+            boolean done = wa.apply(colony,
+                (u, wl) -> ++moves[0] != failing && u.setLocation(wl),
+                (u, gt) -> { u.changeWorkType(gt); return true; });
+            assertEquals(fail == 0, done);
+            if (done) {
+                assertEquals(2, moves[0]);
+                assertEquals(tile, farmer.getLocation());
+                assertEquals(grainType, farmer.getWorkType());
+                assertEquals(townHall, statesman.getLocation());
+                assertEquals(bellsType, statesman.getWorkType());
+            } else {
+                assertEquals(townHall, farmer.getLocation());
+                assertEquals(bellsType, farmer.getWorkType());
+                assertEquals(tile, statesman.getLocation());
+                assertEquals(grainType, statesman.getWorkType());
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.networking;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLStreamException;
+
+import net.sf.freecol.common.FreeColException;
+import net.sf.freecol.common.io.FreeColXMLReader;
+import net.sf.freecol.common.model.Building;
+import net.sf.freecol.common.model.Colony;
+import net.sf.freecol.common.model.FreeColGameObject;
+import net.sf.freecol.common.model.Game;
+import net.sf.freecol.common.model.GoodsType;
+import net.sf.freecol.common.model.Map;
+import net.sf.freecol.common.model.Player;
+import net.sf.freecol.common.model.Unit;
+import net.sf.freecol.common.networking.Connection.WireFormat;
+import static net.sf.freecol.common.util.CollectionUtils.*;
+import net.sf.freecol.server.networking.DummyConnection;
+import net.sf.freecol.util.test.FreeColTestCase;
+
+import org.w3c.dom.Element;
+
+
+public class ConnectionTest extends FreeColTestCase {
+
+    private static final Logger logger = Logger.getLogger(ConnectionTest.class.getName());
+
+    private static final GoodsType lumberType
+        = spec().getGoodsType("model.goods.lumber");
+
+    private static Game readClientGame(Game game, Player player) {
+        Game client = DOMMessage.readGameElement(new Game(),
+            DOMMessage.toXMLElement(game, DOMMessage.createNewDocument(),
+                                    player), true, Game.class);
+        assertNotNull(client);
+        return client;
+    }
+
+    private static String clientView(Game client, FreeColGameObject fcgo,
+                                     Player player) {
+        return DOMMessage.elementToString(DOMMessage.toXMLElement(
+                client.getFreeColGameObject(fcgo.getId()),
+                DOMMessage.createNewDocument(),
+                client.getPlayerByNationId(player.getNationId())));
+    }
+
+    private static Element roundTrip(Element element) throws Exception {
+        StringWriter sw = new StringWriter();
+        Connection.writeElement(sw, element);
+        String xml = sw.toString();
+        assertEquals("No line breaks on the wire", -1,
+            xml.indexOf(Connection.END_OF_STREAM));
+        return new DOMMessage(new ByteArrayInputStream(xml
+                .getBytes(StandardCharsets.UTF_8))).toXMLElement();
+    }
+
+    public void testWriteEscaped() throws Exception {
+        final String awkward = "a&b<c>d\"e'f\ng\r\thé";
+        DOMMessage msg = new DOMMessage("test", "awkward", awkward,
+                                        "empty", "");
+        Element child = DOMMessage.createElement("child");
+        child.appendChild(child.getOwnerDocument()
+            .createTextNode(awkward));
+        msg.add(child);
+
+        Element result = roundTrip(msg.toXMLElement());
+        assertEquals("test", result.getTagName());
+        assertEquals(awkward, result.getAttribute("awkward"));
+        assertEquals("", result.getAttribute("empty"));
+        Element c = (Element)result.getFirstChild();
+        assertEquals("child", c.getTagName());
+        assertEquals(awkward, c.getTextContent());
+    }
+
+    public void testWriteGameObject() throws Exception {
+        Game game = getStandardGame();
+        game.setMap(getTestMap());
+        DOMMessage msg = new DOMMessage("update");
+        msg.add(game.getMap().getTile(5, 5));
+        msg.add(game.getMap().getTile(6, 8));
+
+        Element element = msg.toXMLElement();
+        Element result = roundTrip(element);
+        assertEquals(DOMMessage.elementToString(element),
+                     DOMMessage.elementToString(result));
+    }
+
+    public void testBinaryCodec() throws Exception {
+        Game game = getStandardGame();
+        game.setMap(getTestMap());
+        BinaryCodec out = new BinaryCodec(), in = new BinaryCodec();
+        for (int i = 0; i < 3; i++) { // Exercise the string tables
+            DOMMessage msg = new DOMMessage("update", "awkward",
+                "a&b<c>d\"e'f\ng\r\th\u00e9");
+            msg.add(game.getMap().getTile(5, 5 + i));
+            Element element = msg.toXMLElement();
+            byte[] frame = out.encode(element, i == 2);
+            byte[] header = new byte[BinaryCodec.HEADER_SIZE];
+            System.arraycopy(frame, 0, header, 0, header.length);
+            byte[] payload = new byte[frame.length - header.length];
+            System.arraycopy(frame, header.length, payload, 0, payload.length);
+            assertEquals(payload.length, BinaryCodec.getPayloadLength(header));
+            assertEquals(DOMMessage.elementToString(element),
+                DOMMessage.elementToString(in.decode(header, payload)));
+        }
+    }
+
+    /**
+     * Compare the wire formats, sending the same messages over a
+     * pair of dummy connections that simulate the wire.
+     */
+    public void testWireFormats() throws Exception {
+        Game game = getStandardGame();
+        game.setMap(getTestMap());
+        final Map map = game.getMap();
+        final Player dutch = game.getPlayerByNationId("model.nation.dutch");
+
+        // A turn of tile updates, and the game as sent at login.
+        List<Element> messages = new ArrayList<>();
+        for (int y = 0; y < map.getHeight(); y++) {
+            DOMMessage msg = new DOMMessage("update");
+            for (int x = 0; x < map.getWidth(); x++) {
+                msg.add(map.getTile(x, y));
+            }
+            messages.add(msg.toXMLElement());
+        }
+        messages.add(new DOMMessage("update").add(game, dutch).toXMLElement());
+        List<String> expected = new ArrayList<>();
+        for (Element e : messages) expected.add(DOMMessage.elementToString(e));
+
+        long[] bytes = new long[WireFormat.values().length];
+        for (WireFormat wf : WireFormat.values()) {
+            final List<String> received = new ArrayList<>();
+            DummyConnection server = new DummyConnection("server", null);
+            DummyConnection client = new DummyConnection("client",
+                (Connection c, Element e) -> {
+                    received.add(DOMMessage.elementToString(e));
+                    return null;
+                });
+            server.setConnection(client);
+            client.setConnection(server);
+            server.setWireFormat(wf);
+            server.setSimulateWire(true);
+
+            long start = System.nanoTime();
+            for (Element e : messages) server.send(e);
+            long time = System.nanoTime() - start;
+
+            assertEquals(expected, received);
+            assertEquals(server.getBytesSent(), client.getBytesReceived());
+            bytes[wf.ordinal()] = server.getBytesSent();
+            logger.info(wf + ": " + messages.size() + " messages, "
+                + bytes[wf.ordinal()] + " bytes, "
+                + (time / 1000000) + "ms");
+        }
+        assertTrue(bytes[WireFormat.BINARY.ordinal()]
+            < bytes[WireFormat.XML.ordinal()]);
+        assertTrue(bytes[WireFormat.COMPRESSED.ordinal()]
+            < bytes[WireFormat.BINARY.ordinal()]);
+    }
+
+    public void testLoginStreaming() {
+        Element element = new LoginMessage("user", "version", null,
+            true, false, null, WireFormat.XML, true).toXMLElement();
+        assertTrue(new LoginMessage(new Game(), element).getStreaming());
+
+        // Older peers neither send nor expect the attribute
+        element = new LoginMessage("user", "version", null,
+            true, false, null, WireFormat.XML, false).toXMLElement();
+        assertFalse(element.hasAttribute("streaming"));
+        assertFalse(new LoginMessage(new Game(), element).getStreaming());
+    }
+
+    /**
+     * Check that updates read straight from the stream leave the
+     * client game as reading them through DOM would, and that other
+     * messages still reach the DOM handler.
+     */
+    public void testStreamedUpdates() throws Exception {
+        Game game = getStandardGame();
+        game.setMap(getTestMap());
+        Colony colony = getStandardColony(3);
+        Player dutch = colony.getOwner();
+        final Game domGame = readClientGame(game, dutch);
+        final Game streamGame = readClientGame(game, dutch);
+
+        colony.addGoods(lumberType, 10);
+        Unit unit = colony.getUnitList().get(0);
+        Building building = find(colony.getBuildings(),
+            b -> b != unit.getLocation() && b.canAdd(unit));
+        assertTrue(unit.setLocation(building));
+
+        DOMMessage update = new DOMMessage(UpdateMessage.TAG);
+        update.add(colony, dutch);
+        update.add(colony.getTile(), dutch);
+        Element missing = DOMMessage.createElement(Unit.TAG);
+        missing.setAttribute(FreeColGameObject.ID_ATTRIBUTE_TAG, "unit:-1");
+        missing.appendChild(missing.getOwnerDocument()
+            .createElement("ignored"));
+        update.add(missing);
+        DOMMessage multiple = new DOMMessage(MultipleMessage.TAG);
+        multiple.add(update.toXMLElement());
+        multiple.add(new DOMMessage("other", "awkward", "a&b<c>\"d\n")
+            .toXMLElement());
+
+        final List<String> received = new ArrayList<>();
+        MessageHandler handler = new MessageHandler() {
+                @Override
+                public Element handle(Connection c, Element e) {
+                    received.add(DOMMessage.elementToString(e));
+                    return null;
+                }
+
+                @Override
+                public Element handle(Connection c, FreeColXMLReader xr)
+                    throws FreeColException, XMLStreamException {
+                    if (xr.atTag(UpdateMessage.TAG)) {
+                        new UpdateMessage(streamGame, xr);
+                    } else if (xr.atTag(MultipleMessage.TAG)) {
+                        while (xr.moreTags()) handle(c, xr);
+                    } else {
+                        return MessageHandler.super.handle(c, xr);
+                    }
+                    return null;
+                }
+            };
+        DummyConnection server = new DummyConnection("server", null);
+        DummyConnection client = new DummyConnection("client", handler);
+        server.setConnection(client);
+        client.setConnection(server);
+        server.setSimulateWire(true);
+        client.setStreaming(true);
+        server.send(multiple.toXMLElement());
+
+        new UpdateMessage(domGame, update.toXMLElement());
+        assertEquals(clientView(domGame, colony, dutch),
+                     clientView(streamGame, colony, dutch));
+        assertEquals(clientView(domGame, colony.getTile(), dutch),
+                     clientView(streamGame, colony.getTile(), dutch));
+        assertEquals(colony.getGoodsCount(lumberType),
+            streamGame.getFreeColGameObject(colony.getId(), Colony.class)
+                .getGoodsCount(lumberType));
+        assertEquals(1, received.size());
+        assertEquals(DOMMessage.elementToString((Element)multiple
+                .toXMLElement().getLastChild()), received.get(0));
+
+        // Without streaming the whole message goes to the DOM handler
+        received.clear();
+        client.setStreaming(false);
+        server.send(multiple.toXMLElement());
+        assertEquals(1, received.size());
+        assertTrue(received.get(0).startsWith("<" + MultipleMessage.TAG));
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.resources;
+
+import java.awt.image.BufferedImage;
+
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class ImageCacheTest extends FreeColTestCase {
+
+    /** Bytes in a 16x16 ARGB image. */
+    private static final long IMAGE_BYTES = 16 * 16 * 4;
+
+    private static BufferedImage makeImage() {
+        return new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+    }
+
+
+    public void testBudget() {
+        ImageCache cache = new ImageCache(2 * IMAGE_BYTES);
+        BufferedImage a = makeImage(), b = makeImage(), c = makeImage();
+        cache.put("a", a);
+        cache.put("b", b);
+        assertEquals(a, cache.get("a"));
+        assertEquals(2, cache.count(k -> true));
+
+        // "b" is the least recently used, and goes over budget
+        cache.put("c", c);
+        assertEquals(2, cache.count(k -> true));
+        assertEquals(1, cache.count(k -> "a".equals(k)));
+        assertEquals(0, cache.count(k -> "b".equals(k)));
+        assertEquals("1", cache.getStatistics().get("imageCacheEvictions"));
+
+        // ...but is still softly reachable
+        assertEquals(b, cache.get("b"));
+        assertEquals("1", cache.getStatistics().get("imageCacheSoftHits"));
+        assertEquals(1, cache.count(k -> "b".equals(k)));
+
+        assertNull(cache.get("d"));
+        assertEquals("1", cache.getStatistics().get("imageCacheMisses"));
+
+        cache.setBudget(IMAGE_BYTES);
+        assertEquals(1, cache.count(k -> true));
+        assertEquals(Long.toString(IMAGE_BYTES),
+                     cache.getStatistics().get("imageCacheBytes"));
+    }
+
+    public void testRemove() {
+        ImageCache cache = new ImageCache(IMAGE_BYTES);
+        cache.put("a", makeImage());
+        cache.put("b", makeImage());
+        cache.removeIf(k -> "b".equals(k));
+        assertNull(cache.get("b"));
+        cache.removeIf(k -> "a".equals(k));
+        assertNull(cache.get("a"));
+        assertEquals("0", cache.getStatistics().get("imageCacheBytes"));
+
+        cache.put("a", makeImage());
+        cache.put("a", makeImage());
+        assertEquals(Long.toString(IMAGE_BYTES),
+                     cache.getStatistics().get("imageCacheBytes"));
+        cache.clear();
+        assertNull(cache.get("a"));
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.common.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import net.sf.freecol.common.util.LogBuilder;
+
+import net.sf.freecol.util.test.FreeColTestCase;
+
+
+public class LogBuilderTest extends FreeColTestCase {
+
+    /** An object that counts the calls to its toString method. */
+    private static class Counted {
+        public int count = 0;
+
+        @Override
+        public String toString() {
+            count++;
+            return "counted";
+        }
+    }
+
+
+    public void testDisabled() {
+        final Logger logger = Logger.getLogger("test.LogBuilderTest");
+        final Counted counted = new Counted();
+        final int[] calls = { 0 };
+        final Supplier<String> supplier = () -> { calls[0]++; return "x"; };
+        logger.setLevel(Level.INFO);
+
+        LogBuilder lb = new LogBuilder(logger, Level.FINE, 64);
+        assertFalse(lb.isEnabled());
+        lb.add("a", counted, supplier);
+        lb.mark();
+        lb.add(counted);
+        assertFalse(lb.grew(counted));
+        assertEquals(0, lb.size());
+        assertEquals("", lb.toString());
+        assertEquals(0, counted.count);
+        assertEquals(0, calls[0]);
+
+        lb = new LogBuilder(logger, Level.WARNING, 64);
+        assertTrue(lb.isEnabled());
+        lb.add("a", counted, supplier);
+        assertEquals("acountedx", lb.toString());
+        assertEquals(1, counted.count);
+        assertEquals(1, calls[0]);
+
+        lb = new LogBuilder(logger, null, 64);
+        assertFalse(lb.isEnabled());
+        lb = new LogBuilder(0);
+        assertFalse(lb.isEnabled());
+        lb = new LogBuilder(null, Level.FINE, 64);
+        assertTrue(lb.isEnabled());
+    }
+
+    public void testLog() {
+        final Logger logger = Logger.getLogger("test.LogBuilderTest");
+        final List<String> messages = new ArrayList<>();
+        final Handler handler = new Handler() {
+                @Override
+                public void publish(LogRecord record) {
+                    messages.add(record.getMessage());
+                }
+                @Override
+                public void flush() {}
+                @Override
+                public void close() {}
+            };
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        logger.setLevel(Level.INFO);
+        try {
+            LogBuilder lb = new LogBuilder(logger, Level.INFO, 64);
+            lb.add("one");
+            lb.log();
+            lb = new LogBuilder(logger, Level.FINE, 64);
+            lb.add("two");
+            lb.log();
+            assertEquals(1, messages.size());
+            assertEquals("one", messages.get(0));
+        } finally {
+            logger.removeHandler(handler);
+            logger.setUseParentHandlers(true);
+        }
+    }
+
+    public void testGrewAndWide() {
+        LogBuilder lb = new LogBuilder(64);
+        lb.add("a");
+        lb.mark();
+        assertFalse(lb.grew("x"));
+        lb.mark();
+        lb.add("c");
+        lb.mark();
+        lb.add("d");
+        assertTrue(lb.grew("[", "e", "]"));
+        assertTrue(lb.grew("b"));
+        assertEquals("abc[e]d", lb.toString());
+
+        assertEquals("ab  ", LogBuilder.wide(4, "a", "b"));
+        assertEquals("  ab", LogBuilder.wide(-4, "a", "b"));
+        assertEquals("abc", LogBuilder.wide(3, "abcdef"));
+        // The scratch buffer must not leak between calls
+        assertEquals("z   ", LogBuilder.wide(4, "z"));
+    }
+}
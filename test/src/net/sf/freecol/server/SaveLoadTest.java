@@ -20,13 +20,20 @@
 package net.sf.freecol.server;
 
 import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
 
+import net.sf.freecol.FreeCol;
 import net.sf.freecol.common.FreeColException;
+import net.sf.freecol.common.io.FreeColXMLWriter.WriteScope;
 import net.sf.freecol.common.io.FreeColSavegameFile;
 import net.sf.freecol.common.option.FileOption;
 import net.sf.freecol.common.option.MapGeneratorOptions;
 import net.sf.freecol.server.control.Controller;
 import net.sf.freecol.server.control.PreGameController;
+import net.sf.freecol.server.model.ServerGame;
 import net.sf.freecol.util.test.FreeColTestCase;
 
 
@@ -88,4 +95,70 @@ public class SaveLoadTest extends FreeColTestCase {
         file.delete();
         assertFalse(file.exists());
     }
+
+    public void testBackgroundSave() {
+        FreeColServer server = ServerTestHelper.startServer(false, true);
+        try {
+            server.startGame();
+        } catch (FreeColException e) {
+            fail(e.getMessage());
+        }
+        List<File> files = new ArrayList<>();
+        files.add(new File("test-background-1.fsg"));
+        files.add(new File("test-background-2.fsg"));
+        try {
+            server.saveGameInBackground(files, null, null).get();
+        } catch (Exception e) {
+            fail("Background save failed: " + e);
+        }
+        for (File f : files) {
+            assertTrue(f.exists());
+            assertFalse(new File(f.getPath() + ".tmp").exists());
+        }
+        assertEquals("2", server.getSaveStatistics().get("saves"));
+        ServerTestHelper.stopServer();
+
+        server = ServerTestHelper.startServer(files.get(1), false, true);
+        assertNotNull(server.getGame());
+        assertNotNull(server.getGame().getMap());
+        for (File f : files) assertTrue(f.delete());
+    }
+
+    public void testCompactFormat() throws Exception {
+        FreeColServer server = ServerTestHelper.startServer(false, true);
+        server.startGame();
+        File xmlFile = new File("test-format.fsg");
+        File compactFile = new File("test-format-compact.fsg");
+        server.saveGame(xmlFile, null, null);
+        assertTrue(FreeCol.setSavegameFormat("compact"));
+        try {
+            server.saveGame(compactFile, null, null);
+        } finally {
+            FreeCol.setSavegameFormat("xml");
+        }
+        ServerTestHelper.stopServer();
+
+        FreeColSavegameFile xml = new FreeColSavegameFile(xmlFile);
+        FreeColSavegameFile compact = new FreeColSavegameFile(compactFile);
+        assertEquals(FreeColSavegameFile.Format.XML, xml.getFormat());
+        assertEquals(FreeColSavegameFile.Format.COMPACT, compact.getFormat());
+        Properties properties = new Properties();
+        try (InputStream is = compact.getInputStream(FreeColSavegameFile
+                .SAVEGAME_PROPERTIES)) {
+            properties.load(is);
+        }
+        assertEquals("compact",
+            properties.getProperty(FreeColSavegameFile.FORMAT_PROPERTY));
+        assertTrue(compactFile.length() < xmlFile.length());
+        assertEquals(xml.getSavegameVersion(), compact.getSavegameVersion());
+
+        // Both formats must load the same game
+        ServerGame g1 = FreeColServer.readGame(xml, null, null);
+        ServerGame g2 = FreeColServer.readGame(compact, null, null);
+        assertEquals(g1.serialize(WriteScope.toSave()),
+                     g2.serialize(WriteScope.toSave()));
+
+        assertTrue(xmlFile.delete());
+        assertTrue(compactFile.delete());
+    }
 }
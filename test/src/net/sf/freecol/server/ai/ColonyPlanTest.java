@@ -26,18 +26,23 @@ import net.sf.freecol.common.model.Building;
 import net.sf.freecol.common.model.BuildingType;
 import net.sf.freecol.common.model.Colony;
 import net.sf.freecol.common.model.ColonyTile;
+import net.sf.freecol.common.model.Direction;
 import net.sf.freecol.common.model.Game;
 import net.sf.freecol.common.model.GoodsContainer;
 import net.sf.freecol.common.model.GoodsType;
 import net.sf.freecol.common.model.Map;
+import net.sf.freecol.common.model.Occupation;
 import net.sf.freecol.common.model.Player;
 import net.sf.freecol.common.model.Tile;
+import net.sf.freecol.common.model.TileImprovement;
 import net.sf.freecol.common.model.TileImprovementType;
 import net.sf.freecol.common.model.TileType;
 import net.sf.freecol.common.model.Unit;
 import net.sf.freecol.common.model.UnitType;
+import net.sf.freecol.common.model.WorkerAssignment;
 import net.sf.freecol.common.util.LogBuilder;
 import net.sf.freecol.server.ServerTestHelper;
+import net.sf.freecol.server.model.ServerBuilding;
 import net.sf.freecol.server.model.ServerUnit;
 import net.sf.freecol.util.test.FreeColTestCase;
 
@@ -46,6 +51,8 @@ public class ColonyPlanTest extends FreeColTestCase {
 
     private static final BuildingType blacksmithShopType
         = spec().getBuildingType("model.building.blacksmithShop");
+    private static final BuildingType carpenterHouseType
+        = spec().getBuildingType("model.building.carpenterHouse");
     private static final BuildingType lumberMillType
         = spec().getBuildingType("model.building.lumberMill");
     private static final BuildingType townHallType
@@ -152,6 +159,8 @@ public class ColonyPlanTest extends FreeColTestCase {
         = spec().getUnitType("model.unit.indianConvert");
     private static final UnitType criminalType
         = spec().getUnitType("model.unit.pettyCriminal");
+    private static final UnitType statesmanType
+        = spec().getUnitType("model.unit.elderStatesman");
     private static final UnitType sugarPlanterType
         = spec().getUnitType("model.unit.masterSugarPlanter");
 
@@ -272,6 +281,133 @@ public class ColonyPlanTest extends FreeColTestCase {
             shouldProduce(plan, toolsType));
     }
 
+    /**
+     * Check that a plan that has been updated matches a new plan.
+     *
+     * @param aiMain The {@code AIMain} to use.
+     * @param colony The {@code Colony} to plan for.
+     * @param plan The {@code ColonyPlan} to update and check.
+     */
+    private void checkUpdate(AIMain aiMain, Colony colony, ColonyPlan plan) {
+        plan.update();
+        ColonyPlan fresh = new ColonyPlan(aiMain, colony);
+        fresh.update();
+        assertEquals(fresh.getPreferredProduction(),
+                     plan.getPreferredProduction());
+        assertEquals(fresh.getBuildableTypes(), plan.getBuildableTypes());
+        assertEquals(fresh.toString(), plan.toString());
+    }
+
+    public void testIncrementalUpdate() {
+        Game game = ServerTestHelper.startServerGame(buildMap(true));
+        AIMain aiMain = ServerTestHelper.getServer().getAIMain();
+        Colony colony = getStandardColony(4);
+        ColonyPlan plan = new ColonyPlan(aiMain, colony);
+        checkUpdate(aiMain, colony, plan);
+
+        // Change a tile type
+        Tile tile = colony.getTile().getNeighbourOrNull(Direction.N);
+        tile.changeType(savannahType);
+        checkUpdate(aiMain, colony, plan);
+
+        // Improve the tile, which does nothing until complete
+        TileImprovement ti = new TileImprovement(game, tile, plow, null);
+        ti.setTurnsToComplete(2);
+        tile.add(ti);
+        checkUpdate(aiMain, colony, plan);
+        ti.setTurnsToComplete(0);
+        checkUpdate(aiMain, colony, plan);
+
+        // Add a building
+        colony.addBuilding(new ServerBuilding(game, colony, lumberMillType));
+        checkUpdate(aiMain, colony, plan);
+
+        // Change the population
+        Unit unit = colony.getUnitList().get(0);
+        unit.setLocation(colony.getTile());
+        checkUpdate(aiMain, colony, plan);
+
+        // The fallback discards everything
+        plan.invalidate();
+        checkUpdate(aiMain, colony, plan);
+    }
+
+    public void testReassignWorkers() {
+        Game game = ServerTestHelper.startServerGame(getTestMap());
+        AIMain aiMain = ServerTestHelper.getServer().getAIMain();
+        Colony colony = getStandardColony(1);
+        ColonyPlan plan = new ColonyPlan(aiMain, colony);
+        ColonyTile tile = colony.getColonyTile(colony.getTile()
+            .getNeighbourOrNull(Direction.N));
+
+        // A statesman on the farm, and a farmer waiting for work
+        Unit statesman = colony.getUnitList().get(0);
+        statesman.changeType(statesmanType);
+        assertTrue(statesman.setLocation(tile));
+        statesman.changeWorkType(grainType);
+        Unit farmer = new ServerUnit(game, colony.getTile(),
+                                     colony.getOwner(), farmerType);
+        List<Unit> placed = new ArrayList<>();
+        placed.add(statesman);
+        List<Unit> candidates = new ArrayList<>(placed);
+        candidates.add(farmer);
+        List<Unit> workers = new ArrayList<>();
+        workers.add(farmer);
+
+        // The farmer takes the farm, and the statesman needs a job
+        assertTrue(plan.reassignWorkers(colony, new WorkerAssignment(candidates,
+                    WorkerAssignment.getJobs(placed)), workers, lb));
+        assertEquals(tile, farmer.getLocation());
+        assertEquals(grainType, farmer.getWorkType());
+        assertEquals(colony.getTile(), statesman.getLocation());
+        assertEquals(1, workers.size());
+        assertEquals(statesman, workers.get(0));
+
+        // Nothing more to do
+        placed.clear();
+        placed.add(farmer);
+        assertFalse(plan.reassignWorkers(colony, new WorkerAssignment(placed,
+                    WorkerAssignment.getJobs(placed)), workers, lb));
+    }
+
+    public void testReassignWorkersStarving() {
+        Game game = ServerTestHelper.startServerGame(getTestMap());
+        AIMain aiMain = ServerTestHelper.getServer().getAIMain();
+        Colony colony = getStandardColony(3);
+        ColonyPlan plan = new ColonyPlan(aiMain, colony);
+        Building carpenterHouse = colony.getBuilding(carpenterHouseType);
+        Building townHall = colony.getBuilding(townHallType);
+        ColonyTile tile = colony.getColonyTile(colony.getTile()
+            .getNeighbourOrNull(Direction.N));
+
+        // The farmer feeds the colony, the others make nothing
+        Unit farmer = colony.getUnitList().get(0);
+        farmer.changeType(farmerType);
+        assertTrue(farmer.setLocation(tile));
+        farmer.changeWorkType(grainType);
+        for (Unit u : colony.getUnitList()) {
+            if (u == farmer) continue;
+            assertTrue(u.setLocation(carpenterHouse));
+            u.changeWorkType(hammersType);
+        }
+        final int food = colony.getAdjustedNetProductionOf(foodType);
+        assertTrue(food > 0);
+
+        // Moving the farmer to the town hall would starve the colony
+        List<Unit> units = new ArrayList<>();
+        units.add(farmer);
+        List<Occupation> jobs = new ArrayList<>();
+        jobs.add(new Occupation(townHall, townHall.getProductionType(),
+                                bellsType));
+        List<Unit> workers = new ArrayList<>();
+        assertFalse(plan.reassignWorkers(colony,
+                new WorkerAssignment(units, jobs), workers, lb));
+        assertEquals(tile, farmer.getLocation());
+        assertEquals(grainType, farmer.getWorkType());
+        assertEquals(food, colony.getAdjustedNetProductionOf(foodType));
+        assertTrue(workers.isEmpty());
+    }
+
     public void testGetBestWorker() {
         Game game = ServerTestHelper.startServerGame(getTestMap(savannahType));
         AIMain aiMain = ServerTestHelper.getServer().getAIMain();
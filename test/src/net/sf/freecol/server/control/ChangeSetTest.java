@@ -0,0 +1,200 @@
+/**
+ *  Copyright (C) 2002-2016  The FreeCol Team
+ *
+ *  This file is part of FreeCol.
+ *
+ *  FreeCol is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  FreeCol is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with FreeCol.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.freecol.server.control;
+
+import net.sf.freecol.common.model.Building;
+import net.sf.freecol.common.model.Colony;
+import net.sf.freecol.common.model.FreeColGameObject;
+import net.sf.freecol.common.model.FreeColObject;
+import net.sf.freecol.common.model.Game;
+import net.sf.freecol.common.model.GoodsContainer;
+import net.sf.freecol.common.model.GoodsType;
+import net.sf.freecol.common.model.Player;
+import net.sf.freecol.common.model.Tile;
+import net.sf.freecol.common.model.Unit;
+import net.sf.freecol.common.model.UnitType;
+import net.sf.freecol.common.networking.DOMMessage;
+import net.sf.freecol.common.networking.UpdateMessage;
+import net.sf.freecol.server.ServerTestHelper;
+import net.sf.freecol.server.control.ChangeSet.See;
+import net.sf.freecol.server.model.ServerPlayer;
+import net.sf.freecol.server.model.ServerUnit;
+import net.sf.freecol.util.test.FreeColTestCase;
+
+import static net.sf.freecol.common.util.CollectionUtils.*;
+
+import org.w3c.dom.Element;
+
+
+public class ChangeSetTest extends FreeColTestCase {
+
+    private static final GoodsType lumberType
+        = spec().getGoodsType("model.goods.lumber");
+
+    private static final UnitType colonistType
+        = spec().getUnitType("model.unit.freeColonist");
+
+
+    private static Element build(ServerPlayer player,
+                                 FreeColGameObject fcgo) {
+        return new ChangeSet().add(See.only(player), fcgo).build(player);
+    }
+
+    private static int count(Element element, String tag) {
+        return (element == null) ? 0
+            : element.getElementsByTagName(tag).getLength()
+                + ((element.getTagName().equals(tag)) ? 1 : 0);
+    }
+
+    public void testUnchangedUpdates() {
+        final Game game = ServerTestHelper.startServerGame(getTestMap());
+
+        ServerPlayer dutch = (ServerPlayer)game.getPlayerByNationId("model.nation.dutch");
+        dutch.setConnected(true);
+        final UpdateHistory history = dutch.getUpdateHistory();
+        Tile tile = game.getMap().getTile(5, 8);
+        tile.setExplored(dutch, true);
+
+        assertEquals("First update is sent",
+                     1, count(build(dutch, tile), Tile.TAG));
+        assertNull("Repeated update is dropped", build(dutch, tile));
+        assertEquals(1, history.getSuppressedCount());
+
+        // The client changes units by itself, so they are always sent.
+        Unit unit = new ServerUnit(game, tile, dutch, colonistType);
+        dutch.invalidateCanSeeTiles();
+        assertEquals(1, count(build(dutch, unit), Unit.TAG));
+        assertEquals(1, count(build(dutch, unit), Unit.TAG));
+
+        // The tile changed, then only the unit within it is resent.
+        Element element = build(dutch, tile);
+        assertEquals("Changed update is sent",
+                     1, count(element, Tile.TAG));
+        assertEquals(1, count(element, Unit.TAG));
+        element = build(dutch, tile);
+        assertEquals("Unchanged tile is dropped",
+                     0, count(element, Tile.TAG));
+        assertEquals("Unit within it is sent", 1, count(element, Unit.TAG));
+
+        // Other mentions of an object forget it, and its containers.
+        ChangeSet cs = new ChangeSet();
+        cs.addPartial(See.only(dutch), unit, "movesLeft");
+        assertNotNull(cs.build(dutch));
+        assertEquals("Tile is resent after partial",
+                     1, count(build(dutch, tile), Tile.TAG));
+
+        // Reconnecting forgets everything.
+        dutch.setConnected(false);
+        dutch.setConnected(true);
+        assertEquals("Update resent on reconnect",
+                     1, count(build(dutch, tile), Tile.TAG));
+
+        // Disconnected players are never filtered.
+        dutch.setConnected(false);
+        assertEquals(1, count(build(dutch, tile), Tile.TAG));
+        assertEquals(1, count(build(dutch, tile), Tile.TAG));
+    }
+
+    public void testChangedParts() {
+        final Game game = ServerTestHelper.startServerGame(getTestMap());
+
+        Colony colony = getStandardColony(2);
+        ServerPlayer dutch = (ServerPlayer)colony.getOwner();
+        dutch.setConnected(true);
+
+        Element element = build(dutch, colony);
+        assertEquals(1, count(element, Colony.TAG));
+        assertEquals(1, count(element, GoodsContainer.TAG));
+        assertEquals(2, count(element, Unit.TAG));
+
+        // Only the units are sent again.
+        element = build(dutch, colony);
+        assertEquals(0, count(element, Colony.TAG));
+        assertEquals(0, count(element, Building.TAG));
+        assertEquals(0, count(element, GoodsContainer.TAG));
+        assertEquals(2, count(element, Unit.TAG));
+
+        // Changing the goods sends the goods container alone.
+        colony.addGoods(lumberType, 10);
+        element = build(dutch, colony);
+        assertEquals(0, count(element, Colony.TAG));
+        assertEquals(1, count(element, GoodsContainer.TAG));
+        assertEquals(colony.getGoodsContainer().getId(),
+            ((Element)element.getElementsByTagName(GoodsContainer.TAG)
+                .item(0)).getAttribute(FreeColObject.ID_ATTRIBUTE_TAG));
+
+        // Moving a unit to another building sends both buildings,
+        // but not the colony.
+        Unit unit = colony.getUnitList().get(0);
+        Building building = find(colony.getBuildings(),
+            b -> b != unit.getLocation() && b.canAdd(unit));
+        assertTrue(unit.setLocation(building));
+        element = build(dutch, colony);
+        assertEquals(0, count(element, Colony.TAG));
+        assertTrue(count(element, Building.TAG) >= 1);
+    }
+
+    private static Game readClientGame(Game game, Player player) {
+        Game client = DOMMessage.readGameElement(new Game(),
+            DOMMessage.toXMLElement(game, DOMMessage.createNewDocument(),
+                                    player), true, Game.class);
+        assertNotNull(client);
+        return client;
+    }
+
+    private static String clientView(Game client, FreeColGameObject fcgo,
+                                     Player player) {
+        return DOMMessage.elementToString(DOMMessage.toXMLElement(
+                client.getFreeColGameObject(fcgo.getId()),
+                DOMMessage.createNewDocument(),
+                client.getPlayerByNationId(player.getNationId())));
+    }
+
+    public void testPatchInPlace() {
+        final Game game = ServerTestHelper.startServerGame(getTestMap());
+
+        Colony colony = getStandardColony(3);
+        ServerPlayer dutch = (ServerPlayer)colony.getOwner();
+        dutch.setConnected(true);
+        new ChangeSet().add(See.only(dutch), colony).build(dutch);
+        Game full = readClientGame(game, dutch);
+        Game reduced = readClientGame(game, dutch);
+        assertEquals(clientView(full, colony, dutch),
+                     clientView(reduced, colony, dutch));
+
+        // Change parts of the colony, and check that reading just
+        // those parts leaves the client copy as a full update would.
+        colony.addGoods(lumberType, 10);
+        Unit unit = colony.getUnitList().get(0);
+        Building building = find(colony.getBuildings(),
+            b -> b != unit.getLocation() && b.canAdd(unit));
+        assertTrue(unit.setLocation(building));
+        Element element = build(dutch, colony);
+        assertEquals(0, count(element, Colony.TAG));
+        new UpdateMessage(reduced, element);
+        DOMMessage.updateFromElement(full, DOMMessage.toXMLElement(colony,
+                DOMMessage.createNewDocument(), dutch));
+        assertEquals(clientView(full, colony, dutch),
+                     clientView(reduced, colony, dutch));
+        assertEquals(colony.getGoodsCount(lumberType),
+            reduced.getFreeColGameObject(colony.getId(), Colony.class)
+                .getGoodsCount(lumberType));
+    }
+}
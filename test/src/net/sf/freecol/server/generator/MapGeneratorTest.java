@@ -27,11 +27,13 @@ import net.sf.freecol.common.io.FreeColSavegameFile;
 import net.sf.freecol.common.model.FreeColObject;
 import net.sf.freecol.common.model.Game;
 import net.sf.freecol.common.model.IndianSettlement;
+import net.sf.freecol.common.model.LandMap;
 import net.sf.freecol.common.model.Map;
 import net.sf.freecol.common.model.Nation;
 import net.sf.freecol.common.model.NationOptions;
 import net.sf.freecol.common.model.Player;
 import net.sf.freecol.common.model.Region;
+import net.sf.freecol.common.model.Resource;
 import net.sf.freecol.common.model.Tile;
 import net.sf.freecol.common.model.Turn;
 import net.sf.freecol.common.option.FileOption;
@@ -247,4 +249,52 @@ public class MapGeneratorTest extends FreeColTestCase {
         assertFalse(northAtlantic.getDiscoverable());
         assertNull(northAtlantic.getDiscoverableRegion());
     }
+
+    private Map createTerrain(boolean parallel, long seed) {
+        Game game = new ServerGame(spec());
+        game.getMapGeneratorOptions()
+            .setBoolean(MapGeneratorOptions.PARALLEL_TERRAIN, parallel);
+        Random random = new Random(seed);
+        LandMap landMap = new LandMap(game.getMapGeneratorOptions(), random);
+        return new TerrainGenerator(game, null, random)
+            .createMap(landMap, new LogBuilder(-1));
+    }
+
+    public void testParallelTerrain() {
+        // Off by default, so existing seeds keep generating the same map
+        assertFalse(spec().getBoolean(MapGeneratorOptions.PARALLEL_TERRAIN));
+        ((FileOption) spec().getOption(MapGeneratorOptions.IMPORT_FILE)).setValue(null);
+
+        try {
+            for (boolean parallel : new boolean[] { false, true }) {
+                Map m1 = createTerrain(parallel, 1L);
+                Map m2 = createTerrain(parallel, 1L);
+                assertEquals(m1.getWidth(), m2.getWidth());
+                assertEquals(m1.getHeight(), m2.getHeight());
+                int resources = 0;
+                for (int y = 0; y < m1.getHeight(); y++) {
+                    for (int x = 0; x < m1.getWidth(); x++) {
+                        Tile t1 = m1.getTile(x, y), t2 = m2.getTile(x, y);
+                        assertNotNull(t1.getType());
+                        assertEquals(t1.getType(), t2.getType());
+                        assertEquals(t1.getStyle(), t2.getStyle());
+                        assertEquals(t1.hasRiver(), t2.hasRiver());
+                        Resource r1 = t1.getResource(), r2 = t2.getResource();
+                        if (r1 == null) {
+                            assertNull(r2);
+                        } else {
+                            assertNotNull(r2);
+                            assertEquals(r1.getType(), r2.getType());
+                            assertEquals(r1.getQuantity(), r2.getQuantity());
+                            resources++;
+                        }
+                    }
+                }
+                assertTrue("Bonus resources present", resources > 0);
+            }
+        } finally {
+            spec().getMapGeneratorOptions()
+                .setBoolean(MapGeneratorOptions.PARALLEL_TERRAIN, false);
+        }
+    }
 }